@@ -100,6 +100,7 @@ public abstract class TmfGraphBuilderModule extends TmfAbstractAnalysisModule {
             request = new TmfGraphBuildRequest(provider);
             fRequest = request;
             provider.getTrace().sendRequest(request);
+            releaseReadPass();
 
             request.waitForCompletion();
         } catch (InterruptedException e) {
@@ -68,6 +68,8 @@ public class CriticalPathModule extends TmfAbstractAnalysisModule {
             return true;
         }
         graphModule.schedule();
+        /* This analysis does not read the trace, do not hold back the read pass */
+        releaseReadPass();
 
         monitor.setTaskName(NLS.bind(Messages.CriticalPathModule_waitingForGraph, graphModule.getName()));
         if (!graphModule.waitForCompletion(monitor)) {
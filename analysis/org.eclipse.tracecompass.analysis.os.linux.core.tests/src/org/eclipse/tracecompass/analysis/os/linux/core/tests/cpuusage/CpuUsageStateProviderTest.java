@@ -12,9 +12,11 @@
 
 package org.eclipse.tracecompass.analysis.os.linux.core.tests.cpuusage;
 
+import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -25,6 +27,7 @@ import java.util.Map;
 
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.tracecompass.analysis.os.linux.core.cpuusage.CpuUsageSamples;
 import org.eclipse.tracecompass.analysis.os.linux.core.cpuusage.KernelCpuUsageAnalysis;
 import org.eclipse.tracecompass.analysis.os.linux.core.kernelanalysis.Attributes;
 import org.eclipse.tracecompass.analysis.os.linux.core.kernelanalysis.KernelAnalysisModule;
@@ -269,4 +272,34 @@ public class CpuUsageStateProviderTest {
         assertEquals(expected, resultMap);
 
     }
+
+    /**
+     * Test the {@link KernelCpuUsageAnalysis#getCpuUsageSamples(long[])}
+     * method.
+     */
+    @Test
+    public void testUsageSamples() {
+        fModule.schedule();
+        fModule.waitForCompletion();
+
+        /* Same ranges as in testUsageInRange, where the running threads are known */
+        CpuUsageSamples samples = fModule.getCpuUsageSamples(new long[] { 4L, 13L, 22L, 25L });
+        assertEquals(3, samples.getNbSamples());
+        assertEquals(13L, samples.getTime(1));
+
+        long[] usage2 = checkNotNull(samples.getThreadUsage(2));
+        long[] usage3 = checkNotNull(samples.getThreadUsage(3));
+        long[] usage4 = checkNotNull(samples.getThreadUsage(4));
+        assertEquals(9L, usage2[0]);
+        assertEquals(5L, usage3[0]);
+        assertEquals(4L, usage4[0]);
+        assertEquals(0L, usage2[2]);
+        assertEquals(3L, usage3[2]);
+        assertEquals(3L, usage4[2]);
+        assertEquals(18L, samples.getTotalUsage()[0]);
+        assertEquals(6L, samples.getTotalUsage()[2]);
+
+        /* The same sample times should hit the cache */
+        assertSame(samples, fModule.getCpuUsageSamples(new long[] { 4L, 13L, 22L, 25L }));
+    }
 }
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2015 École Polytechnique de Montréal and others.
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.analysis.os.linux.core.cpuusage;
+
+import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * CPU usage of the threads of a system, sampled over consecutive time ranges.
+ * Sample 'i' covers the range [times[i], times[i+1]], so there is one less
+ * sample than there are sample times.
+ *
+ * The usage values are the time spent on CPU during the sample's range,
+ * summed over all the CPUs.
+ *
+ * @see KernelCpuUsageAnalysis#getCpuUsageSamples(long[])
+ * @since 2.0
+ */
+public final class CpuUsageSamples {
+
+    private final long[] fTimes;
+    private final Map<Integer, long[]> fThreadUsage;
+    private final long[] fTotal;
+
+    /**
+     * Constructor
+     *
+     * @param times
+     *            The sample times, in increasing order
+     * @param threadUsage
+     *            The usage of each thread, per sample, by thread ID
+     * @param total
+     *            The usage of all the threads except the idle thread, per
+     *            sample
+     */
+    CpuUsageSamples(long[] times, Map<Integer, long[]> threadUsage, long[] total) {
+        fTimes = times;
+        fThreadUsage = threadUsage;
+        fTotal = total;
+    }
+
+    /**
+     * Get the number of samples
+     *
+     * @return The number of samples
+     */
+    public int getNbSamples() {
+        return fTotal.length;
+    }
+
+    /**
+     * Get the start time of a sample. The end time of the sample is the start
+     * time of the next one.
+     *
+     * @param index
+     *            The index of the sample. Can also be the number of samples,
+     *            to get the end time of the last sample.
+     * @return The start time of the sample
+     */
+    public long getTime(int index) {
+        return fTimes[index];
+    }
+
+    /**
+     * Get the IDs of the threads that were on CPU during the sampled ranges.
+     *
+     * @return The thread IDs
+     */
+    public Set<Integer> getThreads() {
+        return checkNotNull(Collections.unmodifiableSet(fThreadUsage.keySet()));
+    }
+
+    /**
+     * Get the time spent on CPU by a thread, per sample. The returned array
+     * should not be modified.
+     *
+     * @param tid
+     *            The thread ID
+     * @return The usage of this thread per sample, or null if it was never on
+     *         CPU during the sampled ranges
+     */
+    public long @Nullable [] getThreadUsage(int tid) {
+        return fThreadUsage.get(tid);
+    }
+
+    /**
+     * Get the time spent on CPU by all the threads except the idle thread (TID
+     * 0), per sample. The returned array should not be modified.
+     *
+     * @return The total usage per sample
+     */
+    public long[] getTotalUsage() {
+        return fTotal;
+    }
+}
@@ -14,13 +14,17 @@ package org.eclipse.tracecompass.analysis.os.linux.core.cpuusage;
 
 import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.analysis.os.linux.core.kernelanalysis.Attributes;
 import org.eclipse.tracecompass.analysis.os.linux.core.kernelanalysis.KernelAnalysisModule;
 import org.eclipse.tracecompass.analysis.os.linux.core.trace.IKernelAnalysisEventLayout;
@@ -56,6 +60,19 @@ public class KernelCpuUsageAnalysis extends TmfStateSystemAnalysisModule {
     /** Idle process thread ID */
     public static final String TID_ZERO = "0"; //$NON-NLS-1$
 
+    /** Number of results kept in the samples cache */
+    private static final int SAMPLES_CACHE_SIZE = 8;
+
+    /** Most recently used CPU usage samples, by sample times */
+    private final Map<SamplesKey, CpuUsageSamples> fSamplesCache = new LinkedHashMap<SamplesKey, CpuUsageSamples>(SAMPLES_CACHE_SIZE, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(@Nullable Entry<SamplesKey, CpuUsageSamples> eldest) {
+            return size() > SAMPLES_CACHE_SIZE;
+        }
+    };
+
     @Override
     protected ITmfStateProvider createStateProvider() {
         ITmfTrace trace = checkNotNull(getTrace());
@@ -241,6 +258,183 @@ public class KernelCpuUsageAnalysis extends TmfStateSystemAnalysisModule {
         return map;
     }
 
+    /**
+     * Get the CPU usage of the threads for consecutive time ranges, for
+     * example to draw the CPU usage over time. This is much cheaper than
+     * calling {@link #getCpuUsageInRange(long, long)} for every range: the
+     * state systems are queried once per sample time, and the results are
+     * cached for the last requested sample times.
+     *
+     * Unlike {@link #getCpuUsageInRange(long, long)}, when the thread running
+     * on a CPU at a sample time is unknown, no thread is assumed to be running
+     * there.
+     *
+     * @param times
+     *            The sample times, in increasing order. Sample 'i' covers the
+     *            range [times[i], times[i+1]].
+     * @return The CPU usage samples. If the state systems are not available,
+     *         all the samples are empty.
+     * @since 2.0
+     */
+    public CpuUsageSamples getCpuUsageSamples(long[] times) {
+        int nbSamples = Math.max(0, times.length - 1);
+        long[] sampleTimes = Arrays.copyOf(times, times.length);
+        CpuUsageSamples empty = new CpuUsageSamples(sampleTimes, new HashMap<Integer, long[]>(), new long[nbSamples]);
+
+        ITmfTrace trace = getTrace();
+        ITmfStateSystem cpuSs = getStateSystem();
+        if (trace == null || cpuSs == null || nbSamples == 0) {
+            return empty;
+        }
+        ITmfStateSystem kernelSs = TmfStateSystemAnalysisModule.getStateSystem(trace, KernelAnalysisModule.ID);
+        if (kernelSs == null) {
+            return empty;
+        }
+
+        /* Results are only valid for the current extent of the state systems */
+        SamplesKey key = new SamplesKey(sampleTimes, cpuSs.getCurrentEndTime(), kernelSs.getCurrentEndTime());
+        synchronized (fSamplesCache) {
+            CpuUsageSamples samples = fSamplesCache.get(key);
+            if (samples != null) {
+                return samples;
+            }
+        }
+
+        CpuUsageSamples samples = computeCpuUsageSamples(cpuSs, kernelSs, sampleTimes);
+        if (samples == null) {
+            return empty;
+        }
+        synchronized (fSamplesCache) {
+            fSamplesCache.put(key, samples);
+        }
+        return samples;
+    }
+
+    private static @Nullable CpuUsageSamples computeCpuUsageSamples(ITmfStateSystem cpuSs, ITmfStateSystem kernelSs, long[] times) {
+        int nbSamples = times.length - 1;
+        long minTime = Math.max(cpuSs.getStartTime(), kernelSs.getStartTime());
+        long maxTime = Math.min(cpuSs.getCurrentEndTime(), kernelSs.getCurrentEndTime());
+        Map<Integer, long[]> threadUsage = new HashMap<>();
+        long[] total = new long[nbSamples];
+        if (maxTime < minTime) {
+            return new CpuUsageSamples(times, threadUsage, total);
+        }
+
+        try {
+            /*
+             * Resolve the attributes once: for every CPU, the quark of its
+             * current thread in the kernel state system, and the quark and TID
+             * of its threads' counters in the CPU usage state system.
+             */
+            int cpusNode = cpuSs.getQuarkAbsolute(Attributes.CPUS);
+            List<Integer> cpuNodes = cpuSs.getSubAttributes(cpusNode, false);
+            List<Integer> currentThreadQuarks = new ArrayList<>();
+            List<int[]> tidNodesPerCpu = new ArrayList<>();
+            List<int[]> tidsPerCpu = new ArrayList<>();
+            for (int cpuNode : cpuNodes) {
+                String cpuName = cpuSs.getAttributeName(cpuNode);
+                currentThreadQuarks.add(kernelSs.getQuarkAbsolute(Attributes.CPUS, cpuName, Attributes.CURRENT_THREAD));
+                List<Integer> tidNodes = cpuSs.getSubAttributes(cpuNode, false);
+                int[] nodes = new int[tidNodes.size()];
+                int[] tids = new int[tidNodes.size()];
+                for (int i = 0; i < nodes.length; i++) {
+                    nodes[i] = tidNodes.get(i);
+                    tids[i] = Integer.parseInt(cpuSs.getAttributeName(nodes[i]));
+                }
+                tidNodesPerCpu.add(nodes);
+                tidsPerCpu.add(tids);
+            }
+
+            /*
+             * Walk the sample times in order, keeping the previous count of
+             * every thread on every CPU, so each sample time is queried once.
+             */
+            long[][] previousCounts = new long[cpuNodes.size()][];
+            long previousTime = 0;
+            for (int sample = 0; sample <= nbSamples; sample++) {
+                long time = Math.min(maxTime, Math.max(minTime, times[sample]));
+                List<ITmfStateInterval> cpuState = cpuSs.queryFullState(time);
+                List<ITmfStateInterval> kernelState = kernelSs.queryFullState(time);
+
+                for (int cpu = 0; cpu < cpuNodes.size(); cpu++) {
+                    int[] tidNodes = tidNodesPerCpu.get(cpu);
+                    int[] tids = tidsPerCpu.get(cpu);
+                    ITmfStateInterval running = kernelState.get(currentThreadQuarks.get(cpu));
+                    int runningThread = running.getStateValue().unboxInt();
+
+                    long[] counts = new long[tidNodes.length];
+                    for (int i = 0; i < tidNodes.length; i++) {
+                        long count = Math.max(0, cpuState.get(tidNodes[i]).getStateValue().unboxLong());
+                        if (tids[i] == runningThread) {
+                            count = interpolateCount(count, time, running.getEndTime(), running.getEndTime() - running.getStartTime());
+                        }
+                        counts[i] = count;
+                    }
+
+                    long[] previous = previousCounts[cpu];
+                    if (previous != null) {
+                        for (int i = 0; i < tidNodes.length; i++) {
+                            long delta = counts[i] - previous[i];
+                            if (delta <= 0 || delta > time - previousTime) {
+                                /* Inconsistent count, ignore like getCpuUsageInRange() */
+                                continue;
+                            }
+                            long[] usage = threadUsage.get(tids[i]);
+                            if (usage == null) {
+                                usage = new long[nbSamples];
+                                threadUsage.put(tids[i], usage);
+                            }
+                            usage[sample - 1] += delta;
+                            if (tids[i] != 0) {
+                                total[sample - 1] += delta;
+                            }
+                        }
+                    }
+                    previousCounts[cpu] = counts;
+                }
+                previousTime = time;
+            }
+        } catch (TimeRangeException | AttributeNotFoundException e) {
+            /*
+             * Assume there is no events or the attribute does not exist yet,
+             * the samples will be empty.
+             */
+            return new CpuUsageSamples(times, new HashMap<Integer, long[]>(), new long[nbSamples]);
+        } catch (StateValueTypeException | StateSystemDisposedException e) {
+            Activator.getDefault().logError("Error getting CPU usage samples", e); //$NON-NLS-1$
+            return null;
+        }
+        return new CpuUsageSamples(times, threadUsage, total);
+    }
+
+    /** Key of the samples cache */
+    private static final class SamplesKey {
+        private final long[] fTimes;
+        private final long fCpuSsEnd;
+        private final long fKernelSsEnd;
+
+        public SamplesKey(long[] times, long cpuSsEnd, long kernelSsEnd) {
+            fTimes = times;
+            fCpuSsEnd = cpuSsEnd;
+            fKernelSsEnd = kernelSsEnd;
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(fTimes) * 31 + Long.hashCode(fCpuSsEnd) * 17 + Long.hashCode(fKernelSsEnd);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (!(obj instanceof SamplesKey)) {
+                return false;
+            }
+            SamplesKey other = (SamplesKey) obj;
+            return fCpuSsEnd == other.fCpuSsEnd && fKernelSsEnd == other.fKernelSsEnd
+                    && Arrays.equals(fTimes, other.fTimes);
+        }
+    }
+
     private static long interpolateCount(long count, long ts, long runningEnd, long runningTime) {
         long newCount = count;
 
@@ -71,6 +71,18 @@ public class KernelAnalysisModule extends TmfStateSystemAnalysisModule {
             // LttngStrings.SYSCALL_PREFIX
             // );
 
+    /**
+     * System property setting the number of threads decoding the events in
+     * parallel. Partitioning is off by default: the state changes are still
+     * applied by a single thread, so the gain depends on how much of the time
+     * is spent decoding events, which has not been measured on enough traces
+     * yet.
+     */
+    private static final String PARTITIONS_PROPERTY = "org.eclipse.tracecompass.analysis.os.linux.core.kernel.partitions"; //$NON-NLS-1$
+
+    /** Maximum number of threads decoding the events in parallel */
+    private static final int MAX_PARTITIONS = 8;
+
     /** The requirements as an immutable set */
     private static final Set<TmfAnalysisRequirement> REQUIREMENTS;
 
@@ -98,7 +110,18 @@ public class KernelAnalysisModule extends TmfStateSystemAnalysisModule {
             layout = IKernelAnalysisEventLayout.DEFAULT_LAYOUT;
         }
 
-        return new KernelStateProvider(trace, layout);
+        return new KernelStateProvider(trace, layout, getNbPartitions());
+    }
+
+    /**
+     * Number of threads decoding the events in parallel, as requested with
+     * {@link #PARTITIONS_PROPERTY}. The thread reading the trace and the one
+     * building the state system each need a core.
+     */
+    private static int getNbPartitions() {
+        int requested = Integer.getInteger(PARTITIONS_PROPERTY, 0);
+        int nbCores = Runtime.getRuntime().availableProcessors();
+        return Math.max(0, Math.min(requested, Math.min(MAX_PARTITIONS, nbCores - 2)));
     }
 
     @Override
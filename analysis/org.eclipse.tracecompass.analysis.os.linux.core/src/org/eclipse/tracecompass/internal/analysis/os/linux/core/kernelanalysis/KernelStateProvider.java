@@ -14,7 +14,7 @@ package org.eclipse.tracecompass.internal.analysis.os.linux.core.kernelanalysis;
 
 import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 
-import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.analysis.os.linux.core.kernelanalysis.Attributes;
@@ -34,8 +34,6 @@ import org.eclipse.tracecompass.tmf.core.statesystem.AbstractTmfStateProvider;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
 import org.eclipse.tracecompass.tmf.core.trace.TmfTraceUtils;
 
-import com.google.common.collect.ImmutableMap;
-
 /**
  * This is the state change input plugin for TMF's state system which handles
  * the LTTng 2.0 kernel traces in CTF format.
@@ -69,14 +67,16 @@ public class KernelStateProvider extends AbstractTmfStateProvider {
     private static final int STATEDUMP_PROCESS_STATE_INDEX = 10;
     private static final int SCHED_WAKEUP_INDEX = 11;
     private static final int SCHED_PI_SETPRIO_INDEX = 12;
+    private static final int SYSCALL_ENTRY_INDEX = 13;
+    private static final int SYSCALL_EXIT_INDEX = 14;
 
 
     // ------------------------------------------------------------------------
     // Fields
     // ------------------------------------------------------------------------
 
-    private final Map<String, Integer> fEventNames;
     private final IKernelAnalysisEventLayout fLayout;
+    private final int fNbPartitions;
 
     // ------------------------------------------------------------------------
     // Constructor
@@ -92,45 +92,89 @@ public class KernelStateProvider extends AbstractTmfStateProvider {
      *            depending on the tracer implementation.
      */
     public KernelStateProvider(ITmfTrace trace, IKernelAnalysisEventLayout layout) {
-        super(trace, "Kernel"); //$NON-NLS-1$
+        this(trace, layout, 0);
+    }
+
+    /**
+     * Instantiate a new state provider plugin, which decodes the events of the
+     * different CPUs in parallel.
+     *
+     * The CPU resolution, the handler lookup and the decoding of the payload
+     * are done per CPU. The state changes themselves are still applied in trace order, in
+     * one thread, since the threads' state depends on events from all the
+     * CPUs (migrations, wakeups, forks and exits).
+     *
+     * @param trace
+     *            The LTTng 2.0 kernel trace directory
+     * @param layout
+     *            The event layout to use for this state provider. Usually
+     *            depending on the tracer implementation.
+     * @param nbPartitions
+     *            The number of threads decoding the events. The CPUs are
+     *            distributed over them. 0 means no parallel decoding.
+     */
+    public KernelStateProvider(ITmfTrace trace, IKernelAnalysisEventLayout layout, int nbPartitions) {
+        super(trace, "Kernel", nbPartitions); //$NON-NLS-1$
         fLayout = layout;
-        fEventNames = buildEventNames(layout);
+        fNbPartitions = nbPartitions;
+        registerEventHandlers(layout);
     }
 
     // ------------------------------------------------------------------------
     // Event names management
     // ------------------------------------------------------------------------
 
-    private static Map<String, Integer> buildEventNames(IKernelAnalysisEventLayout layout) {
-        ImmutableMap.Builder<String, Integer> builder = ImmutableMap.builder();
-
-        builder.put(layout.eventIrqHandlerEntry(), IRQ_HANDLER_ENTRY_INDEX);
-        builder.put(layout.eventIrqHandlerExit(), IRQ_HANDLER_EXIT_INDEX);
-        builder.put(layout.eventSoftIrqEntry(), SOFT_IRQ_ENTRY_INDEX);
-        builder.put(layout.eventSoftIrqExit(), SOFT_IRQ_EXIT_INDEX);
-        builder.put(layout.eventSoftIrqRaise(), SOFT_IRQ_RAISE_INDEX);
-        builder.put(layout.eventSchedSwitch(), SCHED_SWITCH_INDEX);
-        builder.put(layout.eventSchedPiSetprio(), SCHED_PI_SETPRIO_INDEX);
-        builder.put(layout.eventSchedProcessFork(), SCHED_PROCESS_FORK_INDEX);
-        builder.put(layout.eventSchedProcessExit(), SCHED_PROCESS_EXIT_INDEX);
-        builder.put(layout.eventSchedProcessFree(), SCHED_PROCESS_FREE_INDEX);
+    private void registerEventHandlers(IKernelAnalysisEventLayout layout) {
+        registerEventHandler(layout.eventIrqHandlerEntry(), IRQ_HANDLER_ENTRY_INDEX);
+        registerEventHandler(layout.eventIrqHandlerExit(), IRQ_HANDLER_EXIT_INDEX);
+        registerEventHandler(layout.eventSoftIrqEntry(), SOFT_IRQ_ENTRY_INDEX);
+        registerEventHandler(layout.eventSoftIrqExit(), SOFT_IRQ_EXIT_INDEX);
+        registerEventHandler(layout.eventSoftIrqRaise(), SOFT_IRQ_RAISE_INDEX);
+        registerEventHandler(layout.eventSchedSwitch(), SCHED_SWITCH_INDEX);
+        registerEventHandler(layout.eventSchedPiSetprio(), SCHED_PI_SETPRIO_INDEX);
+        registerEventHandler(layout.eventSchedProcessFork(), SCHED_PROCESS_FORK_INDEX);
+        registerEventHandler(layout.eventSchedProcessExit(), SCHED_PROCESS_EXIT_INDEX);
+        registerEventHandler(layout.eventSchedProcessFree(), SCHED_PROCESS_FREE_INDEX);
 
         final String eventStatedumpProcessState = layout.eventStatedumpProcessState();
         if (eventStatedumpProcessState != null) {
-            builder.put(eventStatedumpProcessState, STATEDUMP_PROCESS_STATE_INDEX);
+            registerEventHandler(eventStatedumpProcessState, STATEDUMP_PROCESS_STATE_INDEX);
         }
 
         for (String eventSchedWakeup : layout.eventsSchedWakeup()) {
-            builder.put(eventSchedWakeup, SCHED_WAKEUP_INDEX);
+            registerEventHandler(eventSchedWakeup, SCHED_WAKEUP_INDEX);
         }
+    }
 
-        return checkNotNull(builder.build());
+    /**
+     * System call events are recognized by their name prefix. This is only
+     * called once per event type, the result is kept in the dispatch table.
+     */
+    @Override
+    protected int resolveEventHandler(String eventName) {
+        if (eventName.startsWith(fLayout.eventSyscallEntryPrefix())
+                || eventName.startsWith(fLayout.eventCompatSyscallEntryPrefix())) {
+            return SYSCALL_ENTRY_INDEX;
+        }
+        if (eventName.startsWith(fLayout.eventSyscallExitPrefix())) {
+            return SYSCALL_EXIT_INDEX;
+        }
+        return NO_HANDLER;
     }
 
     // ------------------------------------------------------------------------
     // IStateChangeInput
     // ------------------------------------------------------------------------
 
+    /**
+     * Only the content of the events that have a handler is read, the other
+     * events only matter for their CPU.
+     */
+    @Override
+    public @Nullable Set<String> getEventTypeProjection() {
+        return getHandledEventTypes();
+    }
+
     @Override
     public int getVersion() {
         return VERSION;
@@ -144,7 +188,65 @@ public class KernelStateProvider extends AbstractTmfStateProvider {
 
     @Override
     public KernelStateProvider getNewInstance() {
-        return new KernelStateProvider(this.getTrace(), fLayout);
+        return new KernelStateProvider(this.getTrace(), fLayout, fNbPartitions);
+    }
+
+    // ------------------------------------------------------------------------
+    // Partitions
+    // ------------------------------------------------------------------------
+
+    /** Events without CPU information, which are ignored */
+    private static final int NO_CPU = -1;
+
+    /**
+     * Event prepared by its CPU's partition, with everything the event handler
+     * thread needs besides the state system.
+     */
+    private static final class PreparedEvent {
+        private final Integer fCpu;
+        private final int fHandler;
+
+        public PreparedEvent(Integer cpu, int handler) {
+            fCpu = cpu;
+            fHandler = handler;
+        }
+    }
+
+    /**
+     * The CPU is resolved once, here. It is the partition key, so the
+     * partitions get it back without resolving it again.
+     */
+    @Override
+    protected int getEventPartition(ITmfEvent event) {
+        Integer cpu = getCpu(event);
+        return (cpu == null ? NO_CPU : cpu.intValue());
+    }
+
+    /**
+     * Find the handler of the event and decode its payload, so that the event
+     * handler thread only has to update the state system.
+     */
+    @Override
+    protected @Nullable Object prepareEvent(ITmfEvent event, int key) {
+        if (key == NO_CPU) {
+            return null;
+        }
+        int handler = getEventHandler(event);
+        if (handler != NO_HANDLER) {
+            /* The content is kept in the event */
+            event.getContent();
+        }
+        return new PreparedEvent(key, handler);
+    }
+
+    @Override
+    protected void eventHandle(ITmfEvent event, @Nullable Object prepared) {
+        if (prepared instanceof PreparedEvent) {
+            PreparedEvent preparedEvent = (PreparedEvent) prepared;
+            handleEvent(event, preparedEvent.fCpu, preparedEvent.fHandler);
+        } else {
+            eventHandle(event);
+        }
     }
 
     @Override
@@ -153,14 +255,19 @@ public class KernelStateProvider extends AbstractTmfStateProvider {
             return;
         }
 
-        Object cpuObj = TmfTraceUtils.resolveEventAspectOfClassForEvent(event.getTrace(), TmfCpuAspect.class, event);
-        if (cpuObj == null) {
+        Integer cpu = getCpu(event);
+        if (cpu == null) {
             /* We couldn't find any CPU information, ignore this event */
             return;
         }
-        Integer cpu = (Integer) cpuObj;
+        handleEvent(event, cpu, getEventHandler(event));
+    }
+
+    private static @Nullable Integer getCpu(ITmfEvent event) {
+        return (Integer) TmfTraceUtils.resolveEventAspectOfClassForEvent(event.getTrace(), TmfCpuAspect.class, event);
+    }
 
-        final String eventName = event.getName();
+    private void handleEvent(ITmfEvent event, Integer cpu, int handler) {
         final long ts = event.getTimestamp().getValue();
 
         try {
@@ -182,9 +289,7 @@ public class KernelStateProvider extends AbstractTmfStateProvider {
              * Feed event to the history system if it's known to cause a state
              * transition.
              */
-            Integer idx = fEventNames.get(eventName);
-            int intval = (idx == null ? -1 : idx.intValue());
-            switch (intval) {
+            switch (handler) {
 
             case IRQ_HANDLER_ENTRY_INDEX:
             {
@@ -520,47 +625,47 @@ public class KernelStateProvider extends AbstractTmfStateProvider {
             }
                 break;
 
-            default:
-            /* Other event types not covered by the main switch */
+            case SYSCALL_ENTRY_INDEX:
             {
-                if (eventName.startsWith(fLayout.eventSyscallEntryPrefix())
-                        || eventName.startsWith(fLayout.eventCompatSyscallEntryPrefix())) {
-
-                    /* Assign the new system call to the process */
-                    quark = ss.getQuarkRelativeAndAdd(currentThreadNode, Attributes.SYSTEM_CALL);
-                    value = TmfStateValue.newValueString(eventName);
-                    ss.modifyAttribute(ts, value, quark);
-
-                    /* Put the process in system call mode */
-                    quark = ss.getQuarkRelativeAndAdd(currentThreadNode, Attributes.STATUS);
-                    value = StateValues.PROCESS_STATUS_RUN_SYSCALL_VALUE;
-                    ss.modifyAttribute(ts, value, quark);
-
-                    /* Put the CPU in system call (kernel) mode */
-                    quark = ss.getQuarkRelativeAndAdd(currentCPUNode, Attributes.STATUS);
-                    value = StateValues.CPU_STATUS_RUN_SYSCALL_VALUE;
-                    ss.modifyAttribute(ts, value, quark);
+                /* Assign the new system call to the process */
+                quark = ss.getQuarkRelativeAndAdd(currentThreadNode, Attributes.SYSTEM_CALL);
+                value = TmfStateValue.newValueString(event.getName());
+                ss.modifyAttribute(ts, value, quark);
 
-                } else if (eventName.startsWith(fLayout.eventSyscallExitPrefix())) {
+                /* Put the process in system call mode */
+                quark = ss.getQuarkRelativeAndAdd(currentThreadNode, Attributes.STATUS);
+                value = StateValues.PROCESS_STATUS_RUN_SYSCALL_VALUE;
+                ss.modifyAttribute(ts, value, quark);
 
-                    /* Clear the current system call on the process */
-                    quark = ss.getQuarkRelativeAndAdd(currentThreadNode, Attributes.SYSTEM_CALL);
-                    value = TmfStateValue.nullValue();
-                    ss.modifyAttribute(ts, value, quark);
+                /* Put the CPU in system call (kernel) mode */
+                quark = ss.getQuarkRelativeAndAdd(currentCPUNode, Attributes.STATUS);
+                value = StateValues.CPU_STATUS_RUN_SYSCALL_VALUE;
+                ss.modifyAttribute(ts, value, quark);
+            }
+                break;
 
-                    /* Put the process' status back to user mode */
-                    quark = ss.getQuarkRelativeAndAdd(currentThreadNode, Attributes.STATUS);
-                    value = StateValues.PROCESS_STATUS_RUN_USERMODE_VALUE;
-                    ss.modifyAttribute(ts, value, quark);
+            case SYSCALL_EXIT_INDEX:
+            {
+                /* Clear the current system call on the process */
+                quark = ss.getQuarkRelativeAndAdd(currentThreadNode, Attributes.SYSTEM_CALL);
+                value = TmfStateValue.nullValue();
+                ss.modifyAttribute(ts, value, quark);
 
-                    /* Put the CPU's status back to user mode */
-                    quark = ss.getQuarkRelativeAndAdd(currentCPUNode, Attributes.STATUS);
-                    value = StateValues.CPU_STATUS_RUN_USERMODE_VALUE;
-                    ss.modifyAttribute(ts, value, quark);
-                }
+                /* Put the process' status back to user mode */
+                quark = ss.getQuarkRelativeAndAdd(currentThreadNode, Attributes.STATUS);
+                value = StateValues.PROCESS_STATUS_RUN_USERMODE_VALUE;
+                ss.modifyAttribute(ts, value, quark);
 
+                /* Put the CPU's status back to user mode */
+                quark = ss.getQuarkRelativeAndAdd(currentCPUNode, Attributes.STATUS);
+                value = StateValues.CPU_STATUS_RUN_USERMODE_VALUE;
+                ss.modifyAttribute(ts, value, quark);
             }
                 break;
+
+            default:
+            /* Other event types do not cause state changes */
+                break;
             } // End of big switch
 
         } catch (AttributeNotFoundException ae) {
@@ -65,6 +65,8 @@ public class LatencyStatisticsAnalysisModule extends TmfAbstractAnalysisModule {
         if ((latency == null) || (trace == null)) {
             return false;
         }
+        /* This analysis does not read the trace, do not hold back the read pass */
+        releaseReadPass();
         latency.waitForCompletion();
 
         ISegmentStore<ISegment> store = latency.getResults();
@@ -15,13 +15,13 @@ package org.eclipse.tracecompass.analysis.os.linux.ui.views.cpuusage;
 import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.tracecompass.analysis.os.linux.core.cpuusage.CpuUsageSamples;
 import org.eclipse.tracecompass.analysis.os.linux.core.cpuusage.KernelCpuUsageAnalysis;
 import org.eclipse.tracecompass.internal.analysis.os.linux.ui.Activator;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
@@ -117,8 +117,6 @@ public class CpuUsageXYViewer extends TmfCommonXLineChartViewer {
                 currentEnd = ss.getCurrentEndTime();
 
                 /* Initialize the data */
-                Map<String, Long> cpuUsageMap = fModule.getCpuUsageInRange(Math.max(start, traceStart), Math.min(end, traceEnd));
-                Map<String, String> totalEntries = new HashMap<>();
                 fYValues.clear();
                 fYValues.put(Messages.CpuUsageXYViewer_Total, zeroFill(xvalues.length));
                 String stringSelectedThread = Long.toString(selectedThread);
@@ -126,25 +124,6 @@ public class CpuUsageXYViewer extends TmfCommonXLineChartViewer {
                     fYValues.put(stringSelectedThread, zeroFill(xvalues.length));
                 }
 
-                for (Entry<String, Long> entry : cpuUsageMap.entrySet()) {
-                    /*
-                     * Process only entries representing the total of all CPUs
-                     * and that have time on CPU
-                     */
-                    if (entry.getValue() == 0) {
-                        continue;
-                    }
-                    if (!entry.getKey().startsWith(KernelCpuUsageAnalysis.TOTAL)) {
-                        continue;
-                    }
-                    String[] strings = entry.getKey().split(KernelCpuUsageAnalysis.SPLIT_STRING, 2);
-
-                    if ((strings.length > 1) && !(strings[1].equals(KernelCpuUsageAnalysis.TID_ZERO))) {
-                        /* This is the total cpu usage for a thread */
-                        totalEntries.put(strings[1], entry.getKey());
-                    }
-                }
-
                 double prevX = xvalues[0] - 1;
                 long prevTime = (long) prevX + offset;
                 /*
@@ -153,46 +132,38 @@ public class CpuUsageXYViewer extends TmfCommonXLineChartViewer {
                  */
                 prevTime = Math.max(traceStart, prevTime);
                 prevTime = Math.min(traceEnd, prevTime);
-                /* Get CPU usage statistics for each x value */
+                /*
+                 * Sample times: each x value is the end of a sample, which
+                 * starts at the previous one.
+                 */
+                long[] times = new long[xvalues.length + 1];
+                times[0] = prevTime;
                 for (int i = 0; i < xvalues.length; i++) {
-                    if (monitor.isCanceled()) {
-                        return;
-                    }
-                    long totalCpu = 0;
-                    double x = xvalues[i];
-                    long time = (long) x + offset;
+                    long time = (long) xvalues[i] + offset;
                     time = Math.max(traceStart, time);
                     time = Math.min(traceEnd, time);
-                    if (time == prevTime) {
-                        /*
-                         * we need at least 1 time unit to be able to get cpu
-                         * usage when zoomed in
-                         */
-                        prevTime = time - 1;
-                    }
-
-                    cpuUsageMap = fModule.getCpuUsageInRange(prevTime, time);
-
                     /*
-                     * Calculate the sum of all total entries, and add a data
-                     * point to the selected one
+                     * we need at least 1 time unit to be able to get cpu usage
+                     * when zoomed in
                      */
-                    for (Entry<String, String> entry : totalEntries.entrySet()) {
-                        Long cpuEntry = cpuUsageMap.get(entry.getValue());
-                        cpuEntry = cpuEntry != null ? cpuEntry : 0L;
-
-                        totalCpu += cpuEntry;
-
-                        if (entry.getKey().equals(stringSelectedThread)) {
-                            /* This is the total cpu usage for a thread */
-                            double[] key = checkNotNull(fYValues.get(entry.getKey()));
-                            key[i] = (double) cpuEntry / (double) (time - prevTime) * 100;
-                        }
+                    times[i + 1] = Math.max(time, times[i] + 1);
+                }
 
+                /* Get CPU usage statistics for each x value */
+                CpuUsageSamples samples = fModule.getCpuUsageSamples(times);
+                if (monitor.isCanceled()) {
+                    return;
+                }
+                long[] total = samples.getTotalUsage();
+                long[] selected = (selectedThread == -1 ? null : samples.getThreadUsage((int) selectedThread));
+                double[] totalValues = checkNotNull(fYValues.get(Messages.CpuUsageXYViewer_Total));
+                for (int i = 0; i < xvalues.length; i++) {
+                    double duration = times[i + 1] - times[i];
+                    totalValues[i] = total[i] / duration * 100;
+                    if (selected != null) {
+                        double[] selectedValues = checkNotNull(fYValues.get(stringSelectedThread));
+                        selectedValues[i] = selected[i] / duration * 100;
                     }
-                    double[] key = checkNotNull(fYValues.get(Messages.CpuUsageXYViewer_Total));
-                    key[i] = (double) totalCpu / (double) (time - prevTime) * 100;
-                    prevTime = time;
                 }
                 for (Entry<String, double[]> entry : fYValues.entrySet()) {
                     setSeries(entry.getKey(), entry.getValue());
@@ -25,6 +25,7 @@ import org.eclipse.core.runtime.ListenerList;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.segmentstore.core.ISegment;
 import org.eclipse.tracecompass.segmentstore.core.ISegmentStore;
+import org.eclipse.tracecompass.segmentstore.core.SegmentStoreSummary;
 import org.eclipse.tracecompass.segmentstore.core.treemap.TreeMapStore;
 import org.eclipse.tracecompass.tmf.core.analysis.TmfAbstractAnalysisModule;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
@@ -50,7 +51,10 @@ public abstract class AbstractSegmentStoreAnalysisModule extends TmfAbstractAnal
 
     private final ListenerList fListeners = new ListenerList(ListenerList.IDENTITY);
 
-    private @Nullable ISegmentStore<ISegment> fSegmentStore;
+    private volatile @Nullable ISegmentStore<ISegment> fSegmentStore;
+
+    /** Built on the analysis thread, read by the viewers */
+    private volatile @Nullable SegmentStoreSummary<ISegment> fSegmentStoreSummary;
 
     private @Nullable ITmfEventRequest fOngoingRequest = null;
 
@@ -132,6 +136,21 @@ public abstract class AbstractSegmentStoreAnalysisModule extends TmfAbstractAnal
         return fSegmentStore;
     }
 
+    /**
+     * Returns a multi-resolution summary of the results, which viewers can use
+     * to display a bounded number of segments per pixel without iterating
+     * over all the segments of a time range.
+     *
+     * The summary is built once on the analysis thread, when the results are
+     * complete, so calling this from the UI thread is cheap.
+     *
+     * @return The summary of the results, or null if the analysis is not
+     *         completed
+     */
+    public @Nullable SegmentStoreSummary<ISegment> getResultsSummary() {
+        return fSegmentStoreSummary;
+    }
+
     @Override
     protected void canceling() {
         ITmfEventRequest req = fOngoingRequest;
@@ -143,6 +162,7 @@ public abstract class AbstractSegmentStoreAnalysisModule extends TmfAbstractAnal
     @Override
     public void dispose() {
         super.dispose();
+        fSegmentStoreSummary = null;
         ISegmentStore<ISegment> store = fSegmentStore;
         if (store != null) {
             store.dispose();
@@ -168,6 +188,7 @@ public abstract class AbstractSegmentStoreAnalysisModule extends TmfAbstractAnal
                         store.add(segment);
                     }
                 }
+                fSegmentStoreSummary = new SegmentStoreSummary<>(store);
                 fSegmentStore = store;
                 for (IAnalysisProgressListener listener : getListeners()) {
                     listener.onComplete(this, store);
@@ -197,6 +218,7 @@ public abstract class AbstractSegmentStoreAnalysisModule extends TmfAbstractAnal
         req = createAnalysisRequest(syscalls);
         fOngoingRequest = req;
         trace.sendRequest(req);
+        releaseReadPass();
 
         try {
             req.waitForCompletion();
@@ -209,6 +231,7 @@ public abstract class AbstractSegmentStoreAnalysisModule extends TmfAbstractAnal
         }
 
         /* The request will fill 'syscalls' */
+        fSegmentStoreSummary = new SegmentStoreSummary<>(syscalls);
         fSegmentStore = syscalls;
 
         /* Serialize the collections to disk for future usage */
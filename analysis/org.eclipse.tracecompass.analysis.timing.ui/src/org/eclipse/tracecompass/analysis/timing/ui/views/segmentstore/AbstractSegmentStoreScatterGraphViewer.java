@@ -13,7 +13,6 @@
 
 package org.eclipse.tracecompass.analysis.timing.ui.views.segmentstore;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
@@ -34,7 +33,7 @@ import org.eclipse.tracecompass.internal.analysis.timing.ui.Activator;
 import org.eclipse.tracecompass.internal.analysis.timing.ui.views.segmentstore.Messages;
 import org.eclipse.tracecompass.segmentstore.core.ISegment;
 import org.eclipse.tracecompass.segmentstore.core.ISegmentStore;
-import org.eclipse.tracecompass.segmentstore.core.SegmentComparators;
+import org.eclipse.tracecompass.segmentstore.core.SegmentStoreSummary;
 import org.eclipse.tracecompass.tmf.core.signal.TmfSignalHandler;
 import org.eclipse.tracecompass.tmf.core.signal.TmfSignalManager;
 import org.eclipse.tracecompass.tmf.core.signal.TmfTraceClosedSignal;
@@ -94,8 +93,8 @@ public abstract class AbstractSegmentStoreScatterGraphViewer extends TmfCommonXL
                 return new Status(IStatus.WARNING, Activator.PLUGIN_ID, "Analysis module not available"); //$NON-NLS-1$
             }
 
-            final ISegmentStore<ISegment> results = module.getResults();
-            if (results == null) {
+            final SegmentStoreSummary<ISegment> summary = module.getResultsSummary();
+            if (summary == null) {
                 setWindowRange(startTimeInNanos, endTimeInNanos);
                 redraw(statusMonitor, startTimeInNanos, startTimeInNanos, EMPTY_LIST);
                 return new Status(IStatus.INFO, Activator.PLUGIN_ID, "Analysis module does not have results"); //$NON-NLS-1$
@@ -103,13 +102,16 @@ public abstract class AbstractSegmentStoreScatterGraphViewer extends TmfCommonXL
 
             final long startTime = fCurrentRange.getStartTime().getValue();
             final long endTime = fCurrentRange.getEndTime().getValue();
-            fPixelStart = startTime;
-            fPixelSize = (endTime - startTime) / MAX_POINTS;
-            final Iterable<ISegment> intersectingElements = results.getIntersectingElements(startTime, endTime);
-
-            final List<ISegment> list = convertIterableToList(intersectingElements, statusMonitor);
-            final List<ISegment> displayData = (!list.isEmpty()) ? compactList(startTime, list, statusMonitor) : list;
+            /*
+             * The summary returns at most two segments (shortest and longest)
+             * per pixel, without iterating over all the segments in the range.
+             */
+            final long pixelSize = Math.max(1, (endTime - startTime) / MAX_POINTS);
+            final List<ISegment> displayData = summary.getRepresentatives(startTime, endTime, pixelSize);
 
+            if (statusMonitor.isCanceled()) {
+                return NonNullUtils.checkNotNull(Status.CANCEL_STATUS);
+            }
             setWindowRange(startTimeInNanos, endTimeInNanos);
             redraw(statusMonitor, startTime, endTime, displayData);
 
@@ -130,57 +132,6 @@ public abstract class AbstractSegmentStoreScatterGraphViewer extends TmfCommonXL
                 }
             });
         }
-
-        private List<ISegment> compactList(final long startTime, final List<ISegment> listToCompact, final IProgressMonitor statusMonitor) {
-            List<ISegment> displayData = new ArrayList<>();
-            ISegment last = listToCompact.get(0);
-            if (last.getStart() >= startTime) {
-                displayData.add(last);
-            }
-            for (ISegment next : listToCompact) {
-                if (next.getStart() < startTime) {
-                    continue;
-                }
-                if (statusMonitor.isCanceled()) {
-                    return NonNullUtils.checkNotNull(Collections.<ISegment> emptyList());
-                }
-                if (!overlaps(last, next)) {
-                    displayData.add(next);
-                    last = next;
-                }
-            }
-            return displayData;
-        }
-
-        private List<ISegment> convertIterableToList(final Iterable<ISegment> iterable, final IProgressMonitor statusMonitor) {
-            final List<ISegment> list = new ArrayList<>();
-            for (ISegment seg : iterable) {
-                if (statusMonitor.isCanceled()) {
-                    return NonNullUtils.checkNotNull(Collections.<ISegment> emptyList());
-                }
-                list.add(seg);
-            }
-            Collections.sort(list, SegmentComparators.INTERVAL_START_COMPARATOR);
-            return list;
-        }
-
-        private boolean overlaps(ISegment last, ISegment next) {
-            long timePerPix = fPixelSize;
-            final long start = last.getStart();
-            final long pixelStart = fPixelStart;
-            final long pixelDuration = start - pixelStart;
-            long startPixBoundL = pixelDuration / timePerPix * timePerPix + pixelStart;
-            long startPixBoundR = startPixBoundL + timePerPix;
-            final long currentStart = next.getStart();
-            if (currentStart >= startPixBoundL && currentStart <= startPixBoundR) {
-                long length = last.getLength();
-                long lengthNext = next.getLength();
-                long lengthLow = length / timePerPix * timePerPix;
-                long lengthHigh = lengthLow + timePerPix;
-                return (lengthNext >= lengthLow && lengthNext <= lengthHigh);
-            }
-            return false;
-        }
     }
 
     // ------------------------------------------------------------------------
@@ -203,9 +154,6 @@ public abstract class AbstractSegmentStoreScatterGraphViewer extends TmfCommonXL
         }
     }
 
-    private long fPixelSize = -1;
-
-    private long fPixelStart = 0;
     /**
      * Data to display
      */
@@ -284,14 +232,11 @@ public abstract class AbstractSegmentStoreScatterGraphViewer extends TmfCommonXL
                 });
             }
             fDisplayData = NonNullUtils.checkNotNull(Collections.EMPTY_LIST);
-        } else {
-            Collection<ISegment> elements = (Collection<ISegment>) dataInput.getIntersectingElements(currentStart, currentEnd);
-            // getIntersectingElements can return an unsorted iterable, make
-            // sure our collection is sorted
-            ArrayList<ISegment> list = new ArrayList<>(elements);
-            Collections.sort(list, SegmentComparators.INTERVAL_START_COMPARATOR);
-            fDisplayData = list;
         }
+        /*
+         * The data to display for the new model is computed from the
+         * analysis' results summary by the range update.
+         */
         setWindowRange(currentStart, currentEnd);
         updateRange(currentRange);
     }
@@ -139,6 +139,12 @@ public class BtfStateProvider extends AbstractTmfStateProvider {
         final ITmfStateSystemBuilder ssb = checkNotNull(getStateSystemBuilder());
 
         final long ts = event.getTimestamp().getValue();
+        /*
+         * The type of BTF events is the kind of entity (task, runnable...),
+         * which does not tell the state transition, so these events cannot be
+         * dispatched with registerEventHandler(). The transition is in the
+         * "event" column instead.
+         */
         final String eventType = (String) event.getContent().getField(BtfColumnNames.EVENT.toString()).getValue();
         final String source = event.getSource();
         final String target = event.getTarget();
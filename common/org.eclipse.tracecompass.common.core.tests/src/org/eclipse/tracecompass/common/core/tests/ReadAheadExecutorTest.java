@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.common.core.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.tracecompass.common.core.ReadAheadExecutor;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.junit.rules.Timeout;
+
+/**
+ * Test the {@link ReadAheadExecutor}
+ */
+public class ReadAheadExecutorTest {
+
+    /** Time-out tests after 20 seconds */
+    @Rule
+    public TestRule globalTimeout = new Timeout(20, TimeUnit.SECONDS);
+
+    private static <T> T waitFor(FutureTask<T> task) throws InterruptedException, ExecutionException {
+        task.run();
+        return task.get();
+    }
+
+    /**
+     * Make sure that tasks waiting for other tasks of the executor complete,
+     * even when there are many more of them than threads, as when the traces
+     * of an experiment and their streams are read ahead.
+     *
+     * @throws Exception
+     *             should not happen
+     */
+    @Test
+    public void testNestedTasks() throws Exception {
+        int nbTasks = 4 * Runtime.getRuntime().availableProcessors() + 1;
+        List<FutureTask<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < nbTasks; i++) {
+            final int value = i;
+            FutureTask<Integer> task = new FutureTask<>(() -> {
+                FutureTask<Integer> inner = new FutureTask<>(() -> value * 2);
+                ReadAheadExecutor.getExecutor().execute(inner);
+                return waitFor(inner) + 1;
+            });
+            tasks.add(task);
+            ReadAheadExecutor.getExecutor().execute(task);
+        }
+        for (int i = 0; i < nbTasks; i++) {
+            assertEquals(Integer.valueOf(i * 2 + 1), waitFor(tasks.get(i)));
+        }
+    }
+}
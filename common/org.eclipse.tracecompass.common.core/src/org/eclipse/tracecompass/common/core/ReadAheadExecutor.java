@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.common.core;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor shared by everything that reads data ahead of its consumer, like
+ * the readers of trace files. It has at most as many threads as there are
+ * processors, so the read-ahead of many traces does not start more threads
+ * than can run. The threads are only kept while there are tasks to run.
+ * <p>
+ * Since the number of threads is bounded, a task can sit in the queue while
+ * all the threads are waiting for other tasks, and some of these tasks can
+ * themselves wait for read-ahead tasks (an experiment reading its traces
+ * ahead, whose streams are also read ahead). To avoid a deadlock, the tasks
+ * must be {@link java.util.concurrent.FutureTask}s, and whoever waits for
+ * one runs it first:
+ *
+ * <pre>
+ * future.run(); // runs the task here if no thread started it
+ * future.get();
+ * </pre>
+ *
+ * {@link java.util.concurrent.FutureTask#run()} does nothing if the task was
+ * already started by a thread of the executor, in which case that thread is
+ * making progress and it is safe to wait for it.
+ *
+ * @since 2.0
+ */
+public final class ReadAheadExecutor {
+
+    /** How long an idle thread is kept, in seconds */
+    private static final long KEEP_ALIVE = 10;
+
+    private static final Executor EXECUTOR = createExecutor();
+
+    private ReadAheadExecutor() {}
+
+    private static Executor createExecutor() {
+        int nbThreads = Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(nbThreads, nbThreads, KEEP_ALIVE, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), runnable -> {
+                    Thread thread = new Thread(runnable, "Read-ahead"); //$NON-NLS-1$
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Get the shared executor
+     *
+     * @return The executor
+     */
+    public static Executor getExecutor() {
+        return EXECUTOR;
+    }
+}
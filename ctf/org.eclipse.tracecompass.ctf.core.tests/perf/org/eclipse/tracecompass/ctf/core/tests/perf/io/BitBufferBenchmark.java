@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.ctf.core.tests.perf.io;
+
+import static org.junit.Assert.assertNotEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+import org.eclipse.tracecompass.ctf.core.CTFException;
+import org.eclipse.tracecompass.ctf.core.event.io.BitBuffer;
+import org.junit.Test;
+
+/**
+ * Benchmark of the integer reads of the {@link BitBuffer}, one at a time and
+ * in bulk, at byte offsets and not, in both byte orders.
+ */
+public class BitBufferBenchmark {
+
+    private static final String TEST_SUITE_NAME = "CTF BitBuffer Benchmark";
+    private static final String TEST_ID = "org.eclipse.linuxtools#" + TEST_SUITE_NAME;
+    private static final int LOOP_COUNT = 25;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final int[] LENGTHS = { 8, 16, 32, 64 };
+
+    /**
+     * Benchmark reading integers at byte offsets, in big endian
+     *
+     * @throws CTFException
+     *             Should not happen
+     */
+    @Test
+    public void testAlignedBigEndian() throws CTFException {
+        readIntegers("aligned-be", ByteOrder.BIG_ENDIAN, 0, false, true);
+    }
+
+    /**
+     * Benchmark reading integers at byte offsets, in little endian
+     *
+     * @throws CTFException
+     *             Should not happen
+     */
+    @Test
+    public void testAlignedLittleEndian() throws CTFException {
+        readIntegers("aligned-le", ByteOrder.LITTLE_ENDIAN, 0, false, false);
+    }
+
+    /**
+     * Benchmark reading integers that are not at byte offsets, in big endian
+     *
+     * @throws CTFException
+     *             Should not happen
+     */
+    @Test
+    public void testUnalignedBigEndian() throws CTFException {
+        readIntegers("unaligned-be", ByteOrder.BIG_ENDIAN, 3, false, false);
+    }
+
+    /**
+     * Benchmark reading integers that are not at byte offsets, in little endian
+     *
+     * @throws CTFException
+     *             Should not happen
+     */
+    @Test
+    public void testUnalignedLittleEndian() throws CTFException {
+        readIntegers("unaligned-le", ByteOrder.LITTLE_ENDIAN, 3, false, false);
+    }
+
+    /**
+     * Benchmark reading arrays of integers at byte offsets with the bulk read
+     *
+     * @throws CTFException
+     *             Should not happen
+     */
+    @Test
+    public void testBulkAligned() throws CTFException {
+        readIntegers("bulk-aligned", ByteOrder.LITTLE_ENDIAN, 0, true, false);
+    }
+
+    /**
+     * Benchmark reading arrays of integers that are not at byte offsets with
+     * the bulk read
+     *
+     * @throws CTFException
+     *             Should not happen
+     */
+    @Test
+    public void testBulkUnaligned() throws CTFException {
+        readIntegers("bulk-unaligned", ByteOrder.LITTLE_ENDIAN, 3, true, false);
+    }
+
+    private static void readIntegers(String testName, ByteOrder byteOrder, int startBit, boolean bulk, boolean inGlobalSummary) throws CTFException {
+        Performance perf = Performance.getDefault();
+        PerformanceMeter pm = perf.createPerformanceMeter(TEST_ID + '#' + testName);
+        perf.tagAsSummary(pm, TEST_SUITE_NAME + ':' + testName, Dimension.CPU_TIME);
+
+        if (inGlobalSummary) {
+            perf.tagAsGlobalSummary(pm, TEST_SUITE_NAME + ':' + testName, Dimension.CPU_TIME);
+        }
+
+        ByteBuffer data = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        for (int i = 0; i < BUFFER_SIZE; i++) {
+            data.put(i, (byte) i);
+        }
+        long[] values = new long[64];
+        long sum = 0;
+        for (int loop = 0; loop < LOOP_COUNT; loop++) {
+            pm.start();
+            for (int length : LENGTHS) {
+                BitBuffer input = new BitBuffer(data, byteOrder);
+                input.position(startBit);
+                long count = (BUFFER_SIZE * 8L - startBit) / length;
+                if (bulk) {
+                    for (; count >= values.length; count -= values.length) {
+                        input.get(values, 0, values.length, length, false);
+                        sum += values[0];
+                    }
+                } else {
+                    for (; count > 0; count--) {
+                        sum += input.get(length, false);
+                    }
+                }
+            }
+            pm.stop();
+        }
+        pm.commit();
+        /* Use the values so that the reads are not optimized out */
+        assertNotEquals(0, sum);
+    }
+}
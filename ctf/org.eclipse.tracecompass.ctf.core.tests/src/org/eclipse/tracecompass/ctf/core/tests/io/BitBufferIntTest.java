@@ -12,6 +12,7 @@
 
 package org.eclipse.tracecompass.ctf.core.tests.io;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 import java.nio.ByteBuffer;
@@ -569,4 +570,77 @@ public class BitBufferIntTest {
         /* This will try writing past the buffer's end */
         fixture2.putInt(32, 1);
     }
+
+    /**
+     * Test {@link BitBuffer#get} with a 64-bit value at a byte offset, in both
+     * byte orders
+     *
+     * @throws CTFException
+     *             Not expected
+     */
+    @Test
+    public void testGetLong_aligned() throws CTFException {
+        fixture.position(0);
+        assertEquals(0x0001020304050607L, fixture.get(64, true));
+        assertEquals(64, fixture.position());
+
+        fixture.position(8);
+        fixture.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(0x0F0E0D0C0B0A0908L, fixture.get(64, false));
+        assertEquals(128, fixture.position());
+    }
+
+    /**
+     * Test the bulk {@link BitBuffer#get} with integers at a byte offset
+     *
+     * @throws CTFException
+     *             Not expected
+     */
+    @Test
+    public void testGetBulk_aligned() throws CTFException {
+        long[] values = new long[4];
+        fixture.position(0);
+        fixture.get(values, 1, 3, 16, false);
+        assertArrayEquals(new long[] { 0, 0x0001, 0x0203, 0x0405 }, values);
+        assertEquals(48, fixture.position());
+
+        fixture.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+        fixture.get(values, 0, 2, 32, true);
+        assertEquals(0x09080706L, values[0]);
+        assertEquals(0x0D0C0B0AL, values[1]);
+        assertEquals(112, fixture.position());
+    }
+
+    /**
+     * Test the bulk {@link BitBuffer#get} with integers that are not at a
+     * byte offset
+     *
+     * @throws CTFException
+     *             Not expected
+     */
+    @Test
+    public void testGetBulk_unaligned() throws CTFException {
+        long[] values = new long[6];
+        fixture.get(values, 0, values.length, 12, true);
+        long position = fixture.position();
+
+        BitBuffer expected = createBuffer();
+        for (long value : values) {
+            assertEquals(expected.get(12, true), value);
+        }
+        assertEquals(expected.position(), position);
+    }
+
+    /**
+     * Test the bulk {@link BitBuffer#get} past the end of the buffer
+     *
+     * @throws CTFException
+     *             Expected
+     */
+    @Test(expected = CTFException.class)
+    public void testGetBulk_invalid() throws CTFException {
+        long[] values = new long[3];
+        fixture.position(0);
+        fixture.get(values, 0, values.length, 64, false);
+    }
 }
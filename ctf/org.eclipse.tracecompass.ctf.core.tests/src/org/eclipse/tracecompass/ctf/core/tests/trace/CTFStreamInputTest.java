@@ -134,6 +134,28 @@ public class CTFStreamInputTest {
         assertEquals(fixture.getTimestampEnd(), 1L);
     }
 
+    /**
+     * Test that indexing all the packets at once gives the same index as
+     * adding them one by one.
+     */
+    @Test
+    public void testIndexPackets() throws CTFException {
+        CTFStream stream = CtfTestTraceUtils.getTrace(testTrace).getStreams().iterator().next();
+        CTFStreamInput input = stream.getStreamInputs().iterator().next();
+        CTFStreamInput oneByOne = new CTFStreamInput(stream, input.getFile());
+        CTFStreamInput allAtOnce = new CTFStreamInput(stream, input.getFile());
+
+        int nbPackets = 0;
+        while (oneByOne.addPacketHeaderIndex()) {
+            nbPackets++;
+        }
+        assertTrue(nbPackets > 0);
+
+        allAtOnce.indexPackets();
+        assertFalse(allAtOnce.addPacketHeaderIndex());
+        assertEquals(oneByOne.getTimestampEnd(), allAtOnce.getTimestampEnd());
+    }
+
     CTFStreamInput s1;
     CTFStreamInput s2;
 
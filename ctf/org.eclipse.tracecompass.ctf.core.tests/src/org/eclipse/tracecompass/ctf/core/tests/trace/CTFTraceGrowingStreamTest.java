@@ -155,4 +155,58 @@ public class CTFTraceGrowingStreamTest {
             assertNull(reader.getCurrentEventDef());
         }
     }
+
+    /**
+     * Test refreshing a trace after packets were appended to its stream
+     *
+     * @throws CTFException won't happen
+     * @throws IOException won't happen
+     */
+    @Test
+    public void testGrowingRefresh() throws CTFException, IOException {
+        try (CTFTraceReader reader = new CTFTraceReader(fFixture);) {
+            assertEquals("0x29", reader.getCurrentEventDef().getFields().getDefinition("f").toString());
+            assertFalse(reader.advance());
+            assertFalse(fFixture.refresh());
+
+            /* Half a packet is not read until the rest is written */
+            try (FileOutputStream fos = new FileOutputStream(fGrowingStream, true)) {
+                fos.write(fPackets[1], 0, 16);
+            }
+            assertFalse(fFixture.refresh());
+            reader.update();
+            assertNull(reader.getCurrentEventDef());
+
+            try (FileOutputStream fos = new FileOutputStream(fGrowingStream, true)) {
+                fos.write(fPackets[1], 16, 16);
+            }
+            assertTrue(fFixture.refresh());
+            reader.update();
+            assertNotNull(reader.getCurrentEventDef());
+            assertEquals("0xbab4face", reader.getCurrentEventDef().getFields().getDefinition("f").toString());
+            assertFalse(reader.advance());
+        }
+    }
+
+    /**
+     * Test refreshing a trace after a stream file was added to it
+     *
+     * @throws CTFException won't happen
+     * @throws IOException won't happen
+     */
+    @Test
+    public void testGrowingNewStreamFile() throws CTFException, IOException {
+        try (CTFTraceReader reader = new CTFTraceReader(fFixture);) {
+            assertFalse(reader.advance());
+            File newStream = new File(fCtfDirectory.toString() + "/" + "stream_1");
+            try (FileOutputStream fos = new FileOutputStream(newStream)) {
+                fos.write(fPackets[1]);
+            }
+            assertTrue(fFixture.refresh());
+            reader.update();
+            assertNotNull(reader.getCurrentEventDef());
+            assertEquals("0xbab4face", reader.getCurrentEventDef().getFields().getDefinition("f").toString());
+            assertFalse(reader.advance());
+        }
+    }
 }
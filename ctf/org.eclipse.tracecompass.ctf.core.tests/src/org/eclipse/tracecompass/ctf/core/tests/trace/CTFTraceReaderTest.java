@@ -16,6 +16,8 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Collections;
+
 import org.eclipse.tracecompass.ctf.core.CTFException;
 import org.eclipse.tracecompass.ctf.core.event.EventDefinition;
 import org.eclipse.tracecompass.ctf.core.tests.shared.CtfTestTraceUtils;
@@ -298,6 +300,64 @@ public class CTFTraceReaderTest {
         assertTrue(result);
     }
 
+    /**
+     * Test that the events skipped by an event projection still have their
+     * declaration and timestamp, and that the projected ones have their fields
+     *
+     * @throws CTFException
+     *             error
+     */
+    @Test
+    public void testEventProjection() throws CTFException {
+        try (CTFTraceReader projected = fixture.copyFrom();) {
+            projected.setEventProjection(Collections.singleton("sched_switch"));
+            assertEquals(Collections.singleton("sched_switch"), projected.getEventProjection());
+            for (int i = 0; i < 1000; i++) {
+                EventDefinition expected = fixture.getCurrentEventDef();
+                EventDefinition actual = projected.getCurrentEventDef();
+                assertNotNull(expected);
+                assertNotNull(actual);
+                assertEquals(expected.getDeclaration(), actual.getDeclaration());
+                assertEquals(expected.getTimestamp(), actual.getTimestamp());
+                if (expected.getDeclaration().getName().equals("sched_switch")) {
+                    assertNotNull(actual.getFields());
+                    assertEquals(String.valueOf(expected.getFields()), String.valueOf(actual.getFields()));
+                }
+                assertEquals(fixture.advance(), projected.advance());
+            }
+        }
+    }
+
+    /**
+     * Test that the streams decoded ahead give the same events, in the same
+     * order, including after a seek
+     *
+     * @throws CTFException
+     *             error
+     */
+    @Test
+    public void testReadAhead() throws CTFException {
+        try (CTFTraceReader readAhead = fixture.copyFrom();) {
+            readAhead.setReadAhead(true);
+            assertTrue(readAhead.isReadAhead());
+            for (int i = 0; i < 5000; i++) {
+                if (i == 2500) {
+                    long timestamp = fixture.getCurrentEventDef().getTimestamp();
+                    assertEquals(fixture.seek(timestamp), readAhead.seek(timestamp));
+                }
+                EventDefinition expected = fixture.getCurrentEventDef();
+                EventDefinition actual = readAhead.getCurrentEventDef();
+                assertNotNull(expected);
+                assertNotNull(actual);
+                assertEquals(expected.getDeclaration(), actual.getDeclaration());
+                assertEquals(expected.getTimestamp(), actual.getTimestamp());
+                assertEquals(expected.getCPU(), actual.getCPU());
+                assertEquals(String.valueOf(expected.getFields()), String.valueOf(actual.getFields()));
+                assertEquals(fixture.advance(), readAhead.advance());
+            }
+        }
+    }
+
     /**
      * @return
      */
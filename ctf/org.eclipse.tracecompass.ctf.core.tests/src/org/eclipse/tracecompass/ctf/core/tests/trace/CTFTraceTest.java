@@ -21,7 +21,11 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.UUID;
 
 import org.eclipse.tracecompass.ctf.core.CTFException;
@@ -31,6 +35,7 @@ import org.eclipse.tracecompass.ctf.core.event.types.StructDeclaration;
 import org.eclipse.tracecompass.ctf.core.tests.shared.CtfTestTraceUtils;
 import org.eclipse.tracecompass.ctf.core.trace.CTFStream;
 import org.eclipse.tracecompass.ctf.core.trace.CTFTrace;
+import org.eclipse.tracecompass.ctf.core.trace.CTFTraceReader;
 import org.eclipse.tracecompass.internal.ctf.core.event.metadata.exceptions.ParseException;
 import org.eclipse.tracecompass.testtraces.ctf.CtfTestTrace;
 import org.junit.Before;
@@ -46,6 +51,9 @@ public class CTFTraceTest {
 
     private static final CtfTestTrace testTrace = CtfTestTrace.KERNEL;
 
+    /** Number of bytes of the packet index file garbled by the tests */
+    private static final int GARBLED_SIZE = 256;
+
     private CTFTrace fixture;
 
     /**
@@ -79,6 +87,125 @@ public class CTFTraceTest {
         }
     }
 
+    /**
+     * Test that the packet index saved to a file gives the same index when the
+     * trace is opened again.
+     *
+     * @throws CTFException
+     *             should not happen
+     * @throws IOException
+     *             should not happen
+     */
+    @Test
+    public void testIndexPacketsWithIndexFile() throws CTFException, IOException {
+        String path = fixture.getPath();
+        File indexFile = File.createTempFile("packet_index", ".idx");
+        assertTrue(indexFile.delete());
+        try {
+            CTFTrace trace = new CTFTrace(path);
+            trace.indexPackets(indexFile);
+            assertTrue(indexFile.isFile());
+
+            CTFTrace reopened = new CTFTrace(path);
+            reopened.indexPackets(indexFile);
+            assertEquals(trace.getCurrentStartTime(), reopened.getCurrentStartTime());
+            assertEquals(trace.getCurrentEndTime(), reopened.getCurrentEndTime());
+
+            try (CTFTraceReader reader = new CTFTraceReader(trace);
+                    CTFTraceReader reopenedReader = new CTFTraceReader(reopened);) {
+                reader.goToLastEvent();
+                reopenedReader.goToLastEvent();
+                assertEquals(reader.getCurrentEventDef().getTimestamp(), reopenedReader.getCurrentEventDef().getTimestamp());
+            }
+        } finally {
+            indexFile.delete();
+        }
+    }
+
+    /**
+     * Test that reading the packet index file only restores the index, and
+     * tells whether every stream input was restored.
+     *
+     * @throws CTFException
+     *             should not happen
+     * @throws IOException
+     *             should not happen
+     */
+    @Test
+    public void testReadPacketIndex() throws CTFException, IOException {
+        String path = fixture.getPath();
+        File indexFile = File.createTempFile("packet_index", ".idx");
+        assertTrue(indexFile.delete());
+        try {
+            CTFTrace trace = new CTFTrace(path);
+            assertFalse(trace.readPacketIndex(indexFile));
+            assertFalse(indexFile.exists());
+
+            trace.indexPackets(indexFile);
+            CTFTrace reopened = new CTFTrace(path);
+            assertTrue(reopened.readPacketIndex(indexFile));
+            assertEquals(trace.getCurrentEndTime(), reopened.getCurrentEndTime());
+        } finally {
+            indexFile.delete();
+        }
+    }
+
+    /**
+     * Test that a truncated or garbled packet index file is ignored, and that
+     * the trace is then indexed from its stream files.
+     *
+     * @throws CTFException
+     *             should not happen
+     * @throws IOException
+     *             should not happen
+     */
+    @Test
+    public void testCorruptPacketIndexFile() throws CTFException, IOException {
+        String path = fixture.getPath();
+        File indexFile = File.createTempFile("packet_index", ".idx");
+        assertTrue(indexFile.delete());
+        try {
+            CTFTrace trace = new CTFTrace(path);
+            trace.indexPackets(indexFile);
+            byte[] valid = Files.readAllBytes(indexFile.toPath());
+            long lastTimestamp;
+            try (CTFTraceReader reader = new CTFTraceReader(trace)) {
+                reader.goToLastEvent();
+                lastTimestamp = reader.getCurrentEventDef().getTimestamp();
+            }
+
+            /* Truncated file */
+            Files.write(indexFile.toPath(), Arrays.copyOf(valid, valid.length / 2));
+            CTFTrace truncated = new CTFTrace(path);
+            assertFalse(truncated.readPacketIndex(indexFile));
+            try (CTFTraceReader reader = new CTFTraceReader(truncated)) {
+                reader.goToLastEvent();
+                assertEquals(lastTimestamp, reader.getCurrentEventDef().getTimestamp());
+            }
+
+            /*
+             * Garbled counts, lengths and indexes: every int of the start of
+             * the file, which has the counts and names of the first stream
+             * file and its first packets, is replaced in turn by values that
+             * do not fit in the file
+             */
+            int[] garbage = { -2, -1, Integer.MAX_VALUE, valid.length };
+            int end = Math.min(valid.length, GARBLED_SIZE);
+            CTFTrace garbledTrace = new CTFTrace(path);
+            for (int offset = 8; offset + Integer.BYTES <= end; offset++) {
+                for (int value : garbage) {
+                    byte[] garbled = valid.clone();
+                    ByteBuffer.wrap(garbled).putInt(offset, value);
+                    Files.write(indexFile.toPath(), garbled);
+                    /* Must not throw */
+                    garbledTrace.readPacketIndex(indexFile);
+                }
+            }
+        } finally {
+            indexFile.delete();
+        }
+    }
+
     /**
      * Run the CTFTrace(File) constructor test with an invalid path.
      *
@@ -19,7 +19,10 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -27,6 +30,8 @@ import org.eclipse.core.runtime.URIUtil;
 import org.eclipse.tracecompass.ctf.core.CTFException;
 import org.eclipse.tracecompass.ctf.core.event.EventDefinition;
 import org.eclipse.tracecompass.ctf.core.tests.shared.CtfTestTraceUtils;
+import org.eclipse.tracecompass.ctf.core.trace.CTFStream;
+import org.eclipse.tracecompass.ctf.core.trace.CTFStreamInput;
 import org.eclipse.tracecompass.ctf.core.trace.CTFTrace;
 import org.eclipse.tracecompass.ctf.core.trace.CTFTraceReader;
 import org.eclipse.tracecompass.ctf.core.trace.CTFTraceWriter;
@@ -72,6 +77,8 @@ public class CTFTraceWriterTest {
 
         // Miscellaneous
         private static final int NB_EVENTS_SEVERAL_PACKETS = 167585;
+        /** Bytes compared to find a packet, its header and timestamps */
+        private static final int PACKET_HEADER_SIZE = 64;
 
         // Test parameters
         private String fName;
@@ -173,45 +180,94 @@ public class CTFTraceWriterTest {
             try {
                 CTFTrace trace = CtfTestTraceUtils.getTrace(CtfTestTrace.KERNEL);
                 CTFTraceWriter ctfWriter = new CTFTraceWriter(checkNotNull(trace));
-                String traceName = createTraceName(fName);
-                ctfWriter.copyPackets(fStartTime, fEndTime, traceName);
-
-                File metadata = new File(traceName + Utils.SEPARATOR + "metadata");
-                assertTrue("metadata", metadata.exists());
-
-                CTFTrace outTrace = new CTFTrace(traceName);
-                int count = 0;
-                Long start = null;
-                long end = 0;
-                try (CTFTraceReader reader = new CTFTraceReader(outTrace)) {
-                    while(reader.hasMoreEvents()) {
-                        count++;
-                        EventDefinition def = reader.getCurrentEventDef();
-                        end = def.getTimestamp();
-                        if (start == null) {
-                            start = outTrace.getClock().getClockOffset() + reader.getStartTime();
-                        }
-                        reader.advance();
-                    }
-                    end = outTrace.getClock().getClockOffset() + end;
-                }
+                checkCopy(trace, ctfWriter, createTraceName(fName));
+            } catch (CTFException | IOException e) {
+                fail(e.getMessage());
+            }
+    }
 
-                if (fFirstEventTime >= 0) {
-                    assertEquals("first event time", Long.valueOf(fFirstEventTime), start);
-                }
-                if (fLastEventTime >= 0) {
-                    assertEquals("last event time", fLastEventTime, end);
-                }
-                assertEquals(toString(), fNbEvents, count);
+    /**
+     * Test various time ranges, with the packet index file of the trace
+     */
+    @Test
+    public void testKernelTraceWithIndexFile() {
+        File indexFile = new File(fTempDir, fName + ".idx");
+        indexFile.delete();
+        try {
+            CTFTrace trace = CtfTestTraceUtils.getTrace(CtfTestTrace.KERNEL);
+            CTFTraceWriter ctfWriter = new CTFTraceWriter(checkNotNull(trace), indexFile);
+            assertTrue("index file", indexFile.isFile());
+            checkCopy(trace, ctfWriter, createTraceName(fName + "_WITH_INDEX_FILE"));
+        } catch (CTFException | IOException e) {
+            fail(e.getMessage());
+        } finally {
+            indexFile.delete();
+        }
+    }
 
-                if (fNbEvents == 0) {
-                    assertFalse("channel0", getChannelFile(traceName, 0).exists());
-                    assertFalse("channel1", getChannelFile(traceName, 1).exists());
+    private void checkCopy(CTFTrace trace, CTFTraceWriter ctfWriter, String traceName) throws CTFException, IOException {
+        ctfWriter.copyPackets(fStartTime, fEndTime, traceName);
+
+        File metadata = new File(traceName + Utils.SEPARATOR + "metadata");
+        assertTrue("metadata", metadata.exists());
+
+        CTFTrace outTrace = new CTFTrace(traceName);
+        int count = 0;
+        Long start = null;
+        long end = 0;
+        try (CTFTraceReader reader = new CTFTraceReader(outTrace)) {
+            while(reader.hasMoreEvents()) {
+                count++;
+                EventDefinition def = reader.getCurrentEventDef();
+                end = def.getTimestamp();
+                if (start == null) {
+                    start = outTrace.getClock().getClockOffset() + reader.getStartTime();
                 }
+                reader.advance();
+            }
+            end = outTrace.getClock().getClockOffset() + end;
+        }
 
-            } catch (CTFException e) {
-                fail(e.getMessage());
+        if (fFirstEventTime >= 0) {
+            assertEquals("first event time", Long.valueOf(fFirstEventTime), start);
+        }
+        if (fLastEventTime >= 0) {
+            assertEquals("last event time", fLastEventTime, end);
+        }
+        assertEquals(toString(), fNbEvents, count);
+
+        if (fNbEvents == 0) {
+            assertFalse("channel0", getChannelFile(traceName, 0).exists());
+            assertFalse("channel1", getChannelFile(traceName, 1).exists());
+        }
+        assertContiguousCopy(trace, traceName);
+    }
+
+    /**
+     * The packets of the kernel trace follow each other in their stream file,
+     * so the selected packets are copied in one block, and each output stream
+     * file must be a part of its input stream file, starting at a packet.
+     */
+    private static void assertContiguousCopy(CTFTrace trace, String traceName) throws IOException {
+        for (CTFStream stream : trace.getStreams()) {
+            for (CTFStreamInput input : stream.getStreamInputs()) {
+                File outFile = new File(traceName, input.getFile().getName());
+                if (!outFile.exists()) {
+                    continue;
+                }
+                byte[] in = Files.readAllBytes(input.getFile().toPath());
+                byte[] out = Files.readAllBytes(outFile.toPath());
+                assertTrue(outFile.getName(), out.length > PACKET_HEADER_SIZE && out.length <= in.length);
+                /* Find the first copied packet from its header */
+                ByteBuffer header = ByteBuffer.wrap(out, 0, PACKET_HEADER_SIZE);
+                int offset = 0;
+                while (offset + out.length <= in.length && !ByteBuffer.wrap(in, offset, PACKET_HEADER_SIZE).equals(header)) {
+                    offset++;
+                }
+                assertTrue(outFile.getName(), offset + out.length <= in.length);
+                assertEquals(outFile.getName(), ByteBuffer.wrap(in, offset, out.length), ByteBuffer.wrap(out));
             }
+        }
     }
 
     private static File getChannelFile(String path, int id) {
@@ -13,7 +13,9 @@ package org.eclipse.tracecompass.ctf.core.tests.trace;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
 import java.nio.ByteOrder;
@@ -21,12 +23,14 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
+import org.antlr.runtime.tree.CommonTree;
 import org.eclipse.tracecompass.ctf.core.CTFException;
 import org.eclipse.tracecompass.ctf.core.event.IEventDeclaration;
 import org.eclipse.tracecompass.ctf.core.tests.shared.CtfTestTraceUtils;
 import org.eclipse.tracecompass.ctf.core.trace.CTFStream;
 import org.eclipse.tracecompass.ctf.core.trace.CTFTrace;
 import org.eclipse.tracecompass.ctf.core.trace.Metadata;
+import org.eclipse.tracecompass.internal.ctf.core.event.metadata.MetadataTreeCache;
 import org.eclipse.tracecompass.testtraces.ctf.CtfTestTrace;
 import org.junit.Before;
 import org.junit.Test;
@@ -213,6 +217,73 @@ public class MetadataTest {
         assertEquals("bozo_the_clown", eventDeclarations.get(1).getName());
     }
 
+    /**
+     * Test that the same metadata text parsed again, or with declarations
+     * appended, gets the trees of the first parse from the cache and gives
+     * the same declarations
+     *
+     * @throws CTFException
+     */
+    @Test
+    public void testCachedTextMD() throws CTFException {
+        testSingleFragment();
+        MetadataTreeCache.Entry entry = MetadataTreeCache.get(mdStart);
+        assertNotNull(entry);
+        assertEquals(mdStart.length(), entry.getLength());
+        List<CommonTree> trees = entry.getTrees();
+
+        /* A miss would have put new trees */
+        testSingleFragment();
+        entry = MetadataTreeCache.get(mdStart);
+        assertNotNull(entry);
+        assertSame(trees, entry.getTrees());
+
+        /* Only the appended text is parsed */
+        String grownText = mdStart + '\n' + mdSecond;
+        Metadata grown = new Metadata();
+        grown.parseText(grownText);
+        final List<IEventDeclaration> eventDeclarations = new ArrayList<>(grown.getTrace().getEventDeclarations(0L));
+        assertEquals(2, eventDeclarations.size());
+        assertEquals("bozo_the_clown", eventDeclarations.get(1).getName());
+        entry = MetadataTreeCache.get(grownText);
+        assertNotNull(entry);
+        assertEquals(grownText.length(), entry.getLength());
+        assertEquals(2, entry.getTrees().size());
+        assertSame(trees.get(0), entry.getTrees().get(0));
+    }
+
+    /**
+     * Test that a metadata text that only differs by its trace UUID gets the
+     * cached trees with its own UUID
+     *
+     * @throws CTFException
+     */
+    @Test
+    public void testCachedTextOtherUuid() throws CTFException {
+        String uuid = "8b1258ba-effb-554b-b779-fbd676746000";
+        String otherUuid = "0d0c52c1-0e7a-4f09-8b5e-2f3c1a6e1a2b";
+        testSingleFragment();
+        MetadataTreeCache.Entry entry = MetadataTreeCache.get(mdStart);
+        assertNotNull(entry);
+        List<CommonTree> trees = entry.getTrees();
+
+        String otherText = mdStart.replace(uuid, otherUuid);
+        entry = MetadataTreeCache.get(otherText);
+        assertNotNull(entry);
+        assertEquals(otherText.length(), entry.getLength());
+        assertNotSame(trees.get(0), entry.getTrees().get(0));
+
+        Metadata other = new Metadata();
+        other.parseText(otherText);
+        assertEquals(UUID.fromString(otherUuid), other.getTrace().getUUID());
+        assertEquals(1, other.getTrace().getEventDeclarations(0L).size());
+
+        /* The cached trees keep their UUID */
+        Metadata same = new Metadata();
+        same.parseText(mdStart);
+        assertEquals(UUID.fromString(uuid), same.getTrace().getUUID());
+    }
+
     /**
      * Run the ByteOrder getDetectedByteOrder() method test.
      *
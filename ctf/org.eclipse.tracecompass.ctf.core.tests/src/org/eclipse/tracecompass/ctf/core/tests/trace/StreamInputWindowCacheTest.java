@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.ctf.core.tests.trace;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.eclipse.tracecompass.internal.ctf.core.trace.StreamInputWindowCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the windows of {@link StreamInputWindowCache}, with small windows
+ */
+public class StreamInputWindowCacheTest {
+
+    private static final int WINDOW_SIZE = 4096;
+
+    private File fFile;
+    private FileChannel fChannel;
+
+    /**
+     * Create a stream file of a window and a half
+     *
+     * @throws IOException
+     *             should not happen
+     */
+    @Before
+    public void setUp() throws IOException {
+        fFile = File.createTempFile("stream", ".bin");
+        append(0, WINDOW_SIZE + WINDOW_SIZE / 2);
+        fChannel = FileChannel.open(fFile.toPath(), StandardOpenOption.READ);
+    }
+
+    /**
+     * Delete the stream file
+     *
+     * @throws IOException
+     *             should not happen
+     */
+    @After
+    public void tearDown() throws IOException {
+        fChannel.close();
+        fFile.delete();
+    }
+
+    /** Content of the byte at an offset of the file */
+    private static byte valueAt(long offset) {
+        return (byte) (offset % 251);
+    }
+
+    private void append(long start, long end) throws IOException {
+        try (OutputStream out = new FileOutputStream(fFile, true)) {
+            for (long offset = start; offset < end; offset++) {
+                out.write(valueAt(offset));
+            }
+        }
+    }
+
+    private static void assertContent(ByteBuffer buffer, long offset, int size) {
+        assertEquals(size, buffer.remaining());
+        for (int i = 0; i < size; i++) {
+            assertEquals("offset " + (offset + i), valueAt(offset + i), buffer.get(buffer.position() + i));
+        }
+    }
+
+    /**
+     * Test regions that are in one window, and a region across two windows,
+     * which is mapped by itself
+     *
+     * @throws IOException
+     *             should not happen
+     */
+    @Test
+    public void testAcrossWindows() throws IOException {
+        StreamInputWindowCache cache = new StreamInputWindowCache(fFile, WINDOW_SIZE, true);
+        assertContent(cache.getBuffer(fChannel, 100, 200), 100, 200);
+        assertEquals(1, cache.getNbWindows());
+
+        long offset = WINDOW_SIZE - 100;
+        assertContent(cache.getBuffer(fChannel, offset, 200), offset, 200);
+        assertEquals(1, cache.getNbWindows());
+    }
+
+    /**
+     * Test that a window mapped before the file grew is mapped again for the
+     * regions written since
+     *
+     * @throws IOException
+     *             should not happen
+     */
+    @Test
+    public void testFileGrows() throws IOException {
+        StreamInputWindowCache cache = new StreamInputWindowCache(fFile, WINDOW_SIZE, true);
+        long offset = WINDOW_SIZE + 100;
+        assertContent(cache.getBuffer(fChannel, offset, 200), offset, 200);
+
+        append(WINDOW_SIZE + WINDOW_SIZE / 2, 2 * WINDOW_SIZE);
+        offset = WINDOW_SIZE + WINDOW_SIZE / 2 - 100;
+        assertContent(cache.getBuffer(fChannel, offset, 400), offset, 400);
+        assertEquals(1, cache.getNbWindows());
+    }
+
+    /**
+     * Test that no more than {@link StreamInputWindowCache#MAX_WINDOWS} are
+     * kept, and that the slices of an evicted window can still be read
+     *
+     * @throws IOException
+     *             should not happen
+     */
+    @Test
+    public void testEviction() throws IOException {
+        int nbWindows = StreamInputWindowCache.MAX_WINDOWS + 2;
+        append(WINDOW_SIZE + WINDOW_SIZE / 2, nbWindows * WINDOW_SIZE);
+        StreamInputWindowCache cache = new StreamInputWindowCache(fFile, WINDOW_SIZE, true);
+
+        ByteBuffer first = cache.getBuffer(fChannel, 100, 200);
+        /* Stay in the first half of the windows, so none is read ahead */
+        for (int i = 1; i < nbWindows; i++) {
+            long offset = i * WINDOW_SIZE + 100;
+            assertContent(cache.getBuffer(fChannel, offset, 200), offset, 200);
+            assertEquals(Math.min(i + 1, StreamInputWindowCache.MAX_WINDOWS), cache.getNbWindows());
+        }
+
+        /* The first window was evicted, its slice is still valid */
+        assertContent(first, 100, 200);
+        assertContent(cache.getBuffer(fChannel, 100, 200), 100, 200);
+        assertEquals(StreamInputWindowCache.MAX_WINDOWS, cache.getNbWindows());
+    }
+
+    /**
+     * Test that no window is kept when the file cannot be mapped, every
+     * region being read by itself
+     *
+     * @throws IOException
+     *             should not happen
+     */
+    @Test
+    public void testNotMapping() throws IOException {
+        StreamInputWindowCache cache = new StreamInputWindowCache(fFile, WINDOW_SIZE, false);
+        assertContent(cache.getBuffer(fChannel, 100, 200), 100, 200);
+        long offset = WINDOW_SIZE - 100;
+        assertContent(cache.getBuffer(fChannel, offset, 200), offset, 200);
+        assertEquals(0, cache.getNbWindows());
+    }
+}
@@ -37,6 +37,7 @@ import org.junit.runners.Suite;
     CTFStreamInputTest.class,
     CTFStreamTest.class,
     CTFTraceWriterTest.class,
+    StreamInputWindowCacheTest.class,
     TraceReadAllTracesTest.class,
     UtilsTest.class
 })
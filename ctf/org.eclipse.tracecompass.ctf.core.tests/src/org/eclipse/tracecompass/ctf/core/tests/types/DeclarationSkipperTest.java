@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.ctf.core.tests.types;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.ctf.core.CTFException;
+import org.eclipse.tracecompass.ctf.core.event.io.BitBuffer;
+import org.eclipse.tracecompass.ctf.core.event.types.FloatDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.IntegerDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.StructDeclaration;
+import org.eclipse.tracecompass.internal.ctf.core.event.types.DeclarationSkipper;
+import org.junit.Test;
+
+/**
+ * Test that {@link DeclarationSkipper} moves past the data of a declaration
+ * the same way as reading its definition, as done for the event types that
+ * are not in the projection of a request.
+ */
+public class DeclarationSkipperTest {
+
+    private static final int BUFFER_SIZE = 128;
+
+    private static @NonNull BitBuffer createBuffer() {
+        ByteBuffer bb = ByteBuffer.allocate(BUFFER_SIZE);
+        for (int i = 0; i < BUFFER_SIZE; i++) {
+            bb.put((byte) i);
+        }
+        bb.flip();
+        return new BitBuffer(bb, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Compare the position after skipping the declaration with the position
+     * after reading it, from a few start positions
+     */
+    private static void assertSkipsLikeRead(StructDeclaration declaration) throws CTFException {
+        long size = DeclarationSkipper.getFixedSize(declaration);
+        for (long start = 0; start < 64; start += 3) {
+            BitBuffer read = createBuffer();
+            read.position(start);
+            declaration.createDefinition(null, "payload", read);
+
+            BitBuffer skipped = createBuffer();
+            skipped.position(start);
+            DeclarationSkipper.skip(declaration, size, skipped);
+
+            assertEquals("start " + start, read.position(), skipped.position());
+        }
+    }
+
+    /**
+     * Test an event payload with an int, a float and an int
+     *
+     * @throws CTFException
+     *             should not happen
+     */
+    @Test
+    public void testFloatField() throws CTFException {
+        StructDeclaration declaration = new StructDeclaration(8);
+        declaration.addField("before", IntegerDeclaration.INT_32B_DECL);
+        declaration.addField("value", new FloatDeclaration(8, 24, ByteOrder.BIG_ENDIAN, 8));
+        declaration.addField("after", IntegerDeclaration.INT_32B_DECL);
+        assertEquals(3 * Integer.SIZE, DeclarationSkipper.getFixedSize(declaration));
+        assertSkipsLikeRead(declaration);
+    }
+
+    /**
+     * Test an event payload with a double between unaligned fields
+     *
+     * @throws CTFException
+     *             should not happen
+     */
+    @Test
+    public void testDoubleField() throws CTFException {
+        StructDeclaration declaration = new StructDeclaration(1);
+        declaration.addField("before", IntegerDeclaration.UINT_5B_DECL);
+        declaration.addField("value", new FloatDeclaration(11, 53, ByteOrder.BIG_ENDIAN, 64));
+        declaration.addField("after", IntegerDeclaration.UINT_27B_DECL);
+        assertSkipsLikeRead(declaration);
+    }
+
+    /**
+     * Test an event payload with a float of a size that is not read
+     *
+     * @throws CTFException
+     *             should not happen
+     */
+    @Test
+    public void testUnreadFloatField() throws CTFException {
+        StructDeclaration declaration = new StructDeclaration(8);
+        declaration.addField("before", IntegerDeclaration.INT_8_DECL);
+        declaration.addField("value", new FloatDeclaration(5, 11, ByteOrder.BIG_ENDIAN, 8));
+        declaration.addField("after", IntegerDeclaration.INT_8_DECL);
+        assertSkipsLikeRead(declaration);
+    }
+}
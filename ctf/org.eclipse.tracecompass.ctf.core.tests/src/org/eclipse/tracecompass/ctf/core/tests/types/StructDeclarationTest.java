@@ -18,10 +18,13 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import org.eclipse.tracecompass.ctf.core.CTFException;
 import org.eclipse.tracecompass.ctf.core.event.io.BitBuffer;
 import org.eclipse.tracecompass.ctf.core.event.types.Encoding;
+import org.eclipse.tracecompass.ctf.core.event.types.EnumDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.FloatDeclaration;
 import org.eclipse.tracecompass.ctf.core.event.types.IDeclaration;
 import org.eclipse.tracecompass.ctf.core.event.types.IntegerDeclaration;
 import org.eclipse.tracecompass.ctf.core.event.types.StringDeclaration;
@@ -90,6 +93,45 @@ public class StructDeclarationTest {
         assertNotNull(result);
     }
 
+    /**
+     * Test that reading a fixed size struct gives the same fields and moves
+     * the buffer as much as reading each field with its declaration
+     *
+     * @throws CTFException
+     *             out of bounds
+     */
+    @Test
+    public void testCreateDefinitionFixedSize() throws CTFException {
+        EnumDeclaration enumDeclaration = new EnumDeclaration(IntegerDeclaration.UINT_8_DECL);
+        enumDeclaration.add(0, 127, "low");
+        enumDeclaration.add(128, 255, "high");
+        fixture.addField("bits", IntegerDeclaration.createDeclaration(3, false, 10, ByteOrder.BIG_ENDIAN, Encoding.NONE, "", 1));
+        fixture.addField("short", IntegerDeclaration.createDeclaration(16, true, 10, ByteOrder.LITTLE_ENDIAN, Encoding.NONE, "", 8));
+        fixture.addField("enum", enumDeclaration);
+        fixture.addField("long", IntegerDeclaration.createDeclaration(64, false, 16, ByteOrder.BIG_ENDIAN, Encoding.NONE, "", 64));
+        fixture.addField("signed", IntegerDeclaration.createDeclaration(5, true, 10, ByteOrder.LITTLE_ENDIAN, Encoding.NONE, "", 1));
+        fixture.addField("float", new FloatDeclaration(8, 24, ByteOrder.BIG_ENDIAN, 32));
+        fixture.addField("int", IntegerDeclaration.INT_32B_DECL);
+
+        ByteBuffer data = ByteBuffer.allocate(64);
+        for (int i = 0; i < data.capacity(); i++) {
+            data.put(i, (byte) (i * 37 + 11));
+        }
+        BitBuffer bb = new BitBuffer(data);
+        bb.position(3);
+        StructDefinition result = fixture.createDefinition(null, "", bb);
+
+        BitBuffer expectedBb = new BitBuffer(data.duplicate());
+        expectedBb.position(3);
+        expectedBb.position((expectedBb.position() + 63) & ~63L);
+        for (String name : fixture.getFieldsList()) {
+            IDeclaration field = fixture.getField(name);
+            String expected = field.createDefinition(null, name, expectedBb).toString();
+            assertEquals(name, expected, result.getDefinition(name).toString());
+        }
+        assertEquals(expectedBb.position(), bb.position());
+    }
+
     /**
      * Run the Declaration getField(String) method test.
      */
@@ -26,6 +26,7 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses({
     ArrayDeclaration2Test.class,
     ArrayDefinition2Test.class,
+    DeclarationSkipperTest.class,
     DefinitionTest.class,
     EnumDeclarationTest.class,
     EnumDefinitionTest.class,
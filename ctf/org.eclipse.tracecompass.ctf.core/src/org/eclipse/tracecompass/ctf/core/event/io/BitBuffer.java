@@ -148,6 +148,23 @@ public final class BitBuffer {
      *             exception will be raised.
      */
     public long get(int length, boolean signed) throws CTFException {
+        /*
+         * Fast path for whole bytes at a byte offset, most fields of a trace
+         * are aligned
+         */
+        if (((fPosition | length) & (BIT_CHAR - 1)) == 0 && (fPosition + length) <= fBitCapacity) {
+            switch (length) {
+            case BIT_CHAR:
+            case BIT_SHORT:
+            case BIT_INT:
+            case BIT_LONG:
+                long retVal = getAligned((int) (fPosition / BIT_CHAR), length, signed);
+                fPosition += length;
+                return retVal;
+            default:
+                break;
+            }
+        }
         if (length > BIT_LONG) {
             throw new CTFException("Cannot read a long longer than 64 bits. Rquested: " + length); //$NON-NLS-1$
         }
@@ -172,6 +189,82 @@ public final class BitBuffer {
         return (signed ? retVal : (retVal & INT_MASK));
     }
 
+    /**
+     * Relative bulk <i>get</i> method for reading consecutive integers of
+     * <i>length</i> bits each.
+     *
+     * Reads <i>count</i> integers starting at the current position, with no
+     * padding between them, in the current byte order. The current position is
+     * increased of <i>count</i> times <i>length</i> bits. This is faster than
+     * reading the integers one at a time, especially if they are whole bytes
+     * at a byte offset.
+     *
+     * @param dst
+     *            The array to write the integers to
+     * @param offset
+     *            The index of the first integer in the array
+     * @param count
+     *            The number of integers to read
+     * @param length
+     *            The length in bits of each integer
+     * @param signed
+     *            The sign extended flag
+     * @throws CTFException
+     *             If more than 64 bits at a time are read, or the buffer is
+     *             read beyond its end. Nothing is read then.
+     * @since 2.0
+     */
+    public void get(long @NonNull [] dst, int offset, int count, int length, boolean signed) throws CTFException {
+        if (offset < 0 || count < 0 || offset + count > dst.length) {
+            throw new IndexOutOfBoundsException("Offset: " + offset + " Count: " + count + " Array length: " + dst.length); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        }
+        if (length < 0 || length > BIT_LONG) {
+            throw new CTFException("Cannot read a long longer than 64 bits. Rquested: " + length); //$NON-NLS-1$
+        }
+        if (fPosition + (long) count * length > fBitCapacity) {
+            throw new CTFException("Cannot read the integers, " + //$NON-NLS-1$
+                    "the buffer does not have enough remaining space. " + //$NON-NLS-1$
+                    "Requested:" + (long) count * length + " Available:" + (fBitCapacity - fPosition)); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        boolean wholeBytes = (length == BIT_CHAR || length == BIT_SHORT || length == BIT_INT || length == BIT_LONG);
+        if (wholeBytes && (fPosition & (BIT_CHAR - 1)) == 0) {
+            int index = (int) (fPosition / BIT_CHAR);
+            final int step = length / BIT_CHAR;
+            for (int i = offset; i < offset + count; i++) {
+                dst[i] = getAligned(index, length, signed);
+                index += step;
+            }
+            fPosition += (long) count * length;
+            return;
+        }
+        for (int i = offset; i < offset + count; i++) {
+            dst[i] = get(length, signed);
+        }
+    }
+
+    /**
+     * Read an integer of 8, 16, 32 or 64 bits at a byte index, the bounds
+     * must have been checked
+     */
+    private long getAligned(int index, int length, boolean signed) {
+        switch (length) {
+        case BIT_CHAR: {
+            long value = fBuffer.get(index);
+            return signed ? value : (value & BYTE_MASK);
+        }
+        case BIT_SHORT: {
+            long value = fBuffer.getShort(index);
+            return signed ? value : (value & SHORT_MASK);
+        }
+        case BIT_INT: {
+            long value = fBuffer.getInt(index);
+            return signed ? value : (value & INT_MASK);
+        }
+        default:
+            return fBuffer.getLong(index);
+        }
+    }
+
     /**
      * Relative bulk <i>get</i> method.
      *
@@ -28,6 +28,7 @@ import org.eclipse.tracecompass.ctf.core.CTFException;
 import org.eclipse.tracecompass.ctf.core.event.io.BitBuffer;
 import org.eclipse.tracecompass.ctf.core.event.scope.IDefinitionScope;
 import org.eclipse.tracecompass.ctf.core.event.scope.ILexicalScope;
+import org.eclipse.tracecompass.internal.ctf.core.event.types.StructDecoder;
 
 /**
  * A CTF structure declaration.
@@ -52,6 +53,13 @@ public class StructDeclaration extends Declaration {
     /** maximum bit alignment */
     private long fMaxAlign;
 
+    /**
+     * The decoder of the fields if they are of fixed size, compiled on the
+     * first read
+     */
+    private volatile @Nullable StructDecoder fDecoder;
+    private volatile boolean fDecoderCompiled = false;
+
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
@@ -196,9 +204,23 @@ public class StructDeclaration extends Declaration {
     public void addField(String name, IDeclaration declaration) {
         fFieldMap.put(name, declaration);
         fMaxAlign = Math.max(fMaxAlign, declaration.getAlignment());
+        fDecoderCompiled = false;
+    }
+
+    private @Nullable StructDecoder getDecoder() {
+        if (!fDecoderCompiled) {
+            fDecoder = StructDecoder.compile(this);
+            fDecoderCompiled = true;
+        }
+        return fDecoder;
     }
 
     private void fillStruct(@NonNull BitBuffer input, final Definition[] myFields, StructDefinition structDefinition) throws CTFException {
+        StructDecoder decoder = getDecoder();
+        if (decoder != null) {
+            decoder.decode(input, myFields, structDefinition);
+            return;
+        }
         Iterator<Map.Entry<String, IDeclaration>> iter = fFieldMap.entrySet().iterator();
         for (int i = 0; i < fFieldMap.size(); i++) {
             Map.Entry<String, IDeclaration> entry = iter.next();
@@ -15,9 +15,10 @@ package org.eclipse.tracecompass.ctf.core.trace;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
@@ -58,17 +59,19 @@ public class CTFStream {
     private CTFTrace fTrace = null;
 
     /**
-     * Maps event ids to events
+     * Maps event ids to events. Events are added by the metadata appended
+     * while the trace is read, so it is a copy-on-write list.
      */
-    private final ArrayList<@Nullable IEventDeclaration> fEvents = new ArrayList<>();
+    private final List<@Nullable IEventDeclaration> fEvents = new CopyOnWriteArrayList<>();
 
     private boolean fEventUnsetId = false;
     private boolean fStreamIdSet = false;
 
     /**
-     * The inputs associated to this stream
+     * The inputs associated to this stream. Inputs are added while the trace
+     * is read, by {@link CTFTrace#refresh()}.
      */
-    private final Set<CTFStreamInput> fInputs = new HashSet<>();
+    private final Set<CTFStreamInput> fInputs = new CopyOnWriteArraySet<>();
 
     // ------------------------------------------------------------------------
     // Constructors
@@ -332,10 +335,10 @@ public class CTFStream {
         }
     }
 
-    private static void ensureSize(ArrayList<@Nullable ? extends Object> list, int index) {
-        list.ensureCapacity(index);
-        while (list.size() <= index) {
-            list.add(null);
+    private static void ensureSize(List<@Nullable IEventDeclaration> list, int index) {
+        if (list.size() <= index) {
+            /* Grow the list in one copy */
+            list.addAll(Collections.<@Nullable IEventDeclaration> nCopies(index + 1 - list.size(), null));
         }
     }
 
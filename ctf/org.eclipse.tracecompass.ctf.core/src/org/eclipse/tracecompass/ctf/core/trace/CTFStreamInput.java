@@ -12,12 +12,15 @@
 
 package org.eclipse.tracecompass.ctf.core.trace;
 
+import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
+
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.nio.file.StandardOpenOption;
+import java.util.List;
 import java.util.UUID;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -35,6 +38,7 @@ import org.eclipse.tracecompass.ctf.core.event.types.StructDefinition;
 import org.eclipse.tracecompass.internal.ctf.core.SafeMappedByteBuffer;
 import org.eclipse.tracecompass.internal.ctf.core.trace.StreamInputPacketIndex;
 import org.eclipse.tracecompass.internal.ctf.core.trace.StreamInputPacketIndexEntry;
+import org.eclipse.tracecompass.internal.ctf.core.trace.StreamInputWindowCache;
 import org.eclipse.tracecompass.internal.ctf.core.trace.Utils;
 
 /**
@@ -51,6 +55,13 @@ public class CTFStreamInput implements IDefinitionScope {
 
     private static final int MAP_SIZE = 4096;
 
+    /**
+     * Size of the windows mapped to index all the packets of the stream. Only
+     * the pages of the packet headers are read from a mapped window, so it can
+     * be large. Without mapping the whole window is read, so it is kept small.
+     */
+    private static final int INDEX_WINDOW_SIZE = SafeMappedByteBuffer.isMapping() ? 1 << 26 : 1 << 20;
+
     /**
      * The associated Stream
      */
@@ -88,6 +99,11 @@ public class CTFStreamInput implements IDefinitionScope {
      */
     private long fLostSoFar = 0;
 
+    /**
+     * The windows of the file mapped for the readers of this input
+     */
+    private final StreamInputWindowCache fWindows;
+
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
@@ -110,6 +126,7 @@ public class CTFStreamInput implements IDefinitionScope {
         fFileName = name;
 
         fIndex = new StreamInputPacketIndex();
+        fWindows = new StreamInputWindowCache(file);
         /*
          * Create the definitions we need to read the packet headers + contexts
          */
@@ -216,38 +233,142 @@ public class CTFStreamInput implements IDefinitionScope {
      * <strong>This method is slow and can corrupt data if not used
      * properly</strong>
      *
+     * The readers of the different contexts of a trace index the packets of
+     * a stream input as they reach them, this is synchronized so that they
+     * don't index the same packet twice. A packet that goes past the end of
+     * the file, like the packet a tracer is writing, is not added.
+     *
      * @return true if there are more packets to add
      * @throws CTFException
      *             If there was a problem reading the packed header
      */
-    public boolean addPacketHeaderIndex() throws CTFException {
-        long currentPosBits = 0L;
-        if (!fIndex.isEmpty()) {
-            ICTFPacketDescriptor pos = fIndex.lastElement();
-            if (pos == null) {
-                throw new IllegalStateException("Index contains null packet entries"); //$NON-NLS-1$
-            }
-            currentPosBits = pos.getOffsetBits() + pos.getPacketSizeBits();
-        }
+    public synchronized boolean addPacketHeaderIndex() throws CTFException {
+        long currentPosBits = getNextPacketOffsetBits();
         if (currentPosBits < getStreamSizeBits()) {
-            fIndex.append(createPacketIndexEntry(currentPosBits));
+            ICTFPacketDescriptor packet = createPacketIndexEntry(currentPosBits);
+            if (packet == null) {
+                return false;
+            }
+            fIndex.append(packet);
             return true;
         }
         return false;
     }
 
+    /**
+     * Adds all the packets of the stream input that are not indexed yet to its
+     * index.
+     *
+     * Unlike {@link #addPacketHeaderIndex()}, this opens the stream file only
+     * once and maps large windows of it, each holding the headers of many
+     * packets. It is meant to index all the stream inputs of a trace upfront,
+     * possibly in parallel (see {@link CTFTrace#indexPackets()}). A packet that
+     * goes past the end of the file is not added, it is added by a later call
+     * once it is fully written.
+     *
+     * @throws CTFException
+     *             If there was a problem reading a packet header. The packets
+     *             before the faulty one are indexed.
+     * @since 2.0
+     */
+    public synchronized void indexPackets() throws CTFException {
+        long currentPosBits = getNextPacketOffsetBits();
+        try (FileChannel fc = FileChannel.open(fFile.toPath(), StandardOpenOption.READ)) {
+            if (fc == null) {
+                throw new IOException("Failed to create FileChannel"); //$NON-NLS-1$
+            }
+            final long fileSize = fc.size();
+            ByteBuffer window = null;
+            long windowStart = 0;
+            while (currentPosBits < fileSize * Byte.SIZE) {
+                long offsetBytes = currentPosBits / Byte.SIZE;
+                long headerSize = getHeaderMapSize(fileSize - offsetBytes);
+                if (window == null || offsetBytes < windowStart || offsetBytes + headerSize > windowStart + window.capacity()) {
+                    /* Map the next window, starting at this packet */
+                    windowStart = offsetBytes;
+                    window = getByteBufferAt(fc, windowStart, Math.min(fileSize - windowStart, Math.max(INDEX_WINDOW_SIZE, headerSize)));
+                }
+                ByteBuffer header = window.duplicate();
+                header.position((int) (offsetBytes - windowStart));
+                header.limit((int) (offsetBytes - windowStart + headerSize));
+                ICTFPacketDescriptor packet = createPacketIndexEntry(currentPosBits, checkNotNull(header.slice()), fileSize);
+                if (packet == null) {
+                    break;
+                }
+                fIndex.append(packet);
+                currentPosBits = packet.getOffsetBits() + packet.getPacketSizeBits();
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            throw new CTFException("Failed to index packets", e); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Restore the packet index of this stream input from packets that were
+     * indexed before, for example by a previous instance of this trace. This
+     * is only done if no packet was indexed yet.
+     *
+     * @param packets
+     *            The packets of the stream input, in file order
+     * @return true if the index was restored
+     * @throws CTFException
+     *             If the packets are not consistent
+     */
+    synchronized boolean restoreIndex(List<ICTFPacketDescriptor> packets) throws CTFException {
+        if (!fIndex.isEmpty()) {
+            return false;
+        }
+        for (ICTFPacketDescriptor packet : packets) {
+            fIndex.append(checkNotNull(packet));
+            fLostSoFar += packet.getLostEvents();
+            setTimestampEnd(packet.getTimestampEnd());
+        }
+        return true;
+    }
+
+    private long getNextPacketOffsetBits() {
+        if (fIndex.isEmpty()) {
+            return 0L;
+        }
+        ICTFPacketDescriptor pos = fIndex.lastElement();
+        if (pos == null) {
+            throw new IllegalStateException("Index contains null packet entries"); //$NON-NLS-1$
+        }
+        return pos.getOffsetBits() + pos.getPacketSizeBits();
+    }
+
     private long getStreamSizeBits() {
         return fFile.length() * Byte.SIZE;
     }
 
-    private ICTFPacketDescriptor createPacketIndexEntry(long dataOffsetbits)
+    private @Nullable ICTFPacketDescriptor createPacketIndexEntry(long dataOffsetbits)
             throws CTFException {
 
         try (FileChannel fc = FileChannel.open(fFile.toPath(), StandardOpenOption.READ)) {
             if (fc == null) {
                 throw new IOException("Failed to create FileChannel"); //$NON-NLS-1$
             }
-            BitBuffer bitBuffer = createBitBufferForPacketHeader(fc, dataOffsetbits);
+            long size = fc.size();
+            long offsetBytes = dataOffsetbits / Byte.SIZE;
+            ByteBuffer header = getByteBufferAt(fc, offsetBytes, getHeaderMapSize(size - offsetBytes));
+            return createPacketIndexEntry(dataOffsetbits, header, size);
+        } catch (IllegalArgumentException | IOException e) {
+            throw new CTFException("Failed to create packet index entry", e); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Read the header of a packet
+     *
+     * @return The packet, or null if the packet or its header goes past the
+     *         end of the file, because it is not fully written yet or the
+     *         file is truncated
+     */
+    private @Nullable ICTFPacketDescriptor createPacketIndexEntry(long dataOffsetbits, ByteBuffer header, long size) throws CTFException {
+        BitBuffer bitBuffer = new BitBuffer(header);
+        bitBuffer.setByteOrder(getStream().getTrace().getByteOrder());
+        ICTFPacketDescriptor packetIndex;
+        try {
             /*
              * Read the trace packet header if it exists.
              */
@@ -256,31 +377,59 @@ public class CTFStreamInput implements IDefinitionScope {
             /*
              * Read the stream packet context if it exists.
              */
-            long size = fc.size();
-            ICTFPacketDescriptor packetIndex = parsePacketContext(dataOffsetbits, size, bitBuffer);
-
-            /* Basic validation */
-            if (packetIndex.getContentSizeBits() > packetIndex.getPacketSizeBits()) {
-                throw new CTFException("Content size > packet size"); //$NON-NLS-1$
+            packetIndex = parsePacketContext(dataOffsetbits, size, bitBuffer);
+        } catch (CTFException e) {
+            if (dataOffsetbits / Byte.SIZE + header.capacity() >= size) {
+                /* The header itself is cut by the end of the file */
+                return null;
             }
+            throw e;
+        }
 
-            if (packetIndex.getPacketSizeBits() > ((size * Byte.SIZE - packetIndex.getOffsetBits()))) {
-                throw new CTFException("Not enough data remaining in the file for the size of this packet"); //$NON-NLS-1$
-            }
-            return packetIndex;
-        } catch (IOException e) {
-            throw new CTFException("Failed to create packet index entry", e); //$NON-NLS-1$
+        /* Basic validation */
+        if (packetIndex.getContentSizeBits() > packetIndex.getPacketSizeBits()) {
+            throw new CTFException("Content size > packet size"); //$NON-NLS-1$
+        }
+
+        if (packetIndex.getPacketSizeBits() > ((size * Byte.SIZE - packetIndex.getOffsetBits()))) {
+            return null;
         }
-    }
 
-    private BitBuffer createBitBufferForPacketHeader(FileChannel fc, long dataOffsetbits) throws CTFException, IOException {
         /*
-         * create a packet bit buffer to read the packet header
+         * Only count a complete packet, a packet that is still being written
+         * is read again once it is
          */
-        int maximumSize = fStreamPacketContextDecl.getMaximumSize() + fTracePacketHeaderDecl.getMaximumSize();
-        BitBuffer bitBuffer = new BitBuffer(createPacketBitBuffer(fc, dataOffsetbits/Byte.SIZE, maximumSize));
-        bitBuffer.setByteOrder(getStream().getTrace().getByteOrder());
-        return bitBuffer;
+        fLostSoFar = packetIndex.getLostEvents() + fLostSoFar;
+        setTimestampEnd(packetIndex.getTimestampEnd());
+        return packetIndex;
+    }
+
+    /**
+     * Get the size to map to read a packet header: the maximum size of the
+     * packet header and context, within the data remaining in the file.
+     */
+    private long getHeaderMapSize(long remain) {
+        long maximumSize = fStreamPacketContextDecl.getMaximumSize() + fTracePacketHeaderDecl.getMaximumSize();
+        return Math.min(Math.min(remain, MAP_SIZE), maximumSize);
+    }
+
+    /**
+     * Get a buffer holding a packet of this stream input, sliced from a large
+     * window of the file shared by all the readers of this input
+     *
+     * @param fc
+     *            The file channel of the reader, used if the packet is not in
+     *            a window
+     * @param offsetBytes
+     *            The offset of the packet in the file, in bytes
+     * @param sizeBytes
+     *            The size of the packet, in bytes
+     * @return The buffer, starting at the packet
+     * @throws IOException
+     *             If the file could not be mapped
+     */
+    ByteBuffer getPacketBuffer(FileChannel fc, long offsetBytes, long sizeBytes) throws IOException {
+        return fWindows.getBuffer(fc, offsetBytes, sizeBytes);
     }
 
     private static ByteBuffer getByteBufferAt(FileChannel fc, long position, long size) throws CTFException, IOException {
@@ -291,32 +440,6 @@ public class CTFStreamInput implements IDefinitionScope {
         return map;
     }
 
-    private static ByteBuffer createPacketBitBuffer(FileChannel fc,
-            long packetOffsetBytes, long maxSize) throws CTFException, IOException {
-        /*
-         * If there is less data remaining than what we want to map, reduce the
-         * map size.
-         */
-        long remain = fc.size() - packetOffsetBytes;
-        /*
-         * Initial size, it is the minimum of the the file size and the maximum
-         * possible size of the
-         */
-        long mapSize = Math.min(remain, MAP_SIZE);
-        if (maxSize < mapSize) {
-            mapSize = maxSize;
-        }
-
-        /*
-         * Map the packet.
-         */
-        try {
-            return getByteBufferAt(fc, packetOffsetBytes, mapSize);
-        } catch (IllegalArgumentException | IOException e) {
-            throw new CTFException(e);
-        }
-    }
-
     private StructDefinition parseTracePacketHeader(
             BitBuffer bitBuffer) throws CTFException {
 
@@ -368,8 +491,6 @@ public class CTFStreamInput implements IDefinitionScope {
         ICTFPacketDescriptor packetIndex;
         StructDefinition streamPacketContextDef = fStreamPacketContextDecl.createDefinition(this, ILexicalScope.STREAM_PACKET_CONTEXT, bitBuffer);
         packetIndex = new StreamInputPacketIndexEntry(dataOffsetBits, streamPacketContextDef, fileSizeBytes, fLostSoFar);
-        fLostSoFar = packetIndex.getLostEvents() + fLostSoFar;
-        setTimestampEnd(packetIndex.getTimestampEnd());
         return packetIndex;
     }
 
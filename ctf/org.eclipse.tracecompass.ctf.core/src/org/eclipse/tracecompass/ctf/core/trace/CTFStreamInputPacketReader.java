@@ -15,7 +15,9 @@ package org.eclipse.tracecompass.ctf.core.trace;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileChannel;
+import java.util.BitSet;
+import java.util.Set;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
@@ -39,7 +41,6 @@ import org.eclipse.tracecompass.ctf.core.event.types.SimpleDatatypeDefinition;
 import org.eclipse.tracecompass.ctf.core.event.types.StructDeclaration;
 import org.eclipse.tracecompass.ctf.core.event.types.StructDefinition;
 import org.eclipse.tracecompass.ctf.core.event.types.VariantDefinition;
-import org.eclipse.tracecompass.internal.ctf.core.SafeMappedByteBuffer;
 import org.eclipse.tracecompass.internal.ctf.core.event.EventDeclaration;
 import org.eclipse.tracecompass.internal.ctf.core.event.types.composite.EventHeaderDefinition;
 
@@ -110,6 +111,18 @@ public class CTFStreamInputPacketReader implements IDefinitionScope, AutoCloseab
 
     private boolean fHasLost = false;
 
+    /**
+     * Names of the event types whose contexts and fields are read, null to
+     * read them for every event
+     */
+    private @Nullable Set<String> fEventProjection = null;
+
+    /** Indexes of the event types checked against the projection */
+    private final BitSet fProjectedEvents = new BitSet();
+
+    /** Indexes of the event types that are not in the projection */
+    private final BitSet fSkippedEvents = new BitSet();
+
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
@@ -206,6 +219,35 @@ public class CTFStreamInputPacketReader implements IDefinitionScope, AutoCloseab
         return fCurrentCpu;
     }
 
+    /**
+     * Set the event types whose contexts and fields are read. The other
+     * events are read with their header only, when their size is fixed.
+     *
+     * @param eventNames
+     *            The names of the event types, or null to read every event
+     *            completely
+     */
+    void setEventProjection(@Nullable Set<String> eventNames) {
+        fEventProjection = eventNames;
+        fProjectedEvents.clear();
+        fSkippedEvents.clear();
+    }
+
+    private boolean isSkipped(int eventID, IEventDeclaration eventDeclaration) {
+        Set<String> projection = fEventProjection;
+        if (projection == null) {
+            return false;
+        }
+        int eventIndex = (eventID == IEventDeclaration.UNSET_EVENT_ID) ? 0 : eventID;
+        if (!fProjectedEvents.get(eventIndex)) {
+            fProjectedEvents.set(eventIndex);
+            if (!projection.contains(eventDeclaration.getName())) {
+                fSkippedEvents.set(eventIndex);
+            }
+        }
+        return fSkippedEvents.get(eventIndex);
+    }
+
     @Override
     public LexicalScope getScopePath() {
         return ILexicalScope.PACKET;
@@ -217,7 +259,11 @@ public class CTFStreamInputPacketReader implements IDefinitionScope, AutoCloseab
 
     @NonNull
     private ByteBuffer getByteBufferAt(long position, long size) throws CTFException, IOException {
-        ByteBuffer map = SafeMappedByteBuffer.map(fStreamInputReader.getFc(), MapMode.READ_ONLY, position, size);
+        FileChannel fc = fStreamInputReader.getFc();
+        if (fc == null) {
+            throw new CTFIOException("Stream file is closed"); //$NON-NLS-1$
+        }
+        ByteBuffer map = fStreamInputReader.getStreamInput().getPacketBuffer(fc, position, size);
         if (map == null) {
             throw new CTFIOException("Failed to allocate mapped byte buffer"); //$NON-NLS-1$
         }
@@ -401,7 +447,13 @@ public class CTFStreamInputPacketReader implements IDefinitionScope, AutoCloseab
         if (eventDeclaration == null) {
             throw new CTFIOException("Incorrect event id : " + eventID); //$NON-NLS-1$
         }
-        EventDefinition eventDef = eventDeclaration.createDefinition(fStreamInputReader, fCurrentStreamEventHeaderDef, currentBitBuffer, fLastTimestamp);
+        EventDefinition eventDef = null;
+        if (isSkipped(eventID, eventDeclaration)) {
+            eventDef = eventDeclaration.createHeaderDefinition(fStreamInputReader, fCurrentStreamEventHeaderDef, currentBitBuffer, fLastTimestamp);
+        }
+        if (eventDef == null) {
+            eventDef = eventDeclaration.createDefinition(fStreamInputReader, fCurrentStreamEventHeaderDef, currentBitBuffer, fLastTimestamp);
+        }
         fLastTimestamp = eventDef.getTimestamp();
         /*
          * Set the event timestamp using the timestamp calculated by
@@ -18,10 +18,16 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.channels.FileChannel;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.common.core.NonNullUtils;
+import org.eclipse.tracecompass.common.core.ReadAheadExecutor;
 import org.eclipse.tracecompass.ctf.core.CTFException;
 import org.eclipse.tracecompass.ctf.core.event.EventDefinition;
 import org.eclipse.tracecompass.ctf.core.event.IEventDeclaration;
@@ -40,6 +46,9 @@ import com.google.common.collect.ImmutableList;
 @NonNullByDefault
 public class CTFStreamInputReader implements AutoCloseable {
 
+    private static final int MIN_BATCH_SIZE = 32;
+    private static final int MAX_BATCH_SIZE = 512;
+
     // ------------------------------------------------------------------------
     // Attributes
     // ------------------------------------------------------------------------
@@ -76,6 +85,26 @@ public class CTFStreamInputReader implements AutoCloseable {
      */
     private boolean fLive = false;
 
+    /**
+     * Whether the events are decoded ahead, on a worker thread
+     */
+    private boolean fReadAhead = false;
+
+    /**
+     * The events decoded ahead and not returned yet, in order
+     */
+    private final Deque<Batch> fBatches = new ArrayDeque<>();
+
+    /**
+     * The batch being decoded by the worker thread, if any. The packet reader
+     * belongs to the worker thread until it is done.
+     */
+    private @Nullable FutureTask<Batch> fNextBatch = null;
+
+    private int fBatchSize = MIN_BATCH_SIZE;
+
+    private volatile boolean fStopReadAhead = false;
+
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
@@ -98,9 +127,10 @@ public class CTFStreamInputReader implements AutoCloseable {
         try {
             fPacketReader = new CTFStreamInputPacketReader(this);
             /*
-             * Get the iterator on the packet index.
+             * Get the iterator on the packet index, before the first packet
+             * since the stream input may already be indexed.
              */
-            fPacketIndex = 0;
+            fPacketIndex = -1;
             /*
              * Make first packet the current one.
              */
@@ -124,6 +154,7 @@ public class CTFStreamInputReader implements AutoCloseable {
      */
     @Override
     public void close() throws IOException {
+        discardReadAhead();
         if (fFileChannel != null) {
             fFileChannel.close();
         }
@@ -205,6 +236,8 @@ public class CTFStreamInputReader implements AutoCloseable {
      *            whether the trace is read live or not
      */
     public void setLive(boolean live) {
+        /* Live traces are decoded on the calling thread, to wait for data */
+        pauseReadAhead();
         fLive = live;
     }
 
@@ -217,6 +250,51 @@ public class CTFStreamInputReader implements AutoCloseable {
         return fLive;
     }
 
+    /**
+     * Set the event types whose contexts and fields are read. The other events
+     * are read with their header only, which gives their type and timestamp,
+     * when their size does not depend on their content. The current event is
+     * not read again.
+     *
+     * @param eventNames
+     *            The names of the event types, or null to read every event
+     *            completely
+     */
+    public void setEventProjection(@Nullable Set<String> eventNames) {
+        pauseReadAhead();
+        fPacketReader.setEventProjection(eventNames);
+    }
+
+    /**
+     * Set whether the events are decoded ahead, in batches, on a worker
+     * thread. While the caller consumes a batch of events, the next one is
+     * decoded, so that the readers of several streams can decode their
+     * streams in parallel. Streams read live are always decoded on the calling
+     * thread.
+     * <p>
+     * The packet reader, and the CPU it reports, are then ahead of the current
+     * event. The events that are already decoded are still returned when this
+     * is turned off.
+     *
+     * @param readAhead
+     *            Whether the events are decoded ahead
+     */
+    public void setReadAhead(boolean readAhead) {
+        if (!readAhead) {
+            pauseReadAhead();
+        }
+        fReadAhead = readAhead;
+    }
+
+    /**
+     * Get whether the events are decoded ahead, on a worker thread
+     *
+     * @return Whether the events are decoded ahead
+     */
+    public boolean isReadAhead() {
+        return fReadAhead;
+    }
+
     /**
      * Get the event context of the stream
      *
@@ -238,6 +316,78 @@ public class CTFStreamInputReader implements AutoCloseable {
      */
     public CTFResponse readNextEvent() throws CTFException {
 
+        /*
+         * Return the events decoded ahead first
+         */
+        while (true) {
+            Batch batch = fBatches.peek();
+            if (batch == null) {
+                if (!fReadAhead || fLive) {
+                    break;
+                }
+                batch = takeBatch();
+                fBatches.add(batch);
+                if (!batch.isLast()) {
+                    fBatchSize = Math.min(fBatchSize * 2, MAX_BATCH_SIZE);
+                    scheduleNextBatch();
+                }
+            }
+            EventDefinition event = batch.next();
+            if (event != null) {
+                setCurrentEvent(event);
+                return CTFResponse.OK;
+            }
+            fBatches.poll();
+            CTFException error = batch.fError;
+            if (error != null) {
+                throw error;
+            }
+            if (batch.fEnd) {
+                /* The packet reader is at the end too */
+                break;
+            }
+        }
+
+        EventDefinition event = decodeNextEvent();
+        if (event != null) {
+            setCurrentEvent(event);
+            return CTFResponse.OK;
+        }
+        this.setCurrentEvent(null);
+        return fLive ? CTFResponse.WAIT : CTFResponse.FINISH;
+    }
+
+    /**
+     * Continue reading the stream input after its end, once packets were
+     * appended to it (see {@link CTFTrace#refresh()}). Does nothing if the
+     * reader is not at the end of the stream input.
+     *
+     * @return OK if there is a current event, FINISH if there are still no
+     *         more events
+     * @throws CTFException
+     *             if an error occurs
+     * @since 2.0
+     */
+    public CTFResponse resume() throws CTFException {
+        if (getCurrentEvent() != null) {
+            return CTFResponse.OK;
+        }
+        discardReadAhead();
+        if (fPacketReader.getCurrentPacket() == null) {
+            goToNextPacket();
+        }
+        return readNextEvent();
+    }
+
+    /**
+     * Decode the next event with the packet reader, changing packet if needed
+     *
+     * @return The event, or null if there are no more events for now
+     * @throws CTFException
+     *             if an error occurs
+     */
+    private @Nullable EventDefinition decodeNextEvent() throws CTFException {
+
         /*
          * Change packet if needed
          */
@@ -253,11 +403,107 @@ public class CTFStreamInputReader implements AutoCloseable {
          * If an event is available, read it.
          */
         if (fPacketReader.hasMoreEvents()) {
-            setCurrentEvent(fPacketReader.readNextEvent());
-            return CTFResponse.OK;
+            return fPacketReader.readNextEvent();
+        }
+        return null;
+    }
+
+    /**
+     * Take the batch decoded by the worker thread, or decode one on this
+     * thread if there is none
+     */
+    private Batch takeBatch() {
+        FutureTask<Batch> next = fNextBatch;
+        if (next == null) {
+            return decodeBatch(fBatchSize);
+        }
+        fNextBatch = null;
+        return getBatch(next);
+    }
+
+    private void scheduleNextBatch() {
+        final int size = fBatchSize;
+        FutureTask<Batch> next = new FutureTask<>(() -> decodeBatch(size));
+        fNextBatch = next;
+        ReadAheadExecutor.getExecutor().execute(next);
+    }
+
+    private Batch decodeBatch(int size) {
+        Batch batch = new Batch(size);
+        try {
+            while (batch.fSize < size && !fStopReadAhead) {
+                EventDefinition event = decodeNextEvent();
+                if (event == null) {
+                    batch.fEnd = true;
+                    break;
+                }
+                batch.fEvents[batch.fSize++] = event;
+            }
+        } catch (CTFException e) {
+            /* Thrown when the events before it are consumed */
+            batch.fError = e;
+        }
+        return batch;
+    }
+
+    /**
+     * Stop the worker thread, keeping the events it decoded. The packet
+     * reader is then after the last decoded event.
+     */
+    private void pauseReadAhead() {
+        FutureTask<Batch> next = fNextBatch;
+        if (next == null) {
+            return;
+        }
+        fNextBatch = null;
+        fStopReadAhead = true;
+        try {
+            fBatches.add(getBatch(next));
+        } finally {
+            fStopReadAhead = false;
+        }
+    }
+
+    /**
+     * Stop the worker thread and drop the events decoded ahead, before the
+     * packet reader is moved
+     */
+    private void discardReadAhead() {
+        pauseReadAhead();
+        fBatches.clear();
+        fBatchSize = MIN_BATCH_SIZE;
+    }
+
+    /**
+     * Wait for a batch, decoding it on this thread if no thread of the
+     * executor started it yet (see {@link ReadAheadExecutor}). Interrupts are
+     * deferred, since the packet reader is in use until the batch is decoded.
+     */
+    private static Batch getBatch(FutureTask<Batch> future) {
+        future.run();
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return checkNotNull(future.get());
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
         }
-        this.setCurrentEvent(null);
-        return fLive ? CTFResponse.WAIT : CTFResponse.FINISH;
     }
 
     /**
@@ -277,7 +523,8 @@ public class CTFStreamInputReader implements AutoCloseable {
                 fPacketIndex = getPacketSize() - 1;
                 fPacketReader.setCurrentPacket(getPacket());
             } else {
-                // out of packets
+                // out of packets, the next one is read once it is appended
+                fPacketIndex = getPacketSize() - 1;
                 fPacketReader.setCurrentPacket(null);
             }
         }
@@ -303,6 +550,8 @@ public class CTFStreamInputReader implements AutoCloseable {
     public long seek(long timestamp) throws CTFException {
         long offset = 0;
 
+        discardReadAhead();
+
         gotoPacket(timestamp);
 
         /*
@@ -362,6 +611,20 @@ public class CTFStreamInputReader implements AutoCloseable {
      *             if an error occurs
      */
     public void goToLastEvent() throws CTFException {
+        /*
+         * The packet reader is moved directly, decode on this thread
+         */
+        boolean readAhead = fReadAhead;
+        fReadAhead = false;
+        try {
+            discardReadAhead();
+            goToLastEventDecoded();
+        } finally {
+            fReadAhead = readAhead;
+        }
+    }
+
+    private void goToLastEventDecoded() throws CTFException {
 
         /*
          * Go to the beginning of the trace
@@ -493,4 +756,36 @@ public class CTFStreamInputReader implements AutoCloseable {
         return fId + ' ' + NonNullUtils.nullToEmptyString(fCurrentEvent);
     }
 
+    /**
+     * Events decoded ahead, followed by the end of the stream or an error if
+     * the decoding stopped there
+     */
+    private static final class Batch {
+        private final @Nullable EventDefinition[] fEvents;
+        private int fSize = 0;
+        private int fPos = 0;
+        /** No more events were available after these events */
+        private boolean fEnd = false;
+        /** The error that stopped the decoding after these events */
+        private @Nullable CTFException fError = null;
+
+        public Batch(int capacity) {
+            fEvents = new EventDefinition[capacity];
+        }
+
+        public @Nullable EventDefinition next() {
+            if (fPos >= fSize) {
+                return null;
+            }
+            EventDefinition event = fEvents[fPos];
+            /* Do not keep the events that are consumed */
+            fEvents[fPos++] = null;
+            return event;
+        }
+
+        public boolean isLast() {
+            return fEnd || fError != null;
+        }
+    }
+
 }
@@ -16,9 +16,7 @@ import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
-import java.nio.channels.FileChannel.MapMode;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -27,7 +25,6 @@ import java.nio.file.StandardOpenOption;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.ctf.core.CTFException;
-import org.eclipse.tracecompass.internal.ctf.core.SafeMappedByteBuffer;
 import org.eclipse.tracecompass.internal.ctf.core.trace.StreamInputPacketIndex;
 
 /**
@@ -87,6 +84,11 @@ public class CTFStreamOutputWriter {
      *
      * startTime <= packet.getTimestampEnd() && packet.getTimestampStart() <= endTime
      *
+     * The first packet is found with a search in the packet index, so the
+     * packets before the time range are not looked at. The packets are copied
+     * from file to file without being read in memory, several packets at once
+     * when they follow each other.
+     *
      * @param startTime
      *            the start time for packets to be written
      * @param endTime
@@ -105,13 +107,33 @@ public class CTFStreamOutputWriter {
             StreamInputPacketIndex index = streamInput.getIndex();
             int count = 0;
             try (FileChannel source = FileChannel.open(streamInput.getFile().toPath(), StandardOpenOption.READ)) {
-                for (int i = 0; i < index.size(); i++) {
+                /* The first packet that ends at or after the start time */
+                int first = (startTime <= 0 || index.isEmpty()) ? 0 : index.search(startTime).nextIndex();
+                /* The range of packets to copy at once */
+                long rangeStart = 0;
+                long rangeSize = 0;
+                for (int i = first; i < index.size(); i++) {
                     ICTFPacketDescriptor entry = index.getElement(i);
-                    if ((entry.getTimestampEnd() >= startTime) && (entry.getTimestampBegin() <= endTime)) {
-                        ByteBuffer buffer = SafeMappedByteBuffer.map(source, MapMode.READ_ONLY, entry.getOffsetBytes(), entry.getPacketSizeBits() / Byte.SIZE);
-                        fStreamPacketOutputWriter.writePacket(buffer, fc);
-                        count++;
+                    if (entry.getTimestampBegin() > endTime) {
+                        /* The packets are in time order */
+                        break;
+                    }
+                    if (entry.getTimestampEnd() < startTime) {
+                        continue;
+                    }
+                    long packetSize = entry.getPacketSizeBits() / Byte.SIZE;
+                    if (rangeSize > 0 && entry.getOffsetBytes() != rangeStart + rangeSize) {
+                        fStreamPacketOutputWriter.copyPackets(source, rangeStart, rangeSize, fc);
+                        rangeSize = 0;
                     }
+                    if (rangeSize == 0) {
+                        rangeStart = entry.getOffsetBytes();
+                    }
+                    rangeSize += packetSize;
+                    count++;
+                }
+                if (rangeSize > 0) {
+                    fStreamPacketOutputWriter.copyPackets(source, rangeStart, rangeSize, fc);
                 }
             }
 
@@ -38,4 +38,35 @@ public class CTFStreamPacketOutputWriter {
         fc.write(byteBuffer);
     }
 
+    /**
+     * Copies stream packets from an input stream file to the output file
+     * channel, without reading them in memory. The packets are appended at
+     * the position of the output file channel.
+     *
+     * @param source
+     *            the file channel of the input stream file
+     * @param offsetBytes
+     *            the offset of the first packet in the input stream file
+     * @param sizeBytes
+     *            the size of the packets to copy, which follow each other in
+     *            the input stream file
+     * @param fc
+     *            a file channel
+     * @throws IOException
+     *            if a reading or writing error occurs
+     * @since 2.0
+     */
+    public void copyPackets(FileChannel source, long offsetBytes, long sizeBytes, FileChannel fc) throws IOException {
+        long position = offsetBytes;
+        long remaining = sizeBytes;
+        while (remaining > 0) {
+            long transferred = source.transferTo(position, remaining, fc);
+            if (transferred <= 0) {
+                throw new IOException("Packets past the end of the stream file at offset " + position); //$NON-NLS-1$
+            }
+            position += transferred;
+            remaining -= transferred;
+        }
+    }
+
 }
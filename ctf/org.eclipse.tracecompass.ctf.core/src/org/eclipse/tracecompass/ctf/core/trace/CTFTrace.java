@@ -23,15 +23,22 @@ import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 
+import org.eclipse.tracecompass.common.core.ReadAheadExecutor;
 import org.eclipse.tracecompass.ctf.core.CTFException;
 import org.eclipse.tracecompass.ctf.core.CTFStrings;
 import org.eclipse.tracecompass.ctf.core.event.CTFClock;
@@ -49,6 +56,7 @@ import org.eclipse.tracecompass.ctf.core.event.types.StructDefinition;
 import org.eclipse.tracecompass.internal.ctf.core.SafeMappedByteBuffer;
 import org.eclipse.tracecompass.internal.ctf.core.event.metadata.MetadataStrings;
 import org.eclipse.tracecompass.internal.ctf.core.event.metadata.exceptions.ParseException;
+import org.eclipse.tracecompass.internal.ctf.core.trace.StreamInputPacketIndex;
 import org.eclipse.tracecompass.internal.ctf.core.trace.Utils;
 
 /**
@@ -117,9 +125,17 @@ public class CTFTrace implements IDefinitionScope {
     private StructDefinition fPacketHeaderDef;
 
     /**
-     * Collection of streams contained in the trace.
+     * Collection of streams contained in the trace. Streams are added by
+     * {@link #refresh()} while the trace is read, so it is synchronized and
+     * iterated on copies. It can have a null key, for a stream without id.
      */
-    private final Map<Long, CTFStream> fStreams = new HashMap<>();
+    private final Map<Long, CTFStream> fStreams = Collections.synchronizedMap(new HashMap<>());
+
+    /**
+     * The time, from {@link System#nanoTime()}, at which {@link #refresh()}
+     * last found packets appended to each stream input
+     */
+    private final Map<CTFStreamInput, Long> fLastAppendTimes = Collections.synchronizedMap(new HashMap<>());
 
     /**
      * Collection of environment variables set by the tracer
@@ -137,6 +153,9 @@ public class CTFTrace implements IDefinitionScope {
 
     private final DeclarationScope fScope = new DeclarationScope(null, MetadataStrings.TRACE);
 
+    /** The metadata of the trace, parsed again when the trace is refreshed */
+    private Metadata fMetadata = null;
+
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
@@ -176,6 +195,7 @@ public class CTFTrace implements IDefinitionScope {
 
         /* Open and parse the metadata file */
         metadata.parseFile();
+        fMetadata = metadata;
 
         init(path);
     }
@@ -406,7 +426,9 @@ public class CTFTrace implements IDefinitionScope {
      * @return Iterable&lt;Stream&gt; an iterable over streams.
      */
     public Iterable<CTFStream> getStreams() {
-        return fStreams.values();
+        synchronized (fStreams) {
+            return new ArrayList<>(fStreams.values());
+        }
     }
 
     /**
@@ -565,6 +587,263 @@ public class CTFTrace implements IDefinitionScope {
     // Live trace reading
     // ------------------------------------------------------------------------
 
+    /**
+     * Index the packets of all the stream inputs of the trace. The stream
+     * inputs are indexed in parallel, each one reading its file with
+     * {@link CTFStreamInput#indexPackets()}.
+     *
+     * This is optional, the packets are otherwise indexed as the trace is
+     * read. A stream input that cannot be fully indexed here is left partially
+     * indexed, the other stream inputs are still fully indexed.
+     *
+     * @throws CTFException
+     *             If a stream input could not be fully indexed, this is the
+     *             error of the first one
+     * @since 2.0
+     */
+    public void indexPackets() throws CTFException {
+        indexPackets(getStreamInputs());
+    }
+
+    /**
+     * Index the packets of all the stream inputs of the trace, using a packet
+     * index file saved by a previous instance of the trace.
+     *
+     * The stream inputs whose file did not change since the index file was
+     * written (same size and modification time) get their packet index from
+     * that file. The other ones are indexed like in {@link #indexPackets()},
+     * after which the index file is rewritten.
+     *
+     * @param indexFile
+     *            The packet index file. It does not need to exist, it will be
+     *            created.
+     * @throws CTFException
+     *             If a stream input could not be fully indexed, in which case
+     *             the packets indexed so far are still saved, or if the index
+     *             file could not be written. The packets are indexed
+     *             nonetheless.
+     * @since 2.0
+     */
+    public void indexPackets(File indexFile) throws CTFException {
+        List<CTFStreamInput> inputs = getStreamInputs();
+        List<CTFStreamInput> toIndex = PacketIndexFile.read(indexFile, inputs);
+        if (toIndex.isEmpty()) {
+            return;
+        }
+        try {
+            indexPackets(toIndex);
+        } finally {
+            try {
+                PacketIndexFile.write(indexFile, inputs);
+            } catch (IOException e) {
+                throw new CTFException("Could not write the packet index file " + indexFile, e); //$NON-NLS-1$
+            }
+        }
+    }
+
+    /**
+     * Restore the packet index of the stream inputs whose file did not change
+     * since the packet index file was written, without reading the stream
+     * files. The other stream inputs are left as they are, their packets are
+     * indexed as the trace is read or by {@link #indexPackets(File)}.
+     *
+     * @param indexFile
+     *            The packet index file, see {@link #indexPackets(File)}
+     * @return true if the index of every stream input was restored
+     * @since 2.0
+     */
+    public boolean readPacketIndex(File indexFile) {
+        return PacketIndexFile.read(indexFile, getStreamInputs()).isEmpty();
+    }
+
+    private List<CTFStreamInput> getStreamInputs() {
+        final List<CTFStreamInput> inputs = new ArrayList<>();
+        for (CTFStream stream : getStreams()) {
+            inputs.addAll(stream.getStreamInputs());
+        }
+        return inputs;
+    }
+
+    /**
+     * Index the stream inputs in parallel, on the shared read-ahead threads.
+     * They are all indexed even if one of them fails, then the first error is
+     * thrown.
+     */
+    private static void indexPackets(List<CTFStreamInput> inputs) throws CTFException {
+        if (inputs.size() <= 1) {
+            for (CTFStreamInput input : inputs) {
+                input.indexPackets();
+            }
+            return;
+        }
+        List<FutureTask<?>> futures = new ArrayList<>();
+        try {
+            for (final CTFStreamInput input : inputs) {
+                FutureTask<?> future = new FutureTask<>(() -> {
+                    input.indexPackets();
+                    return null;
+                });
+                futures.add(future);
+                ReadAheadExecutor.getExecutor().execute(future);
+            }
+            CTFException error = null;
+            for (FutureTask<?> future : futures) {
+                try {
+                    /* Index the stream input here if no thread started it yet */
+                    future.run();
+                    future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    if (error == null) {
+                        error = (cause instanceof CTFException ? (CTFException) cause : new CTFException(cause.getMessage(), cause));
+                    }
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CTFIOException("Interrupted while indexing the packets", e); //$NON-NLS-1$
+        } finally {
+            for (FutureTask<?> future : futures) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Update the trace with what was written to its directory since it was
+     * opened or last refreshed, for a trace that is still being written: the
+     * declarations appended to the metadata, the new stream files and the
+     * packets appended to the stream files.
+     *
+     * A packet or a stream file that is not fully written yet is skipped, it
+     * is added by a later refresh. The readers of the trace see the new
+     * packets as they reach them, and the new stream inputs once they are
+     * updated (see {@link CTFTraceReader#update()}).
+     *
+     * @return true if the trace changed
+     * @throws CTFException
+     *             If the appended metadata is not valid
+     * @since 2.0
+     */
+    public synchronized boolean refresh() throws CTFException {
+        if (fPath == null) {
+            return false;
+        }
+        boolean changed = false;
+        if (fMetadata != null) {
+            changed = fMetadata.parseFileUpdate();
+        }
+
+        /* Open the stream files that were created since */
+        Set<File> knownFiles = new HashSet<>();
+        List<CTFStreamInput> inputs = getStreamInputs();
+        for (CTFStreamInput input : inputs) {
+            knownFiles.add(input.getFile());
+        }
+        File[] files = fPath.listFiles(METADATA_FILE_FILTER);
+        if (files != null) {
+            Arrays.sort(files, METADATA_COMPARATOR);
+            for (File streamFile : files) {
+                if (knownFiles.contains(streamFile)) {
+                    continue;
+                }
+                try {
+                    CTFStream stream = openStreamInput(streamFile);
+                    if (stream != null) {
+                        fStreams.put(stream.getId(), stream);
+                        changed = true;
+                    }
+                } catch (CTFException e) {
+                    /* The first packet header is not fully written yet */
+                }
+            }
+        }
+
+        /* Index the packets that were appended to the stream files */
+        inputs = getStreamInputs();
+        int[] nbPackets = new int[inputs.size()];
+        for (int i = 0; i < inputs.size(); i++) {
+            nbPackets[i] = inputs.get(i).getIndex().size();
+        }
+        indexPackets(inputs);
+        long now = System.nanoTime();
+        for (int i = 0; i < inputs.size(); i++) {
+            CTFStreamInput input = inputs.get(i);
+            if (input.getIndex().size() != nbPackets[i]) {
+                fLastAppendTimes.put(input, now);
+                changed = true;
+            } else if (!fLastAppendTimes.containsKey(input)) {
+                fLastAppendTimes.put(input, now);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Get the time up to which every stream input of the trace is indexed,
+     * that is the smallest end time of the last indexed packet of the stream
+     * inputs. For a trace that is still being written, no event can be
+     * appended before this time, except by a stream input that has no packet
+     * yet.
+     *
+     * @return the time in nanoseconds, or {@link Long#MIN_VALUE} if no
+     *         packet is indexed
+     * @since 2.0
+     */
+    public long getIndexedEndTime() {
+        return getIndexedEndTime(Long.MAX_VALUE);
+    }
+
+    /**
+     * Get the time up to which every active stream input of the trace is
+     * indexed. A stream input to which {@link #refresh()} found no appended
+     * packet for longer than the idle timeout, like the stream of an idle CPU,
+     * is considered complete: it does not hold back the time of the other
+     * stream inputs. If every stream input is idle, this is the largest end
+     * time of their last indexed packet.
+     *
+     * An idle stream input that is written again can then append events
+     * before the returned time.
+     *
+     * @param idleTimeout
+     *            The time without appended packets after which a stream input
+     *            is idle, in milliseconds, or {@link Long#MAX_VALUE} to never
+     *            consider a stream input idle
+     * @return the time in nanoseconds, or {@link Long#MIN_VALUE} if no
+     *         packet is indexed
+     * @since 2.0
+     */
+    public long getIndexedEndTime(long idleTimeout) {
+        long now = System.nanoTime();
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+        long activeEnd = Long.MAX_VALUE;
+        long idleEnd = Long.MIN_VALUE;
+        for (CTFStreamInput input : getStreamInputs()) {
+            StreamInputPacketIndex index = input.getIndex();
+            if (index.isEmpty()) {
+                continue;
+            }
+            long end = index.lastElement().getTimestampEnd();
+            Long lastAppendTime = fLastAppendTimes.get(input);
+            if (idleTimeout != Long.MAX_VALUE && lastAppendTime != null && now - lastAppendTime > idleNanos) {
+                idleEnd = Math.max(idleEnd, end);
+            } else {
+                activeEnd = Math.min(activeEnd, end);
+            }
+        }
+        long indexedEnd = (activeEnd != Long.MAX_VALUE) ? activeEnd : idleEnd;
+        return (indexedEnd == Long.MIN_VALUE) ? Long.MIN_VALUE : timestampCyclesToNanos(indexedEnd);
+    }
+
     /**
      * Add a new stream file to support new streams while the trace is being
      * read.
@@ -587,6 +866,12 @@ public class CTFTrace implements IDefinitionScope {
      *             If there was some problem reading the metadata
      */
     public void addStream(CTFStream stream) throws ParseException {
+        synchronized (fStreams) {
+            addUniqueStream(stream);
+        }
+    }
+
+    private void addUniqueStream(CTFStream stream) throws ParseException {
         /*
          * If there is already a stream without id (the null key), it must be
          * the only one
@@ -708,7 +993,7 @@ public class CTFTrace implements IDefinitionScope {
      */
     public long getCurrentStartTime() {
         long currentStart = Long.MAX_VALUE;
-        for (CTFStream stream : fStreams.values()) {
+        for (CTFStream stream : getStreams()) {
             for (CTFStreamInput si : stream.getStreamInputs()) {
                 currentStart = Math.min(currentStart, si.getIndex().getElement(0).getTimestampBegin());
             }
@@ -723,7 +1008,7 @@ public class CTFTrace implements IDefinitionScope {
      */
     public long getCurrentEndTime() {
         long currentEnd = Long.MIN_VALUE;
-        for (CTFStream stream : fStreams.values()) {
+        for (CTFStream stream : getStreams()) {
             for (CTFStreamInput si : stream.getStreamInputs()) {
                 currentEnd = Math.max(currentEnd, si.getTimestampEnd());
             }
@@ -806,10 +1091,13 @@ public class CTFTrace implements IDefinitionScope {
         if (file == null) {
             throw new CTFException("cannot create a stream with no file"); //$NON-NLS-1$
         }
-        CTFStream stream = fStreams.get(id);
-        if (stream == null) {
-            stream = new CTFStream(this);
-            fStreams.put(id, stream);
+        CTFStream stream;
+        synchronized (fStreams) {
+            stream = fStreams.get(id);
+            if (stream == null) {
+                stream = new CTFStream(this);
+                fStreams.put(id, stream);
+            }
         }
         stream.addInput(new CTFStreamInput(stream, file));
     }
@@ -17,12 +17,14 @@ import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.PriorityQueue;
 import java.util.Set;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.ctf.core.CTFException;
 import org.eclipse.tracecompass.ctf.core.event.EventDefinition;
 import org.eclipse.tracecompass.ctf.core.event.IEventDeclaration;
@@ -84,6 +86,17 @@ public class CTFTraceReader implements AutoCloseable {
      */
     private boolean fClosed = false;
 
+    /**
+     * Names of the event types whose contexts and fields are read, null for
+     * every event type
+     */
+    private @Nullable Set<String> fEventProjection = null;
+
+    /**
+     * Whether the streams are decoded ahead, on worker threads
+     */
+    private boolean fReadAhead = false;
+
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
@@ -239,41 +252,127 @@ public class CTFTraceReader implements AutoCloseable {
     }
 
     /**
-     * Update the priority queue to make it match the parent trace
+     * Update the priority queue to make it match the parent trace: add the
+     * readers of the stream inputs that were added to the trace, and continue
+     * the readers that were at the end of their stream input if packets were
+     * appended to it since (see {@link CTFTrace#refresh()}).
+     *
+     * The events of the new packets are merged with the events that are not
+     * read yet. For a trace that is still being written, they are in order as
+     * long as the events read so far end before
+     * {@link CTFTrace#getIndexedEndTime()}.
      *
      * @throws CTFException
      *             An error occured
      */
     public void update() throws CTFException {
-        Set<CTFStreamInputReader> readers = new HashSet<>();
+        Set<CTFStreamInput> readInputs = new HashSet<>();
+        List<CTFStreamInputReader> endedReaders = new ArrayList<>();
+        synchronized (fStreamInputReaders) {
+            for (CTFStreamInputReader reader : fStreamInputReaders) {
+                readInputs.add(reader.getStreamInput());
+                if (reader.getCurrentEvent() == null) {
+                    endedReaders.add(reader);
+                }
+            }
+        }
+
+        /*
+         * Continue the readers that reached the end of their stream input. A
+         * live reader waiting for data is in the queue without an event, so
+         * they are all taken out before any is compared again.
+         */
+        fPrio.removeAll(endedReaders);
+        for (CTFStreamInputReader reader : endedReaders) {
+            if (reader.resume() == CTFResponse.OK) {
+                fPrio.add(reader);
+            }
+        }
+
+        /* Add the readers of the new stream inputs */
+        int nbReaders = fEventCountPerTraceFile.length;
         for (CTFStream stream : fTrace.getStreams()) {
             Set<CTFStreamInput> streamInputs = stream.getStreamInputs();
             for (CTFStreamInput streamInput : streamInputs) {
-                /*
-                 * Create a reader.
-                 */
+                if (readInputs.contains(streamInput)) {
+                    continue;
+                }
                 CTFStreamInputReader streamInputReader = new CTFStreamInputReader(checkNotNull(streamInput));
-
-                /*
-                 * Add it to the group.
-                 */
-                if (!fStreamInputReaders.contains(streamInputReader)) {
-                    streamInputReader.readNextEvent();
-                    fStreamInputReaders.add(streamInputReader);
-                    readers.add(streamInputReader);
+                streamInputReader.setEventProjection(fEventProjection);
+                streamInputReader.setReadAhead(fReadAhead);
+                streamInputReader.setName(nbReaders++);
+                fStreamInputReaders.add(streamInputReader);
+                CTFResponse response = streamInputReader.readNextEvent();
+                if (response == CTFResponse.OK || response == CTFResponse.WAIT) {
+                    fPrio.add(streamInputReader);
                 }
             }
         }
-        long[] temp = fEventCountPerTraceFile;
-        fEventCountPerTraceFile = new long[readers.size() + temp.length];
-        for (CTFStreamInputReader reader : readers) {
-            fPrio.add(reader);
+        fEventCountPerTraceFile = Arrays.copyOf(fEventCountPerTraceFile, nbReaders);
+    }
+
+    /**
+     * Set the event types whose contexts and fields are read. The events of
+     * the other types are still read, in order and with their timestamp, but
+     * without their contexts and fields when their size does not depend on
+     * their content. This avoids decoding the events that a reader does not
+     * look at. The events that are already read are not read again.
+     *
+     * @param eventNames
+     *            The names of the event types, or null to read every event
+     *            completely
+     * @since 2.0
+     */
+    public void setEventProjection(@Nullable Set<String> eventNames) {
+        fEventProjection = eventNames;
+        synchronized (fStreamInputReaders) {
+            for (CTFStreamInputReader reader : fStreamInputReaders) {
+                reader.setEventProjection(eventNames);
+            }
         }
-        for (int i = 0; i < temp.length; i++) {
-            fEventCountPerTraceFile[i] = temp[i];
+    }
+
+    /**
+     * Get the event types whose contexts and fields are read
+     *
+     * @return The names of the event types, or null if every event is read
+     *         completely
+     * @since 2.0
+     */
+    public @Nullable Set<String> getEventProjection() {
+        return fEventProjection;
+    }
+
+    /**
+     * Set whether the streams are decoded ahead, in batches, on worker
+     * threads. Each stream is then decoded in parallel with the others, while
+     * this reader only merges their events by timestamp, so reading a trace
+     * with many streams can use several cores. The events are returned in the
+     * same order either way. Streams read live are not decoded ahead.
+     *
+     * @param readAhead
+     *            Whether the streams are decoded ahead
+     * @since 2.0
+     */
+    public void setReadAhead(boolean readAhead) {
+        fReadAhead = readAhead;
+        synchronized (fStreamInputReaders) {
+            for (CTFStreamInputReader reader : fStreamInputReaders) {
+                reader.setReadAhead(readAhead);
+            }
         }
     }
 
+    /**
+     * Get whether the streams are decoded ahead, on worker threads
+     *
+     * @return Whether the streams are decoded ahead
+     * @since 2.0
+     */
+    public boolean isReadAhead() {
+        return fReadAhead;
+    }
+
     /**
      * Gets an iterable of the stream input readers, useful for foreaches
      *
@@ -16,10 +16,15 @@ import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.common.core.ReadAheadExecutor;
 import org.eclipse.tracecompass.ctf.core.CTFException;
 
 /**
@@ -44,18 +49,36 @@ public class CTFTraceWriter {
     // ------------------------------------------------------------------------
 
     /**
-     * Constructs a TraceReader to read a trace.
+     * Constructs a TraceReader to read a trace. The packets of the trace are
+     * indexed from their headers, without reading the events.
      *
      * @param trace
      *            The trace to read from.
      * @throws CTFException
-     *             if an error occurs
+     *             if the packets of the trace could not be indexed
      */
     public CTFTraceWriter(@NonNull CTFTrace trace) throws CTFException {
         fInTrace = trace;
-        try (CTFTraceReader fTraceReader = new CTFTraceReader(fInTrace)) {
-            fTraceReader.populateIndex();
-        }
+        trace.indexPackets();
+    }
+
+    /**
+     * Constructs a TraceReader to read a trace, using the packet index file
+     * of the trace. The stream files that did not change since the index file
+     * was written are not indexed again.
+     *
+     * @param trace
+     *            The trace to read from.
+     * @param indexFile
+     *            The packet index file, see {@link CTFTrace#indexPackets(File)}
+     * @throws CTFException
+     *             if the packets of the trace could not be indexed, or the
+     *             index file could not be written
+     * @since 2.0
+     */
+    public CTFTraceWriter(@NonNull CTFTrace trace, @NonNull File indexFile) throws CTFException {
+        fInTrace = trace;
+        trace.indexPackets(indexFile);
     }
 
     /**
@@ -65,6 +88,8 @@ public class CTFTraceWriter {
      *
      * startTime <= packet.getTimestampBegin() <= endTime
      *
+     * The stream files are written in parallel.
+     *
      * @param startTime
      *            start time of packets to be included in output trace
      * @param endTime
@@ -99,13 +124,59 @@ public class CTFTraceWriter {
             }
 
             // Copy packets
+            List<CTFStreamOutputWriter> writers = new ArrayList<>();
             for (CTFStream stream : trace.getStreams()) {
                 Set<CTFStreamInput> inputs = stream.getStreamInputs();
                 for (CTFStreamInput s : inputs) {
-                    CTFStreamOutputWriter streamOutputwriter = new CTFStreamOutputWriter(checkNotNull(s), out);
-                    streamOutputwriter.copyPackets(adjustedStart, adjustedEnd);
+                    writers.add(new CTFStreamOutputWriter(checkNotNull(s), out));
                 }
             }
+            copyPackets(writers, adjustedStart, adjustedEnd);
+        }
+    }
+
+    private static void copyPackets(List<CTFStreamOutputWriter> writers, long startTime, long endTime) throws CTFException {
+        if (writers.size() <= 1) {
+            for (CTFStreamOutputWriter writer : writers) {
+                writer.copyPackets(startTime, endTime);
+            }
+            return;
+        }
+        /* The writers run on the shared read-ahead threads */
+        List<FutureTask<?>> futures = new ArrayList<>();
+        try {
+            for (final CTFStreamOutputWriter writer : writers) {
+                FutureTask<?> future = new FutureTask<>(() -> {
+                    writer.copyPackets(startTime, endTime);
+                    return null;
+                });
+                futures.add(future);
+                ReadAheadExecutor.getExecutor().execute(future);
+            }
+            for (FutureTask<?> future : futures) {
+                /* Copy the packets here if no thread started it yet */
+                future.run();
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CTFIOException("Interrupted while copying packets", e); //$NON-NLS-1$
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CTFException) {
+                throw (CTFException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            for (FutureTask<?> future : futures) {
+                future.cancel(false);
+            }
         }
     }
 }
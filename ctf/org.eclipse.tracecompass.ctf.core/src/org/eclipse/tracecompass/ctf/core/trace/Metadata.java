@@ -30,6 +30,9 @@ import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 
 import org.antlr.runtime.ANTLRReaderStream;
@@ -42,6 +45,7 @@ import org.eclipse.tracecompass.ctf.parser.CTFLexer;
 import org.eclipse.tracecompass.ctf.parser.CTFParser;
 import org.eclipse.tracecompass.ctf.parser.CTFParser.parse_return;
 import org.eclipse.tracecompass.internal.ctf.core.event.metadata.IOStructGen;
+import org.eclipse.tracecompass.internal.ctf.core.event.metadata.MetadataTreeCache;
 import org.eclipse.tracecompass.internal.ctf.core.event.metadata.exceptions.CtfAntlrException;
 import org.eclipse.tracecompass.internal.ctf.core.event.metadata.exceptions.ParseException;
 import org.eclipse.tracecompass.internal.ctf.core.trace.Utils;
@@ -62,6 +66,8 @@ public class Metadata {
 
     private static final int PREVALIDATION_SIZE = 8;
 
+    private static final int TEXT_BUFFER_SIZE = 8192;
+
     private static final int BITS_PER_BYTE = Byte.SIZE;
 
     /**
@@ -90,6 +96,12 @@ public class Metadata {
 
     private IOStructGen fTreeParser;
 
+    /**
+     * Length of the metadata text parsed from the file, to parse only what
+     * was appended to it when the file is read again.
+     */
+    private int fParsedLength = 0;
+
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
@@ -138,39 +150,85 @@ public class Metadata {
     // ------------------------------------------------------------------------
 
     /**
-     * Parse the metadata file.
+     * Parse the metadata file. If the same metadata text was parsed recently,
+     * or a text that it starts with, its syntax tree is reused.
      *
      * @throws CTFException
      *             If there was a problem parsing the metadata
      */
     public void parseFile() throws CTFException {
+        try {
+            String metadataText = readFile();
+            readMetaDataText(metadataText);
+            fParsedLength = metadataText.length();
+        } catch (IOException | ParseException e) {
+            throw new CTFException(e);
+        } catch (RecognitionException | RewriteCardinalityException e) {
+            throw new CtfAntlrException(e);
+        }
+    }
 
-        /*
-         * Reader. It will contain a StringReader if we are using packet-based
-         * metadata and it will contain a FileReader if we have text-based
-         * metadata.
-         */
+    /**
+     * Parse the declarations that were appended to the metadata file since it
+     * was last parsed, for a trace that is still being written.
+     *
+     * The appended text is parsed as a fragment. If it could not be parsed,
+     * for example because the tracer is in the middle of writing a
+     * declaration, it is parsed again with the rest of the text on the next
+     * call.
+     *
+     * @return true if declarations were added
+     * @throws CTFException
+     *             If the metadata file could not be read, or if the appended
+     *             declarations are not valid
+     * @since 2.0
+     */
+    public boolean parseFileUpdate() throws CTFException {
+        if (fTreeParser == null) {
+            parseFile();
+            return true;
+        }
+        String metadataText;
+        try {
+            metadataText = readFile();
+        } catch (IOException e) {
+            throw new CTFException(e);
+        }
+        if (metadataText.length() <= fParsedLength) {
+            return false;
+        }
+        String appended = metadataText.substring(fParsedLength);
+        if (appended.trim().isEmpty()) {
+            fParsedLength = metadataText.length();
+            return false;
+        }
+        try {
+            readMetaDataTextFragment(new StringReader(appended));
+        } catch (RecognitionException | RewriteCardinalityException e) {
+            /* The declaration is not fully written yet */
+            return false;
+        } catch (IOException | ParseException e) {
+            throw new CTFException(e);
+        }
+        fParsedLength = metadataText.length();
+        return true;
+    }
 
+    private String readFile() throws CTFException, IOException {
         try (FileInputStream fis = new FileInputStream(getMetadataPath());
-                FileChannel metadataFileChannel = fis.getChannel();
-                /* Check if metadata is packet-based, if not it is text based */
-                Reader metadataTextInput =
-                        (isPacketBased(metadataFileChannel) ?
-                                readBinaryMetaData(metadataFileChannel) :
-                                new FileReader(getMetadataPath()));) {
+                FileChannel metadataFileChannel = fis.getChannel();) {
 
-            readMetaDataText(metadataTextInput);
+            /* Check if metadata is packet-based, if not it is text based */
+            return isPacketBased(metadataFileChannel) ?
+                    readBinaryMetaData(metadataFileChannel) :
+                    readTextMetaData();
 
         } catch (FileNotFoundException e) {
             throw new CTFException("Cannot find metadata file!", e); //$NON-NLS-1$
-        } catch (IOException | ParseException e) {
-            throw new CTFException(e);
-        } catch (RecognitionException | RewriteCardinalityException e) {
-            throw new CtfAntlrException(e);
         }
     }
 
-    private Reader readBinaryMetaData(FileChannel metadataFileChannel) throws CTFException {
+    private String readBinaryMetaData(FileChannel metadataFileChannel) throws CTFException {
         /* Create StringBuffer to receive metadata text */
         StringBuffer metadataText = new StringBuffer();
 
@@ -185,8 +243,20 @@ public class Metadata {
                     metadataText);
         }
 
-        /* Wrap the metadata string with a StringReader */
-        return new StringReader(metadataText.toString());
+        return metadataText.toString();
+    }
+
+    private String readTextMetaData() throws IOException {
+        StringBuilder metadataText = new StringBuilder();
+        try (Reader metadataTextInput = new FileReader(getMetadataPath())) {
+            char[] buffer = new char[TEXT_BUFFER_SIZE];
+            int read = metadataTextInput.read(buffer);
+            while (read >= 0) {
+                metadataText.append(buffer, 0, read);
+                read = metadataTextInput.read(buffer);
+            }
+        }
+        return metadataText.toString();
     }
 
     /**
@@ -242,9 +312,8 @@ public class Metadata {
      *             parsing a TSDL file
      */
     public void parseText(String data) throws CTFException {
-        Reader metadataTextInput = new StringReader(data);
         try {
-            readMetaDataText(metadataTextInput);
+            readMetaDataText(data);
         } catch (IOException | ParseException e) {
             throw new CTFException(e);
         } catch (RecognitionException | RewriteCardinalityException e) {
@@ -253,12 +322,12 @@ public class Metadata {
 
     }
 
-    private void readMetaDataText(Reader metadataTextInput) throws IOException, RecognitionException, ParseException {
-        CommonTree tree = createAST(metadataTextInput);
+    private void readMetaDataText(String metadataText) throws IOException, RecognitionException, ParseException {
+        List<CommonTree> trees = getTrees(metadataText);
 
         /* Generate IO structures (declarations) */
-        fTreeParser = new IOStructGen(tree, fTrace);
-        fTreeParser.generate();
+        fTreeParser = new IOStructGen(trees.get(0), fTrace);
+        fTreeParser.generate(trees);
         /* store locally in case of concurrent modification */
         ByteOrder detectedByteOrder = getDetectedByteOrder();
         if (detectedByteOrder != null && fTrace.getByteOrder() != detectedByteOrder) {
@@ -287,6 +356,34 @@ public class Metadata {
         }
     }
 
+    /**
+     * Get the syntax trees of a metadata text, from the cache if it has the
+     * text or a prefix of it.
+     */
+    private static List<CommonTree> getTrees(String metadataText) throws IOException, RecognitionException {
+        MetadataTreeCache.Entry cached = MetadataTreeCache.get(metadataText);
+        if (cached != null && cached.getLength() == metadataText.length()) {
+            return cached.getTrees();
+        }
+        if (cached != null) {
+            /* Only parse what was appended to the cached text */
+            String appended = metadataText.substring(cached.getLength());
+            List<CommonTree> trees = new ArrayList<>(cached.getTrees());
+            try {
+                if (!appended.trim().isEmpty()) {
+                    trees.add(createAST(new StringReader(appended)));
+                }
+                MetadataTreeCache.put(metadataText, trees);
+                return trees;
+            } catch (RecognitionException | RewriteCardinalityException e) {
+                /* The text was not appended after a declaration, parse it all */
+            }
+        }
+        List<CommonTree> trees = Collections.singletonList(createAST(new StringReader(metadataText)));
+        MetadataTreeCache.put(metadataText, trees);
+        return trees;
+    }
+
     private void readMetaDataTextFragment(Reader metadataTextInput) throws IOException, RecognitionException, ParseException {
         CommonTree tree = createAST(metadataTextInput);
         fTreeParser.setTree(tree);
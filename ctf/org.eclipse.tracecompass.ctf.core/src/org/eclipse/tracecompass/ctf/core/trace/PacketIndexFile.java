@@ -0,0 +1,319 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.ctf.core.trace;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.tracecompass.ctf.core.CTFException;
+import org.eclipse.tracecompass.internal.ctf.core.SafeMappedByteBuffer;
+import org.eclipse.tracecompass.internal.ctf.core.trace.StreamInputPacketIndex;
+import org.eclipse.tracecompass.internal.ctf.core.trace.StreamInputPacketIndexEntry;
+
+/**
+ * Persistent copy of the packet indexes of the stream inputs of a trace.
+ *
+ * The stream files of a trace do not change once written, so their packet
+ * index can be saved to a file and restored when the trace is opened again,
+ * instead of reading all the packet headers. Each stream file has its own
+ * section in the index file, tagged with the size and modification time of
+ * the stream file: a section is only used if the stream file still has the
+ * same size and modification time.
+ *
+ * The file format is:
+ *
+ * <pre>
+ * int magic, int version, int nbStreamFiles
+ * for each stream file:
+ *     string name, long size, long lastModified
+ *     int nbAttributeNames, string[] attributeNames
+ *     int nbPackets
+ *     for each packet:
+ *         long offsetBits, long packetSizeBits, long contentSizeBits,
+ *         long timestampBegin, long timestampEnd, long lostEvents,
+ *         long targetId, string target (or -1 if null)
+ *         int nbAttributes
+ *         for each attribute: int nameIndex, byte type, value
+ * </pre>
+ *
+ * where strings are an int length followed by the UTF-8 bytes.
+ */
+final class PacketIndexFile {
+
+    private static final int MAGIC = 0x43544649; /* "CTFI" */
+    private static final int VERSION = 1;
+
+    /*
+     * Smallest size in bytes of the elements of the file, to check the counts
+     * read from the file against what is left of it
+     */
+    private static final int MIN_STRING_SIZE = Integer.BYTES;
+    private static final int MIN_FILE_SIZE = MIN_STRING_SIZE + 2 * Long.BYTES + 2 * Integer.BYTES;
+    private static final int MIN_PACKET_SIZE = 7 * Long.BYTES + MIN_STRING_SIZE + Integer.BYTES;
+    private static final int MIN_ATTRIBUTE_SIZE = Integer.BYTES + Byte.BYTES + Integer.BYTES;
+
+    private static final byte TYPE_LONG = 'L';
+    private static final byte TYPE_DOUBLE = 'D';
+    private static final byte TYPE_STRING = 'S';
+
+    private PacketIndexFile() {
+    }
+
+    /**
+     * Restore the index of the stream inputs that have an up to date section
+     * in the index file.
+     *
+     * @param indexFile
+     *            The packet index file
+     * @param inputs
+     *            The stream inputs of the trace
+     * @return The stream inputs that were not restored and still need to be
+     *         indexed
+     */
+    public static List<CTFStreamInput> read(File indexFile, List<CTFStreamInput> inputs) {
+        if (!indexFile.isFile()) {
+            return inputs;
+        }
+        Map<String, CTFStreamInput> byName = new HashMap<>();
+        for (CTFStreamInput input : inputs) {
+            byName.put(input.getFilename(), input);
+        }
+        List<CTFStreamInput> restored = new ArrayList<>();
+        try (FileChannel fc = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = SafeMappedByteBuffer.map(fc, MapMode.READ_ONLY, 0, fc.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return inputs;
+            }
+            int nbFiles = getCount(buffer, MIN_FILE_SIZE);
+            for (int i = 0; i < nbFiles; i++) {
+                String name = getString(buffer);
+                long size = buffer.getLong();
+                long lastModified = buffer.getLong();
+                List<ICTFPacketDescriptor> packets = readPackets(buffer);
+
+                CTFStreamInput input = byName.get(name);
+                if (input == null) {
+                    continue;
+                }
+                File file = input.getFile();
+                if (file.length() == size && file.lastModified() == lastModified && input.restoreIndex(packets)) {
+                    restored.add(input);
+                }
+            }
+        } catch (IOException | CTFException | RuntimeException e) {
+            /*
+             * The file is corrupted (any runtime exception while decoding it
+             * comes from bad data), the stream inputs restored so far are
+             * fine, the other ones will be indexed from the trace.
+             */
+        }
+        List<CTFStreamInput> remaining = new ArrayList<>(inputs);
+        remaining.removeAll(restored);
+        return remaining;
+    }
+
+    private static List<ICTFPacketDescriptor> readPackets(ByteBuffer buffer) {
+        String[] names = new String[getCount(buffer, MIN_STRING_SIZE)];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = getString(buffer);
+        }
+        int nbPackets = getCount(buffer, MIN_PACKET_SIZE);
+        List<ICTFPacketDescriptor> packets = new ArrayList<>(nbPackets);
+        for (int i = 0; i < nbPackets; i++) {
+            long offsetBits = buffer.getLong();
+            long packetSizeBits = buffer.getLong();
+            long contentSizeBits = buffer.getLong();
+            long timestampBegin = buffer.getLong();
+            long timestampEnd = buffer.getLong();
+            long lostEvents = buffer.getLong();
+            long targetId = buffer.getLong();
+            String target = getString(buffer);
+            Map<String, Object> attributes = new HashMap<>();
+            int nbAttributes = getCount(buffer, MIN_ATTRIBUTE_SIZE);
+            for (int j = 0; j < nbAttributes; j++) {
+                int nameIndex = buffer.getInt();
+                if (nameIndex < 0 || nameIndex >= names.length) {
+                    throw new IllegalArgumentException("Invalid attribute name index " + nameIndex); //$NON-NLS-1$
+                }
+                String name = names[nameIndex];
+                byte type = buffer.get();
+                switch (type) {
+                case TYPE_LONG:
+                    attributes.put(name, buffer.getLong());
+                    break;
+                case TYPE_DOUBLE:
+                    attributes.put(name, buffer.getDouble());
+                    break;
+                case TYPE_STRING:
+                    attributes.put(name, getString(buffer));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown attribute type " + type); //$NON-NLS-1$
+                }
+            }
+            packets.add(new StreamInputPacketIndexEntry(offsetBits, packetSizeBits, contentSizeBits,
+                    timestampBegin, timestampEnd, lostEvents, target, targetId, attributes));
+        }
+        return packets;
+    }
+
+    /**
+     * Write the index of the stream inputs to the index file. The file is
+     * written next to the index file, then moved over it, so that a partial
+     * file is never read.
+     *
+     * @param indexFile
+     *            The packet index file
+     * @param inputs
+     *            The stream inputs of the trace
+     * @throws IOException
+     *             If the file could not be written
+     */
+    public static void write(File indexFile, List<CTFStreamInput> inputs) throws IOException {
+        File parent = indexFile.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create directory " + parent); //$NON-NLS-1$
+        }
+        File tmpFile = new File(indexFile.getPath() + ".tmp"); //$NON-NLS-1$
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(inputs.size());
+            for (CTFStreamInput input : inputs) {
+                File file = input.getFile();
+                /* Read the file attributes before the index, in case it grows */
+                long size = file.length();
+                long lastModified = file.lastModified();
+                List<ICTFPacketDescriptor> packets = getPackets(input.getIndex());
+                putString(out, input.getFilename());
+                out.writeLong(size);
+                out.writeLong(lastModified);
+                writePackets(out, packets);
+            }
+        }
+        Files.move(tmpFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static List<ICTFPacketDescriptor> getPackets(StreamInputPacketIndex index) {
+        synchronized (index) {
+            List<ICTFPacketDescriptor> packets = new ArrayList<>(index.size());
+            for (int i = 0; i < index.size(); i++) {
+                packets.add(index.getElement(i));
+            }
+            return packets;
+        }
+    }
+
+    private static void writePackets(DataOutputStream out, List<ICTFPacketDescriptor> packets) throws IOException {
+        Map<String, Integer> names = new LinkedHashMap<>();
+        for (ICTFPacketDescriptor packet : packets) {
+            if (packet instanceof StreamInputPacketIndexEntry) {
+                for (String name : ((StreamInputPacketIndexEntry) packet).getAttributes().keySet()) {
+                    if (!names.containsKey(name)) {
+                        names.put(name, names.size());
+                    }
+                }
+            }
+        }
+        out.writeInt(names.size());
+        for (String name : names.keySet()) {
+            putString(out, name);
+        }
+
+        out.writeInt(packets.size());
+        for (ICTFPacketDescriptor packet : packets) {
+            out.writeLong(packet.getOffsetBits());
+            out.writeLong(packet.getPacketSizeBits());
+            out.writeLong(packet.getContentSizeBits());
+            out.writeLong(packet.getTimestampBegin());
+            out.writeLong(packet.getTimestampEnd());
+            out.writeLong(packet.getLostEvents());
+            out.writeLong(packet.getTargetId());
+            putString(out, packet.getTarget());
+
+            List<Entry<String, Object>> attributes = new ArrayList<>();
+            if (packet instanceof StreamInputPacketIndexEntry) {
+                for (Entry<String, Object> attribute : ((StreamInputPacketIndexEntry) packet).getAttributes().entrySet()) {
+                    Object value = attribute.getValue();
+                    if (value instanceof Long || value instanceof Double || value instanceof String) {
+                        attributes.add(attribute);
+                    }
+                }
+            }
+            out.writeInt(attributes.size());
+            for (Entry<String, Object> attribute : attributes) {
+                out.writeInt(names.get(attribute.getKey()));
+                Object value = attribute.getValue();
+                if (value instanceof Long) {
+                    out.writeByte(TYPE_LONG);
+                    out.writeLong((Long) value);
+                } else if (value instanceof Double) {
+                    out.writeByte(TYPE_DOUBLE);
+                    out.writeDouble((Double) value);
+                } else {
+                    out.writeByte(TYPE_STRING);
+                    putString(out, (String) value);
+                }
+            }
+        }
+    }
+
+    private static void putString(DataOutputStream out, String string) throws IOException {
+        if (string == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Read the number of elements that follow, each taking at least minSize
+     * bytes, so that a corrupted count does not allocate more than the size
+     * of the file.
+     */
+    private static int getCount(ByteBuffer buffer, int minSize) {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / minSize) {
+            throw new IllegalArgumentException("Invalid count " + count); //$NON-NLS-1$
+        }
+        return count;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid string length " + length); //$NON-NLS-1$
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
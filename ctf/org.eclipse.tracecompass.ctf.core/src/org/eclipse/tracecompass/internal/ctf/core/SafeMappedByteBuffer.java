@@ -30,6 +30,17 @@ public class SafeMappedByteBuffer {
 
     private SafeMappedByteBuffer(){}
 
+    /**
+     * Whether the buffers are mapped from the file, or read from it on
+     * Windows. Read buffers use heap memory, so large regions should not be
+     * read ahead of time.
+     *
+     * @return true if the buffers are mapped
+     */
+    public static boolean isMapping() {
+        return !IS_WIN32;
+    }
+
     /**
      * Maps a region of this channel's file directly into memory. On Windows,
      * this will allocate a new ByteBuffer and read the file.
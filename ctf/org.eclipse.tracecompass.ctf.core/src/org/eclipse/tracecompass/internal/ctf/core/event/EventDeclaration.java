@@ -33,6 +33,7 @@ import org.eclipse.tracecompass.ctf.core.event.types.StructDefinition;
 import org.eclipse.tracecompass.ctf.core.trace.CTFIOException;
 import org.eclipse.tracecompass.ctf.core.trace.CTFStream;
 import org.eclipse.tracecompass.ctf.core.trace.CTFStreamInputReader;
+import org.eclipse.tracecompass.internal.ctf.core.event.types.DeclarationSkipper;
 import org.eclipse.tracecompass.internal.ctf.core.event.types.composite.EventHeaderDefinition;
 
 /**
@@ -75,6 +76,12 @@ public class EventDeclaration implements IEventDeclaration {
 
     private int fId = (int) UNSET_EVENT_ID;
 
+    /**
+     * Sizes of the stream event context, event context and fields, computed
+     * the first time the event is skipped
+     */
+    private volatile long[] fSkipSizes = null;
+
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
@@ -121,6 +128,62 @@ public class EventDeclaration implements IEventDeclaration {
                 eventPayload);
     }
 
+    /**
+     * Creates an instance of EventDefinition corresponding to this
+     * declaration, with the event header only. The stream event context,
+     * event context and fields are skipped without being read, which is only
+     * possible if their size is fixed and if the timestamp is in the header.
+     *
+     * @param streamInputReader
+     *            The StreamInputReader for which this definition is created.
+     * @param eventHeaderDef
+     *            The event header definition
+     * @param input
+     *            the bitbuffer input source, positioned after the header
+     * @param prevTimestamp
+     *            The timestamp when the event was taken
+     * @return A new EventDefinition without contexts nor fields, or null if
+     *         the event cannot be skipped, in which case the input is not
+     *         moved
+     * @throws CTFException
+     *             As a bitbuffer is used to read, it could have wrapped
+     *             IOExceptions.
+     */
+    public @Nullable EventDefinition createHeaderDefinition(CTFStreamInputReader streamInputReader, ICompositeDefinition eventHeaderDef, @NonNull BitBuffer input, long prevTimestamp) throws CTFException {
+        if (!(eventHeaderDef instanceof EventHeaderDefinition ||
+                (eventHeaderDef instanceof StructDefinition && ((StructDefinition) eventHeaderDef).lookupDefinition(CTFStrings.TIMESTAMP) instanceof IntegerDefinition))) {
+            return null;
+        }
+        StructDeclaration streamEventContextDecl = streamInputReader.getStreamEventContextDecl();
+        long[] sizes = fSkipSizes;
+        if (sizes == null) {
+            sizes = new long[] {
+                    DeclarationSkipper.getFixedSize(streamEventContextDecl),
+                    DeclarationSkipper.getFixedSize(fContext),
+                    DeclarationSkipper.getFixedSize(fFields) };
+            fSkipSizes = sizes;
+        }
+        for (long size : sizes) {
+            if (size == DeclarationSkipper.VARIABLE_SIZE) {
+                return null;
+            }
+        }
+        DeclarationSkipper.skip(streamEventContextDecl, sizes[0], input);
+        DeclarationSkipper.skip(fContext, sizes[1], input);
+        DeclarationSkipper.skip(fFields, sizes[2], input);
+        long timestamp = calculateTimestamp(eventHeaderDef, prevTimestamp, null, null);
+
+        return new EventDefinition(
+                this,
+                streamInputReader.getCPU(),
+                timestamp,
+                eventHeaderDef,
+                null,
+                null,
+                streamInputReader.getPacketReader().getCurrentPacketEventHeader(),
+                null);
+    }
+
     private static long calculateTimestamp(@Nullable ICompositeDefinition eventHeaderDef, long prevTimestamp, StructDefinition eventPayload, StructDefinition eventContext) throws CTFIOException {
         long timestamp = 0;
         Definition def = null;
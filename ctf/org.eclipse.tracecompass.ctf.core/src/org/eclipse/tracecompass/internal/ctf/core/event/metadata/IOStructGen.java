@@ -126,7 +126,29 @@ public class IOStructGen {
      *             If there was a problem parsing the metadata
      */
     public void generate() throws ParseException {
-        parseRoot(fTree);
+        List<CommonTree> children = fTree.getChildren();
+        parseRoot(children);
+    }
+
+    /**
+     * Parse several trees as if their top-level nodes were in a single tree,
+     * and populate the trace defined in the constructor. This is for a
+     * metadata text that was parsed in several parts.
+     *
+     * @param trees
+     *            the trees, in the order of the metadata text
+     * @throws ParseException
+     *             If there was a problem parsing the metadata
+     */
+    public void generate(List<CommonTree> trees) throws ParseException {
+        List<CommonTree> children = new ArrayList<>();
+        for (CommonTree tree : trees) {
+            List<CommonTree> treeChildren = tree.getChildren();
+            if (treeChildren != null) {
+                children.addAll(treeChildren);
+            }
+        }
+        parseRoot(children);
     }
 
     /**
@@ -156,15 +178,13 @@ public class IOStructGen {
     }
 
     /**
-     * Parse the root node.
+     * Parse the children of the root node.
      *
-     * @param root
-     *            A ROOT node.
+     * @param children
+     *            The children of a ROOT node.
      * @throws ParseException
      */
-    private void parseRoot(CommonTree root) throws ParseException {
-
-        List<CommonTree> children = root.getChildren();
+    private void parseRoot(List<CommonTree> children) throws ParseException {
 
         CommonTree traceNode = null;
         boolean hasStreams = false;
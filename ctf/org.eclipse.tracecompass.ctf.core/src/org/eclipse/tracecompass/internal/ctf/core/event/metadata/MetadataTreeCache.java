@@ -0,0 +1,313 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.ctf.core.event.metadata;
+
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.antlr.runtime.CommonToken;
+import org.antlr.runtime.tree.CommonTree;
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Syntax trees of the metadata texts parsed recently, by digest of the text.
+ *
+ * Parsing the metadata text with ANTLR is the most expensive part of opening a
+ * trace. The traces that have the same metadata text, like a trace that is
+ * opened again, get the trees from this cache instead. The declarations are
+ * still generated from the trees for each trace, since they belong to it. The
+ * trees are only read by {@link IOStructGen}, so they can be shared.
+ *
+ * The UUID of the trace block is masked in the digest, since it is the only
+ * difference between the metadata of the traces recorded by the same session
+ * setup. A trace whose UUID is not the one of the cached trees gets a deep
+ * copy of the tree of its trace block, with its own UUID.
+ *
+ * A text that is not in the cache but that starts with a text that is, like
+ * the metadata of a trace that grew since it was last opened, gets the trees
+ * of that prefix, so that only the rest of the text has to be parsed.
+ *
+ * The trees are held by soft references, so they are dropped when memory runs
+ * low. The cache only lives in memory and is not persisted: ctf.core has no
+ * supplementary directory to keep it in, and the ANTLR trees are not
+ * serializable.
+ */
+public final class MetadataTreeCache {
+
+    /** Number of metadata texts kept */
+    private static final int MAX_ENTRIES = 32;
+
+    private static final String DIGEST_ALGORITHM = "SHA-256"; //$NON-NLS-1$
+
+    /** The UUID literal of the trace block, quotes included */
+    private static final Pattern TRACE_UUID = Pattern.compile("\\btrace\\s*\\{[^}]*?\\buuid\\s*=\\s*(\"[^\"]*\")"); //$NON-NLS-1$
+
+    /** Character that replaces the ones of the UUID literal in the digest */
+    private static final char MASK = '0';
+
+    /** The cached trees by digest of their masked text, in access order */
+    private static final Map<String, CachedTrees> ENTRIES = new LinkedHashMap<String, CachedTrees>(MAX_ENTRIES + 1, 1, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.@Nullable Entry<String, CachedTrees> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private MetadataTreeCache() {
+    }
+
+    /**
+     * The trees of a metadata text
+     */
+    public static final class Entry {
+
+        private final int fLength;
+        private final List<CommonTree> fTrees;
+
+        private Entry(int length, List<CommonTree> trees) {
+            fLength = length;
+            fTrees = trees;
+        }
+
+        /**
+         * Get the length of the text
+         *
+         * @return The length, in characters
+         */
+        public int getLength() {
+            return fLength;
+        }
+
+        /**
+         * Get the trees of the text, in the order of the text
+         *
+         * @return The trees
+         */
+        public List<CommonTree> getTrees() {
+            return fTrees;
+        }
+    }
+
+    /**
+     * The trees of a text in the cache, with the UUID literal they hold
+     */
+    private static final class CachedTrees {
+
+        private final int fLength;
+        private final @Nullable String fUuid;
+        private final SoftReference<List<CommonTree>> fTrees;
+
+        public CachedTrees(int length, @Nullable String uuid, List<CommonTree> trees) {
+            fLength = length;
+            fUuid = uuid;
+            fTrees = new SoftReference<>(trees);
+        }
+    }
+
+    /**
+     * A metadata text with its trace UUID literal masked
+     */
+    private static final class MaskedText {
+
+        private final String fText;
+        private final @Nullable String fUuid;
+        private final int fUuidEnd;
+
+        public MaskedText(String text) {
+            Matcher matcher = TRACE_UUID.matcher(text);
+            if (matcher.find()) {
+                char[] mask = new char[matcher.end(1) - matcher.start(1)];
+                Arrays.fill(mask, MASK);
+                fText = text.substring(0, matcher.start(1)) + new String(mask) + text.substring(matcher.end(1));
+                fUuid = matcher.group(1);
+                fUuidEnd = matcher.end(1);
+            } else {
+                fText = text;
+                fUuid = null;
+                fUuidEnd = 0;
+            }
+        }
+
+        /** The UUID literal that is in the first characters of the text */
+        public @Nullable String getUuid(int length) {
+            return fUuidEnd <= length ? fUuid : null;
+        }
+    }
+
+    /**
+     * Get the trees of a metadata text, or of the longest prefix of it that
+     * is in the cache
+     *
+     * @param text
+     *            The metadata text
+     * @return The entry of the text or of its prefix, whose length tells
+     *         which one it is, or null if neither is in the cache
+     */
+    public static @Nullable Entry get(String text) {
+        int[] lengths;
+        synchronized (ENTRIES) {
+            lengths = ENTRIES.values().stream()
+                    .mapToInt(cached -> cached.fLength)
+                    .filter(length -> length <= text.length())
+                    .distinct()
+                    .sorted()
+                    .toArray();
+        }
+        MessageDigest digest = createDigest();
+        if (digest == null) {
+            return null;
+        }
+        MaskedText masked = new MaskedText(text);
+        /* Digest the text once, looking up each cached length on the way */
+        Entry best = null;
+        int digested = 0;
+        try {
+            for (int length : lengths) {
+                digest.update(masked.fText.substring(digested, length).getBytes(StandardCharsets.UTF_8));
+                digested = length;
+                String key = toHex(((MessageDigest) digest.clone()).digest());
+                List<CommonTree> trees = null;
+                CachedTrees cached;
+                synchronized (ENTRIES) {
+                    cached = ENTRIES.get(key);
+                    if (cached != null) {
+                        trees = cached.fTrees.get();
+                        if (trees == null) {
+                            /* Collected, it will be parsed again */
+                            ENTRIES.remove(key);
+                        }
+                    }
+                }
+                if (cached != null && trees != null && cached.fLength == length) {
+                    List<CommonTree> ownTrees = withUuid(trees, cached.fUuid, masked.getUuid(length));
+                    if (ownTrees != null) {
+                        best = new Entry(length, ownTrees);
+                    }
+                }
+            }
+        } catch (CloneNotSupportedException e) {
+            return null;
+        }
+        return best;
+    }
+
+    /**
+     * Add the trees of a metadata text
+     *
+     * @param text
+     *            The metadata text
+     * @param trees
+     *            The trees of the text, in the order of the text
+     */
+    public static void put(String text, List<CommonTree> trees) {
+        MessageDigest digest = createDigest();
+        if (digest == null) {
+            return;
+        }
+        MaskedText masked = new MaskedText(text);
+        String key = toHex(digest.digest(masked.fText.getBytes(StandardCharsets.UTF_8)));
+        CachedTrees cached = new CachedTrees(text.length(), masked.getUuid(text.length()), ImmutableList.copyOf(trees));
+        synchronized (ENTRIES) {
+            ENTRIES.put(key, cached);
+        }
+    }
+
+    /**
+     * Get the trees with the UUID literal of the text instead of the one of
+     * the cached text. The tree that has the trace block is deep-copied, the
+     * cached trees are not modified.
+     *
+     * @return The trees, or null if the UUID literal cannot be replaced
+     */
+    private static @Nullable List<CommonTree> withUuid(List<CommonTree> trees, @Nullable String cachedUuid, @Nullable String uuid) {
+        if (Objects.equals(cachedUuid, uuid)) {
+            return trees;
+        }
+        if (cachedUuid == null || uuid == null) {
+            return null;
+        }
+        List<CommonTree> ownTrees = new ArrayList<>(trees.size());
+        boolean replaced = false;
+        for (CommonTree tree : trees) {
+            if (!replaced && contains(tree, cachedUuid)) {
+                ownTrees.add(deepCopy(tree, cachedUuid, uuid));
+                replaced = true;
+            } else {
+                ownTrees.add(tree);
+            }
+        }
+        return replaced ? ownTrees : null;
+    }
+
+    private static boolean contains(CommonTree tree, String text) {
+        if (text.equals(tree.getText())) {
+            return true;
+        }
+        for (int i = 0; i < tree.getChildCount(); i++) {
+            if (contains((CommonTree) tree.getChild(i), text)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copy a tree and all its nodes, replacing the text of the nodes that
+     * have the given text
+     */
+    private static CommonTree deepCopy(CommonTree tree, String oldText, String newText) {
+        CommonTree copy;
+        if (tree.getToken() != null && oldText.equals(tree.getText())) {
+            CommonToken token = new CommonToken(tree.getToken());
+            token.setText(newText);
+            copy = new CommonTree(token);
+            copy.setTokenStartIndex(tree.getTokenStartIndex());
+            copy.setTokenStopIndex(tree.getTokenStopIndex());
+        } else {
+            copy = (CommonTree) tree.dupNode();
+        }
+        for (int i = 0; i < tree.getChildCount(); i++) {
+            copy.addChild(deepCopy((CommonTree) tree.getChild(i), oldText, newText));
+        }
+        return copy;
+    }
+
+    private static @Nullable MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            /* Every Java platform has it, do not cache otherwise */
+            return null;
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
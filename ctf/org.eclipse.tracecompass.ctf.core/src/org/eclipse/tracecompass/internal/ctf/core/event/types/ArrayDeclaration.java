@@ -14,6 +14,7 @@ package org.eclipse.tracecompass.internal.ctf.core.event.types;
 
 import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 
+import java.nio.ByteOrder;
 import java.util.List;
 
 import org.eclipse.jdt.annotation.NonNull;
@@ -25,6 +26,8 @@ import org.eclipse.tracecompass.ctf.core.event.types.AbstractArrayDefinition;
 import org.eclipse.tracecompass.ctf.core.event.types.CompoundDeclaration;
 import org.eclipse.tracecompass.ctf.core.event.types.Definition;
 import org.eclipse.tracecompass.ctf.core.event.types.IDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.IntegerDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.IntegerDefinition;
 
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
@@ -131,6 +134,10 @@ public final class ArrayDeclaration extends CompoundDeclaration {
             }
         }
         List<String> elemNames = fChildrenNames.get(fieldName);
+        List<@NonNull Definition> integers = readIntegers(fElemType, definitionScope, elemNames, fLength, input);
+        if (integers != null) {
+            return integers;
+        }
         for (int i = 0; i < fLength; i++) {
             String name = elemNames.get(i);
             if (name == null) {
@@ -141,6 +148,53 @@ public final class ArrayDeclaration extends CompoundDeclaration {
         return checkNotNull(definitions.build());
     }
 
+    /**
+     * Read the elements of an array or a sequence at once, if they are
+     * integers with no padding between them
+     *
+     * @param elemType
+     *            the type of the elements
+     * @param definitionScope
+     *            the definition scope of the elements
+     * @param names
+     *            the names of the elements
+     * @param length
+     *            the number of elements
+     * @param input
+     *            the bitbuffer to read from
+     * @return the definitions of the elements, or null if they cannot be read
+     *         at once
+     * @throws CTFException
+     *             if the elements go past the end of the buffer
+     */
+    static @Nullable List<@NonNull Definition> readIntegers(IDeclaration elemType, @Nullable IDefinitionScope definitionScope,
+            List<String> names, int length, @NonNull BitBuffer input) throws CTFException {
+        if (length == 0 || !(elemType instanceof IntegerDeclaration)) {
+            return null;
+        }
+        IntegerDeclaration integer = (IntegerDeclaration) elemType;
+        int size = integer.getLength();
+        long alignment = integer.getAlignment();
+        if (size <= 0 || size > Long.SIZE || (size % alignment) != 0) {
+            return null;
+        }
+        long mask = alignment - 1;
+        input.position((input.position() + mask) & ~mask);
+        long[] values = new long[length];
+        ByteOrder byteOrder = input.getByteOrder();
+        input.setByteOrder(integer.getByteOrder());
+        try {
+            input.get(values, 0, length, size, integer.isSigned());
+        } finally {
+            input.setByteOrder(byteOrder);
+        }
+        Builder<@NonNull Definition> definitions = new ImmutableList.Builder<>();
+        for (int i = 0; i < length; i++) {
+            definitions.add(new IntegerDefinition(integer, definitionScope, checkNotNull(names.get(i)), values[i]));
+        }
+        return checkNotNull(definitions.build());
+    }
+
     @Override
     public int getMaximumSize() {
         long val = (long) fLength * fElemType.getMaximumSize();
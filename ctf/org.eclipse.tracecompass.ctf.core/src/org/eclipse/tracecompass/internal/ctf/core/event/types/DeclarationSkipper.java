@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.ctf.core.event.types;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.ctf.core.CTFException;
+import org.eclipse.tracecompass.ctf.core.event.io.BitBuffer;
+import org.eclipse.tracecompass.ctf.core.event.types.FloatDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.IDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.ISimpleDatatypeDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.StructDeclaration;
+
+/**
+ * Moves a bit buffer past the data of a declaration without reading it, when
+ * the size of that data does not depend on its content, that is if it has no
+ * string, sequence or variant.
+ *
+ * Since a declaration is aligned on the largest alignment of its fields, the
+ * padding between the fields does not depend on where the declaration starts,
+ * so the size only has to be computed once.
+ */
+public final class DeclarationSkipper {
+
+    /** Size of a declaration whose size depends on its content */
+    public static final long VARIABLE_SIZE = -1;
+
+    private DeclarationSkipper() {}
+
+    /**
+     * Get the size of a declaration, without the padding before it
+     *
+     * @param declaration
+     *            The declaration, can be null
+     * @return The size in bits, 0 if the declaration is null, or
+     *         {@link #VARIABLE_SIZE}
+     */
+    public static long getFixedSize(@Nullable IDeclaration declaration) {
+        if (declaration == null) {
+            return 0;
+        }
+        if (declaration instanceof FloatDeclaration) {
+            /* Only 32 and 64 bit floats are read, the others are NaN */
+            FloatDeclaration floatDeclaration = (FloatDeclaration) declaration;
+            int size = floatDeclaration.getExponent() + floatDeclaration.getMantissa();
+            return (size == Integer.SIZE || size == Long.SIZE) ? size : 0;
+        }
+        if (declaration instanceof ISimpleDatatypeDeclaration) {
+            return declaration.getMaximumSize();
+        }
+        if (declaration instanceof ArrayDeclaration) {
+            ArrayDeclaration array = (ArrayDeclaration) declaration;
+            IDeclaration element = array.getElementType();
+            long elementSize = getFixedSize(element);
+            if (elementSize == VARIABLE_SIZE) {
+                return VARIABLE_SIZE;
+            }
+            if (array.getLength() == 0) {
+                return 0;
+            }
+            long stride = align(elementSize, element.getAlignment());
+            return (array.getLength() - 1) * stride + elementSize;
+        }
+        if (declaration instanceof StructDeclaration) {
+            StructDeclaration struct = (StructDeclaration) declaration;
+            long size = 0;
+            for (String fieldName : struct.getFieldsList()) {
+                IDeclaration field = struct.getField(fieldName);
+                long fieldSize = getFixedSize(field);
+                if (field == null || fieldSize == VARIABLE_SIZE) {
+                    return VARIABLE_SIZE;
+                }
+                size = align(size, field.getAlignment()) + fieldSize;
+            }
+            return size;
+        }
+        return VARIABLE_SIZE;
+    }
+
+    /**
+     * Move a bit buffer past the data of a declaration, as reading it would
+     *
+     * @param declaration
+     *            The declaration, can be null
+     * @param size
+     *            The size of the declaration, from {@link #getFixedSize}
+     * @param input
+     *            The bit buffer
+     * @throws CTFException
+     *             If the data goes past the end of the buffer
+     */
+    public static void skip(@Nullable IDeclaration declaration, long size, @NonNull BitBuffer input) throws CTFException {
+        if (declaration == null) {
+            return;
+        }
+        input.position(align(input.position(), declaration.getAlignment()) + size);
+    }
+
+    private static long align(long position, long alignment) {
+        if (alignment <= 1) {
+            return position;
+        }
+        long mask = alignment - 1;
+        return (position + mask) & ~mask;
+    }
+}
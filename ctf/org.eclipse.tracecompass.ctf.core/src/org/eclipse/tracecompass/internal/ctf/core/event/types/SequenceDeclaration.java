@@ -128,6 +128,10 @@ public class SequenceDeclaration extends CompoundDeclaration {
             fPaths.put(fieldName, fieldName + '[' + collection.size() + ']');
         }
         List<String> paths = (List<String>) fPaths.get(fieldName);
+        List<Definition> integers = ArrayDeclaration.readIntegers(fElemType, definitionScope, paths, (int) length, input);
+        if (integers != null) {
+            return new ArrayDefinition(this, definitionScope, fieldName, integers);
+        }
         Builder<Definition> definitions = new ImmutableList.Builder<>();
         for (int i = 0; i < length; i++) {
             /* We should not have inserted any null values */
@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.ctf.core.event.types;
+
+import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.ctf.core.CTFException;
+import org.eclipse.tracecompass.ctf.core.event.io.BitBuffer;
+import org.eclipse.tracecompass.ctf.core.event.scope.IDefinitionScope;
+import org.eclipse.tracecompass.ctf.core.event.types.Definition;
+import org.eclipse.tracecompass.ctf.core.event.types.EnumDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.EnumDefinition;
+import org.eclipse.tracecompass.ctf.core.event.types.IDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.IntegerDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.IntegerDefinition;
+import org.eclipse.tracecompass.ctf.core.event.types.StructDeclaration;
+
+/**
+ * Decoder of the fields of a fixed size struct, compiled once from its
+ * declaration.
+ *
+ * The declaration tree is flattened into an array of operations, one per
+ * field, with the offset of the field from the start of the struct. Since the
+ * struct is aligned on the largest alignment of its fields, these offsets do
+ * not depend on where the struct starts, so the alignment of each field does
+ * not have to be computed for each event. Integers and enums are read inline:
+ * directly from the byte buffer when they are whole bytes at a byte offset,
+ * and with the bit buffer otherwise. Other fields (floats, arrays, structs)
+ * are read by their declaration.
+ */
+public final class StructDecoder {
+
+    /* Integer of 8, 16, 32 or 64 bits at a byte offset */
+    private static final byte OP_INT_BYTES = 0;
+    /* Integer of up to 64 bits at any offset */
+    private static final byte OP_INT_BITS = 1;
+    /* Field read by its declaration */
+    private static final byte OP_DECLARATION = 2;
+
+    private final byte[] fOps;
+    private final long[] fOffsets;
+    private final int[] fLengths;
+    private final boolean[] fSigned;
+    private final ByteOrder[] fByteOrders;
+    private final IntegerDeclaration[] fIntegers;
+    private final @Nullable EnumDeclaration[] fEnums;
+    private final IDeclaration[] fDeclarations;
+    private final String[] fNames;
+    private final long fSize;
+
+    private StructDecoder(int nbFields, long size) {
+        fOps = new byte[nbFields];
+        fOffsets = new long[nbFields];
+        fLengths = new int[nbFields];
+        fSigned = new boolean[nbFields];
+        fByteOrders = new ByteOrder[nbFields];
+        fIntegers = new IntegerDeclaration[nbFields];
+        fEnums = new EnumDeclaration[nbFields];
+        fDeclarations = new IDeclaration[nbFields];
+        fNames = new String[nbFields];
+        fSize = size;
+    }
+
+    /**
+     * Compile the decoder of a struct declaration
+     *
+     * @param declaration
+     *            The struct declaration
+     * @return The decoder, or null if the size of the struct depends on its
+     *         content
+     */
+    public static @Nullable StructDecoder compile(StructDeclaration declaration) {
+        long size = DeclarationSkipper.getFixedSize(declaration);
+        if (size == DeclarationSkipper.VARIABLE_SIZE) {
+            return null;
+        }
+        Map<String, IDeclaration> fields = declaration.getFields();
+        StructDecoder decoder = new StructDecoder(fields.size(), size);
+        boolean byteAlignedStart = (declaration.getAlignment() % Byte.SIZE) == 0;
+        long offset = 0;
+        int i = 0;
+        for (Map.Entry<String, IDeclaration> entry : fields.entrySet()) {
+            IDeclaration field = entry.getValue();
+            offset = align(offset, field.getAlignment());
+            decoder.fNames[i] = entry.getKey();
+            decoder.fOffsets[i] = offset;
+            decoder.fDeclarations[i] = field;
+            IntegerDeclaration integer = null;
+            if (field instanceof IntegerDeclaration) {
+                integer = (IntegerDeclaration) field;
+            } else if (field instanceof EnumDeclaration) {
+                decoder.fEnums[i] = (EnumDeclaration) field;
+                integer = ((EnumDeclaration) field).getContainerType();
+            }
+            if (integer != null && integer.getLength() > 0 && integer.getLength() <= Long.SIZE
+                    && integer.getAlignment() <= field.getAlignment()) {
+                int length = integer.getLength();
+                boolean byteAligned = byteAlignedStart && (offset % Byte.SIZE) == 0;
+                boolean wholeBytes = length == Byte.SIZE || length == Short.SIZE || length == Integer.SIZE || length == Long.SIZE;
+                decoder.fOps[i] = (byteAligned && wholeBytes) ? OP_INT_BYTES : OP_INT_BITS;
+                decoder.fIntegers[i] = integer;
+                decoder.fLengths[i] = length;
+                decoder.fSigned[i] = integer.isSigned();
+                decoder.fByteOrders[i] = integer.getByteOrder();
+            } else {
+                decoder.fOps[i] = OP_DECLARATION;
+            }
+            offset += DeclarationSkipper.getFixedSize(field);
+            i++;
+        }
+        return decoder;
+    }
+
+    /**
+     * Read the fields of the struct. The bit buffer must be at the start of
+     * the struct, already aligned, and is moved to its end.
+     *
+     * @param input
+     *            The bit buffer
+     * @param definitions
+     *            The array to fill with the definitions of the fields
+     * @param scope
+     *            The scope of the fields, the struct definition
+     * @throws CTFException
+     *             If the struct goes past the end of the buffer
+     */
+    public void decode(@NonNull BitBuffer input, Definition[] definitions, IDefinitionScope scope) throws CTFException {
+        final long start = input.position();
+        /* Fails if the struct goes past the end, the reads below are safe */
+        input.position(start + fSize);
+        final ByteBuffer buffer = input.getByteBuffer();
+        final ByteOrder previousByteOrder = input.getByteOrder();
+        ByteOrder byteOrder = previousByteOrder;
+        try {
+            for (int i = 0; i < fOps.length; i++) {
+                final long position = start + fOffsets[i];
+                final String name = checkNotNull(fNames[i]);
+                if (fOps[i] == OP_DECLARATION) {
+                    input.position(position);
+                    definitions[i] = fDeclarations[i].createDefinition(scope, name, input);
+                    continue;
+                }
+                if (fByteOrders[i] != byteOrder) {
+                    byteOrder = fByteOrders[i];
+                    input.setByteOrder(byteOrder);
+                }
+                long value;
+                if (fOps[i] == OP_INT_BYTES) {
+                    value = readBytes(buffer, (int) (position / Byte.SIZE), fLengths[i], fSigned[i]);
+                } else {
+                    input.position(position);
+                    value = input.get(fLengths[i], fSigned[i]);
+                }
+                IntegerDefinition integer = new IntegerDefinition(fIntegers[i], scope, name, value);
+                EnumDeclaration enumDeclaration = fEnums[i];
+                definitions[i] = (enumDeclaration == null ? integer : new EnumDefinition(enumDeclaration, scope, name, integer));
+            }
+        } finally {
+            if (byteOrder != previousByteOrder) {
+                input.setByteOrder(previousByteOrder);
+            }
+        }
+        input.position(start + fSize);
+    }
+
+    private static long readBytes(ByteBuffer buffer, int index, int length, boolean signed) {
+        switch (length) {
+        case Byte.SIZE: {
+            byte value = buffer.get(index);
+            return signed ? value : (value & 0xFFL);
+        }
+        case Short.SIZE: {
+            short value = buffer.getShort(index);
+            return signed ? value : (value & 0xFFFFL);
+        }
+        case Integer.SIZE: {
+            int value = buffer.getInt(index);
+            return signed ? value : (value & 0xFFFFFFFFL);
+        }
+        default:
+            return buffer.getLong(index);
+        }
+    }
+
+    private static long align(long position, long alignment) {
+        if (alignment <= 1) {
+            return position;
+        }
+        long mask = alignment - 1;
+        return (position + mask) & ~mask;
+    }
+}
@@ -12,6 +12,7 @@
 
 package org.eclipse.tracecompass.internal.ctf.core.trace;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -198,6 +199,44 @@ public class StreamInputPacketIndexEntry implements ICTFPacketDescriptor {
         fOffsetBytes = dataOffsetBits / Byte.SIZE;
     }
 
+    /**
+     * Constructor for an entry that was indexed before, for example restored
+     * from a packet index file.
+     *
+     * @param dataOffsetBits
+     *            offset in the file for the start of data in bits
+     * @param packetSizeBits
+     *            packet size in bits
+     * @param contentSizeBits
+     *            content size in bits
+     * @param timestampBegin
+     *            begin timestamp
+     * @param timestampEnd
+     *            end timestamp
+     * @param lostEvents
+     *            number of events lost in this packet
+     * @param target
+     *            the target being traced, can be null
+     * @param targetId
+     *            the ID of the target being traced
+     * @param attributes
+     *            the attributes of the packet context
+     */
+    public StreamInputPacketIndexEntry(long dataOffsetBits, long packetSizeBits, long contentSizeBits,
+            long timestampBegin, long timestampEnd, long lostEvents,
+            String target, long targetId, Map<String, Object> attributes) {
+        fOffsetBits = dataOffsetBits;
+        fOffsetBytes = dataOffsetBits / Byte.SIZE;
+        fPacketSizeBits = packetSizeBits;
+        fContentSizeBits = contentSizeBits;
+        fTimestampBegin = timestampBegin;
+        fTimestampEnd = timestampEnd;
+        fLostEvents = lostEvents;
+        fTarget = target;
+        fTargetID = targetId;
+        fAttributes.putAll(attributes);
+    }
+
     private static class Target {
         public String string;
         public long number;
@@ -299,6 +338,15 @@ public class StreamInputPacketIndexEntry implements ICTFPacketDescriptor {
         return fAttributes.get(field);
     }
 
+    /**
+     * Get all the attributes of this index entry
+     *
+     * @return an unmodifiable view of the attributes, by name
+     */
+    public Map<String, Object> getAttributes() {
+        return Collections.unmodifiableMap(fAttributes);
+    }
+
     @Override
     public String getTarget() {
         return fTarget;
@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.ctf.core.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.common.core.ReadAheadExecutor;
+import org.eclipse.tracecompass.internal.ctf.core.SafeMappedByteBuffer;
+
+/**
+ * Large windows mapped from a stream file, shared by all the readers of the
+ * stream file.
+ *
+ * Instead of mapping each packet when a reader moves to it, the file is
+ * mapped by windows of {@link #WINDOW_SIZE} bytes, each holding many packets,
+ * and the readers get slices of them. When a reader gets to the second half
+ * of a window, the next window is mapped and loaded in memory in the
+ * background, so that reading a stream sequentially does not wait for the
+ * disk at each packet.
+ *
+ * The windows are not unmapped explicitly: a window that is evicted stays
+ * mapped until the slices taken from it are garbage collected, like the
+ * buffers mapped for single packets.
+ */
+public final class StreamInputWindowCache {
+
+    /** Size of the windows, a multiple of the page size */
+    public static final long WINDOW_SIZE = 16 << 20;
+
+    /** Number of windows kept for a stream file */
+    public static final int MAX_WINDOWS = 4;
+
+    private final File fFile;
+    private final long fWindowSize;
+    private final boolean fMapping;
+
+    /** The windows by index, in access order */
+    private final Map<Long, Window> fWindows = new LinkedHashMap<Long, Window>(MAX_WINDOWS + 1, 1, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.@Nullable Entry<Long, Window> eldest) {
+            return size() > MAX_WINDOWS;
+        }
+    };
+
+    /**
+     * Constructor
+     *
+     * @param file
+     *            The stream file
+     */
+    public StreamInputWindowCache(File file) {
+        this(file, WINDOW_SIZE, SafeMappedByteBuffer.isMapping());
+    }
+
+    /**
+     * Constructor with a given window size, for tests
+     *
+     * @param file
+     *            The stream file
+     * @param windowSize
+     *            The size of the windows, in bytes
+     * @param mapping
+     *            Whether the file can be mapped, otherwise every region is
+     *            read by itself, see {@link SafeMappedByteBuffer#isMapping()}
+     */
+    public StreamInputWindowCache(File file, long windowSize, boolean mapping) {
+        fFile = file;
+        fWindowSize = windowSize;
+        fMapping = mapping;
+    }
+
+    /**
+     * Get the number of windows currently kept, for tests
+     *
+     * @return The number of windows
+     */
+    public int getNbWindows() {
+        synchronized (fWindows) {
+            return fWindows.size();
+        }
+    }
+
+    /**
+     * Get a buffer holding a region of the stream file, typically a packet.
+     * Its position 0 is at the start of the region.
+     *
+     * @param fc
+     *            A channel of the stream file, to map the region by itself
+     *            if it is not in a window
+     * @param offset
+     *            The offset of the region in the file, in bytes
+     * @param size
+     *            The size of the region, in bytes
+     * @return The buffer
+     * @throws IOException
+     *             If the file could not be mapped
+     */
+    public ByteBuffer getBuffer(FileChannel fc, long offset, long size) throws IOException {
+        long index = offset / fWindowSize;
+        long windowStart = index * fWindowSize;
+        if (!fMapping || offset + size > windowStart + fWindowSize) {
+            /* The region is across two windows, or windows are not mapped */
+            return SafeMappedByteBuffer.map(fc, MapMode.READ_ONLY, offset, size);
+        }
+        Window window = getWindow(index);
+        ByteBuffer buffer = window.getBuffer();
+        if (buffer == null || offset + size > windowStart + buffer.capacity()) {
+            /* The file grew since the window was mapped */
+            invalidate(index, window);
+            window = getWindow(index);
+            buffer = window.getBuffer();
+            if (buffer == null || offset + size > windowStart + buffer.capacity()) {
+                return SafeMappedByteBuffer.map(fc, MapMode.READ_ONLY, offset, size);
+            }
+        }
+        if (offset + size > windowStart + fWindowSize / 2) {
+            readAhead(index + 1);
+        }
+        ByteBuffer slice = buffer.duplicate();
+        slice.position((int) (offset - windowStart));
+        slice.limit((int) (offset - windowStart + size));
+        return slice.slice();
+    }
+
+    private Window getWindow(long index) {
+        synchronized (fWindows) {
+            Window window = fWindows.get(index);
+            if (window == null) {
+                window = new Window(index * fWindowSize);
+                fWindows.put(index, window);
+            }
+            return window;
+        }
+    }
+
+    private void invalidate(long index, Window window) {
+        synchronized (fWindows) {
+            if (fWindows.get(index) == window) {
+                fWindows.remove(index);
+            }
+        }
+    }
+
+    private void readAhead(long index) {
+        synchronized (fWindows) {
+            if (fWindows.containsKey(index) || index * fWindowSize >= fFile.length()) {
+                return;
+            }
+        }
+        Window window = getWindow(index);
+        ReadAheadExecutor.getExecutor().execute(window::load);
+    }
+
+    /**
+     * A window of the file, mapped on its first use
+     */
+    private final class Window {
+
+        private final long fStart;
+        private @Nullable ByteBuffer fBuffer = null;
+        private boolean fMapped = false;
+
+        public Window(long start) {
+            fStart = start;
+        }
+
+        /**
+         * Get the buffer of the window, mapping it if needed
+         *
+         * @return The buffer, or null if the window is past the end of the
+         *         file or could not be mapped
+         */
+        public synchronized @Nullable ByteBuffer getBuffer() {
+            if (!fMapped) {
+                fMapped = true;
+                try (FileChannel fc = FileChannel.open(fFile.toPath(), StandardOpenOption.READ)) {
+                    long size = Math.min(fWindowSize, fc.size() - fStart);
+                    if (size > 0) {
+                        fBuffer = SafeMappedByteBuffer.map(fc, MapMode.READ_ONLY, fStart, size);
+                    }
+                } catch (IOException e) {
+                    /* The readers will map their packets by themselves */
+                    fBuffer = null;
+                }
+            }
+            return fBuffer;
+        }
+
+        /**
+         * Map the window and load it in memory
+         */
+        public void load() {
+            ByteBuffer buffer = getBuffer();
+            if (buffer instanceof MappedByteBuffer) {
+                ((MappedByteBuffer) buffer).load();
+            }
+        }
+    }
+}
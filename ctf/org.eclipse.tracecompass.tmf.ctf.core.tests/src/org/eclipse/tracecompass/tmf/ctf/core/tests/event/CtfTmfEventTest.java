@@ -17,9 +17,17 @@ package org.eclipse.tracecompass.tmf.ctf.core.tests.event;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.internal.tmf.ctf.core.trace.iterator.CtfIterator;
@@ -188,6 +196,32 @@ public class CtfTmfEventTest {
         assertEquals("pid=1922, start=0xb73ea000, end=0xb73ec000, flags=0x8000075, inode=917738, pgoff=0", s);
     }
 
+    /**
+     * Test that the content of an event read from several threads at once is
+     * the same for all of them, and is kept once it is built
+     *
+     * @throws InterruptedException
+     *             If the test is interrupted
+     * @throws ExecutionException
+     *             If reading the content failed
+     */
+    @Test
+    public void testConcurrentGetContent() throws InterruptedException, ExecutionException {
+        final int nbThreads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+        try {
+            Callable<String> task = () -> fixture.getContent().toString();
+            List<Future<String>> results = executor.invokeAll(Collections.nCopies(nbThreads, task));
+            for (Future<String> result : results) {
+                assertEquals("pid=1922, start=0xb73ea000, end=0xb73ec000, flags=0x8000075, inode=917738, pgoff=0", result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertSame(fixture.getContent(), fixture.getContent());
+        assertEquals(6, fixture.getType().getRootField().getFieldNames().size());
+    }
+
     /**
      * Test the {@link CtfTmfEventFactory#getNullEvent()} method, and
      * the nullEvent's values.
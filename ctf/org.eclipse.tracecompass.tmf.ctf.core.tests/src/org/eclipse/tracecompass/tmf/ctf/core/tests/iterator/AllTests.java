@@ -20,6 +20,7 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
+        CtfIteratorManagerTest.class,
         CtfIteratorTest.class
 })
 public class AllTests {
@@ -0,0 +1,247 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.ctf.core.tests.iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.internal.tmf.ctf.core.trace.iterator.CtfIterator;
+import org.eclipse.tracecompass.internal.tmf.ctf.core.trace.iterator.CtfIteratorManager;
+import org.eclipse.tracecompass.testtraces.ctf.CtfTestTrace;
+import org.eclipse.tracecompass.tmf.ctf.core.context.CtfLocationInfo;
+import org.eclipse.tracecompass.tmf.ctf.core.context.CtfTmfContext;
+import org.eclipse.tracecompass.tmf.ctf.core.event.CtfTmfEvent;
+import org.eclipse.tracecompass.tmf.ctf.core.tests.shared.CtfTmfTestTraceUtils;
+import org.eclipse.tracecompass.tmf.ctf.core.trace.CtfTmfTrace;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link CtfIteratorManager} class
+ */
+public class CtfIteratorManagerTest {
+
+    private static final @NonNull CtfTestTrace testTrace = CtfTestTrace.KERNEL;
+
+    private CtfTmfTrace fTrace;
+    private CtfIteratorManager fManager;
+
+    /**
+     * Perform pre-test initialization.
+     */
+    @Before
+    public void setUp() {
+        fTrace = CtfTmfTestTraceUtils.getTrace(testTrace);
+        fManager = new CtfIteratorManager(fTrace);
+    }
+
+    /**
+     * Perform post-test clean-up.
+     */
+    @After
+    public void tearDown() {
+        if (fManager != null) {
+            fManager.dispose();
+        }
+        if (fTrace != null) {
+            fTrace.dispose();
+        }
+    }
+
+    /**
+     * Test that a context keeps its iterator
+     */
+    @Test
+    public void testHit() {
+        CtfTmfContext context = new CtfTmfContext(fTrace);
+        CtfIterator iterator = fManager.getIterator(context);
+        assertNotNull(iterator);
+        assertSame(iterator, fManager.getIterator(context));
+        assertSame(iterator, fManager.getIterator(context));
+
+        assertEquals(2, fManager.getHitCount());
+        assertEquals(1, fManager.getMissCount());
+        assertEquals(1, fManager.getCreatedCount());
+        assertEquals(0, fManager.getEvictionCount());
+    }
+
+    /**
+     * Test that the iterator of a disposed context is given to the next
+     * context, at the location of that context
+     */
+    @Test
+    public void testReuse() {
+        CtfTmfContext context = new CtfTmfContext(fTrace);
+        CtfIterator iterator = fManager.getIterator(context);
+        CtfTmfEvent first = iterator.getCurrentEvent();
+        assertNotNull(first);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(iterator.advance());
+        }
+        long reused = fManager.getReusedCount();
+        long reseeks = fManager.getReseekCount();
+        fManager.removeIterator(context);
+        assertFalse(iterator.isClosed());
+
+        CtfTmfContext other = new CtfTmfContext(fTrace);
+        assertSame(iterator, fManager.getIterator(other));
+        CtfTmfEvent event = iterator.getCurrentEvent();
+        assertNotNull(event);
+        assertEquals(first.getTimestamp(), event.getTimestamp());
+
+        assertEquals(1, fManager.getCreatedCount());
+        assertEquals(reused + 1, fManager.getReusedCount());
+        assertEquals(reseeks + 1, fManager.getReseekCount());
+    }
+
+    /**
+     * Test that the iterator used the least recently is taken when the pool
+     * is full, and that the contexts still read the right events
+     */
+    @Test
+    public void testEviction() {
+        int capacity = fManager.getCapacity();
+        assertTrue(capacity > 0);
+        List<CtfTmfContext> contexts = new ArrayList<>();
+        List<CtfIterator> iterators = new ArrayList<>();
+        for (int i = 0; i < capacity; i++) {
+            CtfTmfContext context = new CtfTmfContext(fTrace);
+            contexts.add(context);
+            iterators.add(fManager.getIterator(context));
+        }
+        assertEquals(capacity, fManager.getCreatedCount());
+        assertEquals(0, fManager.getEvictionCount());
+
+        /* Use all the iterators except the first one */
+        for (int i = 1; i < capacity; i++) {
+            assertSame(iterators.get(i), fManager.getIterator(contexts.get(i)));
+        }
+
+        CtfTmfContext context = new CtfTmfContext(fTrace);
+        CtfIterator iterator = fManager.getIterator(context);
+        assertSame(iterators.get(0), iterator);
+        assertEquals(1, fManager.getEvictionCount());
+        assertEquals(capacity, fManager.getCreatedCount());
+
+        /* The first context gets the iterator used the least recently */
+        CtfIterator newIterator = fManager.getIterator(contexts.get(0));
+        assertNotSame(iterator, newIterator);
+        assertSame(iterators.get(1), newIterator);
+        assertEquals(2, fManager.getEvictionCount());
+        CtfTmfEvent event = newIterator.getCurrentEvent();
+        assertNotNull(event);
+        assertEquals(fTrace.getStartTime(), event.getTimestamp());
+    }
+
+    /**
+     * Test that an iterator is positioned for its new context without holding
+     * the lock of the manager: while the previous owner of an evicted iterator
+     * is still using it, other contexts can get their iterator.
+     *
+     * @throws Exception
+     *             If the test fails
+     */
+    @Test
+    public void testPositionOutsideLock() throws Exception {
+        int capacity = fManager.getCapacity();
+        List<CtfTmfContext> contexts = new ArrayList<>();
+        List<CtfIterator> iterators = new ArrayList<>();
+        for (int i = 0; i < capacity; i++) {
+            CtfTmfContext context = new CtfTmfContext(fTrace);
+            contexts.add(context);
+            iterators.add(fManager.getIterator(context));
+        }
+        /* Move the iterator that will be evicted away from the start */
+        CtfIterator busy = iterators.get(0);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(busy.advance());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            /* The previous owner is in the middle of an operation */
+            Future<?> owner = executor.submit(() -> {
+                synchronized (busy) {
+                    locked.countDown();
+                    release.await();
+                }
+                return null;
+            });
+            assertTrue(locked.await(10, TimeUnit.SECONDS));
+
+            /* This context takes the busy iterator, and waits to position it */
+            CtfTmfContext waiting = new CtfTmfContext(fTrace);
+            Future<CtfIterator> waitingIterator = executor.submit(() -> fManager.getIterator(waiting));
+            try {
+                waitingIterator.get(200, TimeUnit.MILLISECONDS);
+                fail("The iterator was positioned while it was in use");
+            } catch (TimeoutException e) {
+                /* Expected */
+            }
+            assertEquals(1, fManager.getEvictionCount());
+
+            /* Other contexts are not blocked meanwhile */
+            CtfTmfContext other = new CtfTmfContext(fTrace);
+            CtfIterator otherIterator = fManager.getIterator(other);
+            assertSame(iterators.get(1), otherIterator);
+            assertEquals(2, fManager.getEvictionCount());
+            assertSame(otherIterator, fManager.getIterator(other));
+
+            release.countDown();
+            owner.get(10, TimeUnit.SECONDS);
+            CtfIterator iterator = waitingIterator.get(10, TimeUnit.SECONDS);
+            assertSame(busy, iterator);
+            assertSame(waiting, iterator.getOwner());
+            CtfTmfEvent event = iterator.getCurrentEvent();
+            assertNotNull(event);
+            assertEquals(fTrace.getStartTime(), event.getTimestamp());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test that seeking to a location a few events ahead ends on the same
+     * event as seeking from the start of the trace
+     */
+    @Test
+    public void testSeekForward() {
+        try (CtfIterator iterator = (CtfIterator) fTrace.createIterator();
+                CtfIterator reference = (CtfIterator) fTrace.createIterator();) {
+            for (int i = 0; i < 50; i++) {
+                assertTrue(reference.advance());
+            }
+            CtfLocationInfo location = reference.getLocation().getLocationInfo();
+            assertTrue(iterator.seek(location));
+            assertEquals(location, iterator.getLocation().getLocationInfo());
+            assertEquals(reference.getCurrentEvent().getTimestamp(), iterator.getCurrentEvent().getTimestamp());
+            assertEquals(reference.getCurrentEvent().getName(), iterator.getCurrentEvent().getName());
+        }
+    }
+}
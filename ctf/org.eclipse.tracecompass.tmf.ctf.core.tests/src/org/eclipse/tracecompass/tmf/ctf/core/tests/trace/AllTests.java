@@ -20,6 +20,7 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
+        CtfTmfTraceTailingTest.class,
         CtfTmfTraceTest.class,
         CtfTmfTraceValidateTest.class,
         FunkyTraceTest.class
@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.ctf.core.tests.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.tracecompass.ctf.core.tests.shared.LttngKernelTraceGenerator;
+import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
+import org.eclipse.tracecompass.tmf.core.trace.location.ITmfLocation;
+import org.eclipse.tracecompass.tmf.ctf.core.event.CtfTmfEvent;
+import org.eclipse.tracecompass.tmf.ctf.core.trace.CtfTmfTrace;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.junit.rules.Timeout;
+
+/**
+ * Test tailing a {@link CtfTmfTrace} while its stream files are written
+ */
+public class CtfTmfTraceTailingTest {
+
+    /** Time-out tests after 20 seconds */
+    @Rule
+    public TestRule globalTimeout = new Timeout(20, TimeUnit.SECONDS);
+
+    private static final int NB_CHANNELS = 2;
+    private static final int NB_EVENTS = 1000;
+    private static final long DURATION = 500000000L;
+
+    /** Size of the packets written by {@link LttngKernelTraceGenerator} */
+    private static final int PACKET_SIZE = 4096;
+
+    /** Polling interval of the tailer, in milliseconds */
+    private static final long TAIL_INTERVAL = 50;
+
+    private Path fCompleteDir;
+    private Path fTailedDir;
+    private CtfTmfTrace fTrace;
+    private long fNbEvents;
+
+    /**
+     * Write a trace and count its events, and copy its metadata and the first
+     * packet of its stream files to the directory of the trace that is tailed
+     *
+     * @throws IOException
+     *             should not happen
+     * @throws TmfTraceException
+     *             should not happen
+     */
+    @Before
+    public void setUp() throws IOException, TmfTraceException {
+        fCompleteDir = Files.createTempDirectory("complete");
+        fTailedDir = Files.createTempDirectory("tailed");
+        new LttngKernelTraceGenerator(DURATION, NB_EVENTS, NB_CHANNELS).writeTrace(fCompleteDir.toFile());
+        CtfTmfTrace completeTrace = new CtfTmfTrace();
+        completeTrace.initTrace(null, fCompleteDir.toString(), CtfTmfEvent.class);
+        fNbEvents = countEvents(completeTrace);
+        completeTrace.dispose();
+
+        for (File file : fCompleteDir.toFile().listFiles()) {
+            byte[] content = Files.readAllBytes(file.toPath());
+            if (!file.getName().equals("metadata")) {
+                content = Arrays.copyOf(content, PACKET_SIZE);
+            }
+            Files.write(fTailedDir.resolve(file.getName()), content);
+        }
+        fTrace = new CtfTmfTrace();
+        fTrace.initTrace(null, fTailedDir.toString(), CtfTmfEvent.class);
+    }
+
+    /**
+     * Dispose the trace and delete the trace directories
+     */
+    @After
+    public void tearDown() {
+        fTrace.dispose();
+        for (Path dir : new Path[] { fCompleteDir, fTailedDir }) {
+            for (File file : dir.toFile().listFiles()) {
+                file.delete();
+            }
+            dir.toFile().delete();
+        }
+    }
+
+    /** Append the packets that were not copied to the tailed trace */
+    private void appendPackets() throws IOException {
+        for (File file : fCompleteDir.toFile().listFiles()) {
+            if (file.getName().equals("metadata")) {
+                continue;
+            }
+            byte[] content = Files.readAllBytes(file.toPath());
+            Files.write(fTailedDir.resolve(file.getName()), Arrays.copyOfRange(content, PACKET_SIZE, content.length),
+                    StandardOpenOption.APPEND);
+        }
+    }
+
+    private static long countEvents(CtfTmfTrace trace) {
+        ITmfContext context = trace.seekEvent((ITmfLocation) null);
+        long count = 0;
+        while (trace.getNext(context) != null) {
+            count++;
+        }
+        context.dispose();
+        return count;
+    }
+
+    /**
+     * Test that the packets appended while the trace is tailed are read, and
+     * that the trace is complete once the tailing is stopped
+     *
+     * @throws IOException
+     *             should not happen
+     * @throws InterruptedException
+     *             should not happen
+     */
+    @Test
+    public void testTailing() throws IOException, InterruptedException {
+        assertTrue(fTrace.isComplete());
+        long nbFirstEvents = countEvents(fTrace);
+        assertTrue(nbFirstEvents > 0);
+        assertTrue(nbFirstEvents < fNbEvents);
+
+        fTrace.startTailing(TAIL_INTERVAL);
+        assertTrue(fTrace.isTailing());
+        assertFalse(fTrace.isComplete());
+
+        appendPackets();
+        while (countEvents(fTrace) < fNbEvents) {
+            Thread.sleep(TAIL_INTERVAL);
+        }
+
+        fTrace.stopTailing();
+        assertFalse(fTrace.isTailing());
+        assertTrue(fTrace.isComplete());
+        assertEquals(fNbEvents, countEvents(fTrace));
+    }
+
+    /**
+     * Test that stopping the tailing adds what was written since the last
+     * refresh, even if the tailer did not see it yet
+     *
+     * @throws IOException
+     *             should not happen
+     */
+    @Test
+    public void testStopTailing() throws IOException {
+        fTrace.startTailing(TimeUnit.HOURS.toMillis(1));
+        appendPackets();
+        fTrace.stopTailing();
+        assertFalse(fTrace.isTailing());
+        assertTrue(fTrace.isComplete());
+        assertEquals(fNbEvents, countEvents(fTrace));
+    }
+
+    /**
+     * Test that a trace is not tailed without an interval, and that stopping
+     * the tailing of a trace that is not tailed does nothing
+     */
+    @Test
+    public void testNotTailing() {
+        fTrace.startTailing(0);
+        assertFalse(fTrace.isTailing());
+        assertTrue(fTrace.isComplete());
+
+        fTrace.stopTailing();
+        assertFalse(fTrace.isTailing());
+        assertTrue(fTrace.isComplete());
+    }
+}
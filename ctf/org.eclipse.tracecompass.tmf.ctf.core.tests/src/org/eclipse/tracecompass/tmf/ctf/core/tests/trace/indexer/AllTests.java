@@ -18,6 +18,7 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
         CtfExperimentCheckpointIndexTest.class,
+        CtfTmfTraceIndexerTest.class,
 })
 public class AllTests {
 
@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.ctf.core.tests.trace.indexer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.testtraces.ctf.CtfTestTrace;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.aspect.ITmfEventAspect;
+import org.eclipse.tracecompass.tmf.core.event.aspect.TmfCpuAspect;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.TmfEventAspectIndex;
+import org.eclipse.tracecompass.tmf.ctf.core.tests.shared.CtfTmfTestTraceUtils;
+import org.eclipse.tracecompass.tmf.ctf.core.trace.CtfTmfTrace;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test suite for the indexing of CTF traces from their stream files. The
+ * kernel trace has one stream per CPU, so the merge of the streams is
+ * exercised.
+ */
+public class CtfTmfTraceIndexerTest {
+
+    private static final @NonNull CtfTestTrace TEST_TRACE = CtfTestTrace.KERNEL;
+
+    private CtfTmfTrace fTrace;
+
+    /**
+     * Setup the test
+     */
+    @Before
+    public void setUp() {
+        fTrace = CtfTmfTestTraceUtils.getTrace(TEST_TRACE);
+        fTrace.indexTrace(true);
+    }
+
+    /**
+     * Tear down the test
+     */
+    @After
+    public void tearDown() {
+        File supplementaryFileDir = new File(TmfTraceManager.getSupplementaryFileDir(fTrace));
+        CtfTmfTestTraceUtils.dispose(TEST_TRACE);
+        if (supplementaryFileDir.exists()) {
+            for (File file : supplementaryFileDir.listFiles()) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Test the number of events and the time range found by the indexer
+     */
+    @Test
+    public void testTraceAttributes() {
+        assertEquals(TEST_TRACE.getNbEvents(), fTrace.getNbEvents());
+
+        ITmfContext context = fTrace.seekEvent(0);
+        ITmfEvent event = fTrace.getNext(context);
+        assertNotNull(event);
+        assertEquals(event.getTimestamp(), fTrace.getStartTime());
+        context.dispose();
+
+        context = fTrace.seekEvent(fTrace.getNbEvents() - 1);
+        event = fTrace.getNext(context);
+        assertNotNull(event);
+        assertEquals(event.getTimestamp(), fTrace.getEndTime());
+        assertEquals(null, fTrace.getNext(context));
+        context.dispose();
+    }
+
+    /**
+     * Test that seeking by rank, which goes through the checkpoints, gives the
+     * same events as reading the trace sequentially
+     */
+    @Test
+    public void testCheckpointRanks() {
+        List<ITmfEvent> expected = new ArrayList<>();
+        ITmfContext context = fTrace.seekEvent(0);
+        long rank = 0;
+        int interval = fTrace.getCacheSize();
+        ITmfEvent event = fTrace.getNext(context);
+        while (event != null) {
+            /* Check the event at a checkpoint and the one after it */
+            if (rank % interval <= 1) {
+                expected.add(event);
+            }
+            rank++;
+            event = fTrace.getNext(context);
+        }
+        context.dispose();
+
+        for (ITmfEvent expectedEvent : expected) {
+            context = fTrace.seekEvent(expectedEvent.getRank());
+            assertEquals(expectedEvent.getRank(), context.getRank());
+            event = fTrace.getNext(context);
+            assertNotNull(event);
+            assertEquals(expectedEvent.getTimestamp(), event.getTimestamp());
+            assertEquals(expectedEvent.getName(), event.getName());
+            assertEquals(expectedEvent.getContent(), event.getContent());
+            context.dispose();
+        }
+    }
+
+    /**
+     * Test that the ranks of the events with a given event type or CPU, which
+     * go through the event aspect index, are the same as when reading the
+     * trace sequentially
+     */
+    @Test
+    public void testEventRanks() {
+        ITmfEventAspect cpuAspect = null;
+        for (ITmfEventAspect aspect : fTrace.getEventAspects()) {
+            if (aspect instanceof TmfCpuAspect) {
+                cpuAspect = aspect;
+            }
+        }
+        assertNotNull(cpuAspect);
+        File indexFile = new File(TmfTraceManager.getSupplementaryFileDir(fTrace) + TmfEventAspectIndex.INDEX_FILE_NAME);
+        assertTrue(indexFile.isFile());
+
+        /* The ranks of every event type and of one CPU */
+        Integer cpu = 1;
+        Map<String, List<Long>> expectedTypeRanks = new HashMap<>();
+        List<Long> expectedCpuRanks = new ArrayList<>();
+        ITmfContext context = fTrace.seekEvent(0);
+        long rank = 0;
+        ITmfEvent event = fTrace.getNext(context);
+        while (event != null) {
+            List<Long> ranks = expectedTypeRanks.get(event.getName());
+            if (ranks == null) {
+                ranks = new ArrayList<>();
+                expectedTypeRanks.put(event.getName(), ranks);
+            }
+            ranks.add(rank);
+            if (cpu.equals(cpuAspect.resolve(event))) {
+                expectedCpuRanks.add(rank);
+            }
+            rank++;
+            event = fTrace.getNext(context);
+        }
+        context.dispose();
+
+        /* The rarest event type, which skips the most blocks */
+        String type = null;
+        for (Map.Entry<String, List<Long>> entry : expectedTypeRanks.entrySet()) {
+            if (type == null || entry.getValue().size() < expectedTypeRanks.get(type).size()) {
+                type = entry.getKey();
+            }
+        }
+        assertNotNull(type);
+
+        List<Long> typeRanks = new ArrayList<>();
+        for (Long typeRank : fTrace.getEventRanks(ITmfEventAspect.BaseAspects.EVENT_TYPE, type)) {
+            typeRanks.add(typeRank);
+        }
+        assertEquals(expectedTypeRanks.get(type), typeRanks);
+
+        List<Long> cpuRanks = new ArrayList<>();
+        for (Long cpuRank : fTrace.getEventRanks(cpuAspect, cpu)) {
+            cpuRanks.add(cpuRank);
+        }
+        assertEquals(expectedCpuRanks, cpuRanks);
+
+        /* The ranks from the middle of the trace, for a set of values */
+        long startRank = fTrace.getNbEvents() / 2;
+        Set<String> types = expectedTypeRanks.keySet();
+        List<Long> expectedRanks = new ArrayList<>();
+        for (long i = startRank; i < fTrace.getNbEvents(); i++) {
+            expectedRanks.add(i);
+        }
+        List<Long> typesRanks = new ArrayList<>();
+        for (Long typesRank : fTrace.getEventRanks(ITmfEventAspect.BaseAspects.EVENT_TYPE, types::contains, startRank)) {
+            typesRanks.add(typesRank);
+        }
+        assertEquals(expectedRanks, typesRanks);
+    }
+}
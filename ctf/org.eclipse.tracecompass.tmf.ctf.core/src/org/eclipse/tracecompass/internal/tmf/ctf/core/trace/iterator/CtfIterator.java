@@ -15,6 +15,9 @@ package org.eclipse.tracecompass.internal.tmf.ctf.core.trace.iterator;
 
 import static org.eclipse.tracecompass.common.core.NonNullUtils.equalsNullable;
 
+import java.util.Objects;
+import java.util.Set;
+
 import org.eclipse.tracecompass.ctf.core.CTFException;
 import org.eclipse.tracecompass.ctf.core.event.EventDefinition;
 import org.eclipse.tracecompass.ctf.core.trace.CTFStreamInputReader;
@@ -25,6 +28,7 @@ import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
 import org.eclipse.tracecompass.tmf.core.trace.location.ITmfLocation;
 import org.eclipse.tracecompass.tmf.ctf.core.context.CtfLocation;
 import org.eclipse.tracecompass.tmf.ctf.core.context.CtfLocationInfo;
+import org.eclipse.tracecompass.tmf.ctf.core.context.CtfTmfContext;
 import org.eclipse.tracecompass.tmf.ctf.core.event.CtfTmfEvent;
 import org.eclipse.tracecompass.tmf.ctf.core.trace.CtfTmfTrace;
 
@@ -42,6 +46,12 @@ public class CtfIterator extends CTFTraceReader
     /** An invalid location */
     public static final CtfLocation NULL_LOCATION = new CtfLocation(CtfLocation.INVALID_LOCATION);
 
+    /**
+     * Maximum number of events read to move forward to a location, before
+     * seeking through the packet index instead
+     */
+    private static final int MAX_FORWARD_EVENTS = 100;
+
     private final CtfTmfTrace fTrace;
 
     private CtfLocation fCurLocation;
@@ -50,6 +60,12 @@ public class CtfIterator extends CTFTraceReader
     private CtfLocation fPreviousLocation;
     private CtfTmfEvent fPreviousEvent;
 
+    /* The context this iterator is currently assigned to, if any */
+    private volatile CtfTmfContext fOwner;
+
+    /* When this iterator was last handed out by the iterator manager */
+    private volatile long fLastAccess;
+
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
@@ -126,6 +142,70 @@ public class CtfIterator extends CTFTraceReader
     // Accessors
     // ------------------------------------------------------------------------
 
+    /**
+     * Get the context this iterator is currently assigned to by the iterator
+     * manager. A context should only use the iterator while holding the
+     * iterator's lock and after checking it still owns it, since iterators
+     * can be reassigned to other contexts.
+     *
+     * @return The owner context, or null if the iterator is not assigned
+     */
+    public CtfTmfContext getOwner() {
+        return fOwner;
+    }
+
+    /**
+     * Assign this iterator to a context
+     *
+     * @param owner
+     *            The new owner context
+     */
+    void setOwner(CtfTmfContext owner) {
+        fOwner = owner;
+    }
+
+    /**
+     * Get when this iterator was last handed out by the iterator manager
+     *
+     * @return The access count of the iterator manager at that time
+     */
+    long getLastAccess() {
+        return fLastAccess;
+    }
+
+    /**
+     * Record that this iterator is being used
+     *
+     * @param access
+     *            The access count of the iterator manager
+     */
+    void touch(long access) {
+        fLastAccess = access;
+    }
+
+    /**
+     * Set the event types whose content is read. If event types that were
+     * skipped are now needed, the current events are read again.
+     *
+     * @param eventNames
+     *            The names of the event types, or null to read every event
+     *            completely
+     */
+    @Override
+    public synchronized void setEventProjection(Set<String> eventNames) {
+        Set<String> previous = getEventProjection();
+        if (Objects.equals(previous, eventNames)) {
+            return;
+        }
+        super.setEventProjection(eventNames);
+        if (previous != null && (eventNames == null || !previous.containsAll(eventNames)) && !fCurLocation.equals(NULL_LOCATION)) {
+            /* The current events may have been read without their content */
+            CtfLocationInfo location = fCurLocation.getLocationInfo();
+            fCurLocation = NULL_LOCATION;
+            seek(location);
+        }
+    }
+
     /**
      * Return this iterator's trace.
      *
@@ -189,6 +269,10 @@ public class CtfIterator extends CTFTraceReader
         if (fCurLocation.getLocationInfo().equals(ctfLocationData)) {
             return super.hasMoreEvents();
         }
+        /* A location a few events ahead is reached by reading them */
+        if (seekForward(ctfLocationData)) {
+            return true;
+        }
         /* Update location to make sure the current event is updated */
         fCurLocation = new CtfLocation(ctfLocationData);
 
@@ -235,6 +319,40 @@ public class CtfIterator extends CTFTraceReader
         return ret;
     }
 
+    /**
+     * Move forward to a location by reading events, if it is at most
+     * {@link #MAX_FORWARD_EVENTS} events after the current location. Reading
+     * a few events is cheaper than seeking every stream through its packet
+     * index, which is what makes reassigning an iterator to a context that
+     * is close to its location cheap.
+     *
+     * @return true if the location was reached, false if the iterator must
+     *         be seeked (it may have moved)
+     */
+    private boolean seekForward(CtfLocationInfo ctfLocationData) {
+        if (fCurLocation.equals(NULL_LOCATION) || fCurLocation.getLocationInfo().compareTo(ctfLocationData) > 0) {
+            return false;
+        }
+        for (int i = 0; i < MAX_FORWARD_EVENTS; i++) {
+            if (!advance()) {
+                return false;
+            }
+            int result = fCurLocation.getLocationInfo().compareTo(ctfLocationData);
+            if (result == 0) {
+                return true;
+            }
+            if (result > 0) {
+                /*
+                 * This is the first event after the timestamp, which is where
+                 * a seek to the timestamp ends. Other indexes are left to the
+                 * seek.
+                 */
+                return (ctfLocationData.getIndex() == 0);
+            }
+        }
+        return false;
+    }
+
     // ------------------------------------------------------------------------
     // CTFTraceReader
     // ------------------------------------------------------------------------
@@ -244,6 +362,22 @@ public class CtfIterator extends CTFTraceReader
         return seek(new CtfLocationInfo(timestamp, 0));
     }
 
+    /**
+     * Add the stream inputs and packets that were added to the trace since
+     * the iterator was created or last updated. If events were added before
+     * the current event, the iterator seeks its location again.
+     */
+    @Override
+    public synchronized void update() throws CTFException {
+        long timestamp = getCurrentTimestamp();
+        super.update();
+        if (!fCurLocation.equals(NULL_LOCATION) && getCurrentTimestamp() != timestamp) {
+            CtfLocationInfo location = fCurLocation.getLocationInfo();
+            fCurLocation = NULL_LOCATION;
+            seek(location);
+        }
+    }
+
     @Override
     public synchronized boolean advance() {
         boolean ret = false;
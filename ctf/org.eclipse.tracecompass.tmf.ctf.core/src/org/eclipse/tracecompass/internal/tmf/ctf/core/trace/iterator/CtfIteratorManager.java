@@ -12,17 +12,20 @@
 
 package org.eclipse.tracecompass.internal.tmf.ctf.core.trace.iterator;
 
-import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
-
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.eclipse.tracecompass.ctf.core.CTFException;
+import org.eclipse.tracecompass.ctf.core.trace.CTFStream;
 import org.eclipse.tracecompass.internal.tmf.ctf.core.Activator;
+import org.eclipse.tracecompass.tmf.ctf.core.context.CtfLocation;
 import org.eclipse.tracecompass.tmf.ctf.core.context.CtfLocationInfo;
 import org.eclipse.tracecompass.tmf.ctf.core.context.CtfTmfContext;
 import org.eclipse.tracecompass.tmf.ctf.core.trace.CtfTmfTrace;
@@ -34,20 +37,49 @@ import org.eclipse.tracecompass.tmf.ctf.core.trace.CtfTmfTrace;
  * manage the iterators that are opened to read that trace. This will allow
  * controlling the number of opened file handles per trace.
  *
+ * The iterators form a pool:
+ * <ul>
+ * <li>A context keeps its iterator until it is disposed, or until the pool is
+ * full and another context needs an iterator. The iterator used the least
+ * recently is then taken from its context.</li>
+ * <li>The iterator of a disposed context is kept idle, and handed to the next
+ * context that needs one, preferably the idle iterator that is the closest
+ * before the location of that context, since moving forward a few events is
+ * cheaper than seeking.</li>
+ * <li>The size of the pool depends on the number of stream files of the trace
+ * (each iterator opens all of them) and on the maximum heap size.</li>
+ * </ul>
+ *
  * @author Matthew Khouzam
  */
 public class CtfIteratorManager {
+
     /*
-     * Cache size. Under 1023 on linux32 systems. Number of file handles
+     * Maximum pool size. Under 1023 on linux32 systems. Number of file handles
      * created.
      */
     private static final int MAX_SIZE = 100;
 
-    /** The map of the cache */
+    /* Minimum pool size, so that a few readers don't steal each other's iterators */
+    private static final int MIN_SIZE = 4;
+
+    /* Number of file handles the iterators of one trace should hold at most */
+    private static final int FILE_HANDLE_BUDGET = 1000;
+
+    /* Estimated heap used by the reader of one stream file in an iterator */
+    private static final long STREAM_READER_MEMORY = 64 * 1024;
+
+    /* The iterators of one trace should use at most 1/32 of the heap */
+    private static final int HEAP_FRACTION = 32;
+
+    /**
+     * The map of the cache. Lookups are done without the lock, by the threads
+     * reading the contexts.
+     */
     private final Map<CtfTmfContext, CtfIterator> fMap;
 
-    /** An array pointing to the same cache. this allows fast "random" accesses */
-    private final List<CtfTmfContext> fRandomAccess;
+    /** The iterators that are not assigned to a context */
+    private final List<CtfIterator> fIdle;
 
     /** Lock for when we access the two previous data structures */
     private final Lock fAccessLock = new ReentrantLock();
@@ -55,8 +87,19 @@ public class CtfIteratorManager {
     /** The parent trace */
     private final CtfTmfTrace fTrace;
 
-    /** Random number generator */
-    private final Random fRnd;
+    /** The maximum number of iterators, computed with the first iterator */
+    private int fCapacity = 0;
+
+    /** Counts the accesses to the iterators, to find the least recent one */
+    private final AtomicLong fAccessCount = new AtomicLong();
+
+    /* Statistics */
+    private final LongAdder fHits = new LongAdder();
+    private final LongAdder fMisses = new LongAdder();
+    private final LongAdder fCreated = new LongAdder();
+    private final LongAdder fReused = new LongAdder();
+    private final LongAdder fEvictions = new LongAdder();
+    private final LongAdder fReseeks = new LongAdder();
 
     /**
      * Constructor
@@ -65,22 +108,16 @@ public class CtfIteratorManager {
      *            The trace whose iterators this manager will manage
      */
     public CtfIteratorManager(CtfTmfTrace trace) {
-        fMap = new HashMap<>();
-        fRandomAccess = new ArrayList<>();
-        fRnd = new Random(System.nanoTime());
+        fMap = new ConcurrentHashMap<>();
+        fIdle = new ArrayList<>();
         fTrace = trace;
     }
 
     /**
-     * This needs explaining: the iterator table is effectively a cache.
-     * Originally the contexts had a 1 to 1 structure with the file handles of a
-     * trace. This failed since there is a limit to how many file handles we can
-     * have opened simultaneously. Then a round-robin scheme was implemented,
-     * this lead up to a two competing contexts syncing up and using the same
-     * file handler, causing horrible slowdowns. Now a random replacement
-     * algorithm is selected. This is the same as used by arm processors, and it
-     * works quite well when many cores so this looks promising for very
-     * multi-threaded systems.
+     * Get the iterator of a context, assigning one to it if needed. The
+     * iterator is positioned at the location of the context when it is
+     * assigned. This is done after releasing the lock of the manager, so that
+     * other contexts can get their iterator in the meantime.
      *
      * @param context
      *            the context to look up
@@ -91,39 +128,69 @@ public class CtfIteratorManager {
          * if the element is in the map, we don't need to do anything else.
          */
         CtfIterator iter = fMap.get(context);
-        if (iter == null) {
+        if (iter != null) {
+            fHits.increment();
+            iter.touch(fAccessCount.incrementAndGet());
+            return iter;
+        }
 
-            fAccessLock.lock();
-            try {
-                /*
-                 * Assign an iterator to a context.
-                 */
-                if (fRandomAccess.size() < MAX_SIZE) {
-                    /*
-                     * if we're not full yet, just add an element.
-                     */
-                    iter = (CtfIterator) fTrace.createIterator();
-                    addElement(context, iter);
-
-                } else {
-                    /*
-                     * if we're full, randomly replace an element
-                     */
-                    iter = replaceRandomElement(context);
-                }
-                if (context.getLocation() != null) {
-                    final CtfLocationInfo location = (CtfLocationInfo) context.getLocation().getLocationInfo();
-                    iter.seek(location);
-                }
-            } finally {
-                fAccessLock.unlock();
+        final CtfLocationInfo location = (context.getLocation() == null ? null : (CtfLocationInfo) context.getLocation().getLocationInfo());
+        fAccessLock.lock();
+        try {
+            iter = fMap.get(context);
+            if (iter != null) {
+                fHits.increment();
+                iter.touch(fAccessCount.incrementAndGet());
+                return iter;
+            }
+            fMisses.increment();
+            final int capacity = getCapacity();
+            iter = takeIdleIterator(location);
+            if (iter != null) {
+                fReused.increment();
+            } else if (fMap.size() < capacity) {
+                iter = (CtfIterator) fTrace.createIterator();
+                fCreated.increment();
+            } else {
+                iter = evictLeastRecentlyUsed();
+                fEvictions.increment();
             }
+            fMap.put(context, iter);
+            iter.touch(fAccessCount.incrementAndGet());
+            iter.setOwner(context);
+        } finally {
+            fAccessLock.unlock();
         }
+        positionIterator(iter, context, location);
         return iter;
     }
 
     /**
-     * Remove an iterator from this manager
+     * Set up an iterator for the context it was just assigned to. The
+     * previous owner may still be using the iterator, taking the iterator's
+     * lock waits until it is done. The previous owner will see it lost the
+     * iterator and get a new one. If yet another context took the iterator in
+     * the meantime, it is left alone: the context will see it lost it too.
+     */
+    private void positionIterator(CtfIterator iter, CtfTmfContext context, CtfLocationInfo location) {
+        synchronized (iter) {
+            if (iter.getOwner() != context) {
+                return;
+            }
+            iter.setEventProjection(context.getEventProjection());
+            iter.setReadAhead(context.isReadAhead());
+            if (location != null) {
+                if (!location.equals(iter.getLocation().getLocationInfo())) {
+                    fReseeks.increment();
+                }
+                iter.seek(location);
+            }
+        }
+    }
+
+    /**
+     * Remove an iterator from this manager. The iterator is kept for another
+     * context.
      *
      * @param context
      *            The context of the iterator to remove
@@ -131,77 +198,222 @@ public class CtfIteratorManager {
     public void removeIterator(CtfTmfContext context) {
         fAccessLock.lock();
         try {
-            /* The try below is only to auto-call CtfIterator.close() */
-            try (CtfIterator removed = fMap.remove(context)) {
-                // try with resource
+            CtfIterator removed = fMap.remove(context);
+            if (removed == null) {
+                return;
+            }
+            removed.setOwner(null);
+            if (removed.isClosed() || fMap.size() + fIdle.size() >= getCapacity()) {
+                removed.dispose();
+            } else {
+                fIdle.add(removed);
             }
-            fRandomAccess.remove(context);
-
         } finally {
             fAccessLock.unlock();
         }
     }
 
     /**
-     * Add a pair of context and element to the hashmap and the arraylist.
+     * Take the idle iterator that is the closest before a location, or the
+     * one that has been idle the longest if none is before it.
      *
-     * @param context
-     *            the context
-     * @param elem
-     *            the iterator
+     * @return The iterator, or null if there are no idle iterators
+     */
+    private CtfIterator takeIdleIterator(CtfLocationInfo location) {
+        int best = -1;
+        CtfLocationInfo bestLocation = null;
+        for (int i = 0; i < fIdle.size(); i++) {
+            CtfLocation iterLocation = fIdle.get(i).getLocation();
+            if (location == null || iterLocation.equals(CtfIterator.NULL_LOCATION)) {
+                continue;
+            }
+            CtfLocationInfo iterLocationInfo = iterLocation.getLocationInfo();
+            if (iterLocationInfo.compareTo(location) <= 0 && (bestLocation == null || iterLocationInfo.compareTo(bestLocation) > 0)) {
+                best = i;
+                bestLocation = iterLocationInfo;
+            }
+        }
+        if (best < 0 && !fIdle.isEmpty()) {
+            best = 0;
+        }
+        while (best >= 0) {
+            CtfIterator iter = fIdle.remove(best);
+            if (!iter.isClosed()) {
+                return iter;
+            }
+            iter.dispose();
+            best = fIdle.isEmpty() ? -1 : 0;
+        }
+        return null;
+    }
+
+    /**
+     * Take the iterator that was used the least recently from its context
+     *
+     * @return the iterator of the removed element
      */
-    private void addElement(final CtfTmfContext context,
-            final CtfIterator elem) {
+    private CtfIterator evictLeastRecentlyUsed() {
+        Entry<CtfTmfContext, CtfIterator> victim = null;
+        for (Entry<CtfTmfContext, CtfIterator> entry : fMap.entrySet()) {
+            if (victim == null || entry.getValue().getLastAccess() < victim.getValue().getLastAccess()) {
+                victim = entry;
+            }
+        }
+        if (victim == null) {
+            /* Nothing to evict, can only happen if the capacity is 0 */
+            return (CtfIterator) fTrace.createIterator();
+        }
+        CtfIterator elem = victim.getValue();
+        fMap.remove(victim.getKey());
+        if (elem.isClosed()) {
+            /*
+             * In case the iterator streams have been closed, we need to
+             * replace it by a fresh new one to access the trace. We also
+             * report that as an error as it should not happen.
+             */
+            Activator.getDefault().logError("Found closed iterator in iterator manager for trace " + fTrace); //$NON-NLS-1$
+
+            elem.dispose();
+            elem = (CtfIterator) fTrace.createIterator();
+        }
+        return elem;
+    }
+
+    /**
+     * Get the maximum number of iterators of the trace. Each iterator opens
+     * every stream file of the trace, so the fewer iterators the more stream
+     * files. The first time, an iterator is created to count the stream files,
+     * and is kept for the first context.
+     *
+     * @return The maximum number of iterators
+     */
+    public int getCapacity() {
         fAccessLock.lock();
         try {
-            fMap.put(context, elem);
-            fRandomAccess.add(context);
-
+            if (fCapacity == 0) {
+                CtfIterator iter = fMap.isEmpty() ? null : fMap.values().iterator().next();
+                if (iter == null && fIdle.isEmpty()) {
+                    fIdle.add((CtfIterator) fTrace.createIterator());
+                    fCreated.increment();
+                }
+                if (iter == null) {
+                    iter = fIdle.get(0);
+                }
+                int nbStreamFiles = 0;
+                for (CTFStream stream : iter.getTrace().getStreams()) {
+                    nbStreamFiles += stream.getStreamInputs().size();
+                }
+                nbStreamFiles = Math.max(nbStreamFiles, 1);
+                long byHandles = FILE_HANDLE_BUDGET / nbStreamFiles;
+                long byMemory = Runtime.getRuntime().maxMemory() / HEAP_FRACTION / (STREAM_READER_MEMORY * nbStreamFiles);
+                fCapacity = (int) Math.max(MIN_SIZE, Math.min(MAX_SIZE, Math.min(byHandles, byMemory)));
+            }
+            return fCapacity;
         } finally {
             fAccessLock.unlock();
         }
     }
 
     /**
-     * Replace a random element
+     * Get the number of times a context found its iterator
      *
-     * @param context
-     *            the context to swap in
-     * @return the iterator of the removed elements.
+     * @return The number of hits
      */
-    private CtfIterator replaceRandomElement(final CtfTmfContext context) {
-        /*
-         * This needs some explanation too: We need to select a random victim
-         * and remove it. The order of the elements is not important, so instead
-         * of just calling arraylist.remove(element) which has an O(n)
-         * complexity, we pick an random number. The element is swapped out of
-         * the array and removed and replaced in the hashmap.
-         */
-        fAccessLock.lock(); // just in case, should only be called when already locked
-        try {
-            final int size = fRandomAccess.size();
-            final int pos = fRnd.nextInt(size);
-            final CtfTmfContext victim = fRandomAccess.get(pos);
-            fRandomAccess.set(pos, context);
-            CtfIterator elem = checkNotNull(fMap.remove(victim));
-            if (elem.isClosed()) {
-                /*
-                 * In case the iterator streams have been closed, we need to
-                 * replace it by a fresh new one to access the trace. We also
-                 * report that as an error as it should not happen.
-                 */
-                Activator.getDefault().logError("Found closed iterator in iterator manager for trace " + victim.getTrace()); //$NON-NLS-1$
-
-                elem.dispose();
-                elem = (CtfIterator) fTrace.createIterator();
-            }
-            fMap.put(context, elem);
-            victim.dispose();
-            return elem;
+    public long getHitCount() {
+        return fHits.sum();
+    }
+
+    /**
+     * Get the number of times a context needed an iterator, because it had
+     * none yet or its iterator was taken by another context
+     *
+     * @return The number of misses
+     */
+    public long getMissCount() {
+        return fMisses.sum();
+    }
+
+    /**
+     * Get the number of iterators created
+     *
+     * @return The number of iterators created
+     */
+    public long getCreatedCount() {
+        return fCreated.sum();
+    }
+
+    /**
+     * Get the number of times an idle iterator was assigned to a context
+     *
+     * @return The number of reused iterators
+     */
+    public long getReusedCount() {
+        return fReused.sum();
+    }
+
+    /**
+     * Get the number of times an iterator was taken from a context for
+     * another one
+     *
+     * @return The number of evictions
+     */
+    public long getEvictionCount() {
+        return fEvictions.sum();
+    }
 
+    /**
+     * Get the number of times an iterator had to be moved to the location of
+     * the context it was assigned to
+     *
+     * @return The number of re-seeks
+     */
+    public long getReseekCount() {
+        return fReseeks.sum();
+    }
+
+    @Override
+    @SuppressWarnings("nls")
+    public String toString() {
+        return "CtfIteratorManager [capacity=" + getCapacity() + ", hits=" + getHitCount() + ", misses=" + getMissCount()
+                + ", created=" + getCreatedCount() + ", reused=" + getReusedCount() + ", evictions=" + getEvictionCount()
+                + ", reseeks=" + getReseekCount() + "]";
+    }
+
+    /**
+     * Update the iterators with the stream inputs and packets that were added
+     * to the trace, when it is refreshed while it is being written.
+     */
+    public void update() {
+        List<CtfIterator> iterators;
+        fAccessLock.lock();
+        try {
+            iterators = new ArrayList<>(fMap.values());
+            iterators.addAll(fIdle);
         } finally {
             fAccessLock.unlock();
         }
+        /*
+         * Updating an iterator reads the new packets, the contexts must be
+         * able to get their iterator in the meantime. Each iterator is
+         * updated under its own lock, like its reads, and skipped if it was
+         * disposed since.
+         */
+        for (CtfIterator iterator : iterators) {
+            update(iterator);
+        }
+    }
+
+    private static void update(CtfIterator iterator) {
+        synchronized (iterator) {
+            if (iterator.isClosed()) {
+                return;
+            }
+            try {
+                iterator.update();
+            } catch (CTFException e) {
+                Activator.getDefault().logError(e.getMessage(), e);
+            }
+        }
     }
 
     /**
@@ -214,11 +426,14 @@ public class CtfIteratorManager {
             for (CtfIterator iterator : fMap.values()) {
                 iterator.dispose();
             }
+            for (CtfIterator iterator : fIdle) {
+                iterator.dispose();
+            }
             fMap.clear();
-            fRandomAccess.clear();
+            fIdle.clear();
 
         } finally {
             fAccessLock.unlock();
         }
     }
-}
\ No newline at end of file
+}
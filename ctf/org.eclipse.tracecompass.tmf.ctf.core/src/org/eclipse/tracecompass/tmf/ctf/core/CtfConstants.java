@@ -54,4 +54,12 @@ public interface CtfConstants {
      * The live session name persistent property.
      */
     QualifiedName LIVE_SESSION_NAME = new QualifiedName("org.eclipse.linuxtools.tmf.ctf.core", "live.session.name"); //$NON-NLS-1$//$NON-NLS-2$;
+
+    /**
+     * The polling interval persistent property, in milliseconds, of a trace
+     * that is tailed while it is being written to disk.
+     *
+     * @since 2.0
+     */
+    QualifiedName TAIL_INTERVAL = new QualifiedName("org.eclipse.linuxtools.tmf.ctf.core", "tail.interval"); //$NON-NLS-1$//$NON-NLS-2$
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2012, 2014 Ericsson
+ * Copyright (c) 2012, 2015 Ericsson
  *
  * All rights reserved. This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License v1.0 which
@@ -13,6 +13,9 @@
 
 package org.eclipse.tracecompass.tmf.ctf.core.context;
 
+import java.util.Set;
+import java.util.function.Function;
+
 import org.eclipse.tracecompass.internal.tmf.ctf.core.trace.iterator.CtfIterator;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
 import org.eclipse.tracecompass.tmf.core.trace.location.ITmfLocation;
@@ -27,6 +30,12 @@ import org.eclipse.tracecompass.tmf.ctf.core.trace.CtfTmfTrace;
  */
 public class CtfTmfContext implements ITmfContext {
 
+    /**
+     * Number of times the context tries to get an iterator from the pool of
+     * the trace, before falling back to an iterator of its own
+     */
+    private static final int MAX_POOLED_ATTEMPTS = 4;
+
     // -------------------------------------------
     // Fields
     // -------------------------------------------
@@ -36,6 +45,16 @@ public class CtfTmfContext implements ITmfContext {
 
     private final CtfTmfTrace fTrace;
 
+    private volatile Set<String> fEventProjection = null;
+
+    private volatile boolean fReadAhead = false;
+
+    /**
+     * Iterator used instead of the pooled ones once this context kept losing
+     * them to other contexts
+     */
+    private CtfIterator fDedicatedIterator = null;
+
     // -------------------------------------------
     // Constructor
     // -------------------------------------------
@@ -77,9 +96,10 @@ public class CtfTmfContext implements ITmfContext {
             if (location.getLocationInfo().equals(CtfLocation.INVALID_LOCATION)) {
                 fCurLocation = ctfLocation;
             } else {
-                CtfIterator iterator = getIterator();
-                iterator.seek(ctfLocation.getLocationInfo());
-                fCurLocation = iterator.getLocation();
+                fCurLocation = withIterator(iterator -> {
+                    iterator.seek(ctfLocation.getLocationInfo());
+                    return iterator.getLocation();
+                });
             }
         } else {
             fCurLocation = null;
@@ -118,7 +138,7 @@ public class CtfTmfContext implements ITmfContext {
      * @return The event or null
      */
     public synchronized CtfTmfEvent getCurrentEvent() {
-        return getIterator().getCurrentEvent();
+        return withIterator(iterator -> iterator.getCurrentEvent());
     }
 
     /**
@@ -128,27 +148,34 @@ public class CtfTmfContext implements ITmfContext {
      */
     public synchronized boolean advance() {
         final CtfLocationInfo curLocationData = fCurLocation.getLocationInfo();
-        CtfIterator iterator = getIterator();
-        boolean retVal = iterator.advance();
-        CtfTmfEvent currentEvent = iterator.getCurrentEvent();
-
-        if (currentEvent != null) {
-            final long timestampValue = iterator.getCurrentTimestamp();
-            if (curLocationData.getTimestamp() == timestampValue) {
-                fCurLocation = new CtfLocation(timestampValue, curLocationData.getIndex() + 1);
+        return withIterator(iterator -> {
+            boolean retVal = iterator.advance();
+            CtfTmfEvent currentEvent = iterator.getCurrentEvent();
+
+            if (currentEvent != null) {
+                final long timestampValue = iterator.getCurrentTimestamp();
+                if (curLocationData.getTimestamp() == timestampValue) {
+                    fCurLocation = new CtfLocation(timestampValue, curLocationData.getIndex() + 1);
+                } else {
+                    fCurLocation = new CtfLocation(timestampValue, 0L);
+                }
             } else {
-                fCurLocation = new CtfLocation(timestampValue, 0L);
+                fCurLocation = new CtfLocation(CtfLocation.INVALID_LOCATION);
             }
-        } else {
-            fCurLocation = new CtfLocation(CtfLocation.INVALID_LOCATION);
-        }
 
-        return retVal;
+            return retVal;
+        });
     }
 
     @Override
     public void dispose() {
         fTrace.disposeContext(this);
+        synchronized (this) {
+            if (fDedicatedIterator != null) {
+                fDedicatedIterator.dispose();
+                fDedicatedIterator = null;
+            }
+        }
     }
 
     /**
@@ -159,10 +186,11 @@ public class CtfTmfContext implements ITmfContext {
      * @return success or not
      */
     public synchronized boolean seek(final long timestamp) {
-        CtfIterator iterator = getIterator();
-        boolean ret = iterator.seek(timestamp);
-        fCurLocation = iterator.getLocation();
-        return ret;
+        return withIterator(iterator -> {
+            boolean ret = iterator.seek(timestamp);
+            fCurLocation = iterator.getLocation();
+            return ret;
+        });
     }
 
     /**
@@ -174,7 +202,63 @@ public class CtfTmfContext implements ITmfContext {
      */
     public synchronized boolean seek(final CtfLocationInfo location) {
         fCurLocation = new CtfLocation(location);
-        return getIterator().seek(location);
+        return withIterator(iterator -> iterator.seek(location));
+    }
+
+    /**
+     * Set the event types whose content is read through this context. The
+     * events of the other types are still read, but may have no content.
+     *
+     * @param eventNames
+     *            The names of the event types, or null to read the content of
+     *            every event
+     * @since 2.0
+     */
+    public synchronized void setEventProjection(Set<String> eventNames) {
+        fEventProjection = eventNames;
+        withIterator(iterator -> {
+            iterator.setEventProjection(eventNames);
+            return null;
+        });
+    }
+
+    /**
+     * Get the event types whose content is read through this context
+     *
+     * @return The names of the event types, or null if the content of every
+     *         event is read
+     * @since 2.0
+     */
+    public Set<String> getEventProjection() {
+        return fEventProjection;
+    }
+
+    /**
+     * Set whether the streams of the trace are decoded ahead, on worker
+     * threads, when read through this context. This is worth it for contexts
+     * that read many events.
+     *
+     * @param readAhead
+     *            Whether the streams are decoded ahead
+     * @since 2.0
+     */
+    public synchronized void setReadAhead(boolean readAhead) {
+        fReadAhead = readAhead;
+        withIterator(iterator -> {
+            iterator.setReadAhead(readAhead);
+            return null;
+        });
+    }
+
+    /**
+     * Get whether the streams of the trace are decoded ahead when read
+     * through this context
+     *
+     * @return Whether the streams are decoded ahead
+     * @since 2.0
+     */
+    public boolean isReadAhead() {
+        return fReadAhead;
     }
 
     // -------------------------------------------
@@ -190,4 +274,55 @@ public class CtfTmfContext implements ITmfContext {
     private CtfIterator getIterator() {
         return (CtfIterator) fTrace.createIteratorFromContext(this);
     }
+
+    /**
+     * Run an operation on the iterator of this context. Iterators are shared
+     * between the contexts of a trace, and can be reassigned to another
+     * context at any time by another thread. The operation is done while
+     * holding the iterator's lock, once it is confirmed the iterator still
+     * belongs to this context, so that the iterator cannot be moved in the
+     * middle of it.
+     *
+     * If the iterator keeps being reassigned before the operation can run
+     * (more contexts are in use than the pool can hold), the context stops
+     * using the pool and gets an iterator of its own, which is kept until the
+     * context is disposed.
+     *
+     * @param operation
+     *            The operation to run on the iterator
+     * @return The result of the operation
+     */
+    private synchronized <T> T withIterator(Function<CtfIterator, T> operation) {
+        if (fDedicatedIterator == null) {
+            for (int i = 0; i < MAX_POOLED_ATTEMPTS; i++) {
+                CtfIterator iterator = getIterator();
+                synchronized (iterator) {
+                    if (iterator.getOwner() == this) {
+                        return operation.apply(iterator);
+                    }
+                }
+                Thread.yield();
+            }
+            fTrace.disposeContext(this);
+            fDedicatedIterator = createDedicatedIterator();
+        }
+        synchronized (fDedicatedIterator) {
+            return operation.apply(fDedicatedIterator);
+        }
+    }
+
+    /**
+     * Create an iterator outside of the pool of the trace, set up like the
+     * pooled ones and positioned at the location of this context
+     */
+    private CtfIterator createDedicatedIterator() {
+        CtfIterator iterator = (CtfIterator) fTrace.createIterator();
+        iterator.setEventProjection(fEventProjection);
+        iterator.setReadAhead(fReadAhead);
+        CtfLocation location = fCurLocation;
+        if (location != null && !location.getLocationInfo().equals(CtfLocation.INVALID_LOCATION)) {
+            iterator.seek(location.getLocationInfo());
+        }
+        return iterator;
+    }
 }
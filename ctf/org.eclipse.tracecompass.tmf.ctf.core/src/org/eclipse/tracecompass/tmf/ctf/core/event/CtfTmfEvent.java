@@ -31,7 +31,9 @@ import org.eclipse.tracecompass.tmf.core.event.ITmfEventField;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEventType;
 import org.eclipse.tracecompass.tmf.core.event.TmfEvent;
 import org.eclipse.tracecompass.tmf.core.event.TmfEventField;
+import org.eclipse.tracecompass.tmf.core.event.TmfEventTypeIds;
 import org.eclipse.tracecompass.tmf.core.event.lookup.ITmfModelLookup;
+import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfNanoTimestamp;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
 import org.eclipse.tracecompass.tmf.ctf.core.CtfConstants;
@@ -60,7 +62,12 @@ public class CtfTmfEvent extends TmfEvent
     // ------------------------------------------------------------------------
 
     private final @Nullable IEventDeclaration fEventDeclaration;
-    private final EventDefinition fEvent;
+
+    /**
+     * The CTF definition of the event, released once the content is built
+     * from it, so that an event kept in memory does not hold both
+     */
+    private volatile @Nullable EventDefinition fEvent;
 
     // ------------------------------------------------------------------------
     // Attributes
@@ -70,14 +77,27 @@ public class CtfTmfEvent extends TmfEvent
     private final int fSourceCpu;
     private final String fChannel;
 
-    /** Field to override {@link TmfEvent#getName()}, to bypass the type-getting */
-    private final String fEventName;
+    /** Type id of this event, resolved from its declaration */
+    private final int fTypeId;
+
+    /**
+     * Whether the contexts and fields of this event were skipped by the
+     * stream reader, for a request that does not read the content of this
+     * event type (see {@link ITmfEventRequest#getEventTypeProjection()})
+     */
+    private final boolean fContentSkipped;
+
+    /*
+     * The lazy-loaded fields are not guarded by a lock: they are immutable, so
+     * two threads building them at the same time get equal values, and either
+     * one can be kept.
+     */
 
     /** Lazy-loaded field containing the event's payload */
-    private transient @Nullable ITmfEventField fContent;
+    private transient volatile @Nullable ITmfEventField fContent;
 
     /** Lazy-loaded field for the type, overriding TmfEvent's field */
-    private transient @Nullable CtfTmfEventType fEventType;
+    private transient volatile @Nullable CtfTmfEventType fEventType;
 
     // ------------------------------------------------------------------------
     // Constructors
@@ -129,9 +149,10 @@ public class CtfTmfEvent extends TmfEvent
 
         fEventDeclaration = declaration;
         fSourceCpu = cpu;
-        fEventName = checkNotNull(declaration.getName());
+        fTypeId = trace.getEventTypeId(declaration);
         fEvent = eventDefinition;
         fChannel = channel;
+        fContentSkipped = (eventDefinition.getFields() == null && eventDefinition.getContext() == null);
     }
 
     /**
@@ -152,10 +173,11 @@ public class CtfTmfEvent extends TmfEvent
                 null,
                 new TmfEventField("", null, new CtfTmfEventField[0])); //$NON-NLS-1$
         fSourceCpu = -1;
-        fEventName = EMPTY_CTF_EVENT_NAME;
+        fTypeId = TmfEventTypeIds.getId(EMPTY_CTF_EVENT_NAME);
         fEventDeclaration = null;
         fEvent = EventDefinition.NULL_EVENT;
         fChannel = ""; //$NON-NLS-1$
+        fContentSkipped = false;
     }
 
     /**
@@ -169,10 +191,11 @@ public class CtfTmfEvent extends TmfEvent
     public CtfTmfEvent() {
         super();
         fSourceCpu = -1;
-        fEventName = EMPTY_CTF_EVENT_NAME;
+        fTypeId = TmfEventTypeIds.getId(EMPTY_CTF_EVENT_NAME);
         fEventDeclaration = null;
         fEvent = EventDefinition.NULL_EVENT;
         fChannel = ""; //$NON-NLS-1$
+        fContentSkipped = false;
     }
 
     // ------------------------------------------------------------------------
@@ -223,16 +246,19 @@ public class CtfTmfEvent extends TmfEvent
     }
 
     @Override
-    public synchronized ITmfEventType getType() {
+    public ITmfEventType getType() {
         CtfTmfEventType type = fEventType;
         if (type == null) {
-            type = new CtfTmfEventType(fEventName, getContent());
+            type = new CtfTmfEventType(getName(), getContent());
 
             /*
              * Register the event type in the owning trace, but only if there is
-             * one
+             * one. The type of an event whose content was skipped has no
+             * fields, it must not replace the full type of the trace.
              */
-            getTrace().registerEventType(type);
+            if (!fContentSkipped) {
+                getTrace().registerEventType(type);
+            }
             fEventType = type;
         }
         return type;
@@ -240,16 +266,34 @@ public class CtfTmfEvent extends TmfEvent
 
     @Override
     public String getName() {
-        return fEventName;
+        IEventDeclaration declaration = fEventDeclaration;
+        if (declaration == null) {
+            return EMPTY_CTF_EVENT_NAME;
+        }
+        return checkNotNull(declaration.getName());
     }
 
+    /**
+     * @since 2.0
+     */
     @Override
-    public synchronized ITmfEventField getContent() {
+    public int getTypeId() {
+        return fTypeId;
+    }
+
+    @Override
+    public ITmfEventField getContent() {
         ITmfEventField content = fContent;
         if (content == null) {
+            EventDefinition event = fEvent;
+            if (event == null) {
+                /* Another thread built the content and released the definition */
+                return checkNotNull(fContent);
+            }
             content = new TmfEventField(
-                    ITmfEventField.ROOT_FIELD_ID, null, parseFields(fEvent));
+                    ITmfEventField.ROOT_FIELD_ID, null, parseFields(event));
             fContent = content;
+            fEvent = null;
         }
         return content;
     }
@@ -16,8 +16,15 @@ package org.eclipse.tracecompass.tmf.ctf.core.trace;
 
 import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 
+import java.io.File;
+import java.io.IOException;
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.nio.file.FileSystems;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -25,17 +32,22 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.ctf.core.CTFException;
 import org.eclipse.tracecompass.ctf.core.event.CTFClock;
 import org.eclipse.tracecompass.ctf.core.event.IEventDeclaration;
 import org.eclipse.tracecompass.ctf.core.event.types.StructDeclaration;
+import org.eclipse.tracecompass.ctf.core.trace.CTFStream;
 import org.eclipse.tracecompass.ctf.core.trace.CTFTrace;
 import org.eclipse.tracecompass.ctf.core.trace.CTFTraceReader;
 import org.eclipse.tracecompass.ctf.core.trace.Metadata;
@@ -45,19 +57,24 @@ import org.eclipse.tracecompass.internal.tmf.ctf.core.trace.iterator.CtfIterator
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEventField;
 import org.eclipse.tracecompass.tmf.core.event.TmfEventField;
+import org.eclipse.tracecompass.tmf.core.event.TmfEventTypeIds;
 import org.eclipse.tracecompass.tmf.core.event.aspect.ITmfEventAspect;
 import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
+import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest;
+import org.eclipse.tracecompass.tmf.core.signal.TmfTraceRangeUpdatedSignal;
 import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfNanoTimestamp;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTraceProperties;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTraceWithPreDefinedEvents;
 import org.eclipse.tracecompass.tmf.core.trace.TmfTrace;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
 import org.eclipse.tracecompass.tmf.core.trace.TraceValidationStatus;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfEventAspectIndexable;
 import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfPersistentlyIndexable;
 import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfTraceIndexer;
-import org.eclipse.tracecompass.tmf.core.trace.indexer.TmfBTreeTraceIndexer;
 import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.ITmfCheckpoint;
 import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.TmfCheckpoint;
 import org.eclipse.tracecompass.tmf.core.trace.location.ITmfLocation;
@@ -82,7 +99,7 @@ import com.google.common.collect.ImmutableSet;
  */
 public class CtfTmfTrace extends TmfTrace
         implements ITmfTraceProperties, ITmfPersistentlyIndexable,
-        ITmfTraceWithPreDefinedEvents {
+        ITmfTraceWithPreDefinedEvents, ITmfEventAspectIndexable {
 
     // -------------------------------------------
     // Constants
@@ -93,6 +110,9 @@ public class CtfTmfTrace extends TmfTrace
      */
     protected static final int DEFAULT_CACHE_SIZE = 50000;
 
+    /** The CPU aspect, also indexed */
+    private static final @NonNull ITmfEventAspect CPU_ASPECT = new CtfCpuAspect();
+
     /**
      * Event aspects available for all CTF traces
      * @since 1.0
@@ -101,7 +121,7 @@ public class CtfTmfTrace extends TmfTrace
             checkNotNull(ImmutableList.of(
                     ITmfEventAspect.BaseAspects.TIMESTAMP,
                     new CtfChannelAspect(),
-                    new CtfCpuAspect(),
+                    CPU_ASPECT,
                     ITmfEventAspect.BaseAspects.EVENT_TYPE,
                     ITmfEventAspect.BaseAspects.CONTENTS
                     ));
@@ -113,6 +133,21 @@ public class CtfTmfTrace extends TmfTrace
     private static final int CONFIDENCE = 10;
     private static final int MIN_CONFIDENCE = 1;
 
+    /**
+     * Requests for at least this many events have the streams of the trace
+     * decoded ahead, on worker threads
+     */
+    private static final int READ_AHEAD_MIN_EVENTS = 1000;
+
+    /**
+     * Streams with a higher ID than this do not get their event type ids
+     * cached, to keep the lookup tables small.
+     */
+    private static final int MAX_INDEXED_STREAM_ID = 1024;
+
+    /** Name of the supplementary file holding the packet index of the trace */
+    private static final String PACKET_INDEX_FILE_NAME = "packet_index.idx"; //$NON-NLS-1$
+
     // -------------------------------------------
     // Fields
     // -------------------------------------------
@@ -128,6 +163,32 @@ public class CtfTmfTrace extends TmfTrace
     /** Reference to the CTF Trace */
     private CTFTrace fTrace;
 
+    /** The job indexing the packets that were not in the saved packet index */
+    private volatile Job fPacketIndexJob = null;
+
+    /** The thread following the trace while it is written, if it is tailed */
+    private volatile Tailer fTailer = null;
+
+    /**
+     * Event declarations of the trace and their type ids, replaced as a whole
+     * when the metadata of a tailed trace grows
+     */
+    private volatile EventTypeIds fEventTypeIds = new EventTypeIds(new IEventDeclaration[0][], new int[0][]);
+
+    /**
+     * Event declarations and their type ids, indexed by stream ID then by
+     * event ID
+     */
+    private static final class EventTypeIds {
+        private final IEventDeclaration[][] fDeclarations;
+        private final int[][] fTypeIds;
+
+        public EventTypeIds(IEventDeclaration[][] declarations, int[][] typeIds) {
+            fDeclarations = declarations;
+            fTypeIds = typeIds;
+        }
+    }
+
     // -------------------------------------------
     // Constructor
     // -------------------------------------------
@@ -182,6 +243,8 @@ public class CtfTmfTrace extends TmfTrace
 
         try {
             this.fTrace = new CTFTrace(path);
+            readPacketIndex(fTrace);
+            buildEventTypeIds(fTrace);
             CtfTmfContext ctx;
             /* Set the start and (current) end times for this trace */
             ctx = (CtfTmfContext) seekEvent(0L);
@@ -199,28 +262,14 @@ public class CtfTmfTrace extends TmfTrace
              * register a trace to that type in the TmfEventTypeManager
              */
             try (CtfIterator iter = fIteratorManager.getIterator(ctx)) {
-                for (IEventDeclaration ied : iter.getEventDeclarations()) {
-                    CtfTmfEventType ctfTmfEventType = fContainedEventTypes.get(ied.getName());
-                    if (ctfTmfEventType == null) {
-                        List<ITmfEventField> content = new ArrayList<>();
-                        /* Should only return null the first time */
-                        final StructDeclaration fields = ied.getFields();
-                        if (fields != null) {
-                            for (String fieldName : fields.getFieldsList()) {
-                                content.add(new TmfEventField(checkNotNull(fieldName), null, null));
-                            }
-                            ITmfEventField contentTree = new TmfEventField(
-                                    ITmfEventField.ROOT_FIELD_ID,
-                                    null,
-                                    content.toArray(new ITmfEventField[content.size()]));
-
-                            ctfTmfEventType = new CtfTmfEventType(ied.getName(), contentTree);
-                            fContainedEventTypes.put(ctfTmfEventType.getName(), ctfTmfEventType);
-                        }
-                    }
-                }
+                registerEventTypes(iter.getEventDeclarations());
             }
             ctx.dispose();
+
+            long tailInterval = getTailInterval();
+            if (tailInterval > 0) {
+                startTailing(tailInterval);
+            }
         } catch (final CTFException e) {
             /*
              * If it failed at the init(), we can assume it's because the file
@@ -231,8 +280,67 @@ public class CtfTmfTrace extends TmfTrace
         }
     }
 
+    private void registerEventTypes(Iterable<IEventDeclaration> declarations) {
+        for (IEventDeclaration ied : declarations) {
+            CtfTmfEventType ctfTmfEventType = fContainedEventTypes.get(ied.getName());
+            if (ctfTmfEventType == null) {
+                List<ITmfEventField> content = new ArrayList<>();
+                /* Should only return null the first time */
+                final StructDeclaration fields = ied.getFields();
+                if (fields != null) {
+                    for (String fieldName : fields.getFieldsList()) {
+                        content.add(new TmfEventField(checkNotNull(fieldName), null, null));
+                    }
+                    ITmfEventField contentTree = new TmfEventField(
+                            ITmfEventField.ROOT_FIELD_ID,
+                            null,
+                            content.toArray(new ITmfEventField[content.size()]));
+
+                    ctfTmfEventType = new CtfTmfEventType(ied.getName(), contentTree);
+                    fContainedEventTypes.put(ctfTmfEventType.getName(), ctfTmfEventType);
+                }
+            }
+        }
+    }
+
+    /**
+     * Restore the packet index saved in the supplementary files when the trace
+     * was last opened. The packets of the stream files that changed or were
+     * never indexed are indexed by a background job, which then saves the
+     * packet index, so opening the trace does not wait for them.
+     */
+    private void readPacketIndex(final CTFTrace trace) {
+        final File indexFile = new File(TmfTraceManager.getSupplementaryFileDir(this), PACKET_INDEX_FILE_NAME);
+        if (trace.readPacketIndex(indexFile)) {
+            return;
+        }
+        Job job = new Job("Indexing the packets of " + getName()) { //$NON-NLS-1$
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                try {
+                    trace.indexPackets(indexFile);
+                } catch (CTFException e) {
+                    Activator.getDefault().logWarning(e.getMessage(), e);
+                }
+                return Status.OK_STATUS;
+            }
+        };
+        job.setSystem(true);
+        fPacketIndexJob = job;
+        job.schedule();
+    }
+
     @Override
     public synchronized void dispose() {
+        Tailer tailer = fTailer;
+        fTailer = null;
+        if (tailer != null) {
+            tailer.shutdown();
+        }
+        Job packetIndexJob = fPacketIndexJob;
+        if (packetIndexJob != null) {
+            packetIndexJob.cancel();
+        }
         fIteratorManager.dispose();
         if (fTrace != null) {
             fTrace = null;
@@ -296,6 +404,15 @@ public class CtfTmfTrace extends TmfTrace
         return CTF_ASPECTS;
     }
 
+    /**
+     * The event type and CPU of the events are indexed, the indexer reads them
+     * directly from the event definitions.
+     */
+    @Override
+    public Collection<ITmfEventAspect> getIndexedEventAspects() {
+        return ImmutableList.of(ITmfEventAspect.BaseAspects.EVENT_TYPE, CPU_ASPECT);
+    }
+
     /**
      * Method getCurrentLocation. This is not applicable in CTF
      *
@@ -324,7 +441,7 @@ public class CtfTmfTrace extends TmfTrace
      * @return ITmfContext
      */
     @Override
-    public synchronized ITmfContext seekEvent(final ITmfLocation location) {
+    public ITmfContext seekEvent(final ITmfLocation location) {
         CtfLocation currentLocation = (CtfLocation) location;
         CtfTmfContext context = new CtfTmfContext(this);
         if (fTrace == null) {
@@ -349,7 +466,7 @@ public class CtfTmfTrace extends TmfTrace
     }
 
     @Override
-    public synchronized ITmfContext seekEvent(double ratio) {
+    public ITmfContext seekEvent(double ratio) {
         CtfTmfContext context = new CtfTmfContext(this);
         if (fTrace == null) {
             context.setLocation(null);
@@ -365,6 +482,22 @@ public class CtfTmfTrace extends TmfTrace
         return context;
     }
 
+    /**
+     * The context of the request only reads the content of the event types
+     * the request needs, the other events are read with their header only.
+     * For requests that read many events, the streams are decoded ahead in
+     * parallel.
+     */
+    @Override
+    public ITmfContext armRequest(final ITmfEventRequest request) {
+        ITmfContext context = super.armRequest(request);
+        if (context instanceof CtfTmfContext) {
+            ((CtfTmfContext) context).setEventProjection(request.getEventTypeProjection());
+            ((CtfTmfContext) context).setReadAhead(request.getNbRequested() >= READ_AHEAD_MIN_EVENTS);
+        }
+        return context;
+    }
+
     /**
      * Method readNextEvent.
      *
@@ -374,7 +507,7 @@ public class CtfTmfTrace extends TmfTrace
      * @see org.eclipse.tracecompass.tmf.core.trace.ITmfTrace#getNext(ITmfContext)
      */
     @Override
-    public synchronized CtfTmfEvent getNext(final ITmfContext context) {
+    public CtfTmfEvent getNext(final ITmfContext context) {
         if (fTrace == null) {
             return null;
         }
@@ -396,6 +529,15 @@ public class CtfTmfTrace extends TmfTrace
         return event;
     }
 
+    /**
+     * Each context reads the trace with its own iterator, so the contexts of a
+     * CTF trace can be read concurrently.
+     */
+    @Override
+    protected boolean supportsConcurrentReads() {
+        return true;
+    }
+
     /**
      * Ctf traces have a clock with a unique uuid that will be used to identify
      * the host. Traces with the same clock uuid will be known to have been made
@@ -499,6 +641,91 @@ public class CtfTmfTrace extends TmfTrace
         fContainedEventTypes.put(eventType.getName(), eventType);
     }
 
+    /**
+     * Get the type id of the events of a given declaration, as assigned by
+     * {@link TmfEventTypeIds}. The ids of the declarations of the trace are
+     * resolved when the trace is opened, so this is an array lookup for all
+     * but unknown declarations.
+     *
+     * @param declaration
+     *            The event declaration
+     * @return The type id of the events of this declaration
+     * @since 2.0
+     */
+    public int getEventTypeId(IEventDeclaration declaration) {
+        int streamIndex = getStreamIndex(declaration.getStream());
+        EventTypeIds eventTypeIds = fEventTypeIds;
+        IEventDeclaration[][] declarations = eventTypeIds.fDeclarations;
+        int[][] typeIds = eventTypeIds.fTypeIds;
+        if (streamIndex >= 0 && streamIndex < declarations.length) {
+            IEventDeclaration[] streamDeclarations = declarations[streamIndex];
+            long eventId = declaration.getId().longValue();
+            int eventIndex = (eventId == IEventDeclaration.UNSET_EVENT_ID ? 0 : (int) eventId);
+            if (streamDeclarations != null && eventIndex >= 0 && eventIndex < streamDeclarations.length
+                    && streamDeclarations[eventIndex] == declaration) {
+                return typeIds[streamIndex][eventIndex];
+            }
+        }
+        /* Declaration not known when the trace was opened (lost events...) */
+        return TmfEventTypeIds.getId(declaration.getName());
+    }
+
+    private void buildEventTypeIds(CTFTrace trace) {
+        int nbStreams = 0;
+        for (CTFStream stream : trace.getStreams()) {
+            nbStreams = Math.max(nbStreams, getStreamIndex(stream) + 1);
+        }
+        IEventDeclaration[][] declarations = new IEventDeclaration[nbStreams][];
+        int[][] typeIds = new int[nbStreams][];
+        for (CTFStream stream : trace.getStreams()) {
+            int streamIndex = getStreamIndex(stream);
+            if (streamIndex < 0) {
+                continue;
+            }
+            Collection<IEventDeclaration> streamDeclarations = stream.getEventDeclarations();
+            int nbEvents = 0;
+            for (IEventDeclaration declaration : streamDeclarations) {
+                nbEvents = Math.max(nbEvents, getEventIndex(declaration) + 1);
+            }
+            declarations[streamIndex] = new IEventDeclaration[nbEvents];
+            typeIds[streamIndex] = new int[nbEvents];
+            for (IEventDeclaration declaration : streamDeclarations) {
+                int eventIndex = getEventIndex(declaration);
+                if (eventIndex >= 0) {
+                    declarations[streamIndex][eventIndex] = declaration;
+                    typeIds[streamIndex][eventIndex] = TmfEventTypeIds.getId(declaration.getName());
+                }
+            }
+        }
+        fEventTypeIds = new EventTypeIds(declarations, typeIds);
+    }
+
+    private static int getStreamIndex(CTFStream stream) {
+        if (stream == null) {
+            return -1;
+        }
+        long streamId = stream.getId();
+        return (streamId >= 0 && streamId <= MAX_INDEXED_STREAM_ID) ? (int) streamId : -1;
+    }
+
+    private static int getEventIndex(IEventDeclaration declaration) {
+        long eventId = declaration.getId().longValue();
+        if (eventId == IEventDeclaration.UNSET_EVENT_ID) {
+            return 0;
+        }
+        return (eventId >= 0 && eventId < Integer.MAX_VALUE) ? (int) eventId : -1;
+    }
+
+    /**
+     * Get the CTF trace read by this trace
+     *
+     * @return The CTF trace, or null if this trace is not initialized or was
+     *         disposed
+     */
+    CTFTrace getCTFTrace() {
+        return fTrace;
+    }
+
     // -------------------------------------------
     // Parser
     // -------------------------------------------
@@ -567,6 +794,20 @@ public class CtfTmfTrace extends TmfTrace
         return null;
     }
 
+    /**
+     * Every running request holds an iterator, so there should not be more of
+     * them than iterators the trace can keep open.
+     *
+     * @since 2.0
+     */
+    @Override
+    protected int getMaxConcurrentRequests() {
+        if (fTrace == null) {
+            return super.getMaxConcurrentRequests();
+        }
+        return Math.min(super.getMaxConcurrentRequests(), fIteratorManager.getCapacity());
+    }
+
     /**
      * Create the 'CtfIterator' object from a CtfTmfContext.
      *
@@ -621,7 +862,7 @@ public class CtfTmfTrace extends TmfTrace
 
     @Override
     protected ITmfTraceIndexer createIndexer(int interval) {
-        return new TmfBTreeTraceIndexer(this, interval);
+        return new CtfTmfTraceIndexer(this, interval);
     }
 
     @Override
@@ -631,6 +872,9 @@ public class CtfTmfTrace extends TmfTrace
 
     @Override
     public boolean isComplete() {
+        if (fTailer != null) {
+            return false;
+        }
         if (getResource() == null) {
             return true;
         }
@@ -654,14 +898,206 @@ public class CtfTmfTrace extends TmfTrace
     @Override
     public void setComplete(final boolean isComplete) {
         super.setComplete(isComplete);
+        IResource resource = getResource();
         try {
-            if (isComplete) {
-                getResource().setPersistentProperty(CtfConstants.LIVE_HOST, null);
-                getResource().setPersistentProperty(CtfConstants.LIVE_PORT, null);
-                getResource().setPersistentProperty(CtfConstants.LIVE_SESSION_NAME, null);
+            if (isComplete && resource != null) {
+                resource.setPersistentProperty(CtfConstants.LIVE_HOST, null);
+                resource.setPersistentProperty(CtfConstants.LIVE_PORT, null);
+                resource.setPersistentProperty(CtfConstants.LIVE_SESSION_NAME, null);
             }
         } catch (CoreException e) {
             Activator.getDefault().logError(e.getMessage(), e);
         }
     }
+
+    // ------------------------------------------------------------------------
+    // Tailing
+    // ------------------------------------------------------------------------
+
+    private long getTailInterval() {
+        IResource resource = getResource();
+        if (resource == null) {
+            return 0;
+        }
+        try {
+            String interval = resource.getPersistentProperty(CtfConstants.TAIL_INTERVAL);
+            return (interval == null) ? 0 : Long.parseLong(interval);
+        } catch (CoreException | NumberFormatException e) {
+            Activator.getDefault().logError(e.getMessage(), e);
+            return 0;
+        }
+    }
+
+    /**
+     * Start tailing the trace: follow the trace directory while the tracer
+     * writes it, and add the new metadata, stream files and packets to the
+     * trace as they are written, without reopening it.
+     *
+     * The trace directory is watched for changes, and polled at the given
+     * interval if the file system does not notify them. The time range of
+     * the trace is then extended up to the time that every active stream file
+     * reached, which indexes the new events and lets the analyses of
+     * incomplete traces read them. A stream file to which no packet was
+     * appended for ten polling intervals, like the stream of an idle CPU, no
+     * longer holds back the time range (see
+     * {@link CTFTrace#getIndexedEndTime(long)}).
+     *
+     * This must be done before the trace is opened, since the analyses of a
+     * complete trace read it once. It is done by
+     * {@link #initTrace(IResource, String, Class)} if the resource has the
+     * {@link CtfConstants#TAIL_INTERVAL} property.
+     *
+     * @param interval
+     *            The polling interval, in milliseconds
+     * @since 2.0
+     */
+    public synchronized void startTailing(long interval) {
+        if (fTailer != null || fTrace == null || interval <= 0) {
+            return;
+        }
+        setStreamingInterval(interval);
+        Tailer tailer = new Tailer(interval);
+        fTailer = tailer;
+        tailer.start();
+    }
+
+    /**
+     * Stop tailing the trace, which is then complete. The time range of the
+     * trace is extended to all its events.
+     *
+     * @since 2.0
+     */
+    public void stopTailing() {
+        Tailer tailer;
+        synchronized (this) {
+            tailer = fTailer;
+            if (tailer == null) {
+                return;
+            }
+            fTailer = null;
+        }
+        tailer.shutdown();
+        try {
+            tailer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        /* Add what was written since the last refresh */
+        tailer.refresh();
+        setComplete(true);
+        broadcast(new TmfTraceRangeUpdatedSignal(this, this, new TmfTimeRange(getStartTime(), TmfTimestamp.BIG_CRUNCH)));
+    }
+
+    /**
+     * Get whether the trace is tailed while it is written
+     *
+     * @return true if the trace is tailed
+     * @since 2.0
+     */
+    public boolean isTailing() {
+        return fTailer != null;
+    }
+
+    /**
+     * The thread following the trace directory
+     */
+    private final class Tailer extends Thread {
+
+        /**
+         * Number of polling intervals without new packets after which a
+         * stream no longer holds back the time range, see
+         * {@link CTFTrace#getIndexedEndTime(long)}
+         */
+        private static final int IDLE_INTERVALS = 10;
+
+        private final long fInterval;
+        private volatile boolean fStopped = false;
+        private long fSafeTime = Long.MIN_VALUE;
+
+        public Tailer(long interval) {
+            super("CTF trace tailer for " + CtfTmfTrace.this.getName()); //$NON-NLS-1$
+            setDaemon(true);
+            fInterval = interval;
+        }
+
+        @Override
+        public void run() {
+            try (WatchService watcher = createWatcher()) {
+                while (!fStopped) {
+                    refresh();
+                    waitForChange(watcher);
+                }
+            } catch (IOException e) {
+                Activator.getDefault().logError(e.getMessage(), e);
+            } catch (InterruptedException e) {
+                /* The tailing was stopped */
+            }
+        }
+
+        public void shutdown() {
+            fStopped = true;
+            interrupt();
+        }
+
+        /**
+         * Add what was written to the trace, and extend its time range if
+         * every stream reached a later time
+         */
+        public void refresh() {
+            CTFTrace trace = fTrace;
+            if (trace == null) {
+                return;
+            }
+            try {
+                if (trace.refresh()) {
+                    buildEventTypeIds(trace);
+                    for (CTFStream stream : trace.getStreams()) {
+                        registerEventTypes(stream.getEventDeclarations());
+                    }
+                    fIteratorManager.update();
+                }
+            } catch (CTFException e) {
+                if (!fStopped) {
+                    Activator.getDefault().logWarning("Could not refresh the trace " + CtfTmfTrace.this.getName(), e); //$NON-NLS-1$
+                }
+                return;
+            }
+            long safeTime = trace.getIndexedEndTime(IDLE_INTERVALS * fInterval);
+            if (safeTime <= fSafeTime || fStopped) {
+                return;
+            }
+            fSafeTime = safeTime;
+            TmfTimeRange range = new TmfTimeRange(getStartTime(), createTimestamp(safeTime));
+            broadcast(new TmfTraceRangeUpdatedSignal(CtfTmfTrace.this, CtfTmfTrace.this, range));
+        }
+
+        /**
+         * Watch the trace directory, or return null to poll it if the file
+         * system cannot watch it
+         */
+        private @Nullable WatchService createWatcher() {
+            try {
+                WatchService watcher = FileSystems.getDefault().newWatchService();
+                Paths.get(getPath()).register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+                return watcher;
+            } catch (IOException | UnsupportedOperationException e) {
+                return null;
+            }
+        }
+
+        private void waitForChange(@Nullable WatchService watcher) throws InterruptedException {
+            if (watcher == null) {
+                Thread.sleep(fInterval);
+                return;
+            }
+            WatchKey key = watcher.poll(fInterval, TimeUnit.MILLISECONDS);
+            /* Take all the pending changes, they are handled together */
+            while (key != null) {
+                key.pollEvents();
+                key.reset();
+                key = watcher.poll();
+            }
+        }
+    }
 }
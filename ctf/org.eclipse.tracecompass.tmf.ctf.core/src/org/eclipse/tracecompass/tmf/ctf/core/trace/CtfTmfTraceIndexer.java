@@ -0,0 +1,658 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.ctf.core.trace;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.tracecompass.common.core.ReadAheadExecutor;
+import org.eclipse.tracecompass.ctf.core.CTFException;
+import org.eclipse.tracecompass.ctf.core.event.EventDefinition;
+import org.eclipse.tracecompass.ctf.core.event.IEventDeclaration;
+import org.eclipse.tracecompass.ctf.core.trace.CTFResponse;
+import org.eclipse.tracecompass.ctf.core.trace.CTFStream;
+import org.eclipse.tracecompass.ctf.core.trace.CTFStreamInput;
+import org.eclipse.tracecompass.ctf.core.trace.CTFStreamInputReader;
+import org.eclipse.tracecompass.ctf.core.trace.CTFTrace;
+import org.eclipse.tracecompass.internal.tmf.ctf.core.Activator;
+import org.eclipse.tracecompass.tmf.core.event.aspect.ITmfEventAspect;
+import org.eclipse.tracecompass.tmf.core.signal.TmfTraceUpdatedSignal;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.TmfBTreeTraceIndexer;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.TmfEventAspectIndex;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.ITmfCheckpointIndex;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.TmfCheckpoint;
+import org.eclipse.tracecompass.tmf.ctf.core.context.CtfLocation;
+import org.eclipse.tracecompass.tmf.ctf.core.event.aspect.CtfCpuAspect;
+
+/**
+ * Indexer for CTF traces that builds the checkpoints directly from the stream
+ * files of the trace, instead of parsing every event through an event
+ * request.
+ *
+ * The indexing is done in two passes:
+ * <ol>
+ * <li>The packet index of every stream input is built in parallel, which only
+ * reads the packet headers. The first and last events of each stream input
+ * then give the time range of the trace, which is broadcast right away so the
+ * trace can be navigated by time.</li>
+ * <li>The stream inputs are read in parallel, in chunks, by a pool bounded to
+ * the number of processors. Only the event timestamps are read (no TMF event
+ * is created). The timestamps are merged in the same order as the trace
+ * reader would return the events, and a checkpoint is inserted every
+ * 'interval' events.</li>
+ * </ol>
+ *
+ * CTF packet headers do not carry event counts, so the second pass is what
+ * gives the ranks of the checkpoints. If the trace has an event aspect index
+ * of the event type and CPU, the stream readers also read the event names
+ * and CPUs from the event definitions, and the merge adds them to the index.
+ *
+ * Partial builds (updating the index of a live trace, or completing an index
+ * that was restored from disk) are delegated to the request-based indexer.
+ */
+class CtfTmfTraceIndexer extends TmfBTreeTraceIndexer {
+
+    /** Number of values read from a stream at a time, an event is one or two values */
+    private static final int CHUNK_SIZE = 4096;
+
+    /** Chunk of a stream that has no more events */
+    private static final long[] END_OF_STREAM = new long[0];
+
+    private final CtfTmfTrace fCtfTrace;
+    private final AtomicBoolean fIsBuilding = new AtomicBoolean();
+    private volatile boolean fIsCancelled = false;
+    private volatile Job fJob = null;
+
+    /**
+     * Constructor
+     *
+     * @param trace
+     *            The trace to index
+     * @param interval
+     *            The checkpoints interval
+     */
+    CtfTmfTraceIndexer(CtfTmfTrace trace, int interval) {
+        super(trace, interval);
+        fCtfTrace = trace;
+    }
+
+    @Override
+    public void dispose() {
+        fIsCancelled = true;
+        Job job = fJob;
+        if (job != null) {
+            job.cancel();
+        }
+        super.dispose();
+    }
+
+    @Override
+    public boolean isIndexing() {
+        return fIsBuilding.get() || super.isIndexing();
+    }
+
+    // ------------------------------------------------------------------------
+    // ITmfTraceIndexer - buildIndex
+    // ------------------------------------------------------------------------
+
+    @Override
+    public void buildIndex(final long offset, final TmfTimeRange range, final boolean waitForCompletion) {
+        final CTFTrace ctfTrace = fCtfTrace.getCTFTrace();
+        if (offset != 0 || ctfTrace == null || !fCtfTrace.isComplete() || !fTraceIndex.isCreatedFromScratch() || !canIndexEventAspects()) {
+            super.buildIndex(offset, range, waitForCompletion);
+            return;
+        }
+
+        // Don't do anything if we are already indexing
+        if (!fIsBuilding.compareAndSet(false, true)) {
+            return;
+        }
+
+        final Job job = new Job("Indexing " + fTrace.getName() + "...") { //$NON-NLS-1$ //$NON-NLS-2$
+            @Override
+            protected IStatus run(final IProgressMonitor monitor) {
+                monitor.beginTask("", IProgressMonitor.UNKNOWN); //$NON-NLS-1$
+                boolean fallback = false;
+                try {
+                    indexStreams(ctfTrace, monitor);
+                } catch (CTFException e) {
+                    Activator.getDefault().logWarning("Could not index the streams of " + fTrace.getName() + ", reading its events instead", e); //$NON-NLS-1$ //$NON-NLS-2$
+                    fallback = true;
+                } catch (InterruptedException e) {
+                    return Status.CANCEL_STATUS;
+                } finally {
+                    fIsBuilding.set(false);
+                    monitor.done();
+                }
+                if (fallback) {
+                    /*
+                     * The checkpoints inserted so far are exact, the regular
+                     * indexer will keep them and fill in the rest. If the
+                     * caller waits for the index, this job waits for the
+                     * regular indexer, so joining the job is enough.
+                     */
+                    CtfTmfTraceIndexer.super.buildIndex(0, range, waitForCompletion);
+                }
+                return Status.OK_STATUS;
+            }
+
+            @Override
+            protected void canceling() {
+                fIsCancelled = true;
+            }
+        };
+        job.setSystem(true);
+        fJob = job;
+        job.schedule();
+
+        if (waitForCompletion) {
+            try {
+                job.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * The stream readers only know the values of the event type and CPU
+     * aspects, any other indexed aspect needs the TMF events.
+     */
+    private boolean canIndexEventAspects() {
+        TmfEventAspectIndex index = getEventAspectIndex();
+        if (index == null) {
+            return true;
+        }
+        for (ITmfEventAspect aspect : index.getAspects()) {
+            if (aspect != ITmfEventAspect.BaseAspects.EVENT_TYPE && !(aspect instanceof CtfCpuAspect)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Build the index of the whole trace from its stream inputs
+     */
+    private void indexStreams(CTFTrace ctfTrace, IProgressMonitor monitor) throws CTFException, InterruptedException {
+        List<CTFStreamInput> inputs = new ArrayList<>();
+        for (CTFStream stream : ctfTrace.getStreams()) {
+            inputs.addAll(stream.getStreamInputs());
+        }
+        if (inputs.isEmpty()) {
+            return;
+        }
+
+        /* First pass: the packet indexes and the time range */
+        long[] bounds = readTimeBounds(inputs);
+        if (bounds == null) {
+            return;
+        }
+        final TmfTimeRange timeRange = new TmfTimeRange(fCtfTrace.createTimestamp(bounds[0]), fCtfTrace.createTimestamp(bounds[1]));
+        fTrace.broadcast(new TmfTraceUpdatedSignal(this, fTrace, timeRange, fTrace.getNbEvents()));
+
+        /* Second pass: the ranks of the checkpoints */
+        long nbEvents = mergeTimestamps(inputs, timeRange, monitor);
+
+        fTraceIndex.setTimeRange(timeRange);
+        fTraceIndex.setNbEvents(nbEvents);
+        fTraceIndex.setIndexComplete();
+        TmfEventAspectIndex eventAspectIndex = getEventAspectIndex();
+        if (eventAspectIndex != null) {
+            eventAspectIndex.setComplete(nbEvents);
+        }
+        fTrace.broadcast(new TmfTraceUpdatedSignal(this, fTrace, timeRange, nbEvents));
+    }
+
+    /**
+     * Index the packets of every stream input in parallel and read their first
+     * and last event timestamps.
+     *
+     * @return The start and end time of the trace, in nanoseconds, or null if
+     *         the trace has no events
+     */
+    private long[] readTimeBounds(List<CTFStreamInput> inputs) throws CTFException, InterruptedException {
+        Executor executor = getExecutor(inputs);
+        List<FutureTask<long[]>> futures = new ArrayList<>();
+        try {
+            for (final CTFStreamInput input : inputs) {
+                FutureTask<long[]> future = new FutureTask<>(() -> readStreamBounds(input));
+                futures.add(future);
+                executor.execute(future);
+            }
+            long[] bounds = null;
+            for (FutureTask<long[]> future : futures) {
+                /* Read the stream here if no thread of the pool started it yet */
+                future.run();
+                long[] streamBounds = getResult(future);
+                if (streamBounds == null) {
+                    continue;
+                }
+                if (bounds == null) {
+                    bounds = streamBounds;
+                } else {
+                    bounds[0] = Math.min(bounds[0], streamBounds[0]);
+                    bounds[1] = Math.max(bounds[1], streamBounds[1]);
+                }
+            }
+            return bounds;
+        } finally {
+            for (FutureTask<long[]> future : futures) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    private long[] readStreamBounds(CTFStreamInput input) throws CTFException, IOException {
+        try (CTFStreamInputReader reader = new CTFStreamInputReader(input)) {
+            /* Only the timestamps are needed, not the event fields */
+            reader.setEventProjection(Collections.<String> emptySet());
+            if (reader.readNextEvent() != CTFResponse.OK) {
+                return null;
+            }
+            long start = getTimestamp(reader);
+            /* This indexes all the packets, but only reads the last one */
+            reader.goToLastEvent();
+            long end = getTimestamp(reader);
+            return new long[] { start, Math.max(start, end) };
+        }
+    }
+
+    /**
+     * Read the event timestamps of every stream input in parallel, merge them
+     * and insert the checkpoints.
+     *
+     * @return The number of events of the trace
+     */
+    private long mergeTimestamps(List<CTFStreamInput> inputs, TmfTimeRange timeRange, IProgressMonitor monitor) throws CTFException, InterruptedException {
+        /*
+         * The streams are read one chunk at a time, so the pool does not need
+         * a thread per stream: the merge reads a chunk itself if no thread of
+         * the pool got to it yet.
+         */
+        Executor executor = getExecutor(inputs);
+        final TmfEventAspectIndex eventAspectIndex = getEventAspectIndex();
+        List<StreamCursor> cursors = new ArrayList<>();
+        try {
+            PriorityQueue<StreamCursor> heap = new PriorityQueue<>(inputs.size());
+            for (CTFStreamInput input : inputs) {
+                EventKeyReader keyReader = (eventAspectIndex == null ? null : new EventKeyReader(eventAspectIndex));
+                cursors.add(new StreamCursor(new CTFStreamInputReader(input), keyReader, executor));
+            }
+            for (StreamCursor cursor : cursors) {
+                if (cursor.advance()) {
+                    heap.add(cursor);
+                }
+            }
+
+            final int interval = getCheckpointInterval();
+            final EventKeyCollector keys = (eventAspectIndex == null ? null : new EventKeyCollector(eventAspectIndex));
+            long rank = 0;
+            long previousTs = Long.MIN_VALUE;
+            long sameTsCount = 0;
+            while (!heap.isEmpty()) {
+                StreamCursor top = heap.poll();
+                StreamCursor next = heap.peek();
+                long limit = (next == null ? Long.MAX_VALUE : next.current());
+                /* Consume the top stream for as long as it stays first */
+                boolean hasMore;
+                do {
+                    long ts = top.current();
+                    if (ts == previousTs) {
+                        sameTsCount++;
+                    } else {
+                        if (keys != null) {
+                            keys.startRun(rank);
+                        }
+                        previousTs = ts;
+                        sameTsCount = 0;
+                    }
+                    if ((rank % interval) == 0) {
+                        if (keys != null) {
+                            keys.startBlock(rank);
+                        }
+                        insertCheckpoint(rank / interval, ts, sameTsCount);
+                        if (rank > 0) {
+                            if (fIsCancelled || monitor.isCanceled()) {
+                                throw new InterruptedException();
+                            }
+                            fTrace.broadcast(new TmfTraceUpdatedSignal(this, fTrace, timeRange, rank));
+                        }
+                    }
+                    if (keys != null) {
+                        keys.add(top.key());
+                    }
+                    rank++;
+                    hasMore = top.advance();
+                } while (hasMore && top.current() <= limit);
+                if (hasMore) {
+                    heap.add(top);
+                }
+            }
+            if (fIsCancelled) {
+                /* The cursors stop reading when the indexer is cancelled */
+                throw new InterruptedException();
+            }
+            if (keys != null) {
+                keys.startRun(rank);
+                keys.startBlock(rank);
+            }
+            return rank;
+        } finally {
+            for (StreamCursor cursor : cursors) {
+                cursor.close();
+            }
+        }
+    }
+
+    /**
+     * Get the executor reading the streams. The streams are read on the
+     * shared read-ahead threads, unless there is only one, which is then read
+     * by the indexer's thread.
+     */
+    private static Executor getExecutor(List<CTFStreamInput> inputs) {
+        if (inputs.size() <= 1) {
+            return Runnable::run;
+        }
+        return ReadAheadExecutor.getExecutor();
+    }
+
+    private void insertCheckpoint(long position, long ts, long sameTsCount) {
+        ITmfCheckpointIndex index = getTraceIndex();
+        /* Same lock as updateIndex(), requests can also add checkpoints */
+        synchronized (this) {
+            if (index.size() == position) {
+                index.insert(new TmfCheckpoint(fCtfTrace.createTimestamp(ts), new CtfLocation(ts, sameTsCount), position));
+            }
+        }
+    }
+
+    private long getTimestamp(CTFStreamInputReader reader) throws CTFException {
+        EventDefinition event = reader.getCurrentEvent();
+        if (event == null) {
+            throw new CTFException("No current event in " + reader.getFilename()); //$NON-NLS-1$
+        }
+        return fCtfTrace.timestampCyclesToNanos(event.getTimestamp());
+    }
+
+    private static <T> T getResult(Future<T> future) throws CTFException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CTFException) {
+                throw (CTFException) cause;
+            }
+            throw new CTFException(e.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Position in the timestamps of one stream input, ordered by current
+     * timestamp. The pool reads the next chunk of the stream while the merge
+     * consumes the current one, and there is never more than one chunk read
+     * at a time, so the stream reader and key reader need no locking.
+     */
+    private final class StreamCursor implements Comparable<StreamCursor> {
+        private final CTFStreamInputReader fReader;
+        private final EventKeyReader fKeyReader;
+        private final Executor fExecutor;
+        private final int fStride;
+        private long[] fChunk = END_OF_STREAM;
+        private int fPos = 0;
+        private FutureTask<long[]> fNextChunk;
+
+        public StreamCursor(CTFStreamInputReader reader, EventKeyReader keyReader, Executor executor) {
+            fReader = reader;
+            fKeyReader = keyReader;
+            fExecutor = executor;
+            /* Each event is its timestamp, followed by its key if it has one */
+            fStride = (keyReader == null ? 1 : 2);
+            /* The keys only need the event types, not the event fields */
+            reader.setEventProjection(Collections.<String> emptySet());
+            readAhead();
+        }
+
+        public long current() {
+            return fChunk[fPos];
+        }
+
+        public long key() {
+            return fChunk[fPos + 1];
+        }
+
+        /**
+         * Move to the next timestamp
+         *
+         * @return false if the end of the stream was reached
+         */
+        public boolean advance() throws CTFException, InterruptedException {
+            fPos += fStride;
+            if (fPos < fChunk.length) {
+                return true;
+            }
+            FutureTask<long[]> nextChunk = fNextChunk;
+            if (nextChunk == null) {
+                return false;
+            }
+            /* Read the chunk here if no thread of the pool started it yet */
+            nextChunk.run();
+            long[] chunk = getResult(nextChunk);
+            if (chunk.length == 0) {
+                fNextChunk = null;
+                return false;
+            }
+            fChunk = chunk;
+            fPos = 0;
+            readAhead();
+            return true;
+        }
+
+        /**
+         * Stop reading ahead and close the stream reader
+         */
+        public void close() {
+            FutureTask<long[]> nextChunk = fNextChunk;
+            fNextChunk = null;
+            if (nextChunk != null && !nextChunk.cancel(false)) {
+                /* The chunk is being read, don't close the reader under it */
+                try {
+                    nextChunk.get();
+                } catch (ExecutionException e) {
+                    /* Already reported by the merge, or not needed anymore */
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            try {
+                fReader.close();
+            } catch (IOException e) {
+                Activator.getDefault().logError(e.getMessage(), e);
+            }
+        }
+
+        private void readAhead() {
+            FutureTask<long[]> nextChunk = new FutureTask<>(this::readChunk);
+            fNextChunk = nextChunk;
+            fExecutor.execute(nextChunk);
+        }
+
+        /**
+         * Read the timestamps of the next events of the stream, and their keys
+         * if there is a key reader.
+         *
+         * @return The values read, or an empty chunk at the end of the stream
+         */
+        private long[] readChunk() throws CTFException {
+            long[] chunk = new long[CHUNK_SIZE];
+            int size = 0;
+            while (size < CHUNK_SIZE && !fIsCancelled && fReader.readNextEvent() == CTFResponse.OK) {
+                chunk[size++] = getTimestamp(fReader);
+                if (fKeyReader != null) {
+                    chunk[size++] = fKeyReader.getKey(fReader.getCurrentEvent());
+                }
+            }
+            return (size == CHUNK_SIZE ? chunk : Arrays.copyOf(chunk, size));
+        }
+
+        @Override
+        public int compareTo(StreamCursor other) {
+            return Long.compare(current(), other.current());
+        }
+    }
+
+    /**
+     * Reads the key of the events of one stream: the value id of the event
+     * type in the high bits and the value id of the CPU in the low bits, or
+     * -1 when the aspect is not indexed. The value ids are cached, so the
+     * shared index is only locked for new values.
+     */
+    private static final class EventKeyReader {
+        private final TmfEventAspectIndex fIndex;
+        private final int fTypeAspect;
+        private final int fCpuAspect;
+        private final Map<IEventDeclaration, Integer> fTypeIds = new IdentityHashMap<>();
+        private final Map<Integer, Integer> fCpuIds = new HashMap<>();
+
+        public EventKeyReader(TmfEventAspectIndex index) {
+            fIndex = index;
+            int typeAspect = -1;
+            int cpuAspect = -1;
+            List<ITmfEventAspect> aspects = index.getAspects();
+            for (int i = 0; i < aspects.size(); i++) {
+                if (aspects.get(i) == ITmfEventAspect.BaseAspects.EVENT_TYPE) {
+                    typeAspect = i;
+                } else if (aspects.get(i) instanceof CtfCpuAspect) {
+                    cpuAspect = i;
+                }
+            }
+            fTypeAspect = typeAspect;
+            fCpuAspect = cpuAspect;
+        }
+
+        public long getKey(EventDefinition event) {
+            int typeId = -1;
+            if (fTypeAspect >= 0) {
+                IEventDeclaration declaration = event.getDeclaration();
+                Integer id = fTypeIds.get(declaration);
+                if (id == null) {
+                    id = fIndex.getValueId(fTypeAspect, declaration.getName());
+                    fTypeIds.put(declaration, id);
+                }
+                typeId = id;
+            }
+            int cpuId = -1;
+            if (fCpuAspect >= 0) {
+                Integer cpu = event.getCPU();
+                Integer id = fCpuIds.get(cpu);
+                if (id == null) {
+                    id = fIndex.getValueId(fCpuAspect, cpu);
+                    fCpuIds.put(cpu, id);
+                }
+                cpuId = id;
+            }
+            return ((long) typeId << 32) | (cpuId & 0xFFFFFFFFL);
+        }
+    }
+
+    /**
+     * Adds the keys of the merged events to the event aspect index, one block
+     * at a time.
+     *
+     * The trace reader is not guaranteed to return events with the same
+     * timestamp in the order of the merge, so when a run of events with the
+     * same timestamp spans more than one block, every value of the run is
+     * added to every block of the run.
+     */
+    private static final class EventKeyCollector {
+        private final TmfEventAspectIndex fIndex;
+        private final int fTypeAspect;
+        private final int fCpuAspect;
+        private final BitSet fBlockTypes = new BitSet();
+        private final BitSet fBlockCpus = new BitSet();
+        private final BitSet fRunTypes = new BitSet();
+        private final BitSet fRunCpus = new BitSet();
+        private long fBlockStart = 0;
+        private long fRunStart = 0;
+
+        public EventKeyCollector(TmfEventAspectIndex index) {
+            /* Same aspect ids as the stream readers */
+            EventKeyReader reader = new EventKeyReader(index);
+            fIndex = index;
+            fTypeAspect = reader.fTypeAspect;
+            fCpuAspect = reader.fCpuAspect;
+        }
+
+        public void add(long key) {
+            int typeId = (int) (key >> 32);
+            int cpuId = (int) key;
+            if (typeId >= 0) {
+                fBlockTypes.set(typeId);
+                fRunTypes.set(typeId);
+            }
+            if (cpuId >= 0) {
+                fBlockCpus.set(cpuId);
+                fRunCpus.set(cpuId);
+            }
+        }
+
+        /**
+         * End the current block, the next event has the given rank
+         */
+        public void startBlock(long rank) {
+            if (rank > fBlockStart) {
+                addAll(fTypeAspect, fBlockTypes, fBlockStart, fBlockStart);
+                addAll(fCpuAspect, fBlockCpus, fBlockStart, fBlockStart);
+            }
+            fBlockTypes.clear();
+            fBlockCpus.clear();
+            fBlockStart = rank;
+        }
+
+        /**
+         * End the current run of events with the same timestamp, the next
+         * event has the given rank
+         */
+        public void startRun(long rank) {
+            int blockSize = fIndex.getBlockSize();
+            if (rank > fRunStart && fRunStart / blockSize != (rank - 1) / blockSize) {
+                addAll(fTypeAspect, fRunTypes, fRunStart, rank - 1);
+                addAll(fCpuAspect, fRunCpus, fRunStart, rank - 1);
+            }
+            fRunTypes.clear();
+            fRunCpus.clear();
+            fRunStart = rank;
+        }
+
+        private void addAll(int aspectId, BitSet valueIds, long startRank, long endRank) {
+            for (int id = valueIds.nextSetBit(0); id >= 0; id = valueIds.nextSetBit(id + 1)) {
+                fIndex.add(aspectId, id, startRank, endRank);
+            }
+        }
+    }
+}
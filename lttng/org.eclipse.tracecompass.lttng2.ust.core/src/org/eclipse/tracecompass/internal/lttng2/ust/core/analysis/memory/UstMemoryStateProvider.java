@@ -32,8 +32,6 @@ import org.eclipse.tracecompass.tmf.core.event.ITmfEventField;
 import org.eclipse.tracecompass.tmf.core.statesystem.AbstractTmfStateProvider;
 import org.eclipse.tracecompass.tmf.core.statesystem.ITmfStateProvider;
 
-import com.google.common.collect.ImmutableMap;
-
 /**
  * State provider to track the memory of the threads using the UST libc wrapper
  * memory events.
@@ -61,7 +59,6 @@ public class UstMemoryStateProvider extends AbstractTmfStateProvider {
     private final Map<Long, Long> fMemory = new HashMap<>();
 
     private final @NonNull ILttngUstEventLayout fLayout;
-    private final @NonNull Map<String, Integer> fEventNames;
 
     /**
      * Constructor
@@ -72,27 +69,21 @@ public class UstMemoryStateProvider extends AbstractTmfStateProvider {
     public UstMemoryStateProvider(@NonNull LttngUstTrace trace) {
         super(trace, "Ust:Memory"); //$NON-NLS-1$
         fLayout = trace.getEventLayout();
-        fEventNames = buildEventNames(fLayout);
+        registerEventHandlers(fLayout);
     }
 
-    private static @NonNull Map<String, Integer> buildEventNames(ILttngUstEventLayout layout) {
-        ImmutableMap.Builder<String, Integer> builder = ImmutableMap.builder();
-        builder.put(layout.eventLibcMalloc(), MALLOC_INDEX);
-        builder.put(layout.eventLibcFree(), FREE_INDEX);
-        builder.put(layout.eventLibcCalloc(), CALLOC_INDEX);
-        builder.put(layout.eventLibcRealloc(), REALLOC_INDEX);
-        builder.put(layout.eventLibcMemalign(), MEMALIGN_INDEX);
-        builder.put(layout.eventLibcPosixMemalign(), POSIX_MEMALIGN_INDEX);
-        return checkNotNull(builder.build());
+    private void registerEventHandlers(ILttngUstEventLayout layout) {
+        registerEventHandler(layout.eventLibcMalloc(), MALLOC_INDEX);
+        registerEventHandler(layout.eventLibcFree(), FREE_INDEX);
+        registerEventHandler(layout.eventLibcCalloc(), CALLOC_INDEX);
+        registerEventHandler(layout.eventLibcRealloc(), REALLOC_INDEX);
+        registerEventHandler(layout.eventLibcMemalign(), MEMALIGN_INDEX);
+        registerEventHandler(layout.eventLibcPosixMemalign(), POSIX_MEMALIGN_INDEX);
     }
 
     @Override
     protected void eventHandle(ITmfEvent event) {
-        String name = event.getName();
-        Integer index = fEventNames.get(name);
-        int intIndex = (index == null ? -1 : index.intValue());
-
-        switch (intIndex) {
+        switch (getEventHandler(event)) {
         case MALLOC_INDEX: {
             Long ptr = (Long) event.getContent().getField(fLayout.fieldPtr()).getValue();
             if (ZERO.equals(ptr)) {
@@ -13,10 +13,6 @@
 
 package org.eclipse.tracecompass.internal.lttng2.ust.core.callstack;
 
-import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
-
-import java.util.Set;
-
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.internal.lttng2.ust.core.trace.layout.LttngUst20EventLayout;
 import org.eclipse.tracecompass.lttng2.ust.core.trace.LttngUstTrace;
@@ -27,8 +23,6 @@ import org.eclipse.tracecompass.tmf.core.event.ITmfEventField;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
 import org.eclipse.tracecompass.tmf.ctf.core.event.CtfTmfEvent;
 
-import com.google.common.collect.ImmutableSet;
-
 /**
  * Callstack provider for LTTng-UST traces.
  *
@@ -50,11 +44,11 @@ public class LttngUstCallStackProvider extends CallStackStateProvider {
      */
     private static final int VERSION = 2;
 
-    /** Event names indicating function entry */
-    private final @NonNull Set<String> funcEntryEvents;
+    /** Handler of the events indicating function entry */
+    private static final int FUNC_ENTRY = 0;
 
-    /** Event names indicating function exit */
-    private final @NonNull Set<String> funcExitEvents;
+    /** Handler of the events indicating function exit */
+    private static final int FUNC_EXIT = 1;
 
     private final @NonNull ILttngUstEventLayout fLayout;
 
@@ -78,13 +72,10 @@ public class LttngUstCallStackProvider extends CallStackStateProvider {
             fLayout = LttngUst20EventLayout.getInstance();
         }
 
-        funcEntryEvents = checkNotNull(ImmutableSet.of(
-                fLayout.eventCygProfileFuncEntry(),
-                fLayout.eventCygProfileFastFuncEntry()));
-
-        funcExitEvents = checkNotNull(ImmutableSet.of(
-                fLayout.eventCygProfileFuncExit(),
-                fLayout.eventCygProfileFastFuncExit()));
+        registerEventHandler(fLayout.eventCygProfileFuncEntry(), FUNC_ENTRY);
+        registerEventHandler(fLayout.eventCygProfileFastFuncEntry(), FUNC_ENTRY);
+        registerEventHandler(fLayout.eventCygProfileFuncExit(), FUNC_EXIT);
+        registerEventHandler(fLayout.eventCygProfileFastFuncExit(), FUNC_EXIT);
     }
 
     // ------------------------------------------------------------------------
@@ -108,11 +99,12 @@ public class LttngUstCallStackProvider extends CallStackStateProvider {
     /**
      * Check that this event contains the required information we need to be
      * used in the call stack view. We need at least the "procname" and "vtid"
-     * contexts.
+     * contexts. Events other than function entries and exits are skipped
+     * before their content is read.
      */
     @Override
     protected boolean considerEvent(ITmfEvent event) {
-        if (!(event instanceof CtfTmfEvent)) {
+        if (!(event instanceof CtfTmfEvent) || getEventHandler(event) == NO_HANDLER) {
             return false;
         }
         ITmfEventField content = ((CtfTmfEvent) event).getContent();
@@ -125,8 +117,7 @@ public class LttngUstCallStackProvider extends CallStackStateProvider {
 
     @Override
     public String functionEntry(ITmfEvent event) {
-        String eventName = event.getName();
-        if (!funcEntryEvents.contains(eventName)) {
+        if (getEventHandler(event) != FUNC_ENTRY) {
             return null;
         }
         Long address = (Long) event.getContent().getField(fLayout.fieldAddr()).getValue();
@@ -135,8 +126,7 @@ public class LttngUstCallStackProvider extends CallStackStateProvider {
 
     @Override
     public String functionExit(ITmfEvent event) {
-        String eventName = event.getName();
-        if (!funcExitEvents.contains(eventName)) {
+        if (getEventHandler(event) != FUNC_EXIT) {
             return null;
         }
         /*
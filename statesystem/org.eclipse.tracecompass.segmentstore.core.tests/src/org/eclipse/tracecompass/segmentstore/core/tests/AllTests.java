@@ -17,6 +17,7 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
+        SegmentStoreSummaryTest.class,
         org.eclipse.tracecompass.segmentstore.core.tests.treemap.AllTests.class
 })
 public class AllTests {
@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.segmentstore.core.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.segmentstore.core.BasicSegment;
+import org.eclipse.tracecompass.segmentstore.core.ISegment;
+import org.eclipse.tracecompass.segmentstore.core.SegmentStoreSummary;
+import org.eclipse.tracecompass.segmentstore.core.treemap.TreeMapStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link SegmentStoreSummary}
+ */
+public class SegmentStoreSummaryTest {
+
+    private static final int NB_SEGMENTS = 10000;
+
+    private TreeMapStore<@NonNull ISegment> fSegmentStore;
+    private SegmentStoreSummary<@NonNull ISegment> fSummary;
+
+    /**
+     * Fill a store with segments starting every 10 time units, with durations
+     * cycling from 0 to 99.
+     */
+    @Before
+    public void setup() {
+        fSegmentStore = new TreeMapStore<>();
+        for (int i = 0; i < NB_SEGMENTS; i++) {
+            long start = i * 10L;
+            fSegmentStore.add(new BasicSegment(start, start + (i % 100)));
+        }
+        fSummary = new SegmentStoreSummary<>(fSegmentStore);
+    }
+
+    /**
+     * Dispose of the segment store
+     */
+    @After
+    public void teardown() {
+        fSegmentStore.dispose();
+    }
+
+    /**
+     * Test an empty store
+     */
+    @Test
+    public void testEmpty() {
+        SegmentStoreSummary<@NonNull ISegment> summary = new SegmentStoreSummary<>(new TreeMapStore<>());
+        assertEquals(0, summary.getNbSegments());
+        assertTrue(summary.getRepresentatives(0, Long.MAX_VALUE, 1000).isEmpty());
+    }
+
+    /**
+     * Test that a fine resolution returns every segment of the range
+     */
+    @Test
+    public void testFineResolution() {
+        assertEquals(NB_SEGMENTS, fSummary.getNbSegments());
+        List<@NonNull ISegment> result = fSummary.getRepresentatives(1000, 1990, 1);
+        /*
+         * The 100 segments starting in the range, and the longest of those
+         * starting before it, in the first pixel
+         */
+        assertEquals(101, result.size());
+        assertSorted(result);
+        for (ISegment segment : result) {
+            assertTrue(segment.getEnd() >= 1000 && segment.getStart() <= 1990);
+        }
+    }
+
+    /**
+     * Test that a coarse resolution returns at most two segments per pixel,
+     * and that they are the shortest and longest ones
+     */
+    @Test
+    public void testCoarseResolution() {
+        long start = 0;
+        long end = NB_SEGMENTS * 10L;
+        long resolution = 1000;
+        List<@NonNull ISegment> result = fSummary.getRepresentatives(start, end, resolution);
+        assertSorted(result);
+        assertTrue(result.size() <= 2 * (end - start) / resolution + 2);
+
+        long pixel = -1;
+        int nbInPixel = 0;
+        long minLength = Long.MAX_VALUE;
+        long maxLength = Long.MIN_VALUE;
+        for (ISegment segment : result) {
+            long current = (segment.getStart() - start) / resolution;
+            if (current != pixel) {
+                pixel = current;
+                nbInPixel = 0;
+            }
+            nbInPixel++;
+            assertTrue(nbInPixel <= 2);
+            minLength = Math.min(minLength, segment.getLength());
+            maxLength = Math.max(maxLength, segment.getLength());
+        }
+        assertEquals(0, minLength);
+        assertEquals(99, maxLength);
+    }
+
+    /**
+     * Test the range boundaries of a query
+     */
+    @Test
+    public void testRangeBoundaries() {
+        List<@NonNull ISegment> result = fSummary.getRepresentatives(50005, 60000, 64);
+        assertTrue(!result.isEmpty());
+        for (ISegment segment : result) {
+            assertTrue(segment.getEnd() >= 50005 && segment.getStart() <= 60000);
+        }
+        assertTrue(fSummary.getRepresentatives(-100, -1, 10).isEmpty());
+        assertTrue(fSummary.getRepresentatives(NB_SEGMENTS * 10L + 100, Long.MAX_VALUE, 10).isEmpty());
+    }
+
+    /**
+     * Test that the segments starting before the range but ending in it are
+     * returned, in the first pixel
+     */
+    @Test
+    public void testIntersectingSegments() {
+        TreeMapStore<@NonNull ISegment> store = new TreeMapStore<>();
+        ISegment longSegment = new BasicSegment(0, 100000);
+        store.add(longSegment);
+        for (int i = 0; i < 1000; i++) {
+            store.add(new BasicSegment(i * 100L, i * 100L + 10));
+        }
+        SegmentStoreSummary<@NonNull ISegment> summary = new SegmentStoreSummary<>(store);
+
+        List<@NonNull ISegment> result = summary.getRepresentatives(50005, 60000, 1000);
+        assertSorted(result);
+        assertTrue(result.contains(longSegment));
+        /* The segment that starts at 50000 ends at 50010, in the range */
+        assertTrue(result.stream().anyMatch(segment -> segment.getStart() == 50000));
+        for (ISegment segment : result) {
+            assertTrue(segment.getEnd() >= 50005 && segment.getStart() <= 60000);
+        }
+        store.dispose();
+    }
+
+    /**
+     * Test that the segments of the buckets at the edges of the range are not
+     * lost when the representatives of these buckets are out of the range
+     */
+    @Test
+    public void testEdgeBuckets() {
+        long resolution = 1024;
+        for (long start = 0; start < 3000; start += 7) {
+            List<@NonNull ISegment> result = fSummary.getRepresentatives(start, start + 10 * resolution, resolution);
+            assertSorted(result);
+            /* Every pixel has segments, the first one included */
+            long firstPixelEnd = start + resolution;
+            assertTrue(result.stream().anyMatch(segment -> segment.getStart() < firstPixelEnd && segment.getEnd() >= start));
+            for (ISegment segment : result) {
+                assertTrue(segment.getEnd() >= start && segment.getStart() <= start + 10 * resolution);
+            }
+        }
+    }
+
+    /**
+     * Test that an invalid resolution is rejected
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidResolution() {
+        fSummary.getRepresentatives(0, 100, 0);
+    }
+
+    private static void assertSorted(List<@NonNull ISegment> segments) {
+        long previous = Long.MIN_VALUE;
+        for (ISegment segment : segments) {
+            assertTrue(segment.getStart() >= previous);
+            previous = segment.getStart();
+        }
+    }
+}
@@ -0,0 +1,450 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.segmentstore.core;
+
+import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Multi-resolution summary of the segments of a segment store, meant to be
+ * used by viewers that display the segments' durations over time (scatter
+ * graphs, for example).
+ *
+ * The segments are bucketed by start time at power-of-two time scales. For
+ * every non-empty bucket of every scale, the segments with the shortest and
+ * longest durations are kept as representatives. A query for a given time
+ * range and resolution then only looks at the coarsest scale that is still
+ * finer than the requested resolution, so the number of segments touched is
+ * proportional to the number of "pixels" requested, not to the number of
+ * segments in the range.
+ *
+ * The summary is a snapshot: segments added to the store after the summary
+ * was built will not be part of it.
+ *
+ * @param <E>
+ *            The type of segment held in the summarized store
+ */
+public class SegmentStoreSummary<E extends ISegment> {
+
+    /**
+     * Average number of segments per bucket at the finest scale. Below that
+     * scale, queries are answered from the sorted segments directly.
+     */
+    private static final int SEGMENTS_PER_FINEST_BUCKET = 4;
+
+    /** All the segments, sorted by start time */
+    private final List<E> fSegments;
+    /** Start times of the segments in fSegments, in the same order */
+    private final long[] fStarts;
+    /**
+     * Max-end tree over fSegments: leaf 'fTreeLeaves + i' holds the end time of
+     * segment 'i', and every inner node the largest end time of its subtree.
+     * It finds the segments that start before a range but end in it without
+     * visiting the earlier segments that end before the range.
+     */
+    private final long[] fMaxEndTree;
+    private final int fTreeLeaves;
+
+    private final long fOrigin;
+    private final int fFinestShift;
+    /** Level 'i' has buckets of 2^(fFinestShift + i) time units */
+    private final List<Level<E>> fLevels = new ArrayList<>();
+
+    /**
+     * One time scale of the summary. Only non-empty buckets are stored.
+     */
+    private static final class Level<E extends ISegment> {
+        private final long[] fBuckets;
+        private final List<E> fShortest;
+        private final List<E> fLongest;
+
+        public Level(long[] buckets, List<E> shortest, List<E> longest) {
+            fBuckets = buckets;
+            fShortest = shortest;
+            fLongest = longest;
+        }
+
+        public int size() {
+            return fBuckets.length;
+        }
+    }
+
+    /**
+     * Constructor. Builds the summary of the current content of the store.
+     * This iterates over the whole store, so it should be done once the store
+     * is fully populated, and outside of the UI thread.
+     *
+     * @param store
+     *            The segment store to summarize
+     */
+    public SegmentStoreSummary(ISegmentStore<E> store) {
+        List<E> segments = new ArrayList<>(store);
+        Collections.sort(segments, SegmentComparators.INTERVAL_START_COMPARATOR);
+        fSegments = segments;
+
+        final int nbSegments = segments.size();
+        fStarts = new long[nbSegments];
+        fTreeLeaves = (nbSegments <= 1) ? 1 : Integer.highestOneBit(nbSegments - 1) << 1;
+        fMaxEndTree = new long[2 * fTreeLeaves];
+        Arrays.fill(fMaxEndTree, Long.MIN_VALUE);
+        for (int i = 0; i < nbSegments; i++) {
+            E segment = checkNotNull(segments.get(i));
+            fStarts[i] = segment.getStart();
+            fMaxEndTree[fTreeLeaves + i] = segment.getEnd();
+        }
+        for (int node = fTreeLeaves - 1; node > 0; node--) {
+            fMaxEndTree[node] = Math.max(fMaxEndTree[2 * node], fMaxEndTree[2 * node + 1]);
+        }
+
+        if (nbSegments == 0) {
+            fOrigin = 0;
+            fFinestShift = 0;
+            return;
+        }
+        fOrigin = fStarts[0];
+
+        /*
+         * Pick the finest scale so that, on average, a bucket contains a few
+         * segments. Finer resolutions are served from the segments directly.
+         */
+        long span = fStarts[nbSegments - 1] - fOrigin + 1;
+        long targetWidth = Math.max(1, span / Math.max(1, nbSegments / SEGMENTS_PER_FINEST_BUCKET));
+        fFinestShift = 63 - Long.numberOfLeadingZeros(targetWidth);
+
+        Level<E> level = buildFinestLevel();
+        fLevels.add(level);
+        while (level.size() > 1) {
+            level = buildCoarserLevel(level);
+            fLevels.add(level);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Accessors
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get the number of segments that were summarized
+     *
+     * @return The number of segments
+     */
+    public int getNbSegments() {
+        return fSegments.size();
+    }
+
+    /**
+     * Get the finest bucket width of the summary. Resolutions smaller than
+     * this are answered from the individual segments.
+     *
+     * @return The finest bucket width, in time units
+     */
+    public long getFinestResolution() {
+        return 1L << fFinestShift;
+    }
+
+    /**
+     * Get the representative segments that intersect the given range, at the
+     * given resolution.
+     *
+     * The range is split in "pixels" of 'resolution' time units, starting at
+     * 'start'. Every segment belongs to the pixel of its start time, or to the
+     * first pixel if it starts before the range. For every pixel containing
+     * segments, at most two segments are returned: the one with the shortest
+     * duration and the one with the longest. The returned list is sorted by
+     * start time.
+     *
+     * @param start
+     *            The start of the range
+     * @param end
+     *            The end of the range
+     * @param resolution
+     *            The width of one pixel, in time units. Must be strictly
+     *            positive.
+     * @return The representative segments, sorted by start time
+     */
+    public List<E> getRepresentatives(long start, long end, long resolution) {
+        if (resolution <= 0) {
+            throw new IllegalArgumentException("Resolution must be positive: " + resolution); //$NON-NLS-1$
+        }
+        if (end < start || fSegments.isEmpty()) {
+            return checkNotNull(Collections.<E> emptyList());
+        }
+
+        /*
+         * Use the coarsest level whose buckets are not wider than a pixel, so
+         * that a pixel spans at most a few buckets.
+         */
+        int levelIndex = (63 - Long.numberOfLeadingZeros(resolution)) - fFinestShift;
+        PixelCompactor<E> compactor = new PixelCompactor<>(start, end, resolution);
+        int firstIndex = lowerBound(fStarts, start);
+        addSegmentsBefore(firstIndex, start, compactor);
+        if (levelIndex < 0) {
+            addSegments(firstIndex, end, compactor);
+        } else {
+            levelIndex = Math.min(levelIndex, fLevels.size() - 1);
+            int shift = fFinestShift + levelIndex;
+            Level<E> level = checkNotNull(fLevels.get(levelIndex));
+            long firstBucket = (Math.max(start, fOrigin) - fOrigin) >>> shift;
+            int index = lowerBound(level.fBuckets, firstBucket);
+            while (index < level.size() && fOrigin + (level.fBuckets[index] << shift) <= end) {
+                long bucketStart = fOrigin + (level.fBuckets[index] << shift);
+                long bucketEnd = bucketStart + (1L << shift) - 1;
+                if (bucketStart < start || bucketEnd > end) {
+                    /*
+                     * The representatives of a bucket at the edge of the range
+                     * may be out of it, use the segments of the bucket that are
+                     * in the range instead.
+                     */
+                    addSegments(lowerBound(fStarts, Math.max(bucketStart, start)), Math.min(bucketEnd, end), compactor);
+                    index++;
+                    continue;
+                }
+                /*
+                 * A bucket can straddle two pixels, feed its representatives
+                 * to the compactor in start time order.
+                 */
+                E shortest = checkNotNull(level.fShortest.get(index));
+                E longest = checkNotNull(level.fLongest.get(index));
+                if (shortest.getStart() <= longest.getStart()) {
+                    compactor.add(shortest);
+                    compactor.add(longest);
+                } else {
+                    compactor.add(longest);
+                    compactor.add(shortest);
+                }
+                index++;
+            }
+        }
+        return compactor.getResult();
+    }
+
+    // ------------------------------------------------------------------------
+    // Helpers
+    // ------------------------------------------------------------------------
+
+    /**
+     * Feed the compactor with the segments from 'index' that start before or
+     * at 'end'.
+     */
+    private void addSegments(int index, long end, PixelCompactor<E> compactor) {
+        int i = index;
+        while (i < fStarts.length && fStarts[i] <= end) {
+            compactor.add(checkNotNull(fSegments.get(i)));
+            i++;
+        }
+    }
+
+    /**
+     * Feed the compactor with the shortest and longest of the segments that
+     * start before the range but end in it. They are found by descending the
+     * max-end tree, skipping the subtrees that end before the range, so the
+     * cost is proportional to the number of such segments, not to the number
+     * of segments before the range.
+     */
+    private void addSegmentsBefore(int firstIndex, long start, PixelCompactor<E> compactor) {
+        List<E> candidates = new ArrayList<>(2);
+        collectSegmentsBefore(1, 0, fTreeLeaves, firstIndex, start, candidates);
+        if (candidates.isEmpty()) {
+            return;
+        }
+        E shortest = checkNotNull(candidates.get(0));
+        E longest = checkNotNull(candidates.get(1));
+        if (shortest.getStart() <= longest.getStart()) {
+            compactor.add(shortest);
+            compactor.add(longest);
+        } else {
+            compactor.add(longest);
+            compactor.add(shortest);
+        }
+    }
+
+    /**
+     * Find, in the subtree 'node' covering the segments [low, high), the
+     * shortest and longest of the segments before 'limit' that end at or
+     * after 'start'. 'candidates' holds either nothing or the current shortest
+     * and longest.
+     */
+    private void collectSegmentsBefore(int node, int low, int high, int limit, long start, List<E> candidates) {
+        if (low >= limit || fMaxEndTree[node] < start) {
+            return;
+        }
+        if (high - low == 1) {
+            E segment = checkNotNull(fSegments.get(low));
+            if (candidates.isEmpty()) {
+                candidates.add(segment);
+                candidates.add(segment);
+                return;
+            }
+            if (segment.getLength() < checkNotNull(candidates.get(0)).getLength()) {
+                candidates.set(0, segment);
+            }
+            if (segment.getLength() > checkNotNull(candidates.get(1)).getLength()) {
+                candidates.set(1, segment);
+            }
+            return;
+        }
+        int mid = (low + high) >>> 1;
+        collectSegmentsBefore(2 * node, low, mid, limit, start, candidates);
+        collectSegmentsBefore(2 * node + 1, mid, high, limit, start, candidates);
+    }
+
+    private Level<E> buildFinestLevel() {
+        List<Long> buckets = new ArrayList<>();
+        List<E> shortest = new ArrayList<>();
+        List<E> longest = new ArrayList<>();
+        long currentBucket = -1;
+        for (int i = 0; i < fStarts.length; i++) {
+            long bucket = (fStarts[i] - fOrigin) >>> fFinestShift;
+            E segment = checkNotNull(fSegments.get(i));
+            if (bucket != currentBucket) {
+                buckets.add(bucket);
+                shortest.add(segment);
+                longest.add(segment);
+                currentBucket = bucket;
+            } else {
+                updateLast(shortest, longest, segment, segment);
+            }
+        }
+        return new Level<>(toArray(buckets), shortest, longest);
+    }
+
+    private static <E extends ISegment> Level<E> buildCoarserLevel(Level<E> finer) {
+        List<Long> buckets = new ArrayList<>();
+        List<E> shortest = new ArrayList<>();
+        List<E> longest = new ArrayList<>();
+        long currentBucket = -1;
+        for (int i = 0; i < finer.size(); i++) {
+            long bucket = finer.fBuckets[i] >>> 1;
+            E shortSeg = checkNotNull(finer.fShortest.get(i));
+            E longSeg = checkNotNull(finer.fLongest.get(i));
+            if (bucket != currentBucket) {
+                buckets.add(bucket);
+                shortest.add(shortSeg);
+                longest.add(longSeg);
+                currentBucket = bucket;
+            } else {
+                updateLast(shortest, longest, shortSeg, longSeg);
+            }
+        }
+        return new Level<>(toArray(buckets), shortest, longest);
+    }
+
+    private static <E extends ISegment> void updateLast(List<E> shortest, List<E> longest, E shortCandidate, E longCandidate) {
+        int last = shortest.size() - 1;
+        if (shortCandidate.getLength() < checkNotNull(shortest.get(last)).getLength()) {
+            shortest.set(last, shortCandidate);
+        }
+        if (longCandidate.getLength() > checkNotNull(longest.get(last)).getLength()) {
+            longest.set(last, longCandidate);
+        }
+    }
+
+    private static long[] toArray(List<Long> list) {
+        long[] array = new long[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = checkNotNull(list.get(i)).longValue();
+        }
+        return array;
+    }
+
+    /**
+     * Index of the first element of 'array' that is greater or equal to
+     * 'value', or array.length if there is none.
+     */
+    private static int lowerBound(long[] array, long value) {
+        int low = 0;
+        int high = array.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (array[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Keeps the shortest and longest segment of every pixel of a range. Since
+     * the candidates are received in (roughly) increasing start time order,
+     * only the current pixel needs to be tracked.
+     */
+    private static final class PixelCompactor<E extends ISegment> {
+        private final long fStart;
+        private final long fEnd;
+        private final long fResolution;
+        private final List<E> fResult = new ArrayList<>();
+
+        private long fCurrentPixel = -1;
+        private @Nullable E fShortest = null;
+        private @Nullable E fLongest = null;
+
+        public PixelCompactor(long start, long end, long resolution) {
+            fStart = start;
+            fEnd = end;
+            fResolution = resolution;
+        }
+
+        public void add(E segment) {
+            long segStart = segment.getStart();
+            if (segment.getEnd() < fStart || segStart > fEnd) {
+                return;
+            }
+            /* The segments that start before the range go in its first pixel */
+            long pixel = (segStart <= fStart) ? 0 : (segStart - fStart) / fResolution;
+            E shortest = fShortest;
+            E longest = fLongest;
+            if (pixel != fCurrentPixel || shortest == null || longest == null) {
+                flush();
+                fCurrentPixel = pixel;
+                fShortest = segment;
+                fLongest = segment;
+                return;
+            }
+            if (segment.getLength() < shortest.getLength()) {
+                fShortest = segment;
+            }
+            if (segment.getLength() > longest.getLength()) {
+                fLongest = segment;
+            }
+        }
+
+        public List<E> getResult() {
+            flush();
+            return fResult;
+        }
+
+        private void flush() {
+            E shortest = fShortest;
+            E longest = fLongest;
+            if (shortest == null || longest == null) {
+                return;
+            }
+            if (shortest == longest) {
+                fResult.add(shortest);
+            } else if (shortest.getStart() <= longest.getStart()) {
+                fResult.add(shortest);
+                fResult.add(longest);
+            } else {
+                fResult.add(longest);
+                fResult.add(shortest);
+            }
+            fShortest = null;
+            fLongest = null;
+        }
+    }
+}
@@ -76,9 +76,15 @@ public class TmfXmlEventHandler {
         }
     }
 
-    private boolean appliesToEvent(ITmfEvent event) {
-        String eventName = event.getName();
-
+    /**
+     * Test if this event handler applies to the events of a given type
+     *
+     * @param eventName
+     *            The name of the event type
+     * @return True if the events of this type are handled
+     * @since 1.1
+     */
+    public boolean appliesToEventName(String eventName) {
         /* test for full name */
         if (eventName.equals(fName)) {
             return true;
@@ -99,7 +105,7 @@ public class TmfXmlEventHandler {
      *            The trace event to handle
      */
     public void handleEvent(ITmfEvent event) {
-        if (!appliesToEvent(event)) {
+        if (!appliesToEventName(event.getName())) {
             return;
         }
 
@@ -12,12 +12,14 @@
 
 package org.eclipse.tracecompass.tmf.analysis.xml.core.stateprovider;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.jdt.annotation.NonNull;
@@ -48,6 +50,12 @@ public class XmlStateProvider extends AbstractTmfStateProvider implements IXmlSt
     /** List of all Event Handlers */
     private final Set<TmfXmlEventHandler> fEventHandlers = new HashSet<>();
 
+    /**
+     * Event handlers that apply to each event type, indexed by the handler
+     * number returned by {@link #resolveEventHandler(String)}
+     */
+    private final List<List<TmfXmlEventHandler>> fHandlerGroups = new CopyOnWriteArrayList<>();
+
     /** List of all Locations */
     private final Set<TmfXmlLocation> fLocations;
 
@@ -144,11 +152,39 @@ public class XmlStateProvider extends AbstractTmfStateProvider implements IXmlSt
 
     @Override
     protected void eventHandle(ITmfEvent event) {
-        for (TmfXmlEventHandler eventHandler : fEventHandlers) {
+        int handler = getEventHandler(event);
+        if (handler == NO_HANDLER) {
+            return;
+        }
+        for (TmfXmlEventHandler eventHandler : fHandlerGroups.get(handler)) {
             eventHandler.handleEvent(event);
         }
     }
 
+    /**
+     * The event names of the handlers come from the XML file and may end with
+     * a wildcard, so they cannot be registered up front. Instead, the handlers
+     * that apply to an event type are found the first time it is seen.
+     */
+    @Override
+    protected synchronized int resolveEventHandler(String eventName) {
+        List<TmfXmlEventHandler> group = new ArrayList<>();
+        for (TmfXmlEventHandler eventHandler : fEventHandlers) {
+            if (eventHandler.appliesToEventName(eventName)) {
+                group.add(eventHandler);
+            }
+        }
+        if (group.isEmpty()) {
+            return NO_HANDLER;
+        }
+        int handler = fHandlerGroups.indexOf(group);
+        if (handler < 0) {
+            fHandlerGroups.add(group);
+            handler = fHandlerGroups.size() - 1;
+        }
+        return handler;
+    }
+
     @Override
     public ITmfStateSystem getStateSystem() {
         return getStateSystemBuilder();
@@ -249,6 +249,72 @@ public class TmfEventProviderTest {
         }
     }
 
+    /**
+     * Test that background requests are held back until all the registered
+     * consumers of a read pass are released, and then dispatched together.
+     */
+    @Test
+    public void testReadPass() {
+        final int NB_EVENTS = 1000;
+        final Vector<ITmfEvent> requestedEventsReq1 = new Vector<>();
+        final Vector<ITmfEvent> requestedEventsReq2 = new Vector<>();
+        final Object consumer1 = new Object();
+        final Object consumer2 = new Object();
+
+        ITmfEventProvider[] eventProviders = TmfProviderManager.getProviders(ITmfEvent.class,
+                TmfEventProviderStub.class);
+        TmfEventProviderStub provider = (TmfEventProviderStub) eventProviders[0];
+
+        TmfTimeRange range = new TmfTimeRange(TmfTimestamp.BIG_BANG, TmfTimestamp.BIG_CRUNCH);
+        final TmfEventRequest request1 = new TmfEventRequest(ITmfEvent.class,
+                range, 0, NB_EVENTS, ExecutionType.BACKGROUND) {
+            @Override
+            public void handleData(ITmfEvent event) {
+                super.handleData(event);
+                requestedEventsReq1.add(event);
+            }
+        };
+        final TmfEventRequest request2 = new TmfEventRequest(ITmfEvent.class,
+                range, 0, NB_EVENTS, ExecutionType.BACKGROUND) {
+            @Override
+            public void handleData(ITmfEvent event) {
+                super.handleData(event);
+                requestedEventsReq2.add(event);
+            }
+        };
+
+        // No read pass is held, there is nothing to join
+        assertFalse("joinPipeline", provider.joinPipeline(consumer2));
+
+        provider.registerPipelineConsumer(consumer1);
+        assertTrue("joinPipeline", provider.joinPipeline(consumer2));
+
+        provider.sendRequest(request1);
+        provider.releasePipelineConsumer(consumer1);
+        // Releasing an unknown consumer has no effect
+        provider.releasePipelineConsumer(new Object());
+
+        // consumer2 is still expected, request1 must be held back
+        assertFalse("isRunning", request1.isRunning());
+        assertFalse("isCompleted", request1.isCompleted());
+
+        provider.sendRequest(request2);
+        provider.releasePipelineConsumer(consumer2);
+
+        try {
+            request1.waitForCompletion();
+            request2.waitForCompletion();
+        } catch (InterruptedException e) {
+            fail();
+        }
+        assertEquals("nbEvents", NB_EVENTS, requestedEventsReq1.size());
+        assertEquals("nbEvents", NB_EVENTS, requestedEventsReq2.size());
+        assertTrue("isCompleted", request1.isCompleted());
+        assertTrue("isCompleted", request2.isCompleted());
+        assertFalse("isCancelled", request1.isCancelled());
+        assertFalse("isCancelled", request2.isCancelled());
+    }
+
     private static void getSyntheticData(final TmfTimeRange range,
             final int nbEvents) throws InterruptedException {
 
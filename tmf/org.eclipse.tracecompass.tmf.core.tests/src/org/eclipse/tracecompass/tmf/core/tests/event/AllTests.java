@@ -27,6 +27,7 @@ import org.junit.runners.Suite;
     TmfEventFieldValueEqualsTest.class,
     TmfEventTest.class,
     TmfEventTypeTest.class,
+    TmfEventTypeIdsTest.class,
     TmfNanoTimestampTest.class,
     TmfSimpleTimestampTest.class,
     TmfTimePreferencesTest.class,
@@ -102,6 +102,7 @@ public class TmfEventTest {
         assertNotNull("getTrace", fEvent1.getTrace());
         assertEquals("getRank", 0, fEvent1.getRank());
         assertEquals("getTimestamp", fTimestamp1, fEvent1.getTimestamp());
+        assertEquals("getTimestampNanos", 12345 * 100000000000L, fEvent1.getTimestampNanos());
         assertEquals("getType", fType, fEvent1.getType());
         assertEquals("getContent", fContent1, fEvent1.getContent());
 
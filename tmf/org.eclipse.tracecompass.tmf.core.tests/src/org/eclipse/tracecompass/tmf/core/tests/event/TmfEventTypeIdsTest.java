@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.tests.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.tracecompass.tmf.core.event.TmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.TmfEventField;
+import org.eclipse.tracecompass.tmf.core.event.TmfEventType;
+import org.eclipse.tracecompass.tmf.core.event.TmfEventTypeIds;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
+import org.junit.Test;
+
+/**
+ * Test suite for the TmfEventTypeIds class.
+ */
+@SuppressWarnings("javadoc")
+public class TmfEventTypeIdsTest {
+
+    private static final String NAME1 = "TmfEventTypeIdsTest:type1";
+    private static final String NAME2 = "TmfEventTypeIdsTest:type2";
+
+    @Test
+    public void testStableIds() {
+        int id1 = TmfEventTypeIds.getId(NAME1);
+        int id2 = TmfEventTypeIds.getId(NAME2);
+        assertNotEquals(id1, id2);
+        assertEquals(id1, TmfEventTypeIds.getId(new String(NAME1)));
+        assertEquals(id2, TmfEventTypeIds.getId(NAME2));
+    }
+
+    @Test
+    public void testDenseIds() {
+        int id = TmfEventTypeIds.getId(NAME1);
+        assertTrue(id >= 0);
+        assertTrue(id < TmfEventTypeIds.getNbIds());
+    }
+
+    @Test
+    public void testEventId() {
+        TmfEvent event = new TmfEvent(null, 0, new TmfTimestamp(0),
+                new TmfEventType(NAME2, TmfEventField.makeRoot(new String[0])), null);
+        assertEquals(TmfEventTypeIds.getId(NAME2), event.getTypeId());
+        assertEquals(TmfEventTypeIds.getId(NAME2), TmfEventTypeIds.getId(event));
+    }
+}
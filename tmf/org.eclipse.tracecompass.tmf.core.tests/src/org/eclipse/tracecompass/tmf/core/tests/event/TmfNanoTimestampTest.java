@@ -15,6 +15,7 @@ package org.eclipse.tracecompass.tmf.core.tests.event;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -244,6 +245,25 @@ public class TmfNanoTimestampTest {
         assertTrue("CompareTo", ts2.compareTo(ts2a) == 0);
     }
 
+    @Test
+    public void testCompareToLimits() {
+        final ITmfTimestamp min = new TmfNanoTimestamp(Long.MIN_VALUE);
+        final ITmfTimestamp max = new TmfNanoTimestamp(Long.MAX_VALUE);
+        final ITmfTimestamp nanos = new TmfTimestamp(1000, ITmfTimestamp.NANOSECOND_SCALE);
+
+        assertTrue("CompareTo", min.compareTo(max) < 0);
+        assertTrue("CompareTo", max.compareTo(min) > 0);
+        assertTrue("CompareTo", max.compareTo(nanos) > 0);
+        assertTrue("CompareTo", nanos.compareTo(min) > 0);
+        assertTrue("CompareTo", new TmfNanoTimestamp(1000).compareTo(nanos) == 0);
+    }
+
+    @Test
+    public void testNormalizeToNanos() {
+        assertSame(ts1, ts1.normalize(0, ITmfTimestamp.NANOSECOND_SCALE));
+        assertEquals(ts1.getValue(), ts1.toNanos());
+    }
+
     // ------------------------------------------------------------------------
     // getDelta
     // ------------------------------------------------------------------------
@@ -25,6 +25,7 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 
 import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestampFormat;
 import org.junit.Test;
@@ -236,6 +237,104 @@ public class TmfTimestampTest {
         assertEquals("toString", "-000.000 012 345", ts9.toString(TmfTimestampFormat.getDefaulIntervalFormat()));
     }
 
+    // ------------------------------------------------------------------------
+    // toNanos
+    // ------------------------------------------------------------------------
+
+    @Test
+    public void testToNanos() {
+        assertEquals(0, ts0.toNanos());
+        assertEquals(12345000000000L, ts1.toNanos());
+        assertEquals(1234500000000L, ts2.toNanos());
+        assertEquals(1234500000000000L, ts3.toNanos());
+        assertEquals(12345000000L, ts4.toNanos());
+        assertEquals(12345000L, ts5.toNanos());
+        assertEquals(12345L, ts6.toNanos());
+        assertEquals(-12345000000L, ts7.toNanos());
+        assertEquals(-12345000L, ts8.toNanos());
+        assertEquals(-12345L, ts9.toNanos());
+    }
+
+    @Test
+    public void testToNanosLimits() {
+        assertEquals(Long.MIN_VALUE, TmfTimestamp.BIG_BANG.toNanos());
+        assertEquals(Long.MAX_VALUE, TmfTimestamp.BIG_CRUNCH.toNanos());
+        assertEquals(12, new TmfTimestamp(12345, -12).toNanos());
+        assertEquals(0, new TmfTimestamp(12345, -30).toNanos());
+        assertEquals(Long.MAX_VALUE, new TmfTimestamp(12345, 10).toNanos());
+        assertEquals(Long.MIN_VALUE, new TmfTimestamp(-12345, 10).toNanos());
+        assertEquals(Long.MIN_VALUE, new TmfTimestamp(Long.MIN_VALUE, -6).toNanos());
+        assertEquals(Long.MAX_VALUE, new TmfTimestamp(Long.MAX_VALUE, -6).toNanos());
+        assertEquals(Long.MIN_VALUE / 1000 * 1000, new TmfTimestamp(Long.MIN_VALUE / 1000, -6).toNanos());
+    }
+
+    @Test
+    public void testToNanosMatchesNormalize() {
+        ITmfTimestamp[] timestamps = { ts0, ts1, ts2, ts3, ts4, ts5, ts6, ts7, ts8, ts9 };
+        for (ITmfTimestamp ts : timestamps) {
+            assertEquals(ts.normalize(0, ITmfTimestamp.NANOSECOND_SCALE).getValue(), ts.toNanos());
+        }
+    }
+
+    /**
+     * Timestamp that uses the default implementation of toNanos()
+     */
+    private static class DefaultNanosTimestamp implements ITmfTimestamp {
+        private final ITmfTimestamp fTimestamp;
+
+        public DefaultNanosTimestamp(ITmfTimestamp timestamp) {
+            fTimestamp = timestamp;
+        }
+
+        @Override
+        public long getValue() {
+            return fTimestamp.getValue();
+        }
+
+        @Override
+        public int getScale() {
+            return fTimestamp.getScale();
+        }
+
+        @Override
+        public ITmfTimestamp normalize(long offset, int scale) {
+            return fTimestamp.normalize(offset, scale);
+        }
+
+        @Override
+        public ITmfTimestamp getDelta(ITmfTimestamp ts) {
+            return fTimestamp.getDelta(ts);
+        }
+
+        @Override
+        public boolean intersects(TmfTimeRange range) {
+            return fTimestamp.intersects(range);
+        }
+
+        @Override
+        public int compareTo(ITmfTimestamp ts) {
+            return fTimestamp.compareTo(ts);
+        }
+
+        @Override
+        public String toString(TmfTimestampFormat format) {
+            return fTimestamp.toString(format);
+        }
+    }
+
+    @Test
+    public void testDefaultToNanos() {
+        ITmfTimestamp[] timestamps = { ts0, ts1, ts2, ts3, ts4, ts5, ts6, ts7, ts8, ts9,
+                TmfTimestamp.BIG_BANG, TmfTimestamp.BIG_CRUNCH,
+                new TmfTimestamp(12345, -12), new TmfTimestamp(12345, -30),
+                new TmfTimestamp(12345, 10), new TmfTimestamp(-12345, 10),
+                new TmfTimestamp(Long.MIN_VALUE, -6), new TmfTimestamp(Long.MAX_VALUE, -6),
+                new TmfTimestamp(Long.MIN_VALUE / 1000, -6) };
+        for (ITmfTimestamp ts : timestamps) {
+            assertEquals(ts.toNanos(), new DefaultNanosTimestamp(ts).toNanos());
+        }
+    }
+
     // ------------------------------------------------------------------------
     // normalize
     // ------------------------------------------------------------------------
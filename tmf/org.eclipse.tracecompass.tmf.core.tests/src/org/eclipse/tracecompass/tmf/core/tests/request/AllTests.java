@@ -22,6 +22,7 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
     TmfCoalescedEventRequestTest.class,
+    TmfRequestExecutorTest.class,
     TmfEventRequestTest.class,
 })
 public class AllTests {
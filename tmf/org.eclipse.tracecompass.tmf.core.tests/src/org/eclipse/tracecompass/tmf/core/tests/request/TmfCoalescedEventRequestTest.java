@@ -21,6 +21,7 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.List;
 import java.util.Vector;
 
 import org.eclipse.core.runtime.FileLocator;
@@ -31,6 +32,7 @@ import org.eclipse.tracecompass.tmf.core.component.ITmfEventProvider;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
 import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest.ExecutionType;
+import org.eclipse.tracecompass.tmf.core.request.TmfBatchEventRequest;
 import org.eclipse.tracecompass.tmf.core.request.TmfEventRequest;
 import org.eclipse.tracecompass.tmf.core.signal.TmfSignal;
 import org.eclipse.tracecompass.tmf.core.signal.TmfSignalHandler;
@@ -381,6 +383,12 @@ public class TmfCoalescedEventRequestTest {
         }
     }
 
+    private static class TmfTestTriggerSignal3 extends TmfSignal {
+        public TmfTestTriggerSignal3(Object source) {
+            super(source);
+        }
+    }
+
     @TmfSignalHandler
     public void trigger(final TmfTestTriggerSignal signal) {
 
@@ -453,6 +461,76 @@ public class TmfCoalescedEventRequestTest {
         providers[0].sendRequest(request1);
     }
 
+    private static final int BATCH_SIZE = 100;
+    private int fLargestBatch;
+
+    /**
+     * @param signal
+     *            the trigger signal
+     */
+    @TmfSignalHandler
+    public void trigger(final TmfTestTriggerSignal3 signal) {
+        TmfTimeRange range = TmfTimeRange.ETERNITY;
+        final long REQUEST_OFFSET = 1000;
+
+        requestedEvents1 = new Vector<>();
+        request1 = new TmfEventRequest(ITmfEvent.class, range, 0, NB_EVENTS, ExecutionType.FOREGROUND) {
+            @Override
+            public void handleData(ITmfEvent event) {
+                super.handleData(event);
+                if (!isCompleted()) {
+                    requestedEvents1.add(event);
+                }
+            }
+        };
+
+        requestedEvents2 = new Vector<>();
+        fLargestBatch = 0;
+        request2 = new TmfBatchEventRequest(ITmfEvent.class, range, REQUEST_OFFSET, NB_EVENTS, ExecutionType.FOREGROUND, BATCH_SIZE) {
+            @Override
+            public void handleData(List<ITmfEvent> events) {
+                super.handleData(events);
+                fLargestBatch = Math.max(fLargestBatch, events.size());
+                requestedEvents2.addAll(events);
+            }
+        };
+
+        providers = TmfProviderManager.getProviders(ITmfEvent.class, TmfTraceStub.class);
+        providers[0].sendRequest(request1);
+        providers[0].sendRequest(request2);
+    }
+
+    @Test
+    public void testCoalescedBatchRequest() throws InterruptedException {
+        fTrace = setupTrace(TEST_TRACE.getFullPath());
+
+        TmfSignalManager.register(this);
+        TmfTestTriggerSignal3 signal = new TmfTestTriggerSignal3(this);
+        TmfSignalManager.dispatchSignal(signal);
+
+        request1.waitForCompletion();
+        request2.waitForCompletion();
+
+        try {
+            assertEquals("Request1: nbEvents", NB_EVENTS, requestedEvents1.size());
+            assertEquals("Request2: nbEvents", NB_EVENTS, requestedEvents2.size());
+            assertEquals("Request2: getNbRead", NB_EVENTS, request2.getNbRead());
+            assertTrue("Request2: batch size", fLargestBatch > 1 && fLargestBatch <= BATCH_SIZE);
+            assertTrue("Request2: isCompleted", request2.isCompleted());
+            assertFalse("Request2: isCancelled", request2.isCancelled());
+
+            // Ensure that the batches delivered the right events, in order
+            for (int i = 0; i < NB_EVENTS; i++) {
+                assertEquals("Distinct events", i + 1 + request1.getIndex(), requestedEvents1.get(i).getTimestamp().getValue());
+                assertEquals("Distinct events", i + 1 + request2.getIndex(), requestedEvents2.get(i).getTimestamp().getValue());
+            }
+        } finally {
+            TmfSignalManager.deregister(this);
+            fTrace.dispose();
+            fTrace = null;
+        }
+    }
+
     public void runCoalescedRequest(long startIndex) throws InterruptedException {
 
         fTrace = setupTrace(TEST_TRACE.getFullPath());
@@ -0,0 +1,314 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.tests.request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.tracecompass.internal.tmf.core.component.TmfEventThread;
+import org.eclipse.tracecompass.internal.tmf.core.request.TmfRequestExecutor;
+import org.eclipse.tracecompass.tmf.core.component.TmfEventProvider;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest;
+import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest.ExecutionType;
+import org.eclipse.tracecompass.tmf.core.request.TmfEventRequest;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.junit.rules.Timeout;
+
+/**
+ * Test the scheduling of {@link TmfRequestExecutor}
+ */
+public class TmfRequestExecutorTest {
+
+    /** Time-out tests after 20 seconds */
+    @Rule
+    public TestRule globalTimeout = new Timeout(20, TimeUnit.SECONDS);
+
+    /** How long to wait to make sure that a request does not start */
+    private static final long NO_START_DELAY = 200;
+
+    private final TmfEventProvider fProvider = new TmfEventProvider() {
+        @Override
+        public ITmfContext armRequest(ITmfEventRequest request) {
+            return null;
+        }
+
+        @Override
+        public ITmfEvent getNext(ITmfContext context) {
+            return null;
+        }
+    };
+
+    private final List<String> fStarted = Collections.synchronizedList(new ArrayList<String>());
+    private final Semaphore fStartedCount = new Semaphore(0);
+    private TmfRequestExecutor fExecutor;
+
+    /**
+     * Request that runs until it is released
+     */
+    private class BlockingTask extends TmfEventThread {
+
+        private final String fName;
+        private final CountDownLatch fRelease = new CountDownLatch(1);
+
+        public BlockingTask(String name, ExecutionType type) {
+            super(fProvider, new TmfEventRequest(ITmfEvent.class, 0, 1, type) {});
+            fName = name;
+        }
+
+        @Override
+        public void run() {
+            fStarted.add(fName);
+            fStartedCount.release();
+            try {
+                fRelease.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        public void release() {
+            fRelease.countDown();
+        }
+    }
+
+    /**
+     * Stop the executor and release the requests
+     */
+    @After
+    public void tearDown() {
+        if (fExecutor != null) {
+            fExecutor.stop();
+        }
+        fProvider.dispose();
+    }
+
+    private BlockingTask submit(String name, ExecutionType type) {
+        BlockingTask task = new BlockingTask(name, type);
+        fExecutor.execute(task);
+        return task;
+    }
+
+    private void waitForStarts(int nbStarts) throws InterruptedException {
+        assertTrue(fStartedCount.tryAcquire(nbStarts, 10, TimeUnit.SECONDS));
+    }
+
+    private void assertNoStart() throws InterruptedException {
+        assertFalse(fStartedCount.tryAcquire(NO_START_DELAY, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Make sure that no more requests than slots run at the same time, and
+     * that a waiting request starts as soon as a slot is freed.
+     *
+     * @throws InterruptedException
+     *             If the test is interrupted
+     */
+    @Test
+    public void testSlots() throws InterruptedException {
+        fExecutor = new TmfRequestExecutor(2);
+        fExecutor.init();
+
+        BlockingTask first = submit("1", ExecutionType.FOREGROUND);
+        BlockingTask second = submit("2", ExecutionType.FOREGROUND);
+        BlockingTask third = submit("3", ExecutionType.FOREGROUND);
+        waitForStarts(2);
+        assertNoStart();
+        assertEquals(Arrays.asList("1", "2"), fStarted);
+
+        first.release();
+        waitForStarts(1);
+        assertEquals(Arrays.asList("1", "2", "3"), fStarted);
+
+        second.release();
+        third.release();
+    }
+
+    /**
+     * Make sure that requests sent before the executor is initialized only
+     * start once it is.
+     *
+     * @throws InterruptedException
+     *             If the test is interrupted
+     */
+    @Test
+    public void testInit() throws InterruptedException {
+        fExecutor = new TmfRequestExecutor(2);
+
+        BlockingTask task = submit("1", ExecutionType.FOREGROUND);
+        assertNoStart();
+
+        fExecutor.init();
+        waitForStarts(1);
+        task.release();
+    }
+
+    /**
+     * Make sure that background requests leave a slot for foreground
+     * requests, which then start without suspending anything.
+     *
+     * @throws InterruptedException
+     *             If the test is interrupted
+     */
+    @Test
+    public void testForegroundSlot() throws InterruptedException {
+        fExecutor = new TmfRequestExecutor(3);
+        fExecutor.init();
+
+        List<BlockingTask> tasks = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            tasks.add(submit("B" + i, ExecutionType.BACKGROUND));
+        }
+        waitForStarts(2);
+        assertNoStart();
+
+        BlockingTask foreground = submit("F", ExecutionType.FOREGROUND);
+        waitForStarts(1);
+        assertEquals(Arrays.asList("B0", "B1", "F"), fStarted);
+
+        /* The foreground slot stays free for the next foreground request */
+        foreground.release();
+        assertNoStart();
+
+        /* A background slot goes to the waiting background request */
+        tasks.get(0).release();
+        waitForStarts(1);
+        assertEquals("B2", fStarted.get(3));
+        for (BlockingTask task : tasks) {
+            task.release();
+        }
+    }
+
+    /**
+     * Make sure that a waiting background request gets a slot after 4
+     * foreground requests got one, even with a single slot.
+     *
+     * @throws InterruptedException
+     *             If the test is interrupted
+     */
+    @Test
+    public void testWeights() throws InterruptedException {
+        fExecutor = new TmfRequestExecutor(1);
+        fExecutor.init();
+
+        List<BlockingTask> tasks = new ArrayList<>();
+        tasks.add(submit("F0", ExecutionType.FOREGROUND));
+        waitForStarts(1);
+        for (int i = 1; i <= 6; i++) {
+            tasks.add(submit("F" + i, ExecutionType.FOREGROUND));
+        }
+        tasks.add(submit("B", ExecutionType.BACKGROUND));
+
+        for (BlockingTask task : tasks) {
+            task.release();
+        }
+        waitForStarts(tasks.size() - 1);
+        assertEquals(Arrays.asList("F0", "F1", "F2", "F3", "F4"), fStarted.subList(0, 5));
+        /* F5 can start along with B, in the extra foreground slot */
+        assertTrue(fStarted.indexOf("B") < fStarted.indexOf("F6"));
+        assertTrue(fStarted.indexOf("F5") < fStarted.indexOf("F6"));
+    }
+
+    /**
+     * Make sure that with a single slot, a foreground request does not wait
+     * for the background request holding it.
+     *
+     * @throws InterruptedException
+     *             If the test is interrupted
+     */
+    @Test
+    public void testSingleSlotForeground() throws InterruptedException {
+        fExecutor = new TmfRequestExecutor(1);
+        fExecutor.init();
+
+        List<BlockingTask> tasks = new ArrayList<>();
+        tasks.add(submit("B0", ExecutionType.BACKGROUND));
+        tasks.add(submit("B1", ExecutionType.BACKGROUND));
+        waitForStarts(1);
+        assertNoStart();
+
+        tasks.add(submit("F0", ExecutionType.FOREGROUND));
+        tasks.add(submit("F1", ExecutionType.FOREGROUND));
+        waitForStarts(1);
+        assertNoStart();
+        assertEquals(Arrays.asList("B0", "F0"), fStarted);
+
+        for (BlockingTask task : tasks) {
+            task.release();
+        }
+    }
+
+    /**
+     * Make sure that the number of slots follows the bound given by the
+     * provider.
+     *
+     * @throws InterruptedException
+     *             If the test is interrupted
+     */
+    @Test
+    public void testSlotBound() throws InterruptedException {
+        AtomicInteger bound = new AtomicInteger(1);
+        fExecutor = new TmfRequestExecutor(bound::get);
+        fExecutor.init();
+
+        List<BlockingTask> tasks = new ArrayList<>();
+        tasks.add(submit("1", ExecutionType.FOREGROUND));
+        tasks.add(submit("2", ExecutionType.FOREGROUND));
+        waitForStarts(1);
+        assertNoStart();
+
+        bound.set(3);
+        tasks.add(submit("3", ExecutionType.FOREGROUND));
+        waitForStarts(2);
+        assertEquals(Arrays.asList("1", "2", "3"), fStarted);
+        for (BlockingTask task : tasks) {
+            task.release();
+        }
+    }
+
+    /**
+     * Make sure that stopping the executor cancels the running and the
+     * waiting requests.
+     *
+     * @throws InterruptedException
+     *             If the test is interrupted
+     */
+    @Test
+    public void testStop() throws InterruptedException {
+        fExecutor = new TmfRequestExecutor(1);
+        fExecutor.init();
+
+        BlockingTask running = submit("1", ExecutionType.FOREGROUND);
+        BlockingTask waiting = submit("2", ExecutionType.BACKGROUND);
+        waitForStarts(1);
+
+        fExecutor.stop();
+        assertTrue(running.getRequest().isCancelled());
+        assertTrue(waiting.getRequest().isCancelled());
+        assertTrue(fExecutor.isShutdown());
+
+        running.release();
+        assertNoStart();
+    }
+}
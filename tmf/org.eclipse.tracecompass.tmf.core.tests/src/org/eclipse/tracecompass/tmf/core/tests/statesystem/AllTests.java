@@ -21,6 +21,7 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
     ExperimentStateSystemModuleTest.class,
+    PartitionedStateProviderTest.class,
     StateSystemAnalysisModuleTest.class
 })
 public class AllTests {
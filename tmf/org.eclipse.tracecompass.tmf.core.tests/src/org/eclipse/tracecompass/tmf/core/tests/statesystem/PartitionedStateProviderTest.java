@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.tests.statesystem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.tracecompass.statesystem.core.StateSystemFactory;
+import org.eclipse.tracecompass.statesystem.core.backend.StateHistoryBackendFactory;
+import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateValueTypeException;
+import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
+import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.TmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.TmfEventType;
+import org.eclipse.tracecompass.tmf.core.statesystem.AbstractTmfStateProvider;
+import org.eclipse.tracecompass.tmf.core.statesystem.ITmfStateProvider;
+import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
+import org.eclipse.tracecompass.tmf.tests.stubs.trace.TmfTraceStub;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.junit.rules.Timeout;
+
+/**
+ * Test the partitions of {@link AbstractTmfStateProvider}
+ */
+public class PartitionedStateProviderTest {
+
+    /** Time-out tests after 20 seconds */
+    @Rule
+    public TestRule globalTimeout = new Timeout(20, TimeUnit.SECONDS);
+
+    private static final int NB_PARTITIONS = 3;
+    private static final int NB_KEYS = 5;
+    private static final int NB_TYPES = 4;
+    private static final int NB_EVENTS = 1000;
+
+    /**
+     * Provider whose events of each key are prepared by one partition, and
+     * which records what it prepares and handles.
+     */
+    private static class PartitionedProviderStub extends AbstractTmfStateProvider {
+
+        private final boolean fFailing;
+
+        /** Ranks of the events prepared for each key, in preparation order */
+        final Map<Integer, List<Long>> fPrepared = new ConcurrentHashMap<>();
+        /** Number of times each event type was resolved */
+        final Map<String, AtomicInteger> fResolved = new ConcurrentHashMap<>();
+        /** Ranks of the handled events, in handling order */
+        final List<Long> fHandled = new ArrayList<>();
+        /** Prepared values given with the handled events */
+        final List<@Nullable Object> fHandledValues = new ArrayList<>();
+
+        public PartitionedProviderStub(boolean failing) {
+            super(new TmfTraceStub(), "Partitioned Stub", NB_PARTITIONS);
+            fFailing = failing;
+        }
+
+        @Override
+        public int getVersion() {
+            return 1;
+        }
+
+        @Override
+        public ITmfStateProvider getNewInstance() {
+            return new PartitionedProviderStub(fFailing);
+        }
+
+        @Override
+        protected int resolveEventHandler(String eventName) {
+            fResolved.computeIfAbsent(eventName, name -> new AtomicInteger()).incrementAndGet();
+            return NO_HANDLER;
+        }
+
+        @Override
+        protected int getEventPartition(ITmfEvent event) {
+            return (int) (event.getRank() % NB_KEYS);
+        }
+
+        @Override
+        protected @Nullable Object prepareEvent(ITmfEvent event, int key) {
+            getEventHandler(event);
+            fPrepared.computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>())).add(event.getRank());
+            if (fFailing && event.getRank() % 7 == 0) {
+                throw new IllegalStateException("Failing on purpose");
+            }
+            return event.getRank() * 2;
+        }
+
+        @Override
+        protected void eventHandle(ITmfEvent event, @Nullable Object prepared) {
+            fHandledValues.add(prepared);
+            eventHandle(event);
+        }
+
+        @Override
+        protected void eventHandle(ITmfEvent event) {
+            fHandled.add(event.getRank());
+            ITmfStateSystemBuilder ss = getStateSystemBuilder();
+            if (ss == null) {
+                return;
+            }
+            try {
+                int quark = ss.getQuarkAbsoluteAndAdd("rank");
+                ss.modifyAttribute(event.getTimestamp().getValue(), TmfStateValue.newValueLong(event.getRank()), quark);
+            } catch (TimeRangeException | AttributeNotFoundException | StateValueTypeException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static @NonNull ITmfEvent createEvent(long rank) {
+        TmfEventType type = new TmfEventType("partitioned" + (rank % NB_TYPES), null);
+        return new TmfEvent(null, rank, new TmfTimestamp(rank + 1, ITmfTimestamp.NANOSECOND_SCALE), type, null);
+    }
+
+    private static ITmfStateSystemBuilder assign(PartitionedProviderStub provider) {
+        ITmfStateSystemBuilder ss = StateSystemFactory.newStateSystem(
+                StateHistoryBackendFactory.createInMemoryBackend("partitioned-test", 0));
+        provider.assignTargetStateSystem(ss);
+        return ss;
+    }
+
+    /**
+     * Send events one at a time and in batches, and check that they are
+     * handled in trace order, with the values prepared by their partition.
+     */
+    @Test
+    public void testOrdering() {
+        PartitionedProviderStub provider = new PartitionedProviderStub(false);
+        ITmfStateSystemBuilder ss = assign(provider);
+
+        List<ITmfEvent> batch = new ArrayList<>();
+        for (long rank = 0; rank < NB_EVENTS; rank++) {
+            if (rank % 100 < 50) {
+                provider.processEvent(createEvent(rank));
+            } else {
+                batch.add(createEvent(rank));
+                if (rank % 100 == 99) {
+                    provider.processEvents(batch);
+                    batch.clear();
+                }
+            }
+        }
+        provider.dispose();
+        assertTrue(ss.waitUntilBuilt(0));
+
+        assertEquals(NB_EVENTS, provider.fHandled.size());
+        for (int i = 0; i < NB_EVENTS; i++) {
+            assertEquals(Long.valueOf(i), provider.fHandled.get(i));
+        }
+
+        /* Events sent one at a time are also prepared by the partitions */
+        for (int i = 0; i < NB_EVENTS; i++) {
+            assertEquals(Long.valueOf(i * 2L), provider.fHandledValues.get(i));
+        }
+
+        /* The events of each key are prepared in trace order */
+        assertEquals(NB_KEYS, provider.fPrepared.size());
+        for (List<Long> ranks : provider.fPrepared.values()) {
+            for (int i = 1; i < ranks.size(); i++) {
+                assertTrue(ranks.get(i - 1) < ranks.get(i));
+            }
+        }
+
+        /* Event types are resolved once, even with concurrent lookups */
+        assertEquals(NB_TYPES, provider.fResolved.size());
+        for (AtomicInteger count : provider.fResolved.values()) {
+            assertEquals(1, count.get());
+        }
+    }
+
+    /**
+     * Make sure that events that fail to be prepared are still handled, in
+     * order and without a prepared value.
+     */
+    @Test
+    public void testPrepareFailure() {
+        PartitionedProviderStub provider = new PartitionedProviderStub(true);
+        ITmfStateSystemBuilder ss = assign(provider);
+
+        for (long rank = 0; rank < NB_EVENTS; rank++) {
+            provider.processEvent(createEvent(rank));
+        }
+        provider.dispose();
+        assertTrue(ss.waitUntilBuilt(0));
+
+        assertEquals(NB_EVENTS, provider.fHandled.size());
+        for (int i = 0; i < NB_EVENTS; i++) {
+            assertEquals(Long.valueOf(i), provider.fHandled.get(i));
+            if (i % 7 == 0) {
+                assertNull(provider.fHandledValues.get(i));
+            } else {
+                assertEquals(Long.valueOf(i * 2L), provider.fHandledValues.get(i));
+            }
+        }
+    }
+
+    /**
+     * Make sure that dispose() handles the events of an incomplete batch,
+     * closes the state system and stops the partition threads.
+     */
+    @Test
+    public void testDispose() {
+        PartitionedProviderStub provider = new PartitionedProviderStub(false);
+        ITmfStateSystemBuilder ss = assign(provider);
+
+        final int nbEvents = 10;
+        for (long rank = 0; rank < nbEvents; rank++) {
+            provider.processEvent(createEvent(rank));
+        }
+        provider.dispose();
+
+        assertTrue(ss.waitUntilBuilt(0));
+        assertEquals(nbEvents, provider.fHandled.size());
+        assertEquals(nbEvents, ss.getCurrentEndTime());
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            assertFalse(thread.getName(), thread.getName().startsWith("Partitioned Stub"));
+        }
+
+        /* The provider does not accept events anymore */
+        provider.processEvent(createEvent(nbEvents));
+        assertEquals(nbEvents, provider.fHandled.size());
+    }
+}
@@ -12,17 +12,29 @@
 
 package org.eclipse.tracecompass.tmf.core.tests.statesystem;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.tmf.core.exceptions.TmfAnalysisException;
+import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
 import org.eclipse.tracecompass.tmf.core.signal.TmfSignalManager;
 import org.eclipse.tracecompass.tmf.core.signal.TmfTraceOpenedSignal;
+import org.eclipse.tracecompass.tmf.core.signal.TmfTraceRangeUpdatedSignal;
 import org.eclipse.tracecompass.tmf.core.statesystem.TmfStateSystemAnalysisModule;
 import org.eclipse.tracecompass.tmf.core.tests.shared.TmfTestTrace;
+import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTraceCompleteness;
+import org.eclipse.tracecompass.tmf.tests.stubs.analysis.TestStateSystemModule;
 import org.eclipse.tracecompass.tmf.tests.stubs.trace.TmfTraceStub;
 import org.junit.After;
 import org.junit.Before;
@@ -45,8 +57,37 @@ public class StateSystemAnalysisModuleTest {
     /** ID of the test state system analysis module */
     public static final String MODULE_SS = "org.eclipse.linuxtools.tmf.core.tests.analysis.sstest";
 
+    /** How long to wait to make sure that a state system is not closed */
+    private static final long NOT_BUILT_DELAY = 500;
+
     private TmfStateSystemAnalysisModule module;
 
+    /**
+     * Trace that is still being written, until it is set complete
+     */
+    private static class IncompleteTraceStub extends TmfTraceStub implements ITmfTraceCompleteness {
+
+        private volatile boolean fComplete = false;
+
+        public IncompleteTraceStub(String path) throws TmfTraceException {
+            super(path, ITmfTrace.DEFAULT_TRACE_CACHE_SIZE, true, null);
+        }
+
+        public void setRange(TmfTimeRange range) {
+            setTimeRange(range);
+        }
+
+        @Override
+        public boolean isComplete() {
+            return fComplete;
+        }
+
+        @Override
+        public void setComplete(boolean isComplete) {
+            fComplete = isComplete;
+        }
+    }
+
     /**
      * Setup test trace
      */
@@ -96,4 +137,44 @@ public class StateSystemAnalysisModuleTest {
         assertNotNull(module.getStateSystem());
     }
 
+    /**
+     * Make sure that the state system of a trace that is not complete stays
+     * open once the events of its range are read, and that it is closed with
+     * the events of the extended range once the trace is complete.
+     *
+     * @throws TmfTraceException
+     *             If the trace cannot be opened
+     * @throws TmfAnalysisException
+     *             If the module cannot be set up
+     */
+    @Test
+    public void testIncompleteTrace() throws TmfTraceException, TmfAnalysisException {
+        IncompleteTraceStub trace = new IncompleteTraceStub(TmfTestTrace.A_TEST_10K.getFullPath());
+        TestStateSystemModule incompleteModule = new TestStateSystemModule();
+        try {
+            TmfTimeRange fullRange = trace.getTimeRange();
+            ITmfTimestamp start = fullRange.getStartTime();
+            ITmfTimestamp end = fullRange.getEndTime();
+            ITmfTimestamp middle = new TmfTimestamp((start.getValue() + end.getValue()) / 2, end.getScale());
+            trace.setRange(new TmfTimeRange(start, middle));
+
+            incompleteModule.setId(MODULE_SS + ".incomplete");
+            assertTrue(incompleteModule.setTrace(trace));
+            incompleteModule.schedule();
+            incompleteModule.waitForInitialization();
+            ITmfStateSystem ss = incompleteModule.getStateSystem();
+            assertNotNull(ss);
+            assertFalse(ss.waitUntilBuilt(NOT_BUILT_DELAY));
+
+            /* The last range update of the trace */
+            trace.setComplete(true);
+            incompleteModule.traceRangeUpdated(new TmfTraceRangeUpdatedSignal(this, trace, fullRange));
+            assertTrue(incompleteModule.waitForCompletion());
+            assertTrue(ss.waitUntilBuilt(0));
+            assertEquals(end.toNanos(), ss.getCurrentEndTime());
+        } finally {
+            incompleteModule.dispose();
+            trace.dispose();
+        }
+    }
 }
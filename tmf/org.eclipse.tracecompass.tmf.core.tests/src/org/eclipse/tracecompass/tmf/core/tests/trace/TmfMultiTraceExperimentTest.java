@@ -732,6 +732,36 @@ public class TmfMultiTraceExperimentTest {
         }
     }
 
+    @Test
+    public void testProcessRequestReadAhead() throws InterruptedException {
+        final int startRank = 1234;
+        final int nbEvents = 5000;
+        final Vector<ITmfEvent> requestedEvents = new Vector<>();
+
+        // Long requests read the traces ahead of the merge
+        final TmfTimeRange range = new TmfTimeRange(TmfTimestamp.BIG_BANG, TmfTimestamp.BIG_CRUNCH);
+        final TmfEventRequest request = new TmfEventRequest(ITmfEvent.class,
+                range, startRank, nbEvents, ExecutionType.FOREGROUND) {
+            @Override
+            public void handleData(final ITmfEvent event) {
+                super.handleData(event);
+                requestedEvents.add(event);
+            }
+        };
+        fExperiment.sendRequest(request);
+        request.waitForCompletion();
+        assertEquals("nbEvents", nbEvents, requestedEvents.size());
+
+        // Compare with the events read one at a time
+        ITmfContext context = fExperiment.seekEvent(startRank);
+        for (int i = 0; i < nbEvents; i++) {
+            ITmfEvent event = fExperiment.getNext(context);
+            assertNotNull(event);
+            assertEquals("Event timestamp", event.getTimestamp(), requestedEvents.get(i).getTimestamp());
+        }
+        context.dispose();
+    }
+
     // ------------------------------------------------------------------------
     // cancel
     // ------------------------------------------------------------------------
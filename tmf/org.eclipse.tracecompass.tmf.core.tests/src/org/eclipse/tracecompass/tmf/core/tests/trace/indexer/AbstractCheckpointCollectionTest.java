@@ -20,7 +20,11 @@ import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.eclipse.tracecompass.internal.tmf.core.trace.indexer.ICheckpointCollection;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
@@ -46,6 +50,8 @@ public abstract class AbstractCheckpointCollectionTest {
      * The number of checkpoints to be inserted in insert tests
      */
     protected static final int CHECKPOINTS_INSERT_NUM = 50000;
+
+    private static final int NB_SEARCH_THREADS = 4;
     /**
      * The collection being tested
      */
@@ -415,4 +421,44 @@ public abstract class AbstractCheckpointCollectionTest {
         fCheckpointCollection.insert(new TmfCheckpoint(new TmfTimestamp(12345), new TmfLongLocation(123456L), 0));
         assertEquals(1, fCheckpointCollection.size());
     }
+
+    /**
+     * Test searching a complete collection from several threads, and
+     * inserting checkpoints in it afterwards.
+     *
+     * @throws Exception
+     *             if a search thread fails
+     */
+    @Test
+    public void testBinarySearchConcurrentAfterComplete() throws Exception {
+        for (int i = 0; i < CHECKPOINTS_INSERT_NUM; i++) {
+            fCheckpointCollection.insert(new TmfCheckpoint(new TmfTimestamp(2 * i), new TmfLongLocation(2L * i), i));
+        }
+        fCheckpointCollection.setIndexComplete();
+
+        ExecutorService executor = Executors.newFixedThreadPool(NB_SEARCH_THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < NB_SEARCH_THREADS; thread++) {
+                futures.add(executor.submit(() -> {
+                    Random rand = new Random();
+                    for (int i = 0; i < CHECKPOINTS_INSERT_NUM; i++) {
+                        int rank = rand.nextInt(CHECKPOINTS_INSERT_NUM);
+                        TmfCheckpoint checkpoint = new TmfCheckpoint(new TmfTimestamp(2 * rank), new TmfLongLocation(2L * rank), 0);
+                        assertEquals(rank, fCheckpointCollection.binarySearch(checkpoint));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        TmfCheckpoint checkpoint = new TmfCheckpoint(new TmfTimestamp(2 * CHECKPOINTS_INSERT_NUM), new TmfLongLocation(2L * CHECKPOINTS_INSERT_NUM), CHECKPOINTS_INSERT_NUM);
+        fCheckpointCollection.insert(checkpoint);
+        assertEquals(CHECKPOINTS_INSERT_NUM + 1, fCheckpointCollection.size());
+        assertEquals(CHECKPOINTS_INSERT_NUM, fCheckpointCollection.binarySearch(checkpoint));
+    }
 }
@@ -24,6 +24,7 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses({
     BTreeTest.class,
     FlatArrayTest.class,
+    TmfEventAspectIndexTest.class,
     TmfMemoryIndexTest.class
 })
 public class AllTests {
@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.tests.trace.indexer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.BitSet;
+import java.util.Collection;
+
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.TmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.TmfEventType;
+import org.eclipse.tracecompass.tmf.core.event.aspect.ITmfEventAspect;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.TmfEventAspectIndex;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Test for the TmfEventAspectIndex class
+ */
+public class TmfEventAspectIndexTest {
+
+    private static final String INDEX_FILE_NAME = "event_aspect.idx"; //$NON-NLS-1$
+    private static final int BLOCK_SIZE = 100;
+    private static final int NB_EVENTS = 10000;
+
+    private static final ITmfEventAspect TYPE_ASPECT = ITmfEventAspect.BaseAspects.EVENT_TYPE;
+    private static final ITmfEventAspect TIMESTAMP_ASPECT = ITmfEventAspect.BaseAspects.TIMESTAMP;
+    private static final Collection<ITmfEventAspect> ASPECTS = ImmutableList.of(TYPE_ASPECT, TIMESTAMP_ASPECT);
+
+    private final File fFile = new File(INDEX_FILE_NAME);
+    private TmfEventAspectIndex fIndex;
+
+    /**
+     * Setup the test. Make sure the index is deleted.
+     */
+    @Before
+    public void setUp() {
+        if (fFile.exists()) {
+            fFile.delete();
+        }
+        fIndex = new TmfEventAspectIndex(fFile, BLOCK_SIZE, ASPECTS);
+    }
+
+    /**
+     * Tear down the test. Make sure the index is deleted.
+     */
+    @After
+    public void tearDown() {
+        fIndex.delete();
+        if (fFile.exists()) {
+            fFile.delete();
+        }
+    }
+
+    /**
+     * Add the test events: every 10th event is of type "ten", every 1000th
+     * event is of type "thousand", the other ones are of type "other"
+     */
+    private void addEvents(TmfEventAspectIndex index) {
+        for (int rank = 0; rank < NB_EVENTS; rank++) {
+            String type = (rank % 1000 == 0 ? "thousand" : rank % 10 == 0 ? "ten" : "other"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            ITmfEvent event = new TmfEvent(null, rank, new TmfTimestamp(rank), new TmfEventType(type, null), null);
+            index.addEvent(event, rank);
+        }
+        index.setComplete(NB_EVENTS);
+    }
+
+    private static void assertBlocks(TmfEventAspectIndex index) {
+        BitSet blocks = index.getBlocks(TYPE_ASPECT, "thousand"); //$NON-NLS-1$
+        assertNotNull(blocks);
+        assertEquals(NB_EVENTS / 1000, blocks.cardinality());
+        for (int block = 0; block < NB_EVENTS / BLOCK_SIZE; block++) {
+            assertEquals(block % (1000 / BLOCK_SIZE) == 0, blocks.get(block));
+        }
+
+        blocks = index.getBlocks(TYPE_ASPECT, "ten"); //$NON-NLS-1$
+        assertNotNull(blocks);
+        assertEquals(NB_EVENTS / BLOCK_SIZE, blocks.cardinality());
+
+        blocks = index.getBlocks(TIMESTAMP_ASPECT, new TmfTimestamp(1234));
+        assertNotNull(blocks);
+        assertEquals(1, blocks.cardinality());
+        assertTrue(blocks.get(1234 / BLOCK_SIZE));
+    }
+
+    /**
+     * Test the blocks of the values of events added one by one
+     */
+    @Test
+    public void testAddEvent() {
+        addEvents(fIndex);
+        assertEquals(NB_EVENTS, fIndex.getNbEvents());
+        assertEquals(BLOCK_SIZE, fIndex.getBlockSize());
+        assertEquals(3, fIndex.getValues(TYPE_ASPECT).size());
+        assertBlocks(fIndex);
+
+        /* A value that no event has, and an aspect that is not indexed */
+        BitSet blocks = fIndex.getBlocks(TYPE_ASPECT, "none"); //$NON-NLS-1$
+        assertNotNull(blocks);
+        assertTrue(blocks.isEmpty());
+        assertNull(fIndex.getBlocks(ITmfEventAspect.BaseAspects.CONTENTS, "none")); //$NON-NLS-1$
+    }
+
+    /**
+     * Test adding ranges of ranks
+     */
+    @Test
+    public void testAddRange() {
+        int aspectId = fIndex.getAspectId(TYPE_ASPECT);
+        assertEquals(0, aspectId);
+        assertEquals(-1, fIndex.getAspectId(ITmfEventAspect.BaseAspects.CONTENTS));
+
+        int valueId = fIndex.getValueId(aspectId, "type"); //$NON-NLS-1$
+        assertEquals(valueId, fIndex.getValueId(aspectId, "type")); //$NON-NLS-1$
+        fIndex.add(aspectId, valueId, 250, 450);
+        fIndex.add(aspectId, valueId, 999, 999);
+
+        BitSet blocks = fIndex.getBlocks(TYPE_ASPECT, "type"); //$NON-NLS-1$
+        assertNotNull(blocks);
+        BitSet expected = new BitSet();
+        expected.set(2, 5);
+        expected.set(9);
+        assertEquals(expected, blocks);
+    }
+
+    /**
+     * Test that a complete index is restored from its file
+     */
+    @Test
+    public void testRestore() {
+        addEvents(fIndex);
+        assertTrue(fFile.isFile());
+
+        TmfEventAspectIndex restored = new TmfEventAspectIndex(fFile, BLOCK_SIZE, ASPECTS);
+        assertEquals(NB_EVENTS, restored.getNbEvents());
+        assertEquals(fIndex.getValues(TYPE_ASPECT), restored.getValues(TYPE_ASPECT));
+        assertBlocks(restored);
+
+        /* Events already covered by the index are ignored */
+        restored.addEvent(new TmfEvent(null, 0, new TmfTimestamp(0), new TmfEventType("new", null), null), 0); //$NON-NLS-1$
+        BitSet blocks = restored.getBlocks(TYPE_ASPECT, "new"); //$NON-NLS-1$
+        assertNotNull(blocks);
+        assertTrue(blocks.isEmpty());
+    }
+
+    /**
+     * Test that an index file built with other parameters is not restored
+     */
+    @Test
+    public void testRestoreMismatch() {
+        addEvents(fIndex);
+
+        TmfEventAspectIndex otherBlockSize = new TmfEventAspectIndex(fFile, BLOCK_SIZE * 2, ASPECTS);
+        assertEquals(0, otherBlockSize.getNbEvents());
+        assertTrue(otherBlockSize.getValues(TYPE_ASPECT).isEmpty());
+
+        TmfEventAspectIndex otherAspects = new TmfEventAspectIndex(fFile, BLOCK_SIZE, ImmutableList.of(TYPE_ASPECT));
+        assertEquals(0, otherAspects.getNbEvents());
+        assertTrue(otherAspects.getValues(TYPE_ASPECT).isEmpty());
+    }
+}
@@ -14,6 +14,8 @@
 
 package org.eclipse.tracecompass.internal.tmf.core.component;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 
 import org.eclipse.tracecompass.internal.tmf.core.Activator;
@@ -21,8 +23,10 @@ import org.eclipse.tracecompass.internal.tmf.core.TmfCoreTracer;
 import org.eclipse.tracecompass.tmf.core.component.ITmfEventProvider;
 import org.eclipse.tracecompass.tmf.core.component.TmfEventProvider;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.request.ITmfBatchEventRequest;
 import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest;
 import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest.ExecutionType;
+import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
 
 /**
@@ -184,22 +188,23 @@ public class TmfEventThread implements Runnable {
             ITmfEvent event = fProvider.getNext(context);
             TmfCoreTracer.traceRequest(fRequest.getRequestId(), "read first event"); //$NON-NLS-1$
 
-            while (event != null && !fProvider.isCompleted(fRequest, event, nbRead)) {
+            if (fRequest instanceof ITmfBatchEventRequest && ((ITmfBatchEventRequest) fRequest).getBatchSize() > 1) {
+                readBatches((ITmfBatchEventRequest) fRequest, context, event);
+            } else {
+                while (event != null && !fProvider.isCompleted(fRequest, event, nbRead)) {
 
-                TmfCoreTracer.traceEvent(fProvider, fRequest, event);
-                if (fRequest.getDataType().isInstance(event)) {
-                    fRequest.handleData(event);
-                }
+                    TmfCoreTracer.traceEvent(fProvider, fRequest, event);
+                    if (fRequest.getDataType().isInstance(event)) {
+                        fRequest.handleData(event);
+                    }
 
-                // Pause execution if requested
-                while (fIsPaused) {
-                    CountDownLatch latch = fLatch;
-                    latch.await();
-                }
+                    // Pause execution if requested
+                    waitWhilePaused();
 
-                // To avoid an unnecessary read passed the last event requested
-                if (++nbRead < nbRequested) {
-                    event = fProvider.getNext(context);
+                    // To avoid an unnecessary read passed the last event requested
+                    if (++nbRead < nbRequested) {
+                        event = fProvider.getNext(context);
+                    }
                 }
             }
 
@@ -221,6 +226,58 @@ public class TmfEventThread implements Runnable {
         context.dispose();
     }
 
+    /**
+     * Read the events of a request accepting batches, and deliver them a
+     * batch at a time. The request's completion and the pause requests are
+     * only checked between batches, the range and number of events are
+     * checked for every event.
+     */
+    private void readBatches(ITmfBatchEventRequest request, ITmfContext context, ITmfEvent firstEvent) throws InterruptedException {
+        final int batchSize = request.getBatchSize();
+        final int nbRequested = request.getNbRequested();
+        final ITmfTimestamp endTime = request.getRange().getEndTime();
+        final Class<? extends ITmfEvent> dataType = request.getDataType();
+        final boolean traced = TmfCoreTracer.isEventTraced();
+
+        List<ITmfEvent> batch = new ArrayList<>(batchSize);
+        ITmfEvent event = firstEvent;
+        int nbRead = 0;
+        boolean completed = (event == null) || fProvider.isCompleted(request, event, nbRead);
+
+        while (!completed) {
+            if (traced) {
+                TmfCoreTracer.traceEvent(fProvider, request, event);
+            }
+            if (dataType.isInstance(event)) {
+                batch.add(event);
+            }
+
+            // To avoid an unnecessary read passed the last event requested
+            if (++nbRead < nbRequested) {
+                event = fProvider.getNext(context);
+                completed = (event == null) || event.getTimestamp().compareTo(endTime) > 0;
+            } else {
+                completed = true;
+            }
+
+            if (batch.size() >= batchSize || completed) {
+                if (!batch.isEmpty()) {
+                    request.handleData(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+                waitWhilePaused();
+                completed = completed || fProvider.isCompleted(request, event, nbRead);
+            }
+        }
+    }
+
+    private void waitWhilePaused() throws InterruptedException {
+        while (fIsPaused) {
+            CountDownLatch latch = fLatch;
+            latch.await();
+        }
+    }
+
     // ------------------------------------------------------------------------
     // Operations
     // ------------------------------------------------------------------------
@@ -21,8 +21,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.internal.tmf.core.TmfCoreTracer;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.request.ITmfBatchEventRequest;
 import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest;
 import org.eclipse.tracecompass.tmf.core.request.TmfEventRequest;
 import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
@@ -33,7 +35,7 @@ import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
  *
  * @author Francois Chouinard
  */
-public class TmfCoalescedEventRequest extends TmfEventRequest {
+public class TmfCoalescedEventRequest extends TmfEventRequest implements ITmfBatchEventRequest {
 
     // ------------------------------------------------------------------------
     // Attributes
@@ -53,6 +55,12 @@ public class TmfCoalescedEventRequest extends TmfEventRequest {
      */
     private Map<String, Set<ITmfEventRequest>> fRequestsCache = new HashMap<>();
 
+    /**
+     * The largest batch size of the sub-requests, 1 if none of them accepts
+     * batches.
+     */
+    private int fBatchSize = 1;
+
     // ------------------------------------------------------------------------
     // Constructor
     // ------------------------------------------------------------------------
@@ -101,6 +109,22 @@ public class TmfCoalescedEventRequest extends TmfEventRequest {
         return fRange;
     }
 
+    /**
+     * The event types read by any of the sub-requests
+     */
+    @Override
+    public @Nullable Set<String> getEventTypeProjection() {
+        Set<String> projection = new HashSet<>();
+        for (ITmfEventRequest request : fRequests) {
+            Set<String> requestProjection = request.getEventTypeProjection();
+            if (requestProjection == null) {
+                return null;
+            }
+            projection.addAll(requestProjection);
+        }
+        return projection;
+    }
+
     // ------------------------------------------------------------------------
     // Management
     // ------------------------------------------------------------------------
@@ -158,6 +182,10 @@ public class TmfCoalescedEventRequest extends TmfEventRequest {
     }
 
     private void merge(ITmfEventRequest request) {
+        if (request instanceof ITmfBatchEventRequest) {
+            fBatchSize = Math.max(fBatchSize, ((ITmfBatchEventRequest) request).getBatchSize());
+        }
+
         long start = request.getIndex();
         long end = Math.min(start + request.getNbRequested(), ITmfEventRequest.ALL_DATA);
 
@@ -204,25 +232,18 @@ public class TmfCoalescedEventRequest extends TmfEventRequest {
     // ITmfEventRequest
     // ------------------------------------------------------------------------
 
+    @Override
+    public int getBatchSize() {
+        return fBatchSize;
+    }
+
     @Override
     public void handleData(ITmfEvent data) {
         super.handleData(data);
 
         long index = getIndex() + getNbRead() - 1;
 
-        String traceName = data.getTrace().getName();
-        Set<ITmfEventRequest> requests = fRequestsCache.get(traceName);
-
-        if (requests == null) {
-            // Populate requests cache
-            requests = new HashSet<>();
-            for (ITmfEventRequest myRequest : fRequests) {
-                if (myRequest.getProviderFilter().matches(data)) {
-                    requests.add(myRequest);
-                }
-            }
-            fRequestsCache.put(traceName, requests);
-        }
+        Set<ITmfEventRequest> requests = getRequests(data);
 
         // dispatch event to relevant requests
         for (ITmfEventRequest request : requests) {
@@ -238,6 +259,74 @@ public class TmfCoalescedEventRequest extends TmfEventRequest {
         }
     }
 
+    /**
+     * Dispatch a batch of events. The sub-requests accepting batches receive
+     * their events of the batch at once, the others receive them one at a
+     * time.
+     */
+    @Override
+    public void handleData(List<ITmfEvent> events) {
+        long index = getIndex() + getNbRead();
+
+        Map<ITmfEventRequest, List<ITmfEvent>> batches = new HashMap<>();
+        for (ITmfEvent data : events) {
+            super.handleData(data);
+            Set<ITmfEventRequest> requests = getRequests(data);
+            for (ITmfEventRequest request : requests) {
+                if (request instanceof ITmfBatchEventRequest && ((ITmfBatchEventRequest) request).getBatchSize() > 1) {
+                    List<ITmfEvent> batch = batches.get(request);
+                    if (batch == null) {
+                        if (request.isCompleted()) {
+                            continue;
+                        }
+                        batch = new ArrayList<>();
+                        batches.put(request, batch);
+                    }
+                    if (index >= request.getIndex() &&
+                            request.getNbRead() + batch.size() < request.getNbRequested() &&
+                            request.getRange().contains(data.getTimestamp()) &&
+                            request.getDataType().isInstance(data)) {
+                        batch.add(data);
+                    }
+                } else if (!request.isCompleted() && index >= request.getIndex() && request.getNbRead() < request.getNbRequested()) {
+                    if (request.getRange().contains(data.getTimestamp())) {
+                        if (request.getDataType().isInstance(data)) {
+                            request.handleData(data);
+                        }
+                    }
+                }
+            }
+            index++;
+        }
+
+        for (Map.Entry<ITmfEventRequest, List<ITmfEvent>> entry : batches.entrySet()) {
+            List<ITmfEvent> batch = entry.getValue();
+            if (!batch.isEmpty()) {
+                ((ITmfBatchEventRequest) entry.getKey()).handleData(batch);
+            }
+        }
+    }
+
+    /**
+     * Get the sub-requests interested in the events of the trace of an event
+     */
+    private Set<ITmfEventRequest> getRequests(ITmfEvent data) {
+        String traceName = data.getTrace().getName();
+        Set<ITmfEventRequest> requests = fRequestsCache.get(traceName);
+
+        if (requests == null) {
+            // Populate requests cache
+            requests = new HashSet<>();
+            for (ITmfEventRequest myRequest : fRequests) {
+                if (myRequest.getProviderFilter().matches(data)) {
+                    requests.add(myRequest);
+                }
+            }
+            fRequestsCache.put(traceName, requests);
+        }
+        return requests;
+    }
+
     @Override
     public void start() {
         for (ITmfEventRequest request : fRequests) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2014 Ericsson
+ * Copyright (c) 2009, 2015 Ericsson
  *
  * All rights reserved. This program and the accompanying materials are
  * made available under the terms of the Eclipse Public License v1.0 which
@@ -14,29 +14,43 @@
 
 package org.eclipse.tracecompass.internal.tmf.core.request;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.IntSupplier;
 
 import org.eclipse.tracecompass.internal.tmf.core.TmfCoreTracer;
 import org.eclipse.tracecompass.internal.tmf.core.component.TmfEventThread;
 import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest.ExecutionType;
 
 /**
- * The request scheduler works with 5 slots with a specific time. It has 4 slots
- * for foreground requests and 1 slot for background requests, and it passes
- * through all the slots (foreground first and background after).
+ * The request scheduler runs up to a given number of requests concurrently,
+ * each in its own thread and with its own context on the trace. The number of
+ * slots is bounded by the number of contexts the trace can keep open at the
+ * same time.
  *
- * Example: if we have one foreground and one background request, the foreground
- * request will be executed four times more often than the background request.
+ * Requests are never suspended: a request keeps its slot until it completes.
+ * When a slot is free, it is given with a weight of 4 for foreground requests
+ * for 1 for background requests:
+ * <ul>
+ * <li>A background request gets the slot when fewer than 1 in 4 of the
+ * running requests are background ones, or after 4 foreground requests got a
+ * slot in a row, so that background requests are never starved.</li>
+ * <li>Background requests can use all the slots but one, so that a foreground
+ * request can always start right away, even when long background requests are
+ * running. With a single slot, foreground requests get one extra slot when a
+ * background request holds the only one.</li>
+ * </ul>
+ *
+ * Requests are never dropped: the queues are not bounded.
  *
  * @author Francois Chouinard
  * @author Simon Delisle
- * @version 1.1
+ * @version 1.3
  */
 public class TmfRequestExecutor implements Executor {
 
@@ -44,9 +58,20 @@ public class TmfRequestExecutor implements Executor {
     // Constants
     // ------------------------------------------------------------------------
 
-    private static final long REQUEST_TIME = 100;
     private static final int FOREGROUND_SLOT = 4;
 
+    /**
+     * Maximum number of requests running at the same time on one provider.
+     * Every running request holds a context on the trace.
+     */
+    private static final int MAX_CONCURRENT_REQUESTS = 4;
+
+    /**
+     * Default number of requests running at the same time on one provider,
+     * bounded by the number of available processors.
+     */
+    public static final int DEFAULT_CONCURRENT_REQUESTS = Math.min(MAX_CONCURRENT_REQUESTS, Runtime.getRuntime().availableProcessors());
+
     // ------------------------------------------------------------------------
     // Attributes
     // ------------------------------------------------------------------------
@@ -56,15 +81,16 @@ public class TmfRequestExecutor implements Executor {
     private final String fExecutorName;
 
     // The request queues
-    private final Queue<TmfEventThread> fForegroundTasks = new ArrayBlockingQueue<>(10);
-    private final Queue<TmfEventThread> fBackgroundTasks = new ArrayBlockingQueue<>(10);
+    private final Queue<TmfEventThread> fForegroundTasks = new ArrayDeque<>();
+    private final Queue<TmfEventThread> fBackgroundTasks = new ArrayDeque<>();
 
-    // The tasks
-    private TmfEventThread fActiveTask;
+    // The tasks currently running
+    private final List<TmfEventThread> fActiveTasks = new ArrayList<>();
+    private final IntSupplier fMaxActiveTasks;
 
-    private Timer fTimer;
-    private TimerTask fTimerTask;
+    private boolean fStarted = false;
 
+    /** Number of foreground requests that got a slot in a row */
     private int fForegroundCycle = 0;
 
     // ------------------------------------------------------------------------
@@ -72,9 +98,33 @@ public class TmfRequestExecutor implements Executor {
     // ------------------------------------------------------------------------
 
     /**
-     * Default constructor
+     * Default constructor. The number of concurrent requests is bounded by
+     * the number of available processors.
      */
     public TmfRequestExecutor() {
+        this(DEFAULT_CONCURRENT_REQUESTS);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param maxConcurrentRequests
+     *            The maximum number of requests running at the same time
+     */
+    public TmfRequestExecutor(int maxConcurrentRequests) {
+        this(() -> maxConcurrentRequests);
+    }
+
+    /**
+     * Constructor, for providers whose number of concurrent requests is only
+     * known once they are initialized.
+     *
+     * @param maxConcurrentRequests
+     *            Gives the maximum number of requests running at the same
+     *            time. It is called every time a slot is given.
+     */
+    public TmfRequestExecutor(IntSupplier maxConcurrentRequests) {
+        fMaxActiveTasks = maxConcurrentRequests;
         String canonicalName = fExecutor.getClass().getCanonicalName();
         fExecutorName = canonicalName.substring(canonicalName.lastIndexOf('.') + 1);
         if (TmfCoreTracer.isComponentTraced()) {
@@ -105,16 +155,14 @@ public class TmfRequestExecutor implements Executor {
     // ------------------------------------------------------------------------
 
     /**
-     * Initialize the executor
+     * Initialize the executor. Requests received before are started now.
      */
-    public void init() {
-        if (fTimer != null) {
+    public synchronized void init() {
+        if (fStarted) {
             return;
         }
-        // Initialize the timer for the schedSwitch
-        fTimerTask = new SchedSwitch();
-        fTimer = new Timer(true);
-        fTimer.schedule(fTimerTask, 0, REQUEST_TIME);
+        fStarted = true;
+        scheduleNext();
     }
 
     @Override
@@ -134,76 +182,36 @@ public class TmfRequestExecutor implements Executor {
                 try {
                     command.run();
                 } finally {
-                    scheduleNext();
+                    taskCompleted(this);
                 }
             }
         };
 
         // Add the thread to the appropriate queue
-        ExecutionType priority = thread.getExecType();
+        getQueue(wrapper).add(wrapper);
 
-        if (priority == ExecutionType.FOREGROUND) {
-            if (!fForegroundTasks.offer(wrapper)) {
-                wrapper.cancel();
-            }
-        } else {
-            if (!fBackgroundTasks.offer(wrapper)) {
-                wrapper.cancel();
-            }
-        }
+        /* Start it right away if there is a free slot for it */
+        scheduleNext();
     }
 
-    /**
-     * Timer task to trigger scheduleNext()
-     */
-    private class SchedSwitch extends TimerTask {
-
-        SchedSwitch() {
-        }
-
-        @Override
-        public void run() {
-            scheduleNext();
-        }
+    private synchronized void taskCompleted(TmfEventThread task) {
+        fActiveTasks.remove(task);
+        scheduleNext();
     }
 
     /**
-     * Executes the next pending request, if applicable.
+     * Executes the next pending requests, as long as there are free slots for
+     * them.
      */
     protected synchronized void scheduleNext() {
-        if (!isShutdown()) {
-            if (fActiveTask == null) {
-                schedule();
-            } else if (fActiveTask.getExecType() == ExecutionType.FOREGROUND) {
-                if (fActiveTask.getThread().isCompleted()) {
-                    fActiveTask = null;
-                    schedule();
-                } else {
-                    if (hasTasks()) {
-                        fActiveTask.getThread().suspend();
-                        if (!fForegroundTasks.offer(fActiveTask)) {
-                            fActiveTask.cancel();
-                            fActiveTask = null;
-                        }
-                        schedule();
-                    }
-                }
-
-            } else if (fActiveTask.getExecType() == ExecutionType.BACKGROUND) {
-                if (fActiveTask.getThread().isCompleted()) {
-                    fActiveTask = null;
-                    schedule();
-                } else {
-                    if (hasTasks()) {
-                        fActiveTask.getThread().suspend();
-                        if (!fBackgroundTasks.offer(fActiveTask)) {
-                            fActiveTask.cancel();
-                            fActiveTask = null;
-                        }
-                        schedule();
-                    }
-                }
-            }
+        if (!fStarted || isShutdown()) {
+            return;
+        }
+        TmfEventThread next = pollNext();
+        while (next != null) {
+            fActiveTasks.add(next);
+            fExecutor.execute(next);
+            next = pollNext();
         }
     }
 
@@ -211,23 +219,17 @@ public class TmfRequestExecutor implements Executor {
      * Stops the executor
      */
     public synchronized void stop() {
-        if (fTimerTask != null) {
-            fTimerTask.cancel();
+        for (TmfEventThread task : fActiveTasks) {
+            task.cancel();
         }
+        fActiveTasks.clear();
 
-        if (fTimer != null) {
-            fTimer.cancel();
+        TmfEventThread task;
+        while ((task = fForegroundTasks.poll()) != null) {
+            task.cancel();
         }
-
-        if (fActiveTask != null) {
-            fActiveTask.cancel();
-        }
-
-        while ((fActiveTask = fForegroundTasks.poll()) != null) {
-            fActiveTask.cancel();
-        }
-        while ((fActiveTask = fBackgroundTasks.poll()) != null) {
-            fActiveTask.cancel();
+        while ((task = fBackgroundTasks.poll()) != null) {
+            task.cancel();
         }
 
         fExecutor.shutdown();
@@ -240,59 +242,51 @@ public class TmfRequestExecutor implements Executor {
     // Helper methods
     // ------------------------------------------------------------------------
 
-    /**
-     * Determine which type of request (foreground or background) we schedule
-     * next
-     */
-    private void schedule() {
-        if (!fForegroundTasks.isEmpty()) {
-            scheduleNextForeground();
-        } else {
-            scheduleNextBackground();
-        }
+    private Queue<TmfEventThread> getQueue(TmfEventThread task) {
+        return (task.getExecType() == ExecutionType.FOREGROUND ? fForegroundTasks : fBackgroundTasks);
     }
 
     /**
-     * Schedule the next foreground request
+     * Take the request that gets the next free slot out of its queue.
+     *
+     * @return The request, or null if there is no free slot or no request that
+     *         can use it
      */
-    private void scheduleNextForeground() {
-        if (fForegroundCycle < FOREGROUND_SLOT || fBackgroundTasks.isEmpty()) {
-            ++fForegroundCycle;
-            fActiveTask = fForegroundTasks.poll();
-            executefActiveTask();
-        } else {
-            fActiveTask = null;
-            scheduleNextBackground();
+    private TmfEventThread pollNext() {
+        int maxActiveTasks = Math.max(1, fMaxActiveTasks.getAsInt());
+        int nbActive = fActiveTasks.size();
+        int nbBackground = 0;
+        for (TmfEventThread task : fActiveTasks) {
+            if (task.getExecType() == ExecutionType.BACKGROUND) {
+                nbBackground++;
+            }
         }
-    }
-
-    /**
-     * Schedule the next background request
-     */
-    private void scheduleNextBackground() {
-        fForegroundCycle = 0;
-        if (!fBackgroundTasks.isEmpty()) {
-            fActiveTask = fBackgroundTasks.poll();
-            executefActiveTask();
+        int nbForeground = nbActive - nbBackground;
+
+        /*
+         * One slot is kept for foreground requests. With a single slot, the
+         * background requests can use it, and the foreground requests then
+         * get an extra one.
+         */
+        boolean canRunBackground = !fBackgroundTasks.isEmpty() && nbActive < maxActiveTasks &&
+                nbBackground < Math.max(1, maxActiveTasks - 1);
+        boolean canRunForeground = !fForegroundTasks.isEmpty() &&
+                nbForeground < Math.max(1, maxActiveTasks - nbBackground);
+
+        if (canRunBackground && canRunForeground) {
+            canRunBackground = (nbBackground * FOREGROUND_SLOT < nbForeground || fForegroundCycle >= FOREGROUND_SLOT);
         }
-    }
-
-    /**
-     * Execute or resume the active task
-     */
-    private void executefActiveTask() {
-        if (fActiveTask.getThread().isPaused()) {
-            fActiveTask.getThread().resume();
-        } else {
-            fExecutor.execute(fActiveTask);
+        if (canRunBackground) {
+            fForegroundCycle = 0;
+            return fBackgroundTasks.poll();
         }
-    }
-
-    /**
-     * Check if the scheduler has tasks
-     */
-    private boolean hasTasks() {
-        return !(fForegroundTasks.isEmpty() && fBackgroundTasks.isEmpty());
+        if (canRunForeground) {
+            if (!fBackgroundTasks.isEmpty()) {
+                ++fForegroundCycle;
+            }
+            return fForegroundTasks.poll();
+        }
+        return null;
     }
 
     // ------------------------------------------------------------------------
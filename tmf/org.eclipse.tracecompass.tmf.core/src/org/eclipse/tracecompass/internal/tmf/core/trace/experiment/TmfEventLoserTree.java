@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.tmf.core.trace.experiment;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+
+/**
+ * Loser tree (tournament tree) merging the next events of the traces of an
+ * experiment.
+ * <p>
+ * Each trace is a leaf, and each internal node keeps the trace that lost the
+ * match played at that node. When the event of a trace changes, only the
+ * matches on the path from its leaf to the root are replayed, so finding the
+ * next event takes log2(k) timestamp comparisons instead of k.
+ * <p>
+ * Events are ordered by timestamp, then by trace index, so that events with
+ * the same timestamp are returned in the order of the traces. A trace without
+ * an event (null) loses against any trace with an event.
+ */
+public final class TmfEventLoserTree {
+
+    private final int fSize;
+    private final @Nullable ITmfEvent[] fEvents;
+    /** fTree[0] is the winner, fTree[1..size-1] are the losers */
+    private final int[] fTree;
+
+    /**
+     * Constructor. The tree is empty until {@link #build} is called.
+     *
+     * @param size
+     *            The number of traces to merge
+     */
+    public TmfEventLoserTree(int size) {
+        fSize = size;
+        fEvents = new ITmfEvent[size];
+        fTree = new int[Math.max(size, 1)];
+    }
+
+    /**
+     * Play all the matches, once the events of all the traces are set
+     */
+    public void build() {
+        if (fSize == 0) {
+            return;
+        }
+        /* Winners of the matches, the leaves are at [size, 2 * size[ */
+        int[] winners = new int[2 * fSize];
+        for (int i = 0; i < fSize; i++) {
+            winners[fSize + i] = i;
+        }
+        for (int node = fSize - 1; node > 0; node--) {
+            int left = winners[2 * node];
+            int right = winners[2 * node + 1];
+            if (beats(left, right)) {
+                winners[node] = left;
+                fTree[node] = right;
+            } else {
+                winners[node] = right;
+                fTree[node] = left;
+            }
+        }
+        fTree[0] = (fSize == 1 ? 0 : winners[1]);
+    }
+
+    /**
+     * Set the event of a trace, without replaying the matches. Used to
+     * initialize the tree before {@link #build}.
+     *
+     * @param trace
+     *            The trace index
+     * @param event
+     *            The next event of the trace, null if there is none
+     */
+    public void initEvent(int trace, @Nullable ITmfEvent event) {
+        fEvents[trace] = event;
+    }
+
+    /**
+     * Set the event of a trace and replay the matches from its leaf to the
+     * root
+     *
+     * @param trace
+     *            The trace index
+     * @param event
+     *            The next event of the trace, null if there is none
+     */
+    public void setEvent(int trace, @Nullable ITmfEvent event) {
+        fEvents[trace] = event;
+        int winner = trace;
+        for (int node = (fSize + trace) >> 1; node > 0; node >>= 1) {
+            int loser = fTree[node];
+            if (beats(loser, winner)) {
+                fTree[node] = winner;
+                winner = loser;
+            }
+        }
+        fTree[0] = winner;
+    }
+
+    /**
+     * Get the trace with the earliest next event
+     *
+     * @return The trace index, or {@link TmfExperimentContext#NO_TRACE} if no
+     *         trace has an event
+     */
+    public int getWinner() {
+        if (fSize == 0 || fEvents[fTree[0]] == null) {
+            return TmfExperimentContext.NO_TRACE;
+        }
+        return fTree[0];
+    }
+
+    private boolean beats(int trace, int other) {
+        ITmfEvent event = fEvents[trace];
+        ITmfEvent otherEvent = fEvents[other];
+        if (event == null || otherEvent == null) {
+            return (event != null) || (otherEvent == null && trace < other);
+        }
+        int result = event.getTimestamp().compareTo(otherEvent.getTimestamp());
+        return (result < 0) || (result == 0 && trace < other);
+    }
+}
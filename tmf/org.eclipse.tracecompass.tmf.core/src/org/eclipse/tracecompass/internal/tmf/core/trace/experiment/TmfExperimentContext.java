@@ -16,10 +16,12 @@ package org.eclipse.tracecompass.internal.tmf.core.trace.experiment;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
 import org.eclipse.tracecompass.tmf.core.trace.TmfContext;
 
 /**
@@ -33,6 +35,11 @@ import org.eclipse.tracecompass.tmf.core.trace.TmfContext;
  * <p>
  * The last trace refers to the trace from which the last event was "consumed"
  * at the experiment level.
+ * <p>
+ * The next events of the traces are merged with a loser tree. For long
+ * sequential reads, the traces can also be read ahead in batches (see
+ * {@link #enableReadAhead}), in which case the contexts of the traces are
+ * ahead of the events of the experiment context.
  */
 public final class TmfExperimentContext extends TmfContext {
 
@@ -51,6 +58,9 @@ public final class TmfExperimentContext extends TmfContext {
 
     private final List<ITmfContext> fContexts;
     private final List<ITmfEvent> fEvents;
+    private final TmfEventLoserTree fMergeTree;
+    private boolean fMergeTreeBuilt = false;
+    private @Nullable List<TmfTraceReadAhead> fReadAheads = null;
     private int fLastTraceRead;
 
     // ------------------------------------------------------------------------
@@ -68,7 +78,7 @@ public final class TmfExperimentContext extends TmfContext {
         fLastTraceRead = NO_TRACE;
         fContexts = new ArrayList<>(nbTraces);
         fEvents = new ArrayList<>(nbTraces);
-
+        fMergeTree = new TmfEventLoserTree(nbTraces);
 
         /* Initialize the arrays to the requested size */
         for (int i = 0; i < nbTraces; i++) {
@@ -79,6 +89,12 @@ public final class TmfExperimentContext extends TmfContext {
 
     @Override
     public void dispose() {
+        List<TmfTraceReadAhead> readAheads = fReadAheads;
+        if (readAheads != null) {
+            for (TmfTraceReadAhead readAhead : readAheads) {
+                readAhead.dispose();
+            }
+        }
         for (ITmfContext context : fContexts) {
             context.dispose();
         }
@@ -146,6 +162,67 @@ public final class TmfExperimentContext extends TmfContext {
      */
     public void setEvent(int traceIndex, ITmfEvent event) {
         fEvents.set(traceIndex, event);
+        if (fMergeTreeBuilt) {
+            fMergeTree.setEvent(traceIndex, event);
+        }
+    }
+
+    /**
+     * Get the index of the trace with the earliest next event. Events with
+     * the same timestamp are ordered by trace index.
+     *
+     * @return The index of the trace, or {@link #NO_TRACE} if no trace has a
+     *         next event
+     */
+    public int getNextTrace() {
+        if (!fMergeTreeBuilt) {
+            for (int i = 0; i < fEvents.size(); i++) {
+                fMergeTree.initEvent(i, fEvents.get(i));
+            }
+            fMergeTree.build();
+            fMergeTreeBuilt = true;
+        }
+        return fMergeTree.getWinner();
+    }
+
+    /**
+     * Read the traces ahead of the experiment, in batches, using the given
+     * executor. Once enabled, the contexts of the traces must only be read
+     * through {@link #getReadAhead}.
+     *
+     * @param traces
+     *            The traces of the experiment, in the order of the contexts
+     * @param executor
+     *            The executor reading the batches
+     */
+    public void enableReadAhead(List<ITmfTrace> traces, Executor executor) {
+        if (fReadAheads != null) {
+            return;
+        }
+        /* The event consumed last has to be replaced first */
+        if (fLastTraceRead != NO_TRACE) {
+            ITmfContext context = fContexts.get(fLastTraceRead);
+            setEvent(fLastTraceRead, traces.get(fLastTraceRead).getNext(context));
+            fLastTraceRead = NO_TRACE;
+        }
+        List<TmfTraceReadAhead> readAheads = new ArrayList<>(fContexts.size());
+        for (int i = 0; i < fContexts.size(); i++) {
+            readAheads.add(new TmfTraceReadAhead(traces.get(i), fContexts.get(i), fEvents.get(i), executor));
+        }
+        fReadAheads = readAheads;
+    }
+
+    /**
+     * Get the read-ahead of a trace
+     *
+     * @param traceIndex
+     *            The index of the trace in the experiment
+     * @return The read-ahead of the trace, or null if the traces are not read
+     *         ahead
+     */
+    public @Nullable TmfTraceReadAhead getReadAhead(int traceIndex) {
+        List<TmfTraceReadAhead> readAheads = fReadAheads;
+        return (readAheads == null ? null : readAheads.get(traceIndex));
     }
 
     /**
@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.tmf.core.trace.experiment;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.common.core.ReadAheadExecutor;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.core.trace.location.ITmfLocation;
+
+/**
+ * Reads the events of one trace of an experiment ahead of the merge, in
+ * batches, on a worker thread.
+ * <p>
+ * While the merge consumes a batch, the next one is read from the trace
+ * context by the executor. The trace context must not be used by anyone else
+ * until this object is disposed. For each event, the location and rank of the
+ * trace context after reading it are kept, so the experiment location can be
+ * updated as if the events were read one at a time.
+ * <p>
+ * The batches start small and grow up to {@link #MAX_BATCH_SIZE}, so that a
+ * request that only reads a few events does not read much more than that.
+ */
+public final class TmfTraceReadAhead {
+
+    private static final int MIN_BATCH_SIZE = 32;
+    private static final int MAX_BATCH_SIZE = 512;
+
+    private final ITmfTrace fTrace;
+    private final ITmfContext fContext;
+    private final Executor fExecutor;
+
+    private Batch fBatch;
+    private int fPos = 0;
+    private @Nullable FutureTask<Batch> fNextBatch = null;
+    private int fBatchSize = MIN_BATCH_SIZE;
+    private volatile boolean fDisposed = false;
+
+    /**
+     * Constructor. The first batch is requested right away.
+     *
+     * @param trace
+     *            The trace to read
+     * @param context
+     *            The context of the trace, positioned after the first event
+     * @param firstEvent
+     *            The first event, already read from the context, or null if
+     *            there is none
+     * @param executor
+     *            The executor reading the batches
+     */
+    public TmfTraceReadAhead(ITmfTrace trace, ITmfContext context, @Nullable ITmfEvent firstEvent, Executor executor) {
+        fTrace = trace;
+        fContext = context;
+        fExecutor = executor;
+        if (firstEvent == null) {
+            fBatch = new Batch(0, true);
+        } else {
+            fBatch = new Batch(1, false);
+            fBatch.add(firstEvent, context.getLocation(), context.getRank());
+            scheduleNextBatch();
+        }
+    }
+
+    /**
+     * Get the current event of the trace
+     *
+     * @return The event, or null at the end of the trace
+     */
+    public @Nullable ITmfEvent getEvent() {
+        return (fPos < fBatch.fSize ? fBatch.fEvents[fPos] : null);
+    }
+
+    /**
+     * Get the location of the trace context after the current event
+     *
+     * @return The location
+     */
+    public @Nullable ITmfLocation getLocation() {
+        return (fPos < fBatch.fSize ? fBatch.fLocations[fPos] : fContext.getLocation());
+    }
+
+    /**
+     * Get the rank of the trace context after the current event
+     *
+     * @return The rank
+     */
+    public long getRank() {
+        return (fPos < fBatch.fSize ? fBatch.fRanks[fPos] : fContext.getRank());
+    }
+
+    /**
+     * Move to the next event of the trace, waiting for its batch if needed
+     */
+    public void advance() {
+        if (fPos < fBatch.fSize) {
+            fPos++;
+        }
+        if (fPos < fBatch.fSize || fBatch.fEnd) {
+            return;
+        }
+        FutureTask<Batch> next = fNextBatch;
+        fNextBatch = null;
+        fBatch = (next == null ? readBatch(fBatchSize) : getBatch(next));
+        fPos = 0;
+        if (!fBatch.fEnd) {
+            fBatchSize = Math.min(fBatchSize * 2, MAX_BATCH_SIZE);
+            scheduleNextBatch();
+        }
+    }
+
+    /**
+     * Stop reading ahead. This waits for the batch being read, if any, after
+     * which the trace context can be disposed.
+     */
+    public void dispose() {
+        fDisposed = true;
+        FutureTask<Batch> next = fNextBatch;
+        fNextBatch = null;
+        if (next != null) {
+            try {
+                getBatch(next);
+            } catch (RuntimeException e) {
+                /* The events will not be read anyway */
+            }
+        }
+    }
+
+    private void scheduleNextBatch() {
+        final int size = fBatchSize;
+        FutureTask<Batch> next = new FutureTask<>(() -> readBatch(size));
+        fNextBatch = next;
+        fExecutor.execute(next);
+    }
+
+    private Batch readBatch(int size) {
+        Batch batch = new Batch(size, false);
+        while (batch.fSize < size && !fDisposed) {
+            ITmfEvent event = fTrace.getNext(fContext);
+            if (event == null) {
+                batch.fEnd = true;
+                break;
+            }
+            batch.add(event, fContext.getLocation(), fContext.getRank());
+        }
+        return batch;
+    }
+
+    /**
+     * Wait for a batch, reading it on this thread if no thread of the executor
+     * started it yet (see {@link ReadAheadExecutor}). Interrupts are deferred,
+     * since the trace context is in use until the batch is read.
+     */
+    private static Batch getBatch(FutureTask<Batch> future) {
+        future.run();
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Events of a trace, with the location and rank of the trace context
+     * after each of them
+     */
+    private static final class Batch {
+        private final ITmfEvent[] fEvents;
+        private final @Nullable ITmfLocation[] fLocations;
+        private final long[] fRanks;
+        private int fSize = 0;
+        /** The end of the trace was reached after these events */
+        private boolean fEnd;
+
+        public Batch(int capacity, boolean end) {
+            fEvents = new ITmfEvent[capacity];
+            fLocations = new ITmfLocation[capacity];
+            fRanks = new long[capacity];
+            fEnd = end;
+        }
+
+        public void add(ITmfEvent event, @Nullable ITmfLocation location, long rank) {
+            fEvents[fSize] = event;
+            fLocations[fSize] = location;
+            fRanks[fSize] = rank;
+            fSize++;
+        }
+    }
+}
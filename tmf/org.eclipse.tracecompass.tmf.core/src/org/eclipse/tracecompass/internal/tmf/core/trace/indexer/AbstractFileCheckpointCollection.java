@@ -18,7 +18,11 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.text.MessageFormat;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import org.eclipse.tracecompass.internal.tmf.core.Activator;
 import org.eclipse.tracecompass.internal.tmf.core.TmfCoreTracer;
@@ -29,6 +33,12 @@ import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfPersistentlyIndexable
 /**
  * Common implementation of file-based checkpoint collection
  *
+ * While the collection is being built, it is read and written through a
+ * {@link RandomAccessFile}, one thread at a time. Once the collection is
+ * complete, the file is mapped read-only and searches read the mapping
+ * concurrently, without locking. An insertion drops the mapping until the
+ * collection is complete again.
+ *
  * @author Marc-Andre Laperle
  */
 public abstract class AbstractFileCheckpointCollection implements ICheckpointCollection {
@@ -37,6 +47,12 @@ public abstract class AbstractFileCheckpointCollection implements ICheckpointCol
     private static final int VERSION = 3;
     private static final int SUB_VERSION_NONE = -1;
 
+    /**
+     * A mapped file cannot be deleted on Windows until the mapping is garbage
+     * collected, so the file is read in memory instead.
+     */
+    private static final boolean IS_WIN32 = System.getProperty("os.name").startsWith("Windows"); //$NON-NLS-1$//$NON-NLS-2$
+
     /**
      * The base file header, can be extended
      */
@@ -177,6 +193,18 @@ public abstract class AbstractFileCheckpointCollection implements ICheckpointCol
     // Cached values
     private FileChannel fFileChannel;
 
+    /**
+     * Serializes the accesses to the file. Searches of the mapped file only
+     * validate that no writer took the lock while they were reading.
+     */
+    private final StampedLock fLock = new StampedLock();
+
+    /**
+     * The read-only mapping of the file, or null if the collection is being
+     * modified
+     */
+    private volatile ByteBuffer fMappedBuffer = null;
+
     /**
      * Constructs a checkpoint collection for a given trace from scratch or from
      * an existing file. When the checkpoint collection is created from scratch,
@@ -437,6 +465,127 @@ public abstract class AbstractFileCheckpointCollection implements ICheckpointCol
         return fHeader;
     }
 
+    /**
+     * Write the data that is still in memory to the file, so that it can be
+     * read from the mapping. Called with the lock held. This should be
+     * overridden by collections that keep modified data in memory.
+     *
+     * @throws IOException
+     *             if an I/O error occurs writing to the file
+     */
+    protected void flush() throws IOException {
+        // Everything is written to the file already
+    }
+
+    @Override
+    public void setIndexComplete() {
+        long stamp = fLock.writeLock();
+        try {
+            fMappedBuffer = null;
+            if (fRandomAccessFile == null) {
+                return;
+            }
+            flush();
+            long length = fFileChannel.size();
+            if (length > Integer.MAX_VALUE) {
+                /* Too big for a single buffer, keep reading the file */
+                return;
+            }
+            ByteBuffer buffer;
+            if (IS_WIN32) {
+                buffer = ByteBuffer.allocate((int) length);
+                fFileChannel.read(buffer, 0);
+                buffer.flip();
+            } else {
+                buffer = fFileChannel.map(MapMode.READ_ONLY, 0, length);
+            }
+            fMappedBuffer = buffer;
+        } catch (IOException e) {
+            Activator.logError(MessageFormat.format(Messages.IOErrorMappingIndex, fFile), e);
+        } finally {
+            fLock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Run an action that reads or modifies the file, one thread at a time.
+     * Modifications must call {@link #dropMapping()} first.
+     *
+     * @param <T>
+     *            the type of the result
+     * @param action
+     *            the action to run
+     * @return the result of the action
+     */
+    protected <T> T callExclusively(Supplier<T> action) {
+        long stamp = fLock.writeLock();
+        try {
+            return action.get();
+        } finally {
+            fLock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Run an action that modifies the file, one thread at a time. The mapping
+     * is dropped before the action is run.
+     *
+     * @param action
+     *            the action to run
+     */
+    protected void runExclusively(Runnable action) {
+        callExclusively(() -> {
+            dropMapping();
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Drop the mapping of the file. Must be called with the lock held, before
+     * modifying the collection.
+     */
+    protected void dropMapping() {
+        fMappedBuffer = null;
+    }
+
+    /**
+     * Run a read-only action on the mapping of the file if the collection is
+     * complete, without locking. If the collection is being modified, or it
+     * was modified while the mapping was read, the fallback action is run
+     * with the lock held instead.
+     *
+     * The mapped action gets its own view of the mapping, starting at the
+     * beginning of the file. It must not have side effects, since it can be
+     * run on inconsistent data and discarded.
+     *
+     * @param <T>
+     *            the type of the result
+     * @param mappedAction
+     *            the action reading the mapping
+     * @param fileAction
+     *            the action reading the file, if the mapping can't be used
+     * @return the result of the action
+     */
+    protected <T> T callOptimistically(Function<ByteBuffer, T> mappedAction, Supplier<T> fileAction) {
+        ByteBuffer mappedBuffer = fMappedBuffer;
+        long stamp = fLock.tryOptimisticRead();
+        if (mappedBuffer != null && stamp != 0) {
+            try {
+                T result = mappedAction.apply(mappedBuffer.duplicate());
+                if (fLock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                if (fLock.validate(stamp)) {
+                    throw e;
+                }
+                /* The collection was modified while it was read */
+            }
+        }
+        return callExclusively(fileAction);
+    }
+
     /**
      * Dispose and delete the checkpoint collection
      */
@@ -453,7 +602,9 @@ public abstract class AbstractFileCheckpointCollection implements ICheckpointCol
      */
     @Override
     public void dispose() {
+        long stamp = fLock.writeLock();
         try {
+            fMappedBuffer = null;
             if (fRandomAccessFile != null) {
                 if (fHeader != null) {
                     fHeader.serialize(fRandomAccessFile);
@@ -470,6 +621,8 @@ public abstract class AbstractFileCheckpointCollection implements ICheckpointCol
             TmfCoreTracer.traceIndexer(this.getClass().getSimpleName() + " disposed. " + headerTrace); //$NON-NLS-1$
         } catch (IOException e) {
             Activator.logError(MessageFormat.format(Messages.IOErrorClosingIndex, fFile), e);
+        } finally {
+            fLock.unlockWrite(stamp);
         }
     }
 }
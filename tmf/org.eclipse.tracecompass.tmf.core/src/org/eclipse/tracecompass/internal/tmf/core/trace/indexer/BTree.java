@@ -35,7 +35,7 @@ public class BTree extends AbstractFileCheckpointCollection {
      * Typical BTree file name
      */
     public static final String INDEX_FILE_NAME = "checkpoint_btree.idx"; //$NON-NLS-1$
-    private static final int SUB_VERSION = 4;
+    private static final int SUB_VERSION = 5;
     private static final boolean ALWAYS_CACHE_ROOT = true;
 
     private final int fMaxNumEntries;
@@ -137,7 +137,7 @@ public class BTree extends AbstractFileCheckpointCollection {
      */
     @Override
     public void insert(ITmfCheckpoint checkpoint) {
-        insert(checkpoint, fBTreeHeader.fRoot, null, 0);
+        runExclusively(() -> insert(checkpoint, fBTreeHeader.fRoot, null, 0));
     }
 
     private void setRootNode(BTreeNode newRootNode) {
@@ -273,9 +273,16 @@ public class BTree extends AbstractFileCheckpointCollection {
 
     @Override
     public long binarySearch(ITmfCheckpoint checkpoint) {
-        BTreeCheckpointVisitor v = new BTreeCheckpointVisitor(checkpoint);
-        accept(v);
-        return v.getCheckpointRank();
+        /* A new visitor for each attempt, the mapped search can be discarded */
+        return callOptimistically(buffer -> {
+            BTreeCheckpointVisitor v = new BTreeCheckpointVisitor(checkpoint);
+            accept(fBTreeHeader.fRoot, v, buffer);
+            return v.getCheckpointRank();
+        }, () -> {
+            BTreeCheckpointVisitor v = new BTreeCheckpointVisitor(checkpoint);
+            accept(fBTreeHeader.fRoot, v, null);
+            return v.getCheckpointRank();
+        });
     }
 
     /**
@@ -285,16 +292,23 @@ public class BTree extends AbstractFileCheckpointCollection {
      *            the visitor to accept
      */
     public void accept(IBTreeVisitor treeVisitor) {
-        accept(fBTreeHeader.fRoot, treeVisitor);
+        callExclusively(() -> {
+            accept(fBTreeHeader.fRoot, treeVisitor, null);
+            return null;
+        });
     }
 
-    private void accept(long nodeOffset, IBTreeVisitor visitor) {
+    /**
+     * Visit the tree from a node. The nodes are read from the node cache, or
+     * directly from the mapping of the file if one is given.
+     */
+    private void accept(long nodeOffset, IBTreeVisitor visitor, ByteBuffer mappedBuffer) {
 
         if (nodeOffset == BTreeNode.NULL_CHILD) {
             return;
         }
 
-        BTreeNode node = fNodeCache.getNode(nodeOffset);
+        BTreeNode node = (mappedBuffer == null) ? fNodeCache.getNode(nodeOffset) : new BTreeNode(this, nodeOffset, mappedBuffer);
 
         // Binary search to find first entry greater or equal.
         int lower = 0;
@@ -331,13 +345,13 @@ public class BTree extends AbstractFileCheckpointCollection {
             int compare = visitor.compare(record);
             if (compare > 0) {
                 // Start point is to the left.
-                accept(node.getChild(i), visitor);
+                accept(node.getChild(i), visitor, mappedBuffer);
                 return;
             } else if (compare == 0) {
                 return;
             }
         }
-        accept(node.getChild(i), visitor);
+        accept(node.getChild(i), visitor, mappedBuffer);
         return;
     }
 
@@ -363,10 +377,15 @@ public class BTree extends AbstractFileCheckpointCollection {
         return fNodeByteBuffer;
     }
 
+    @Override
+    protected void flush() {
+        fNodeCache.serialize();
+    }
+
     @Override
     public void dispose() {
         if (fNodeCache != null) {
-            fNodeCache.serialize();
+            runExclusively(fNodeCache::serialize);
         }
 
         super.dispose();
@@ -61,6 +61,12 @@ class BTreeNode {
     private int fNumEntries = 0;
     private boolean fIsDirty = true;
 
+    /**
+     * The mapping of the file this node was read from, if it is a read-only
+     * node. Its entries are only read when they are first requested.
+     */
+    private final ByteBuffer fMappedBuffer;
+
     /**
      * Construct a node for the specified tree for the specified file offset
      *
@@ -70,6 +76,21 @@ class BTreeNode {
      *            the file offset
      */
     BTreeNode(BTree tree, long offset) {
+        this(tree, offset, null);
+    }
+
+    /**
+     * Construct a read-only node for the specified tree from the mapping of
+     * its file. The node must not be modified.
+     *
+     * @param tree
+     *            the BTree
+     * @param offset
+     *            the file offset
+     * @param mappedBuffer
+     *            the mapping of the file, owned by the calling thread
+     */
+    BTreeNode(BTree tree, long offset, ByteBuffer mappedBuffer) {
         if (offset < 0) {
             throw new IllegalStateException("Invalid node offset: " + offset); //$NON-NLS-1$
         }
@@ -77,7 +98,14 @@ class BTreeNode {
         fFileOffset = offset;
         fEntries = new ITmfCheckpoint[fTree.getMaxNumEntries()];
         fChildrenFileOffsets = new long[fTree.getMaxNumChildren()];
-        Arrays.fill(fChildrenFileOffsets, NULL_CHILD);
+        fMappedBuffer = mappedBuffer;
+        if (mappedBuffer == null) {
+            Arrays.fill(fChildrenFileOffsets, NULL_CHILD);
+        } else {
+            mappedBuffer.position((int) offset);
+            readChildren(mappedBuffer);
+            fIsDirty = false;
+        }
     }
 
     /**
@@ -101,21 +129,10 @@ class BTreeNode {
             bb.clear();
             fTree.getRandomAccessFile().read(bb.array());
 
-            for (int i = 0; i < fTree.getMaxNumChildren(); ++i) {
-                long offset = bb.getLong();
-                if (offset < 0 && offset != NULL_CHILD) {
-                    throw new IllegalStateException("Invalid node offset: " + offset); //$NON-NLS-1$
-                }
-                fChildrenFileOffsets[i] = offset;
-            }
-            fNumEntries = bb.getInt();
-
+            readChildren(bb);
             for (int i = 0; i < fNumEntries; ++i) {
-
-                ITmfLocation location = fTree.getTrace().restoreLocation(bb);
-                ITmfTimestamp timeStamp = new TmfTimestamp(bb);
-                TmfCheckpoint c = new TmfCheckpoint(timeStamp, location, bb);
-                fEntries[i] = c;
+                bb.position(getEntryPosition(i));
+                fEntries[i] = readEntry(bb);
             }
             fIsDirty = false;
 
@@ -141,6 +158,7 @@ class BTreeNode {
 
             for (int i = 0; i < fNumEntries; ++i) {
                 ITmfCheckpoint key = fEntries[i];
+                bb.position(getEntryPosition(i));
                 key.serialize(bb);
             }
 
@@ -152,6 +170,35 @@ class BTreeNode {
         }
     }
 
+    private void readChildren(ByteBuffer bb) {
+        for (int i = 0; i < fTree.getMaxNumChildren(); ++i) {
+            long offset = bb.getLong();
+            if (offset < 0 && offset != NULL_CHILD) {
+                throw new IllegalStateException("Invalid node offset: " + offset); //$NON-NLS-1$
+            }
+            fChildrenFileOffsets[i] = offset;
+        }
+        fNumEntries = bb.getInt();
+        if (fNumEntries < 0 || fNumEntries > fTree.getMaxNumEntries()) {
+            throw new IllegalStateException("Invalid number of entries: " + fNumEntries); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Get the position of an entry relative to the start of the node. Each
+     * entry has a slot of the checkpoint size, so that an entry can be read
+     * without reading the previous ones.
+     */
+    private int getEntryPosition(int index) {
+        return BTree.LONG_SIZE * fTree.getMaxNumChildren() + BTree.INT_SIZE + fTree.getTrace().getCheckpointSize() * index;
+    }
+
+    private ITmfCheckpoint readEntry(ByteBuffer bb) {
+        ITmfLocation location = fTree.getTrace().restoreLocation(bb);
+        ITmfTimestamp timeStamp = new TmfTimestamp(bb);
+        return new TmfCheckpoint(timeStamp, location, bb);
+    }
+
     /**
      * Get the entry at the given index
      *
@@ -160,7 +207,13 @@ class BTreeNode {
      * @return the entry at the index
      */
     ITmfCheckpoint getEntry(int index) {
-        return fEntries[index];
+        ITmfCheckpoint entry = fEntries[index];
+        if (entry == null && fMappedBuffer != null && index < fNumEntries) {
+            fMappedBuffer.position((int) fFileOffset + getEntryPosition(index));
+            entry = readEntry(fMappedBuffer);
+            fEntries[index] = entry;
+        }
+        return entry;
     }
 
     long getChild(int index) {
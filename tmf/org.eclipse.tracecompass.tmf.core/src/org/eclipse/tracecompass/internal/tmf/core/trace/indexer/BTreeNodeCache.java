@@ -12,24 +12,27 @@
 
 package org.eclipse.tracecompass.internal.tmf.core.trace.indexer;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * A simple LRU node cache. The BTree request a node from the cache and the
  * cache load it from disk if it's not already in memory.
  *
- * This cache could be improved considerably by allowing bigger caches.
+ * The nodes are indexed by their file offset, so looking up a node does not
+ * depend on the size of the cache. The cache is not thread-safe, the BTree
+ * only uses it with its lock held.
  *
  * @author Marc-Andre Laperle
  */
 public class BTreeNodeCache {
 
     /**
-     * Cache size obtained by experimentation. An improved cache could set this
-     * dynamically or using a user preference.
+     * Number of nodes kept in memory. A lookup is a hash lookup, so a bigger
+     * cache only costs memory: this keeps the upper levels of a tree of
+     * millions of checkpoints in memory while it is built.
      */
-    private static final int CACHE_SIZE = 15;
+    private static final int CACHE_SIZE = 256;
 
     private final BTree fTree;
     /**
@@ -38,11 +41,25 @@ public class BTreeNodeCache {
      */
     private BTreeNode fRootNode = null;
     /**
-     * The collection keeping the nodes in memory. The most recently used is
-     * kept at the front of the double-ended queue and the least recently used
-     * node is kept at the back.
+     * The nodes kept in memory, by file offset, in access order. The least
+     * recently used node is evicted when a node is added to a full cache, and
+     * written to disk if it is dirty.
      */
-    private final Deque<BTreeNode> fCachedNodes = new ArrayDeque<>(CACHE_SIZE);
+    private final Map<Long, BTreeNode> fCachedNodes = new LinkedHashMap<Long, BTreeNode>(CACHE_SIZE * 2, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, BTreeNode> eldest) {
+            if (size() > CACHE_SIZE) {
+                BTreeNode removed = eldest.getValue();
+                if (removed.isDirty()) {
+                    removed.serializeOut();
+                }
+                return true;
+            }
+            return false;
+        }
+    };
 
     private int fCcheMisses = 0;
 
@@ -68,14 +85,10 @@ public class BTreeNodeCache {
             return fRootNode;
         }
 
-        for (BTreeNode nodeSearch : fCachedNodes) {
-            if (nodeSearch.getOffset() == offset) {
-                // This node is now the most recently used
-                fCachedNodes.remove(nodeSearch);
-                fCachedNodes.push(nodeSearch);
-
-                return nodeSearch;
-            }
+        // This node is now the most recently used
+        BTreeNode cachedNode = fCachedNodes.get(offset);
+        if (cachedNode != null) {
+            return cachedNode;
         }
 
         ++fCcheMisses;
@@ -94,7 +107,7 @@ public class BTreeNodeCache {
         if (fRootNode != null && fRootNode.isDirty()) {
             fRootNode.serializeOut();
         }
-        for (BTreeNode nodeSearch : fCachedNodes) {
+        for (BTreeNode nodeSearch : fCachedNodes.values()) {
             if (nodeSearch.isDirty()) {
                 nodeSearch.serializeOut();
             }
@@ -109,13 +122,7 @@ public class BTreeNodeCache {
      *            the node to add to the cache
      */
     void addNode(BTreeNode node) {
-        if (fCachedNodes.size() >= CACHE_SIZE) {
-            BTreeNode removed = fCachedNodes.removeLast();
-            if (removed.isDirty()) {
-                removed.serializeOut();
-            }
-        }
-        fCachedNodes.push(node);
+        fCachedNodes.put(node.getOffset(), node);
     }
 
     /**
@@ -16,6 +16,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.text.MessageFormat;
+import java.util.function.LongFunction;
 
 import org.eclipse.tracecompass.internal.tmf.core.Activator;
 import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
@@ -67,16 +68,18 @@ public class FlatArray extends AbstractFileCheckpointCollection {
      */
     @Override
     public void insert(ITmfCheckpoint checkpoint) {
-        try {
-            CheckpointCollectionFileHeader header = getHeader();
-            ++header.fSize;
-            getRandomAccessFile().seek(getRandomAccessFile().length());
-            fByteBuffer.clear();
-            checkpoint.serialize(fByteBuffer);
-            getRandomAccessFile().write(fByteBuffer.array());
-        } catch (IOException e) {
-            Activator.logError(MessageFormat.format(Messages.FlatArray_IOErrorWriting, getFile()), e);
-        }
+        runExclusively(() -> {
+            try {
+                CheckpointCollectionFileHeader header = getHeader();
+                ++header.fSize;
+                getRandomAccessFile().seek(getRandomAccessFile().length());
+                fByteBuffer.clear();
+                checkpoint.serialize(fByteBuffer);
+                getRandomAccessFile().write(fByteBuffer.array());
+            } catch (IOException e) {
+                Activator.logError(MessageFormat.format(Messages.FlatArray_IOErrorWriting, getFile()), e);
+            }
+        });
     }
 
     /**
@@ -87,6 +90,21 @@ public class FlatArray extends AbstractFileCheckpointCollection {
      * @return the checkpoint that has been found or null if not found
      */
     public ITmfCheckpoint get(long rank) {
+        return callOptimistically(buffer -> get(buffer, rank), () -> getFromFile(rank));
+    }
+
+    private ITmfCheckpoint get(ByteBuffer mappedBuffer, long rank) {
+        long pos = getHeader().getSize() + fCheckpointSize * rank;
+        if (rank < 0 || pos + fCheckpointSize > mappedBuffer.limit()) {
+            return null;
+        }
+        mappedBuffer.position((int) pos);
+        ITmfLocation location = getTrace().restoreLocation(mappedBuffer);
+        ITmfTimestamp timeStamp = new TmfTimestamp(mappedBuffer);
+        return new TmfCheckpoint(timeStamp, location, mappedBuffer);
+    }
+
+    private ITmfCheckpoint getFromFile(long rank) {
         ITmfCheckpoint checkpoint = null;
         try {
             long pos = getHeader().getSize() + fCheckpointSize * rank;
@@ -112,6 +130,14 @@ public class FlatArray extends AbstractFileCheckpointCollection {
      */
     @Override
     public long binarySearch(ITmfCheckpoint checkpoint) {
+        return callOptimistically(buffer -> binarySearch(checkpoint, rank -> get(buffer, rank)),
+                () -> binarySearch(checkpoint, rank -> {
+                    incCacheMisses();
+                    return getFromFile(rank);
+                }));
+    }
+
+    private long binarySearch(ITmfCheckpoint checkpoint, LongFunction<ITmfCheckpoint> getter) {
         if (getHeader().fSize == 1) {
             return 0;
         }
@@ -123,8 +149,7 @@ public class FlatArray extends AbstractFileCheckpointCollection {
         while (lower <= upper && lastMiddle != middle) {
             lastMiddle = middle;
             middle = (lower + upper) / 2;
-            ITmfCheckpoint found = get(middle);
-            incCacheMisses();
+            ITmfCheckpoint found = getter.apply(middle);
             int compare = checkpoint.compareTo(found);
             if (compare == 0) {
                 return middle;
@@ -82,6 +82,13 @@ public interface ICheckpointCollection {
      */
     long getNbEvents();
 
+    /**
+     * Notify the collection that all the checkpoints were inserted. The
+     * collection can then be searched without locking by concurrent readers,
+     * until the next insertion.
+     */
+    void setIndexComplete();
+
     /**
      * Dispose the collection and delete persistent data (file)
      */
@@ -33,6 +33,10 @@ public class Messages extends NLS {
      * I/O Error closing the index
      */
     public static String IOErrorClosingIndex;
+    /**
+     * I/O Error mapping the index
+     */
+    public static String IOErrorMappingIndex;
     /**
      * I/O Error reading header from disk
      */
@@ -49,6 +53,10 @@ public class Messages extends NLS {
      * I/O Error writing node to disk
      */
     public static String BTreeNode_IOErrorWriting;
+    /**
+     * I/O Error writing the event aspect index
+     */
+    public static String EventAspectIndex_IOErrorWriting;
     /**
      * I/O Error reading from disk
      */
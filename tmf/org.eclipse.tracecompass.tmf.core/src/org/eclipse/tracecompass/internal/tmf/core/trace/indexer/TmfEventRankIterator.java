@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.tmf.core.trace.indexer;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.aspect.ITmfEventAspect;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.TmfEventAspectIndex;
+
+/**
+ * Iterator on the ranks of the events of a trace, from a given rank, for which
+ * the string representation of the value of an event aspect is accepted by a
+ * filter.
+ *
+ * The events are read block by block. When the trace has an index of the
+ * aspect values, the blocks that do not contain an accepted value are skipped,
+ * up to the end of the events covered by the index. The context is disposed when
+ * the end of the trace is reached, or when the iterator is closed.
+ */
+public class TmfEventRankIterator implements Iterator<Long>, AutoCloseable {
+
+    /** Block size when the whole trace is read */
+    private static final int DEFAULT_BLOCK_SIZE = 10000;
+
+    private final ITmfTrace fTrace;
+    private final ITmfEventAspect fAspect;
+    private final Predicate<String> fValueFilter;
+
+    /** The blocks that contain an accepted value, or null to read every block */
+    private final @Nullable BitSet fBlocks;
+    private final int fBlockSize;
+    /** The number of blocks covered by the index, the next ones are read */
+    private final long fNbIndexedBlocks;
+
+    private @Nullable ITmfContext fContext = null;
+    private long fBlock = -1;
+    private long fRank;
+    private long fNext = -1;
+    private boolean fDone = false;
+
+    /**
+     * Constructor
+     *
+     * @param trace
+     *            The trace
+     * @param aspect
+     *            The event aspect
+     * @param valueFilter
+     *            The filter of the string representation of the values
+     * @param startRank
+     *            The rank of the first event to consider
+     * @param index
+     *            The index of the aspect values of the trace, or null if it
+     *            has none
+     */
+    public TmfEventRankIterator(ITmfTrace trace, ITmfEventAspect aspect, Predicate<String> valueFilter, long startRank, @Nullable TmfEventAspectIndex index) {
+        fTrace = trace;
+        fAspect = aspect;
+        fValueFilter = valueFilter;
+        fRank = Math.max(startRank, 0);
+        BitSet blocks = (index == null ? null : getBlocks(index, aspect, valueFilter));
+        if (index != null && blocks != null) {
+            fBlocks = blocks;
+            fBlockSize = index.getBlockSize();
+            fNbIndexedBlocks = index.getNbEvents() / fBlockSize;
+        } else {
+            fBlocks = null;
+            fBlockSize = DEFAULT_BLOCK_SIZE;
+            fNbIndexedBlocks = 0;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (fNext < 0 && !fDone) {
+            fNext = findNext();
+        }
+        return fNext >= 0;
+    }
+
+    @Override
+    public Long next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        long rank = fNext;
+        fNext = -1;
+        return rank;
+    }
+
+    /**
+     * Dispose the context, if the iterator was not iterated to the end
+     */
+    @Override
+    public void close() {
+        ITmfContext context = fContext;
+        if (context != null) {
+            context.dispose();
+            fContext = null;
+        }
+        fDone = true;
+        fNext = -1;
+    }
+
+    private long findNext() {
+        while (true) {
+            ITmfContext context = fContext;
+            if (context == null) {
+                /* First read, from the block of the start rank */
+                long block = getNextBlock(fRank / fBlockSize);
+                fRank = Math.max(fRank, block * fBlockSize);
+                context = fTrace.seekEvent(fRank);
+                fContext = context;
+                fBlock = block;
+            } else if (fRank >= (fBlock + 1) * fBlockSize) {
+                long block = getNextBlock(fBlock + 1);
+                if (block != fBlock + 1) {
+                    /* Skip the blocks in between */
+                    context.dispose();
+                    fRank = block * fBlockSize;
+                    context = fTrace.seekEvent(fRank);
+                    fContext = context;
+                }
+                fBlock = block;
+            }
+            ITmfEvent event = fTrace.getNext(context);
+            if (event == null) {
+                context.dispose();
+                fContext = null;
+                fDone = true;
+                return -1;
+            }
+            long rank = fRank++;
+            Object value = fAspect.resolve(event);
+            if (value != null && fValueFilter.test(String.valueOf(value))) {
+                return rank;
+            }
+        }
+    }
+
+    /**
+     * Get the blocks that contain an accepted value, or null if the aspect is
+     * not indexed
+     */
+    private static @Nullable BitSet getBlocks(TmfEventAspectIndex index, ITmfEventAspect aspect, Predicate<String> valueFilter) {
+        if (index.getAspectId(aspect) < 0) {
+            return null;
+        }
+        BitSet blocks = new BitSet();
+        for (String value : index.getValues(aspect)) {
+            if (valueFilter.test(value)) {
+                BitSet valueBlocks = index.getBlocks(aspect, value);
+                if (valueBlocks != null) {
+                    blocks.or(valueBlocks);
+                }
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * Get the first block from a given block that can contain an accepted
+     * value
+     */
+    private long getNextBlock(long fromBlock) {
+        BitSet blocks = fBlocks;
+        if (blocks == null || fromBlock >= fNbIndexedBlocks) {
+            return fromBlock;
+        }
+        int block = blocks.nextSetBit((int) fromBlock);
+        if (block < 0 || block >= fNbIndexedBlocks) {
+            /* Continue with the events that are not indexed, if any */
+            return fNbIndexedBlocks;
+        }
+        return block;
+    }
+}
@@ -99,6 +99,11 @@ public class TmfMemoryIndex implements ITmfCheckpointIndex, ICheckpointCollectio
         return fNbEvents;
     }
 
+    @Override
+    public void setIndexComplete() {
+        // The checkpoints are already in memory
+    }
+
     @Override
     public void delete() {
     }
@@ -37,6 +37,7 @@ import org.eclipse.tracecompass.internal.tmf.core.Activator;
 import org.eclipse.tracecompass.internal.tmf.core.TmfCoreTracer;
 import org.eclipse.tracecompass.tmf.core.analysis.TmfAnalysisRequirement.ValuePriorityLevel;
 import org.eclipse.tracecompass.tmf.core.component.TmfComponent;
+import org.eclipse.tracecompass.tmf.core.component.TmfEventProvider;
 import org.eclipse.tracecompass.tmf.core.exceptions.TmfAnalysisException;
 import org.eclipse.tracecompass.tmf.core.signal.TmfSignalHandler;
 import org.eclipse.tracecompass.tmf.core.signal.TmfStartAnalysisSignal;
@@ -54,6 +55,9 @@ import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
 @NonNullByDefault
 public abstract class TmfAbstractAnalysisModule extends TmfComponent implements IAnalysisModule {
 
+    /** The analysis whose job is running in the current thread, if any */
+    private static final ThreadLocal<@Nullable TmfAbstractAnalysisModule> RUNNING_ANALYSIS = new ThreadLocal<>();
+
     private @Nullable String fId;
     private boolean fAutomatic = false, fStarted = false;
     private volatile @Nullable ITmfTrace fTrace;
@@ -298,6 +302,7 @@ public abstract class TmfAbstractAnalysisModule extends TmfComponent implements
         /* Do not execute if analysis has already run */
         if (fFinishedLatch.getCount() == 0) {
             TmfCoreTracer.traceAnalysis(getId(), getTrace(), "already executed"); //$NON-NLS-1$
+            releaseReadPass();
             return;
         }
 
@@ -305,6 +310,7 @@ public abstract class TmfAbstractAnalysisModule extends TmfComponent implements
         synchronized (syncObj) {
             if (fStarted) {
                 TmfCoreTracer.traceAnalysis(getId(), getTrace(), "already started, not starting again"); //$NON-NLS-1$
+                releaseReadPass();
                 return;
             }
             fStarted = true;
@@ -327,6 +333,7 @@ public abstract class TmfAbstractAnalysisModule extends TmfComponent implements
                 if (mon == null) {
                     mon = new NullProgressMonitor();
                 }
+                RUNNING_ANALYSIS.set(TmfAbstractAnalysisModule.this);
                 try {
                     mon.beginTask("", IProgressMonitor.UNKNOWN); //$NON-NLS-1$
                     broadcast(new TmfStartAnalysisSignal(TmfAbstractAnalysisModule.this, TmfAbstractAnalysisModule.this));
@@ -339,6 +346,8 @@ public abstract class TmfAbstractAnalysisModule extends TmfComponent implements
                 } catch (TmfAnalysisException e) {
                     Activator.logError("Error executing analysis with trace " + trace.getName(), e); //$NON-NLS-1$
                 } finally {
+                    RUNNING_ANALYSIS.remove();
+                    releaseReadPass();
                     synchronized (syncObj) {
                         mon.done();
                         setAnalysisCompleted();
@@ -371,6 +380,16 @@ public abstract class TmfAbstractAnalysisModule extends TmfComponent implements
                 return new Status(IStatus.ERROR, Activator.PLUGIN_ID, String.format("No trace specified for analysis %s", getName())); //$NON-NLS-1$
             }
             TmfCoreTracer.traceAnalysis(getId(), getTrace(), "scheduled"); //$NON-NLS-1$
+            /*
+             * If the analysis is scheduled along with others (for example the
+             * automatic analyses of a trace, or the dependent analyses of
+             * another one), hold back the background requests of the trace
+             * until this analysis has sent its own, so that they share a read
+             * pass
+             */
+            if (trace instanceof TmfEventProvider) {
+                ((TmfEventProvider) trace).joinPipeline(this);
+            }
             execute(trace);
         }
 
@@ -389,8 +408,42 @@ public abstract class TmfAbstractAnalysisModule extends TmfComponent implements
         }
     }
 
+    /**
+     * Notify the trace that this analysis has sent all the event requests it
+     * needed for the current read pass, or that it will not send any. Analyses
+     * sending event requests should call this right after sending them, so
+     * that the trace does not wait for the coalescing delay before reading the
+     * events.
+     *
+     * This is called automatically when the analysis completes.
+     *
+     * @since 2.0
+     */
+    protected void releaseReadPass() {
+        ITmfTrace trace = fTrace;
+        if (trace instanceof TmfEventProvider) {
+            ((TmfEventProvider) trace).releasePipelineConsumer(this);
+        }
+    }
+
+    /**
+     * Release the read pass of the analysis running in the calling thread, if
+     * any. This must be called before blocking on another analysis, since the
+     * event requests of the other analysis may be held back until the calling
+     * one has sent its own.
+     *
+     * @since 2.0
+     */
+    protected static void releaseCallingAnalysis() {
+        TmfAbstractAnalysisModule module = RUNNING_ANALYSIS.get();
+        if (module != null) {
+            module.releaseReadPass();
+        }
+    }
+
     @Override
     public boolean waitForCompletion() {
+        releaseCallingAnalysis();
         try {
             fFinishedLatch.await();
         } catch (InterruptedException e) {
@@ -401,6 +454,7 @@ public abstract class TmfAbstractAnalysisModule extends TmfComponent implements
 
     @Override
     public boolean waitForCompletion(IProgressMonitor monitor) {
+        releaseCallingAnalysis();
         try {
             while (!fFinishedLatch.await(500, TimeUnit.MILLISECONDS)) {
                 if (fAnalysisCancelled || monitor.isCanceled()) {
@@ -17,9 +17,11 @@ package org.eclipse.tracecompass.tmf.core.component;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -61,6 +63,12 @@ public abstract class TmfEventProvider extends TmfComponent implements ITmfEvent
     /** Delay for coalescing background requests (in milli-seconds) */
     private static final long DELAY = 1000;
 
+    /**
+     * Maximum time the first background request of a read pass can be held
+     * back while consumers of the pass are still expected (in milli-seconds)
+     */
+    private static final long PIPELINE_DELAY = 10000;
+
     // ------------------------------------------------------------------------
     // Attributes
     // ------------------------------------------------------------------------
@@ -79,6 +87,12 @@ public abstract class TmfEventProvider extends TmfComponent implements ITmfEvent
 
     private int fRequestPendingCounter = 0;
 
+    /** Consumers expected to send background requests in the current read pass */
+    private final Set<Object> fPipelineConsumers = new HashSet<>();
+
+    /** Time at which the first request of the current read pass was held back */
+    private long fPipelineHoldStart = -1;
+
     private Timer fTimer;
 
     /** Current timer task */
@@ -105,7 +119,7 @@ public abstract class TmfEventProvider extends TmfComponent implements ITmfEvent
     public TmfEventProvider() {
         super();
         setTimerEnabled(true);
-        fExecutor = new TmfRequestExecutor();
+        fExecutor = new TmfRequestExecutor(this::getMaxConcurrentRequests);
     }
 
     /**
@@ -176,6 +190,18 @@ public abstract class TmfEventProvider extends TmfComponent implements ITmfEvent
         return fType;
     }
 
+    /**
+     * Get the maximum number of requests this provider can run at the same
+     * time. Every running request holds its own context, so providers that
+     * can only keep a few contexts open at once should bound this.
+     *
+     * @return The maximum number of concurrent requests
+     * @since 2.0
+     */
+    protected int getMaxConcurrentRequests() {
+        return TmfRequestExecutor.DEFAULT_CONCURRENT_REQUESTS;
+    }
+
     // ------------------------------------------------------------------------
     // ITmfRequestHandler
     // ------------------------------------------------------------------------
@@ -221,11 +247,110 @@ public abstract class TmfEventProvider extends TmfComponent implements ITmfEvent
                     @Override
                     public void run() {
                         synchronized (fLock) {
+                            /*
+                             * Consumers that did not show up in time will
+                             * get their own read pass.
+                             */
+                            fPipelineConsumers.clear();
+                            fPipelineHoldStart = -1;
                             fireRequest(true);
                         }
                     }
                 };
-                fTimer.schedule(fCurrentTask, DELAY);
+                fTimer.schedule(fCurrentTask, getCoalescingDelay());
+            }
+        }
+    }
+
+    /**
+     * Get the delay before dispatching the coalesced background requests. While
+     * a read pass is held, the delay is counted from the first held request,
+     * so that new requests do not push the dispatch back indefinitely.
+     */
+    private long getCoalescingDelay() {
+        if (fPipelineConsumers.isEmpty()) {
+            return DELAY;
+        }
+        long now = System.currentTimeMillis();
+        if (fPipelineHoldStart < 0) {
+            fPipelineHoldStart = now;
+        }
+        return Math.max(0, fPipelineHoldStart + PIPELINE_DELAY - now);
+    }
+
+    // ------------------------------------------------------------------------
+    // Read pass (analysis pipeline)
+    // ------------------------------------------------------------------------
+
+    /**
+     * Register a consumer that is about to send background requests to this
+     * provider, typically an analysis module that was just scheduled.
+     *
+     * As long as registered consumers have not been released, background
+     * requests are held back and coalesced, so that all the consumers
+     * scheduled together share a single read pass of the trace: the events
+     * are read and parsed once, and dispatched to every request. When the last
+     * consumer is released, the coalesced requests are dispatched right away
+     * instead of waiting for the coalescing delay.
+     *
+     * Requests are never held back indefinitely: a while after the first
+     * request was held back, the pending ones are dispatched anyway and the
+     * consumers that did not show up yet will get their own read pass.
+     *
+     * @param consumer
+     *            The consumer, used as a key for
+     *            {@link #releasePipelineConsumer(Object)}
+     * @since 2.0
+     */
+    public void registerPipelineConsumer(Object consumer) {
+        synchronized (fLock) {
+            fPipelineConsumers.add(consumer);
+        }
+    }
+
+    /**
+     * Register a consumer like {@link #registerPipelineConsumer(Object)}, but
+     * only if a read pass is currently being held by other consumers. This is
+     * meant for consumers that should share a read pass when they are started
+     * along with others, without holding back the requests when they are
+     * started on their own.
+     *
+     * @param consumer
+     *            The consumer, used as a key for
+     *            {@link #releasePipelineConsumer(Object)}
+     * @return true if the consumer joined the current read pass
+     * @since 2.0
+     */
+    public boolean joinPipeline(Object consumer) {
+        synchronized (fLock) {
+            if (fPipelineConsumers.isEmpty()) {
+                return false;
+            }
+            fPipelineConsumers.add(consumer);
+            return true;
+        }
+    }
+
+    /**
+     * Notify that a consumer registered with
+     * {@link #registerPipelineConsumer(Object)} has sent all the background
+     * requests it needed for the current read pass, or that it will not send
+     * any. Releasing a consumer that is not registered has no effect.
+     *
+     * @param consumer
+     *            The consumer to release
+     * @since 2.0
+     */
+    public void releasePipelineConsumer(Object consumer) {
+        synchronized (fLock) {
+            if (!fPipelineConsumers.remove(consumer) || !fPipelineConsumers.isEmpty()) {
+                return;
+            }
+            /* Everybody is here, no need to wait for the timer */
+            fPipelineHoldStart = -1;
+            if (fTimer != null && fIsTimerEnabled) {
+                fCurrentTask.cancel();
+                fireRequest(true);
             }
         }
     }
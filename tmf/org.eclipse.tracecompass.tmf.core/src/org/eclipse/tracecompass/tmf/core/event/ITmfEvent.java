@@ -55,6 +55,18 @@ public interface ITmfEvent extends IAdaptable {
      */
     @NonNull ITmfTimestamp getTimestamp();
 
+    /**
+     * Gets the timestamp of the event in nanoseconds, without creating a
+     * normalized timestamp
+     *
+     * @return the event timestamp, in nanoseconds
+     * @see ITmfTimestamp#toNanos()
+     * @since 2.0
+     */
+    default long getTimestampNanos() {
+        return getTimestamp().toNanos();
+    }
+
     /**
      * @return the event type
      */
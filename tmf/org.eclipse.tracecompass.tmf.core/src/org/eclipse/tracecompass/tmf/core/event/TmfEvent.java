@@ -149,6 +149,20 @@ public class TmfEvent extends PlatformObject implements ITmfEvent {
         return ""; //$NON-NLS-1$
     }
 
+    /**
+     * Get the id of this event's type, as assigned by {@link TmfEventTypeIds}.
+     *
+     * The default implementation looks up the event name every time. Event
+     * types that know their id when they are parsed should override this to
+     * return a cached value.
+     *
+     * @return The type id of this event
+     * @since 2.0
+     */
+    public int getTypeId() {
+        return TmfEventTypeIds.getId(getName());
+    }
+
     // ------------------------------------------------------------------------
     // Object
     // ------------------------------------------------------------------------
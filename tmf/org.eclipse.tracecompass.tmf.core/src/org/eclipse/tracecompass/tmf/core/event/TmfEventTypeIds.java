@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.event;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registry assigning small integer ids to event type names.
+ *
+ * The ids are dense, start at 0 and are never reused, so they can be used to
+ * index arrays, for example to dispatch events to handlers without hashing
+ * their names. Traces that know their event types when parsing (like CTF) can
+ * resolve the id once per event type and return it from
+ * {@link TmfEvent#getTypeId()}.
+ *
+ * The ids are only valid for the lifetime of the running application, they
+ * should not be persisted.
+ *
+ * @since 2.0
+ */
+public final class TmfEventTypeIds {
+
+    private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private TmfEventTypeIds() {}
+
+    /**
+     * Get the id of an event type name, assigning a new one if this name was
+     * never seen before.
+     *
+     * @param eventName
+     *            The event type name
+     * @return The id of this event type name
+     */
+    public static int getId(String eventName) {
+        Integer id = IDS.get(eventName);
+        if (id == null) {
+            id = IDS.computeIfAbsent(eventName, name -> NEXT_ID.getAndIncrement());
+        }
+        return id.intValue();
+    }
+
+    /**
+     * Get the type id of an event. This uses the id cached by the event if it
+     * has one, and looks up its name otherwise.
+     *
+     * @param event
+     *            The event
+     * @return The id of the event's type
+     */
+    public static int getId(ITmfEvent event) {
+        if (event instanceof TmfEvent) {
+            return ((TmfEvent) event).getTypeId();
+        }
+        return getId(event.getName());
+    }
+
+    /**
+     * Get the number of ids assigned so far. All the ids currently assigned
+     * are smaller than this value.
+     *
+     * @return The number of ids assigned
+     */
+    public static int getNbIds() {
+        return NEXT_ID.get();
+    }
+}
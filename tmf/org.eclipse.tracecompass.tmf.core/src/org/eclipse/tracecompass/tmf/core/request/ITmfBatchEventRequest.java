@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.request;
+
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+
+/**
+ * An event request that can receive its events in batches, instead of one at
+ * a time. The per-event costs of the request framework (dispatching the event
+ * to the coalesced requests, checking for pauses, handing the event over to
+ * another thread...) are then paid once per batch.
+ *
+ * The events of a batch are in trace order, and the batches are delivered in
+ * trace order. A batch may be smaller than the batch size, for example at the
+ * end of the request.
+ *
+ * @since 2.0
+ */
+public interface ITmfBatchEventRequest extends ITmfEventRequest {
+
+    /**
+     * Get the maximum number of events this request receives at once.
+     *
+     * @return The batch size. 1 means the events are delivered one at a time.
+     */
+    int getBatchSize();
+
+    /**
+     * Process a batch of events. The list is only valid during the call, it
+     * should not be kept by the request.
+     *
+     * @param events
+     *            The events to process, in trace order
+     */
+    void handleData(@NonNull List<ITmfEvent> events);
+}
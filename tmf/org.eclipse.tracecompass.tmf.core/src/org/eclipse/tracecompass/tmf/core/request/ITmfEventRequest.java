@@ -13,7 +13,10 @@
 
 package org.eclipse.tracecompass.tmf.core.request;
 
+import java.util.Set;
+
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 import org.eclipse.tracecompass.tmf.core.filter.ITmfFilter;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
@@ -102,6 +105,17 @@ public interface ITmfEventRequest {
      */
     void setProviderFilter(ITmfFilter filter);
 
+    /**
+     * Get the event types whose content this request reads. The events of the
+     * other types are still provided, in order and with their timestamp and
+     * type, but the trace may skip reading their content.
+     *
+     * @return The names of the event types, or null if the request may read
+     *         the content of any event
+     * @since 2.0
+     */
+    @Nullable Set<String> getEventTypeProjection();
+
     // ------------------------------------------------------------------------
     // Request state predicates
     // ------------------------------------------------------------------------
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.request;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
+
+/**
+ * An event request receiving its events in batches. Subclasses override
+ * {@link #handleData(List)} instead of {@link #handleData(ITmfEvent)}, and
+ * should call the super implementation, which updates the number of events
+ * read.
+ * <p>
+ * Typical usage:
+ *
+ * <pre><code>
+ * TmfBatchEventRequest request = new TmfBatchEventRequest(DataType.class, range, startIndex, nbEvents, priority, batchSize) {
+ *
+ *     public void handleData(List&lt;ITmfEvent&gt; events) {
+ *         super.handleData(events);
+ *         // do something with the events
+ *     }
+ *
+ * };
+ *
+ * eventProvider.sendRequest(request);
+ * </code></pre>
+ *
+ * @since 2.0
+ */
+public abstract class TmfBatchEventRequest extends TmfEventRequest implements ITmfBatchEventRequest {
+
+    /** The default batch size */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final int fBatchSize;
+
+    /**
+     * Request 'n' events of a given type, for the given time range, at the
+     * given priority, in batches of the given size.
+     *
+     * @param dataType
+     *            The requested data type.
+     * @param range
+     *            The time range of the requested events. You can use
+     *            {@link TmfTimeRange#ETERNITY} to indicate you want to cover
+     *            the whole trace.
+     * @param index
+     *            The index of the first event to retrieve. You can use '0' to
+     *            start at the beginning of the trace.
+     * @param nbRequested
+     *            The number of events requested. You can use
+     *            {@link TmfEventRequest#ALL_DATA} to indicate you want all
+     *            events in the time range.
+     * @param priority
+     *            The requested execution priority.
+     * @param batchSize
+     *            The maximum number of events per batch. You can use
+     *            {@link #DEFAULT_BATCH_SIZE}.
+     */
+    public TmfBatchEventRequest(Class<? extends ITmfEvent> dataType,
+            TmfTimeRange range,
+            long index,
+            int nbRequested,
+            ExecutionType priority,
+            int batchSize) {
+        super(dataType, range, index, nbRequested, priority);
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Invalid batch size: " + batchSize); //$NON-NLS-1$
+        }
+        fBatchSize = batchSize;
+    }
+
+    @Override
+    public int getBatchSize() {
+        return fBatchSize;
+    }
+
+    /**
+     * Events that are not delivered in a batch (by a provider that does not
+     * support batches, for example) are passed to {@link #handleData(List)}
+     * as a batch of one event.
+     */
+    @Override
+    public final void handleData(ITmfEvent event) {
+        handleData(Collections.singletonList(event));
+    }
+
+    @Override
+    public void handleData(@NonNull List<ITmfEvent> events) {
+        for (ITmfEvent event : events) {
+            super.handleData(event);
+        }
+    }
+}
@@ -13,8 +13,10 @@
 
 package org.eclipse.tracecompass.tmf.core.request;
 
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.internal.tmf.core.TmfCoreTracer;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 import org.eclipse.tracecompass.tmf.core.filter.ITmfFilter;
@@ -252,6 +254,17 @@ public abstract class TmfEventRequest implements ITmfEventRequest {
         fEventFilter = provider;
     }
 
+    /**
+     * By default, the request may read the content of any event. Requests
+     * that only look at the content of some event types should override this.
+     *
+     * @since 2.0
+     */
+    @Override
+    public @Nullable Set<String> getEventTypeProjection() {
+        return null;
+    }
+
     // ------------------------------------------------------------------------
     // Setters
     // ------------------------------------------------------------------------
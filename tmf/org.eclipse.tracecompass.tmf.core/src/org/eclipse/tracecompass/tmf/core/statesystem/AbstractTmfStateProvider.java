@@ -14,16 +14,24 @@ package org.eclipse.tracecompass.tmf.core.statesystem;
 
 import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 
-import org.eclipse.jdt.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
 import org.eclipse.jdt.annotation.Nullable;
-import org.eclipse.tracecompass.common.core.collect.BufferedBlockingQueue;
+import org.eclipse.tracecompass.internal.tmf.core.Activator;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
-import org.eclipse.tracecompass.tmf.core.event.TmfEvent;
-import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
-import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEventType;
+import org.eclipse.tracecompass.tmf.core.event.TmfEventTypeIds;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTraceWithPreDefinedEvents;
 
 /**
  * Instead of using IStateChangeInput directly, one can extend this class, which
@@ -33,7 +41,24 @@ import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
  * normally not a bad idea for traces of some size.
  *
  * processEvent() is replaced with eventHandle(), so that all the multi-thread
- * logic is abstracted away.
+ * logic is abstracted away. Events are handed over to the event handler thread
+ * a block at a time. They can also be sent in batches with
+ * {@link #processEvents(List)}.
+ *
+ * Providers that handle a fixed set of event types can register them once
+ * with {@link #registerEventHandler(String, int)}, and then use
+ * {@link #getEventHandler(ITmfEvent)} in eventHandle() to find which handler
+ * applies to an event. This is an array lookup on the event's type id, so
+ * event names do not need to be compared for every event.
+ *
+ * Providers can also be split in partitions (by CPU, for instance) with
+ * {@link #AbstractTmfStateProvider(ITmfTrace, String, int)}. Each partition
+ * then has its own thread, which runs {@link #prepareEvent(ITmfEvent, int)}
+ * on the partition's events in parallel with the other partitions. This is
+ * where the work that does not need the state system (decoding the payload,
+ * finding the handler...) should be done. The prepared events are then
+ * handled in trace order by eventHandle(), which is the only place where the
+ * state system gets modified.
  *
  * @author Alexandre Montplaisir
  */
@@ -41,13 +66,39 @@ public abstract class AbstractTmfStateProvider implements ITmfStateProvider {
 
     private static final int DEFAULT_EVENTS_QUEUE_SIZE = 127;
     private static final int DEFAULT_EVENTS_CHUNK_SIZE = 127;
+    private static final int DEFAULT_PARTITION_QUEUE_SIZE = 127;
+
+    /**
+     * Value returned by {@link #getEventHandler(ITmfEvent)} for events with
+     * no registered handler.
+     *
+     * @since 2.0
+     */
+    protected static final int NO_HANDLER = -1;
+
+    /** Dispatch table entry of event types that were not resolved yet */
+    private static final int UNRESOLVED = -2;
 
     private final ITmfTrace fTrace;
-    private final BufferedBlockingQueue<ITmfEvent> fEventsQueue;
+    private final BlockingQueue<EventBatch> fEventsQueue;
     private final Thread fEventHandlerThread;
 
+    /* Partitions, only used if fNbPartitions > 0 */
+    private final int fNbPartitions;
+    private final List<Thread> fPartitionThreads = new ArrayList<>();
+    private final List<BlockingQueue<EventBatch>> fPartitionQueues = new ArrayList<>();
+    private @Nullable EventBatch fCurrentBatch = null;
+
     private boolean fStateSystemAssigned;
 
+    /**
+     * Handler of every event type, indexed by type id. The partition threads
+     * can look up handlers too, so entries are only written while holding the
+     * lock of this provider. Readers that see an unresolved entry take the
+     * lock to resolve it.
+     */
+    private volatile int[] fEventHandlers = new int[0];
+
     /** State system in which to insert the state changes */
     private @Nullable ITmfStateSystemBuilder fSS = null;
 
@@ -60,11 +111,39 @@ public abstract class AbstractTmfStateProvider implements ITmfStateProvider {
      *            Name given to this state change input. Only used internally.
      */
     public AbstractTmfStateProvider(ITmfTrace trace, String id) {
+        this(trace, id, 0);
+    }
+
+    /**
+     * Instantiate a new state provider plugin, whose events are prepared in
+     * parallel partitions before being handled.
+     *
+     * @param trace
+     *            The trace to process
+     * @param id
+     *            Name given to this state change input. Only used internally.
+     * @param nbPartitions
+     *            The number of partitions, each with its own thread. 0 means
+     *            the events are not partitioned, and
+     *            {@link #prepareEvent(ITmfEvent, int)} is never called.
+     * @since 2.0
+     */
+    public AbstractTmfStateProvider(ITmfTrace trace, String id, int nbPartitions) {
+        if (nbPartitions < 0) {
+            throw new IllegalArgumentException("Invalid number of partitions: " + nbPartitions); //$NON-NLS-1$
+        }
         fTrace = trace;
-        fEventsQueue = new BufferedBlockingQueue<>(DEFAULT_EVENTS_QUEUE_SIZE, DEFAULT_EVENTS_CHUNK_SIZE);
+        fEventsQueue = new ArrayBlockingQueue<>(DEFAULT_EVENTS_QUEUE_SIZE);
         fStateSystemAssigned = false;
 
         fEventHandlerThread = new Thread(new EventProcessor(), id + " Event Handler"); //$NON-NLS-1$
+
+        fNbPartitions = nbPartitions;
+        for (int i = 0; i < nbPartitions; i++) {
+            BlockingQueue<EventBatch> queue = new ArrayBlockingQueue<>(DEFAULT_PARTITION_QUEUE_SIZE);
+            fPartitionQueues.add(queue);
+            fPartitionThreads.add(new Thread(new PartitionProcessor(queue, i), id + " Partition " + i)); //$NON-NLS-1$
+        }
     }
 
     /**
@@ -83,13 +162,16 @@ public abstract class AbstractTmfStateProvider implements ITmfStateProvider {
 
     @Override
     public long getStartTime() {
-        return fTrace.getStartTime().normalize(0, ITmfTimestamp.NANOSECOND_SCALE).getValue();
+        return fTrace.getStartTime().toNanos();
     }
 
     @Override
     public void assignTargetStateSystem(ITmfStateSystemBuilder ssb) {
         fSS = ssb;
         fStateSystemAssigned = true;
+        for (Thread thread : fPartitionThreads) {
+            thread.start();
+        }
         fEventHandlerThread.start();
     }
 
@@ -100,11 +182,17 @@ public abstract class AbstractTmfStateProvider implements ITmfStateProvider {
 
     @Override
     public void dispose() {
-        /* Insert a null event in the queue to stop the event handler's thread. */
+        /* Insert an end batch in the queue to stop the event handler's thread. */
         try {
-            fEventsQueue.put(END_EVENT);
-            fEventsQueue.flushInputBuffer();
+            submitCurrentBatch();
+            fEventsQueue.put(END_BATCH);
             fEventHandlerThread.join();
+            for (BlockingQueue<EventBatch> queue : fPartitionQueues) {
+                queue.put(END_BATCH);
+            }
+            for (Thread thread : fPartitionThreads) {
+                thread.join();
+            }
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
@@ -120,9 +208,61 @@ public abstract class AbstractTmfStateProvider implements ITmfStateProvider {
             return;
         }
 
-        /* Insert the event we're received into the events queue */
-        ITmfEvent curEvent = event;
-        fEventsQueue.put(curEvent);
+        addToBatch(event);
+    }
+
+    /**
+     * Process a batch of consecutive events. This is equivalent to calling
+     * {@link #processEvent(ITmfEvent)} for each event.
+     *
+     * @param events
+     *            The events to process, in trace order
+     * @since 2.0
+     */
+    public final void processEvents(List<ITmfEvent> events) {
+        /* Make sure the target state system has been assigned */
+        if (!fStateSystemAssigned) {
+            System.err.println("Cannot process event without a target state system"); //$NON-NLS-1$
+            return;
+        }
+
+        for (ITmfEvent event : events) {
+            addToBatch(checkNotNull(event));
+        }
+    }
+
+    private void addToBatch(ITmfEvent event) {
+        EventBatch batch = fCurrentBatch;
+        if (batch == null) {
+            batch = new EventBatch(DEFAULT_EVENTS_CHUNK_SIZE, fNbPartitions);
+            fCurrentBatch = batch;
+        }
+        int key = (fNbPartitions > 0 ? getEventPartition(event) : 0);
+        batch.add(event, key, (fNbPartitions > 0 ? Math.floorMod(key, fNbPartitions) : 0));
+        if (batch.isFull()) {
+            submitCurrentBatch();
+        }
+    }
+
+    /**
+     * Send the batch being filled to the partitions and to the event handler,
+     * which starts on it as soon as the partitions are done with it.
+     */
+    private void submitCurrentBatch() {
+        EventBatch batch = fCurrentBatch;
+        if (batch == null) {
+            return;
+        }
+        fCurrentBatch = null;
+        try {
+            for (BlockingQueue<EventBatch> queue : fPartitionQueues) {
+                queue.put(batch);
+            }
+            fEventsQueue.put(batch);
+        } catch (InterruptedException e) {
+            Activator.logError("Interrupted while submitting events", e); //$NON-NLS-1$
+            Thread.currentThread().interrupt();
+        }
     }
 
     /**
@@ -130,13 +270,13 @@ public abstract class AbstractTmfStateProvider implements ITmfStateProvider {
      */
     public void waitForEmptyQueue() {
         /*
-         * We will first insert a dummy event that is guaranteed to not modify
-         * the state. That way, when that event leaves the queue, we will know
+         * We will first insert a dummy batch that is guaranteed to not modify
+         * the state. That way, when that batch leaves the queue, we will know
          * for sure that the state system processed the preceding real event.
          */
         try {
-            fEventsQueue.put(EMPTY_QUEUE_EVENT);
-            fEventsQueue.flushInputBuffer();
+            submitCurrentBatch();
+            fEventsQueue.put(EMPTY_QUEUE_BATCH);
             while (!fEventsQueue.isEmpty()) {
                 Thread.sleep(100);
             }
@@ -146,25 +286,179 @@ public abstract class AbstractTmfStateProvider implements ITmfStateProvider {
     }
 
     // ------------------------------------------------------------------------
-    // Special event types
+    // Event dispatch
     // ------------------------------------------------------------------------
 
-    /** Fake event indicating the build is over, and the provider should close */
-    private static class EndEvent extends TmfEvent {
-        public EndEvent() {
-            super(null, ITmfContext.UNKNOWN_RANK, null, null, null);
+    /**
+     * Register the handler to use for events of a given type. This should be
+     * called for every handled event type before the target state system is
+     * assigned, typically from the constructor.
+     *
+     * @param eventName
+     *            The name of the event type
+     * @param handler
+     *            The handler identifier, defined by the provider. Must be
+     *            positive or zero.
+     * @throws IllegalStateException
+     *             If the target state system was already assigned
+     * @since 2.0
+     */
+    protected synchronized void registerEventHandler(String eventName, int handler) {
+        if (fStateSystemAssigned) {
+            throw new IllegalStateException("Event handlers must be registered before the state system is assigned"); //$NON-NLS-1$
+        }
+        if (handler < 0) {
+            throw new IllegalArgumentException("Invalid handler: " + handler); //$NON-NLS-1$
+        }
+        int id = TmfEventTypeIds.getId(eventName);
+        ensureDispatchCapacity(id);
+        fEventHandlers[id] = handler;
+    }
+
+    /**
+     * Get the handler registered for the type of an event. Event types that
+     * were not registered are resolved once with
+     * {@link #resolveEventHandler(String)}, and the result is kept for the
+     * next events of that type. This can be called from
+     * {@link #prepareEvent(ITmfEvent, int)}.
+     *
+     * @param event
+     *            The event
+     * @return The handler for this event, or {@link #NO_HANDLER}
+     * @since 2.0
+     */
+    protected int getEventHandler(ITmfEvent event) {
+        int id = TmfEventTypeIds.getId(event);
+        int[] handlers = fEventHandlers;
+        int handler = (id < handlers.length ? handlers[id] : UNRESOLVED);
+        if (handler == UNRESOLVED) {
+            handler = resolveEventHandler(id, event.getName());
+        }
+        return handler;
+    }
+
+    private synchronized int resolveEventHandler(int id, String eventName) {
+        ensureDispatchCapacity(id);
+        int handler = fEventHandlers[id];
+        if (handler == UNRESOLVED) {
+            handler = resolveEventHandler(eventName);
+            if (handler < 0) {
+                handler = NO_HANDLER;
+            }
+            fEventHandlers[id] = handler;
+        }
+        return handler;
+    }
+
+    /**
+     * Find the handler of an event type that was not registered with
+     * {@link #registerEventHandler(String, int)}. This is called once per
+     * event type while handling events, and can be used to handle families of events (by name
+     * prefix, for instance).
+     *
+     * @param eventName
+     *            The name of the event type
+     * @return The handler to use for this event type, or {@link #NO_HANDLER}
+     * @since 2.0
+     */
+    protected int resolveEventHandler(String eventName) {
+        return NO_HANDLER;
+    }
+
+    /**
+     * By default, the provider may read the content of any event. Providers
+     * that only read the content of the events they have a handler for can
+     * return {@link #getHandledEventTypes()} instead.
+     *
+     * @since 2.0
+     */
+    @Override
+    public @Nullable Set<String> getEventTypeProjection() {
+        return null;
+    }
+
+    /**
+     * Get the event types of the trace that have a handler, either registered
+     * with {@link #registerEventHandler(String, int)} or resolved with
+     * {@link #resolveEventHandler(String)}.
+     *
+     * @return The names of the event types, or null if the trace does not
+     *         know its event types in advance
+     * @since 2.0
+     */
+    protected @Nullable Set<String> getHandledEventTypes() {
+        if (!(fTrace instanceof ITmfTraceWithPreDefinedEvents)) {
+            return null;
         }
+        /* This can run while events are handled, so the table is not updated */
+        int[] handlers = fEventHandlers;
+        Set<String> eventNames = new HashSet<>();
+        for (ITmfEventType type : ((ITmfTraceWithPreDefinedEvents) fTrace).getContainedEventTypes()) {
+            String eventName = type.getName();
+            int id = TmfEventTypeIds.getId(eventName);
+            int handler = (id < handlers.length ? handlers[id] : UNRESOLVED);
+            if (handler == UNRESOLVED) {
+                handler = resolveEventHandler(eventName);
+            }
+            if (handler >= 0) {
+                eventNames.add(eventName);
+            }
+        }
+        return eventNames;
     }
 
-    /** Fake event indicating we want to clear the current queue */
-    private static class EmptyQueueEvent extends TmfEvent {
-        public EmptyQueueEvent() {
-            super(null, ITmfContext.UNKNOWN_RANK, null, null, null);
+    private void ensureDispatchCapacity(int id) {
+        int oldLength = fEventHandlers.length;
+        if (id < oldLength) {
+            return;
         }
+        int newLength = Math.max(id + 1, TmfEventTypeIds.getNbIds());
+        int[] handlers = Arrays.copyOf(fEventHandlers, newLength);
+        Arrays.fill(handlers, oldLength, newLength, UNRESOLVED);
+        fEventHandlers = handlers;
     }
 
-    private static final EndEvent END_EVENT = new EndEvent();
-    private static final EmptyQueueEvent EMPTY_QUEUE_EVENT = new EmptyQueueEvent();
+    // ------------------------------------------------------------------------
+    // Event batches
+    // ------------------------------------------------------------------------
+
+    /**
+     * Batch of consecutive events, prepared by the partitions (if any) and
+     * then handled as a whole by the event handler thread. This is the unit
+     * of the events queue and of the partition queues.
+     */
+    private static final class EventBatch {
+        private final ITmfEvent[] fEvents;
+        private final int[] fKeys;
+        private final int[] fPartitions;
+        private final @Nullable Object[] fPrepared;
+        private final CountDownLatch fPartitionsDone;
+        private int fSize = 0;
+
+        public EventBatch(int capacity, int nbPartitions) {
+            fEvents = new ITmfEvent[capacity];
+            fKeys = new int[capacity];
+            fPartitions = new int[capacity];
+            fPrepared = new @Nullable Object[capacity];
+            fPartitionsDone = new CountDownLatch(nbPartitions);
+        }
+
+        public void add(ITmfEvent event, int key, int partition) {
+            fEvents[fSize] = event;
+            fKeys[fSize] = key;
+            fPartitions[fSize] = partition;
+            fSize++;
+        }
+
+        public boolean isFull() {
+            return fSize == fEvents.length;
+        }
+    }
+
+    /** Empty batch indicating the build is over, and the provider should close */
+    private static final EventBatch END_BATCH = new EventBatch(0, 0);
+    /** Empty batch indicating we want to clear the current queue */
+    private static final EventBatch EMPTY_QUEUE_BATCH = new EventBatch(0, 0);
 
     // ------------------------------------------------------------------------
     // Inner classes
@@ -186,30 +480,45 @@ public abstract class AbstractTmfStateProvider implements ITmfStateProvider {
             }
 
 
-            /*
-             * We never insert null in the queue. Cannot be checked at
-             * compile-time until Java 8 annotations...
-             */
-            @NonNull ITmfEvent event = checkNotNull(fEventsQueue.take());
-            /* This is a singleton, we want to do != instead of !x.equals */
-            while (event != END_EVENT) {
-                if (event == EMPTY_QUEUE_EVENT) {
-                    /* Synchronization event, should be ignored */
-                    event = checkNotNull(fEventsQueue.take());
-                    continue;
+            try {
+                /*
+                 * We never insert null in the queue. Cannot be checked at
+                 * compile-time until Java 8 annotations...
+                 */
+                EventBatch batch = checkNotNull(fEventsQueue.take());
+                /* This is a singleton, we want to do != instead of !x.equals */
+                while (batch != END_BATCH) {
+                    /* The synchronization batch is empty, nothing to handle */
+                    handleBatch(batch);
+                    batch = checkNotNull(fEventsQueue.take());
                 }
-                currentEvent = event;
-                eventHandle(event);
-                event = checkNotNull(fEventsQueue.take());
+            } catch (InterruptedException e) {
+                Activator.logError("Event handler thread interrupted", e); //$NON-NLS-1$
+                return;
             }
             /* We've received the last event, clean up */
             closeStateSystem();
         }
 
+        private void handleBatch(EventBatch batch) {
+            try {
+                batch.fPartitionsDone.await();
+            } catch (InterruptedException e) {
+                Activator.logError("Interrupted while waiting for the partitions", e); //$NON-NLS-1$
+                Thread.currentThread().interrupt();
+                return;
+            }
+            for (int i = 0; i < batch.fSize; i++) {
+                ITmfEvent event = checkNotNull(batch.fEvents[i]);
+                currentEvent = event;
+                eventHandle(event, batch.fPrepared[i]);
+            }
+        }
+
         private void closeStateSystem() {
             ITmfEvent event = currentEvent;
             final long endTime = (event == null) ? 0 :
-                    event.getTimestamp().normalize(0, ITmfTimestamp.NANOSECOND_SCALE).getValue();
+                    event.getTimestampNanos();
 
             if (fSS != null) {
                 fSS.closeHistory(endTime);
@@ -217,6 +526,112 @@ public abstract class AbstractTmfStateProvider implements ITmfStateProvider {
         }
     }
 
+    /**
+     * Runner of the partition threads. Prepares the events of its partition,
+     * in trace order, for every batch it receives.
+     */
+    private class PartitionProcessor implements Runnable {
+
+        private final BlockingQueue<EventBatch> fQueue;
+        private final int fPartition;
+
+        public PartitionProcessor(BlockingQueue<EventBatch> queue, int partition) {
+            fQueue = queue;
+            fPartition = partition;
+        }
+
+        @Override
+        public void run() {
+            try {
+                EventBatch batch = checkNotNull(fQueue.take());
+                while (batch != END_BATCH) {
+                    prepareBatch(batch);
+                    batch = checkNotNull(fQueue.take());
+                }
+            } catch (InterruptedException e) {
+                Activator.logError("Partition thread interrupted", e); //$NON-NLS-1$
+            }
+        }
+
+        private void prepareBatch(EventBatch batch) {
+            try {
+                for (int i = 0; i < batch.fSize; i++) {
+                    if (batch.fPartitions[i] == fPartition) {
+                        ITmfEvent event = checkNotNull(batch.fEvents[i]);
+                        try {
+                            batch.fPrepared[i] = prepareEvent(event, batch.fKeys[i]);
+                        } catch (RuntimeException e) {
+                            /* Let eventHandle() deal with the event as-is */
+                            Activator.logError("Error preparing event " + event, e); //$NON-NLS-1$
+                        }
+                    }
+                }
+            } finally {
+                /* Never leave the event handler waiting */
+                batch.fPartitionsDone.countDown();
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Partitions
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get the partition key of an event, for providers created with
+     * partitions. Events with the same key are prepared by the same partition,
+     * in trace order, and the partition is the key modulo the number of
+     * partitions. The key is given back to
+     * {@link #prepareEvent(ITmfEvent, int)}, so that it does not have to be
+     * computed again. This is called from the thread sending the events, so
+     * it should be fast.
+     *
+     * @param event
+     *            The event
+     * @return The partition key of the event
+     * @since 2.0
+     */
+    protected int getEventPartition(ITmfEvent event) {
+        return 0;
+    }
+
+    /**
+     * Prepare an event in its partition's thread. The events of a partition
+     * are prepared in trace order, but concurrently with the events of the
+     * other partitions and with eventHandle(). This must not modify the state
+     * system, and must only share state with other partitions in a
+     * thread-safe way.
+     *
+     * @param event
+     *            The event to prepare
+     * @param key
+     *            The partition key of the event, as returned by
+     *            {@link #getEventPartition(ITmfEvent)}
+     * @return An object passed to {@link #eventHandle(ITmfEvent, Object)}
+     *         along with the event, or null
+     * @since 2.0
+     */
+    protected @Nullable Object prepareEvent(ITmfEvent event, int key) {
+        return null;
+    }
+
+    /**
+     * Handle an event that was prepared by its partition. The default
+     * implementation ignores the prepared data and calls
+     * {@link #eventHandle(ITmfEvent)}.
+     *
+     * @param event
+     *            The event to process
+     * @param prepared
+     *            The value returned by
+     *            {@link #prepareEvent(ITmfEvent, int)} for this event. Can be
+     *            null, also if preparing the event failed.
+     * @since 2.0
+     */
+    protected void eventHandle(ITmfEvent event, @Nullable Object prepared) {
+        eventHandle(event);
+    }
+
     // ------------------------------------------------------------------------
     // Abstract methods
     // ------------------------------------------------------------------------
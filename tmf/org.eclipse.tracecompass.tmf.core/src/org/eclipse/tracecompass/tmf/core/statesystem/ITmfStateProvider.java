@@ -12,6 +12,8 @@
 
 package org.eclipse.tracecompass.tmf.core.statesystem;
 
+import java.util.Set;
+
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
@@ -87,6 +89,17 @@ public interface ITmfStateProvider {
      */
     void processEvent(ITmfEvent event);
 
+    /**
+     * Get the event types whose content this provider reads. The events of the
+     * other types are still sent to {@link #processEvent(ITmfEvent)}, with
+     * their timestamp and type, but the trace may skip reading their content.
+     *
+     * @return The names of the event types, or null if the provider may read
+     *         the content of any event
+     * @since 2.0
+     */
+    @Nullable Set<String> getEventTypeProjection();
+
     /**
      * Provide a non-initialized copy of this state input plugin. You will need
      * to call {@link #assignTargetStateSystem} on it to assign its target.
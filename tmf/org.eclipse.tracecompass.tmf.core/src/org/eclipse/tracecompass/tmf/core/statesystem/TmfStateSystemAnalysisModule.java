@@ -17,7 +17,10 @@ import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -35,7 +38,7 @@ import org.eclipse.tracecompass.tmf.core.analysis.TmfAbstractAnalysisModule;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
 import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest;
-import org.eclipse.tracecompass.tmf.core.request.TmfEventRequest;
+import org.eclipse.tracecompass.tmf.core.request.TmfBatchEventRequest;
 import org.eclipse.tracecompass.tmf.core.signal.TmfSignalHandler;
 import org.eclipse.tracecompass.tmf.core.signal.TmfTraceRangeUpdatedSignal;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
@@ -162,6 +165,7 @@ public abstract class TmfStateSystemAnalysisModule extends TmfAbstractAnalysisMo
      * null anymore.
      */
     public void waitForInitialization() {
+        releaseCallingAnalysis();
         try {
             fInitialized.await();
         } catch (InterruptedException e) {}
@@ -439,7 +443,7 @@ public abstract class TmfStateSystemAnalysisModule extends TmfAbstractAnalysisMo
         }
     }
 
-    private class StateSystemEventRequest extends TmfEventRequest {
+    private class StateSystemEventRequest extends TmfBatchEventRequest {
         private final ITmfStateProvider sci;
         private final ITmfTrace trace;
 
@@ -448,7 +452,8 @@ public abstract class TmfStateSystemAnalysisModule extends TmfAbstractAnalysisMo
                     timeRange,
                     index,
                     ITmfEventRequest.ALL_DATA,
-                    ITmfEventRequest.ExecutionType.BACKGROUND);
+                    ITmfEventRequest.ExecutionType.BACKGROUND,
+                    TmfBatchEventRequest.DEFAULT_BATCH_SIZE);
             this.sci = sp;
 
             // sci.getTrace() will eventually return a @NonNull
@@ -457,39 +462,66 @@ public abstract class TmfStateSystemAnalysisModule extends TmfAbstractAnalysisMo
         }
 
         @Override
-        public void handleData(final ITmfEvent event) {
-            super.handleData(event);
-            if (event.getTrace() == trace) {
-                sci.processEvent(event);
-            } else if (trace instanceof TmfExperiment) {
+        public @Nullable Set<String> getEventTypeProjection() {
+            return sci.getEventTypeProjection();
+        }
+
+        @Override
+        public void handleData(final List<ITmfEvent> events) {
+            super.handleData(events);
+            List<ITmfEvent> toProcess = events;
+            if (!allFromTrace(events)) {
                 /*
-                 * If the request is for an experiment, check if the event is
-                 * from one of the child trace
+                 * If the request is for an experiment, keep the events from
+                 * its child traces
                  */
-                for (ITmfTrace childTrace : ((TmfExperiment) trace).getTraces()) {
-                    if (childTrace == event.getTrace()) {
-                        sci.processEvent(event);
+                toProcess = new ArrayList<>();
+                List<ITmfTrace> childTraces = (trace instanceof TmfExperiment ? ((TmfExperiment) trace).getTraces() : null);
+                for (ITmfEvent event : events) {
+                    if (event.getTrace() == trace || (childTraces != null && childTraces.contains(event.getTrace()))) {
+                        toProcess.add(event);
                     }
                 }
             }
+            if (sci instanceof AbstractTmfStateProvider) {
+                ((AbstractTmfStateProvider) sci).processEvents(toProcess);
+            } else {
+                for (ITmfEvent event : toProcess) {
+                    sci.processEvent(checkNotNull(event));
+                }
+            }
+        }
+
+        private boolean allFromTrace(List<ITmfEvent> events) {
+            for (ITmfEvent event : events) {
+                if (event.getTrace() != trace) {
+                    return false;
+                }
+            }
+            return true;
         }
 
         @Override
         public void handleSuccess() {
             super.handleSuccess();
-            if (isCompleteTrace(trace)) {
-                disposeProvider(false);
-            } else {
-                fNbRead += getNbRead();
-                synchronized (fRequestSyncObj) {
-                    final TmfTimeRange timeRange = fTimeRange;
-                    if (timeRange != null) {
-                        if (getRange().getEndTime().getValue() < timeRange.getEndTime().getValue()) {
-                            startRequest();
-                        }
+            synchronized (fRequestSyncObj) {
+                final TmfTimeRange timeRange = fTimeRange;
+                /*
+                 * The range can be extended while the request is running,
+                 * including by the last update of a trace that is now
+                 * complete, in which case the rest is read before the state
+                 * system is closed.
+                 */
+                boolean extended = (timeRange != null && getRange().getEndTime().getValue() < timeRange.getEndTime().getValue());
+                if (extended || !isCompleteTrace(trace)) {
+                    fNbRead += getNbRead();
+                    if (extended) {
+                        startRequest();
                     }
+                    return;
                 }
             }
+            disposeProvider(false);
         }
 
         @Override
@@ -553,6 +585,7 @@ public abstract class TmfStateSystemAnalysisModule extends TmfAbstractAnalysisMo
         ITmfEventRequest request = new StateSystemEventRequest(stateProvider, timeRange, fNbRead);
         stateProvider.getTrace().sendRequest(request);
         fRequest = request;
+        releaseReadPass();
     }
 
     private static boolean isCompleteTrace(ITmfTrace trace) {
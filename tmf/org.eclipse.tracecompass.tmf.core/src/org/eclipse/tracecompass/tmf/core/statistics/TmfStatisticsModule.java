@@ -67,6 +67,7 @@ public class TmfStatisticsModule extends TmfAbstractAnalysisModule
      * Wait until the analyses/state systems underneath are ready to be queried.
      */
     public void waitForInitialization() {
+        releaseCallingAnalysis();
         try {
             fInitialized.await();
         } catch (InterruptedException e) {}
@@ -77,6 +77,39 @@ public interface ITmfTimestamp extends Comparable<ITmfTimestamp> {
      */
     int getScale();
 
+    /**
+     * Get the value of the timestamp in nanoseconds. The values that do not
+     * fit in a long are saturated, {@link TmfTimestamp#BIG_BANG} and
+     * {@link TmfTimestamp#BIG_CRUNCH} are {@link Long#MIN_VALUE} and
+     * {@link Long#MAX_VALUE}.
+     *
+     * The default implementation normalizes the timestamp. Implementations
+     * should override it to return the value without creating a normalized
+     * timestamp.
+     *
+     * @return the timestamp value, in nanoseconds
+     * @since 2.0
+     */
+    default long toNanos() {
+        /* Saturate the values that would overflow once scaled */
+        long value = getValue();
+        for (int scale = getScale(); scale > NANOSECOND_SCALE && value != 0; scale--) {
+            if (value > Long.MAX_VALUE / 10) {
+                return Long.MAX_VALUE;
+            }
+            if (value < Long.MIN_VALUE / 10) {
+                return Long.MIN_VALUE;
+            }
+            value *= 10;
+        }
+        try {
+            return normalize(0, NANOSECOND_SCALE).getValue();
+        } catch (ArithmeticException e) {
+            /* The value is below one nanosecond */
+            return 0;
+        }
+    }
+
     // ------------------------------------------------------------------------
     // Operations
     // ------------------------------------------------------------------------
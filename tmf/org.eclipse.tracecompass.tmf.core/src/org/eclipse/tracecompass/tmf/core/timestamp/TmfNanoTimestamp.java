@@ -48,7 +48,7 @@ public class TmfNanoTimestamp extends TmfTimestamp {
      *            The timestamp to copy
      */
     public TmfNanoTimestamp(final ITmfTimestamp timestamp) {
-        super(timestamp.normalize(0, ITmfTimestamp.NANOSECOND_SCALE).getValue(), ITmfTimestamp.NANOSECOND_SCALE);
+        super(timestamp.toNanos(), ITmfTimestamp.NANOSECOND_SCALE);
     }
 
     // ------------------------------------------------------------------------
@@ -58,6 +58,9 @@ public class TmfNanoTimestamp extends TmfTimestamp {
     @Override
     public ITmfTimestamp normalize(final long offset, final int scale) {
         if (scale == ITmfTimestamp.NANOSECOND_SCALE) {
+            if (offset == 0) {
+                return this;
+            }
             return new TmfNanoTimestamp(getValue() + offset);
         }
         return super.normalize(offset, scale);
@@ -65,9 +68,8 @@ public class TmfNanoTimestamp extends TmfTimestamp {
 
     @Override
     public int compareTo(final ITmfTimestamp ts) {
-        if (ts instanceof TmfNanoTimestamp) {
-            final long delta = getValue() - ts.getValue();
-            return (delta == 0) ? 0 : (delta > 0) ? 1 : -1;
+        if (ts != null && ts.getScale() == ITmfTimestamp.NANOSECOND_SCALE) {
+            return Long.compare(getValue(), ts.getValue());
         }
         return super.compareTo(ts);
     }
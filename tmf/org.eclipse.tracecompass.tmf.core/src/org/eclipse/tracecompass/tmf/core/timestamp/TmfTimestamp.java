@@ -152,6 +152,29 @@ public class TmfTimestamp implements ITmfTimestamp {
         return fScale;
     }
 
+    @Override
+    public long toNanos() {
+        if (fScale == ITmfTimestamp.NANOSECOND_SCALE || fScale == Integer.MAX_VALUE) {
+            /* Nanoseconds, big bang or big crunch */
+            return fValue;
+        }
+        final int scaleDiff = Math.abs(fScale - ITmfTimestamp.NANOSECOND_SCALE);
+        if (fScale < ITmfTimestamp.NANOSECOND_SCALE) {
+            return (scaleDiff < scalingFactors.length) ? fValue / scalingFactors[scaleDiff] : 0;
+        }
+        if (scaleDiff >= scalingFactors.length) {
+            return (fValue < 0) ? Long.MIN_VALUE : (fValue > 0) ? Long.MAX_VALUE : 0;
+        }
+        final long factor = scalingFactors[scaleDiff];
+        if (fValue > Long.MAX_VALUE / factor) {
+            return Long.MAX_VALUE;
+        }
+        if (fValue < Long.MIN_VALUE / factor) {
+            return Long.MIN_VALUE;
+        }
+        return fValue * factor;
+    }
+
     private static final long scalingFactors[] = new long[] {
         1L,
         10L,
@@ -243,6 +266,10 @@ public class TmfTimestamp implements ITmfTimestamp {
         if (this == ts || (fValue == ts.getValue() && fScale == ts.getScale())) {
             return 0;
         }
+        if (fScale == ts.getScale()) {
+            /* Same scale, no need to normalize */
+            return Long.compare(fValue, ts.getValue());
+        }
         if ((fValue == BIG_BANG.getValue() && fScale == BIG_BANG.getScale()) || (ts.getValue() == BIG_CRUNCH.getValue() && ts.getScale() == BIG_CRUNCH.getScale())) {
             return -1;
         }
@@ -16,11 +16,14 @@
 
 package org.eclipse.tracecompass.tmf.core.trace;
 
+import java.util.function.Predicate;
+
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.internal.tmf.core.trace.indexer.TmfEventRankIterator;
 import org.eclipse.tracecompass.tmf.core.analysis.IAnalysisModule;
 import org.eclipse.tracecompass.tmf.core.component.ITmfEventProvider;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
@@ -29,6 +32,7 @@ import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
 import org.eclipse.tracecompass.tmf.core.synchronization.ITmfTimestampTransform;
 import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfEventAspectIndexable;
 import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfTraceIndexer;
 import org.eclipse.tracecompass.tmf.core.trace.location.ITmfLocation;
 
@@ -269,6 +273,49 @@ public interface ITmfTrace extends ITmfEventProvider {
      */
     @NonNull Iterable<ITmfEventAspect> getEventAspects();
 
+    /**
+     * Get the ranks of the events of this trace for which an event aspect
+     * resolves to the given value, in increasing order.
+     *
+     * @param aspect
+     *            The event aspect
+     * @param value
+     *            The value of the aspect, compared by its string
+     *            representation to the resolved values
+     * @return The ranks of the matching events
+     * @see #getEventRanks(ITmfEventAspect, Predicate, long)
+     * @since 2.0
+     */
+    default @NonNull Iterable<Long> getEventRanks(@NonNull ITmfEventAspect aspect, @NonNull Object value) {
+        String key = String.valueOf(value);
+        return getEventRanks(aspect, resolved -> key.equals(resolved), 0);
+    }
+
+    /**
+     * Get the ranks of the events of this trace, starting at a given rank, for
+     * which the string representation of the value of an event aspect is
+     * accepted by a filter, in increasing order.
+     *
+     * The events are read while the ranks are iterated. If the trace indexes
+     * the values of this aspect (see {@link ITmfEventAspectIndexable}), only
+     * the blocks of events that contain an accepted value are read, otherwise
+     * every event is read. An iterator that is not iterated to the end should be closed if it
+     * implements {@link AutoCloseable}, to release the trace context.
+     *
+     * @param aspect
+     *            The event aspect
+     * @param valueFilter
+     *            The filter of the string representation of the resolved
+     *            values
+     * @param startRank
+     *            The rank of the first event to consider
+     * @return The ranks of the matching events
+     * @since 2.0
+     */
+    default @NonNull Iterable<Long> getEventRanks(@NonNull ITmfEventAspect aspect, @NonNull Predicate<String> valueFilter, long startRank) {
+        return () -> new TmfEventRankIterator(this, aspect, valueFilter, startRank, null);
+    }
+
     // ------------------------------------------------------------------------
     // Trace characteristics getters
     // ------------------------------------------------------------------------
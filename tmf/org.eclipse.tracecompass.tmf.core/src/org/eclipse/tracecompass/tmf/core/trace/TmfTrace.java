@@ -25,6 +25,8 @@ import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.IStatus;
@@ -34,6 +36,7 @@ import org.eclipse.core.runtime.Status;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.internal.tmf.core.Activator;
+import org.eclipse.tracecompass.internal.tmf.core.trace.indexer.TmfEventRankIterator;
 import org.eclipse.tracecompass.tmf.core.analysis.IAnalysisModule;
 import org.eclipse.tracecompass.tmf.core.analysis.IAnalysisModuleHelper;
 import org.eclipse.tracecompass.tmf.core.analysis.TmfAnalysisManager;
@@ -57,6 +60,7 @@ import org.eclipse.tracecompass.tmf.core.timestamp.TmfNanoTimestamp;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfTraceIndexer;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.TmfEventAspectIndex;
 import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.TmfCheckpointIndexer;
 import org.eclipse.tracecompass.tmf.core.trace.location.ITmfLocation;
 
@@ -124,11 +128,14 @@ public abstract class TmfTrace extends TmfEventProvider implements ITmfTrace, IT
     private int fCacheSize = ITmfTrace.DEFAULT_TRACE_CACHE_SIZE;
 
     // The number of events collected (so far)
-    private volatile long fNbEvents = 0;
+    private final AtomicLong fNbEvents = new AtomicLong();
 
     // The time span of the event stream
-    private @NonNull ITmfTimestamp fStartTime = TmfTimestamp.BIG_BANG;
-    private @NonNull ITmfTimestamp fEndTime = TmfTimestamp.BIG_BANG;
+    private volatile @NonNull ITmfTimestamp fStartTime = TmfTimestamp.BIG_BANG;
+    private volatile @NonNull ITmfTimestamp fEndTime = TmfTimestamp.BIG_BANG;
+
+    // Lock for the (rare) updates extending the time span while reading
+    private final Object fTimeRangeLock = new Object();
 
     // The trace streaming interval (0 = no streaming)
     private long fStreamingInterval = 0;
@@ -287,20 +294,29 @@ public abstract class TmfTrace extends TmfEventProvider implements ITmfTrace, IT
     protected IStatus executeAnalysis() {
         MultiStatus status = new MultiStatus(Activator.PLUGIN_ID, IStatus.OK, null, null);
 
-        Multimap<String, IAnalysisModuleHelper> modules = TmfAnalysisManager.getAnalysisModules();
-        for (IAnalysisModuleHelper helper : modules.values()) {
-            try {
-                IAnalysisModule module = helper.newModule(this);
-                if (module == null) {
-                    continue;
-                }
-                fAnalysisModules.put(module.getId(), module);
-                if (module.isAutomatic()) {
-                    status.add(module.schedule());
+        /*
+         * Hold back the background requests until all the automatic analyses
+         * are scheduled, so that they share a single read pass of the trace.
+         */
+        registerPipelineConsumer(this);
+        try {
+            Multimap<String, IAnalysisModuleHelper> modules = TmfAnalysisManager.getAnalysisModules();
+            for (IAnalysisModuleHelper helper : modules.values()) {
+                try {
+                    IAnalysisModule module = helper.newModule(this);
+                    if (module == null) {
+                        continue;
+                    }
+                    fAnalysisModules.put(module.getId(), module);
+                    if (module.isAutomatic()) {
+                        status.add(module.schedule());
+                    }
+                } catch (TmfAnalysisException e) {
+                    status.add(new Status(IStatus.WARNING, Activator.PLUGIN_ID, e.getMessage()));
                 }
-            } catch (TmfAnalysisException e) {
-                status.add(new Status(IStatus.WARNING, Activator.PLUGIN_ID, e.getMessage()));
             }
+        } finally {
+            releasePipelineConsumer(this);
         }
         return status;
     }
@@ -325,6 +341,20 @@ public abstract class TmfTrace extends TmfEventProvider implements ITmfTrace, IT
         return BASE_ASPECTS;
     }
 
+    /**
+     * @since 2.0
+     */
+    @Override
+    public Iterable<Long> getEventRanks(ITmfEventAspect aspect, Predicate<String> valueFilter, long startRank) {
+        return () -> {
+            TmfEventAspectIndex index = null;
+            if (fIndexer instanceof TmfCheckpointIndexer) {
+                index = ((TmfCheckpointIndexer) fIndexer).getEventAspectIndex();
+            }
+            return new TmfEventRankIterator(this, aspect, valueFilter, startRank, index);
+        };
+    }
+
     /**
      * Clears the trace
      */
@@ -388,7 +418,7 @@ public abstract class TmfTrace extends TmfEventProvider implements ITmfTrace, IT
 
     @Override
     public long getNbEvents() {
-        return fNbEvents;
+        return fNbEvents.get();
     }
 
     @Override
@@ -436,8 +466,8 @@ public abstract class TmfTrace extends TmfEventProvider implements ITmfTrace, IT
      *
      * @param nbEvents The number of events
      */
-    protected synchronized void setNbEvents(final long nbEvents) {
-        fNbEvents = (nbEvents > 0) ? nbEvents : 0;
+    protected void setNbEvents(final long nbEvents) {
+        fNbEvents.set((nbEvents > 0) ? nbEvents : 0);
     }
 
     /**
@@ -446,8 +476,10 @@ public abstract class TmfTrace extends TmfEventProvider implements ITmfTrace, IT
      * @param range the new time range
      */
     protected void setTimeRange(final @NonNull TmfTimeRange range) {
-        fStartTime = range.getStartTime();
-        fEndTime = range.getEndTime();
+        synchronized (fTimeRangeLock) {
+            fStartTime = range.getStartTime();
+            fEndTime = range.getEndTime();
+        }
     }
 
     /**
@@ -456,7 +488,9 @@ public abstract class TmfTrace extends TmfEventProvider implements ITmfTrace, IT
      * @param startTime the new first event timestamp
      */
     protected void setStartTime(final @NonNull ITmfTimestamp startTime) {
-        fStartTime = startTime;
+        synchronized (fTimeRangeLock) {
+            fStartTime = startTime;
+        }
     }
 
     /**
@@ -465,7 +499,9 @@ public abstract class TmfTrace extends TmfEventProvider implements ITmfTrace, IT
      * @param endTime the new last event timestamp
      */
     protected void setEndTime(final @NonNull ITmfTimestamp endTime) {
-        fEndTime = endTime;
+        synchronized (fTimeRangeLock) {
+            fEndTime = endTime;
+        }
     }
 
     /**
@@ -482,7 +518,16 @@ public abstract class TmfTrace extends TmfEventProvider implements ITmfTrace, IT
     // ------------------------------------------------------------------------
 
     @Override
-    public synchronized ITmfContext seekEvent(final long rank) {
+    public ITmfContext seekEvent(final long rank) {
+        if (supportsConcurrentReads()) {
+            return seekRank(rank);
+        }
+        synchronized (this) {
+            return seekRank(rank);
+        }
+    }
+
+    private ITmfContext seekRank(final long rank) {
 
         // A rank <= 0 indicates to seek the first event
         if (rank <= 0) {
@@ -506,7 +551,16 @@ public abstract class TmfTrace extends TmfEventProvider implements ITmfTrace, IT
     }
 
     @Override
-    public synchronized ITmfContext seekEvent(final ITmfTimestamp timestamp) {
+    public ITmfContext seekEvent(final ITmfTimestamp timestamp) {
+        if (supportsConcurrentReads()) {
+            return seekTimestamp(timestamp);
+        }
+        synchronized (this) {
+            return seekTimestamp(timestamp);
+        }
+    }
+
+    private ITmfContext seekTimestamp(final ITmfTimestamp timestamp) {
 
         // A null timestamp indicates to seek the first event
         if (timestamp == null) {
@@ -546,7 +600,16 @@ public abstract class TmfTrace extends TmfEventProvider implements ITmfTrace, IT
     public abstract ITmfEvent parseEvent(ITmfContext context);
 
     @Override
-    public synchronized ITmfEvent getNext(final ITmfContext context) {
+    public ITmfEvent getNext(final ITmfContext context) {
+        if (supportsConcurrentReads()) {
+            return readNext(context);
+        }
+        synchronized (this) {
+            return readNext(context);
+        }
+    }
+
+    private ITmfEvent readNext(final ITmfContext context) {
         // parseEvent() does not update the context
         final ITmfEvent event = parseEvent(context);
         if (event != null) {
@@ -557,6 +620,24 @@ public abstract class TmfTrace extends TmfEventProvider implements ITmfTrace, IT
         return event;
     }
 
+    /**
+     * Indicates if contexts of this trace can be read concurrently from
+     * different threads without locking the trace. This is the case when all
+     * the reading state is kept in the context (or in resources owned by the
+     * context) and not in the trace itself, as opposed to a trace reading
+     * from a single shared file pointer.
+     *
+     * When this returns false (the default), the seek and read operations of
+     * this class lock the trace, so that only one context can be read at a
+     * time.
+     *
+     * @return true if independent contexts can be read concurrently
+     * @since 2.0
+     */
+    protected boolean supportsConcurrentReads() {
+        return false;
+    }
+
     /**
      * Update the trace attributes
      *
@@ -565,33 +646,46 @@ public abstract class TmfTrace extends TmfEventProvider implements ITmfTrace, IT
      * @deprecated Use {@link #updateAttributes(ITmfContext, ITmfEvent)}
      */
     @Deprecated
-    protected synchronized void updateAttributes(final ITmfContext context, final @NonNull ITmfTimestamp timestamp) {
+    protected void updateAttributes(final ITmfContext context, final @NonNull ITmfTimestamp timestamp) {
         updateAttributes(context, new TmfEvent(this, context.getRank(), timestamp, null, null));
     }
 
     /**
      * Update the trace attributes
      *
+     * This can be called concurrently for different contexts. The time range
+     * is only locked when it has to be extended, which does not happen when
+     * reading an already known part of the trace.
+     *
      * @param context the current trace context
      * @param event the corresponding event
      * @since 1.1
      */
-    protected synchronized void updateAttributes(final ITmfContext context, final @NonNull ITmfEvent event) {
+    protected void updateAttributes(final ITmfContext context, final @NonNull ITmfEvent event) {
         ITmfTimestamp timestamp = event.getTimestamp();
         ITmfTimestamp endTime = timestamp;
         if (event instanceof ITmfLostEvent) {
             endTime = ((ITmfLostEvent) event).getTimeRange().getEndTime();
         }
-        if (fStartTime.equals(TmfTimestamp.BIG_BANG) || (fStartTime.compareTo(timestamp) > 0)) {
-            fStartTime = timestamp;
+        if (isBefore(timestamp, fStartTime)) {
+            synchronized (fTimeRangeLock) {
+                if (isBefore(timestamp, fStartTime)) {
+                    fStartTime = timestamp;
+                }
+            }
         }
-        if (fEndTime.equals(TmfTimestamp.BIG_CRUNCH) || (fEndTime.compareTo(endTime) < 0)) {
-            fEndTime = endTime;
+        if (isAfter(endTime, fEndTime)) {
+            synchronized (fTimeRangeLock) {
+                if (isAfter(endTime, fEndTime)) {
+                    fEndTime = endTime;
+                }
+            }
         }
         if (context.hasValidRank()) {
             long rank = context.getRank();
-            if (fNbEvents <= rank) {
-                fNbEvents = rank + 1;
+            long nbEvents = fNbEvents.get();
+            while (nbEvents <= rank && !fNbEvents.compareAndSet(nbEvents, rank + 1)) {
+                nbEvents = fNbEvents.get();
             }
             if (fIndexer != null) {
                 fIndexer.updateIndex(context, timestamp);
@@ -599,12 +693,20 @@ public abstract class TmfTrace extends TmfEventProvider implements ITmfTrace, IT
         }
     }
 
+    private static boolean isBefore(ITmfTimestamp timestamp, ITmfTimestamp startTime) {
+        return startTime.equals(TmfTimestamp.BIG_BANG) || (startTime.compareTo(timestamp) > 0);
+    }
+
+    private static boolean isAfter(ITmfTimestamp timestamp, ITmfTimestamp endTime) {
+        return endTime.equals(TmfTimestamp.BIG_CRUNCH) || (endTime.compareTo(timestamp) < 0);
+    }
+
     // ------------------------------------------------------------------------
     // TmfDataProvider
     // ------------------------------------------------------------------------
 
     @Override
-    public synchronized ITmfContext armRequest(final ITmfEventRequest request) {
+    public ITmfContext armRequest(final ITmfEventRequest request) {
         if (executorIsShutdown()) {
             return null;
         }
@@ -697,9 +799,11 @@ public abstract class TmfTrace extends TmfEventProvider implements ITmfTrace, IT
     @TmfSignalHandler
     public void traceUpdated(final TmfTraceUpdatedSignal signal) {
         if (signal.getSource() == getIndexer()) {
-            fNbEvents = signal.getNbEvents();
-            fStartTime = signal.getRange().getStartTime();
-            fEndTime = signal.getRange().getEndTime();
+            fNbEvents.set(signal.getNbEvents());
+            synchronized (fTimeRangeLock) {
+                fStartTime = signal.getRange().getStartTime();
+                fEndTime = signal.getRange().getEndTime();
+            }
         }
     }
 
@@ -734,7 +838,7 @@ public abstract class TmfTrace extends TmfEventProvider implements ITmfTrace, IT
     @SuppressWarnings("nls")
     public synchronized String toString() {
         return "TmfTrace [fPath=" + fPath + ", fCacheSize=" + fCacheSize
-                + ", fNbEvents=" + fNbEvents + ", fStartTime=" + fStartTime
+                + ", fNbEvents=" + fNbEvents.get() + ", fStartTime=" + fStartTime
                 + ", fEndTime=" + fEndTime + ", fStreamingInterval=" + fStreamingInterval + "]";
     }
 
@@ -32,10 +32,12 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.MultiStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.common.core.ReadAheadExecutor;
 import org.eclipse.tracecompass.internal.tmf.core.Activator;
 import org.eclipse.tracecompass.internal.tmf.core.trace.experiment.TmfExperimentContext;
 import org.eclipse.tracecompass.internal.tmf.core.trace.experiment.TmfExperimentLocation;
 import org.eclipse.tracecompass.internal.tmf.core.trace.experiment.TmfLocationArray;
+import org.eclipse.tracecompass.internal.tmf.core.trace.experiment.TmfTraceReadAhead;
 import org.eclipse.tracecompass.tmf.core.TmfCommonConstants;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
@@ -95,6 +97,12 @@ public class TmfExperiment extends TmfTrace implements ITmfPersistentlyIndexable
      */
     public static final int DEFAULT_INDEX_PAGE_SIZE = 5000;
 
+    /**
+     * Minimum number of events requested for the traces to be read ahead of
+     * the merge
+     */
+    private static final int READ_AHEAD_MIN_EVENTS = 1000;
+
     // ------------------------------------------------------------------------
     // Attributes
     // ------------------------------------------------------------------------
@@ -266,22 +274,30 @@ public class TmfExperiment extends TmfTrace implements ITmfPersistentlyIndexable
     // ------------------------------------------------------------------------
 
     @Override
-    public synchronized ITmfContext armRequest(final ITmfEventRequest request) {
+    public ITmfContext armRequest(final ITmfEventRequest request) {
 
         // Make sure we have something to read from
         if (getChildren().isEmpty()) {
             return null;
         }
 
+        final ITmfContext context;
         if (!TmfTimestamp.BIG_BANG.equals(request.getRange().getStartTime())
                 && request.getIndex() == 0) {
-            final ITmfContext context = seekEvent(request.getRange().getStartTime());
+            context = seekEvent(request.getRange().getStartTime());
             request.setStartIndex((int) context.getRank());
-            return context;
-
+        } else {
+            context = seekEvent(request.getIndex());
         }
 
-        return seekEvent(request.getIndex());
+        /*
+         * Long requests read every trace ahead in batches on its own thread,
+         * the request thread only merges the events.
+         */
+        if (context instanceof TmfExperimentContext && request.getNbRequested() >= READ_AHEAD_MIN_EVENTS) {
+            ((TmfExperimentContext) context).enableReadAhead(getTraces(), ReadAheadExecutor.getExecutor());
+        }
+        return context;
     }
 
     // ------------------------------------------------------------------------
@@ -289,7 +305,7 @@ public class TmfExperiment extends TmfTrace implements ITmfPersistentlyIndexable
     // ------------------------------------------------------------------------
 
     @Override
-    public synchronized ITmfContext seekEvent(final ITmfLocation location) {
+    public ITmfContext seekEvent(final ITmfLocation location) {
         // Validate the location
         if (location != null && !(location instanceof TmfExperimentLocation)) {
             return null; // Throw an exception?
@@ -363,14 +379,14 @@ public class TmfExperiment extends TmfTrace implements ITmfPersistentlyIndexable
     // ------------------------------------------------------------------------
 
     @Override
-    public synchronized ITmfEvent parseEvent(final ITmfContext context) {
+    public ITmfEvent parseEvent(final ITmfContext context) {
         final ITmfContext tmpContext = seekEvent(context.getLocation());
         final ITmfEvent event = getNext(tmpContext);
         return event;
     }
 
     @Override
-    public synchronized ITmfEvent getNext(ITmfContext context) {
+    public ITmfEvent getNext(ITmfContext context) {
 
         // Validate the context
         if (!(context instanceof TmfExperimentContext)) {
@@ -390,25 +406,19 @@ public class TmfExperiment extends TmfTrace implements ITmfPersistentlyIndexable
         // trace
         final int lastTrace = expContext.getLastTrace();
         if (lastTrace != TmfExperimentContext.NO_TRACE) {
-            final ITmfContext traceContext = expContext.getContext(lastTrace);
-            expContext.setEvent(lastTrace, ((ITmfTrace) getChild(lastTrace)).getNext(traceContext));
+            final TmfTraceReadAhead readAhead = expContext.getReadAhead(lastTrace);
+            if (readAhead != null) {
+                readAhead.advance();
+                expContext.setEvent(lastTrace, readAhead.getEvent());
+            } else {
+                final ITmfContext traceContext = expContext.getContext(lastTrace);
+                expContext.setEvent(lastTrace, ((ITmfTrace) getChild(lastTrace)).getNext(traceContext));
+            }
             expContext.setLastTrace(TmfExperimentContext.NO_TRACE);
         }
 
-        // Scan the candidate events and identify the "next" trace to read from
-        int trace = TmfExperimentContext.NO_TRACE;
-        ITmfTimestamp timestamp = TmfTimestamp.BIG_CRUNCH;
-        for (int i = 0; i < length; i++) {
-            final ITmfEvent event = expContext.getEvent(i);
-
-            if (event != null) {
-                final ITmfTimestamp otherTS = event.getTimestamp();
-                if (otherTS.compareTo(timestamp) < 0) {
-                    trace = i;
-                    timestamp = otherTS;
-                }
-            }
-        }
+        // Identify the "next" trace to read from
+        final int trace = expContext.getNextTrace();
 
         ITmfEvent event = null;
         if (trace != TmfExperimentContext.NO_TRACE) {
@@ -417,15 +427,25 @@ public class TmfExperiment extends TmfTrace implements ITmfPersistentlyIndexable
                 updateAttributes(expContext, event);
                 expContext.increaseRank();
                 expContext.setLastTrace(trace);
-                final ITmfContext traceContext = expContext.getContext(trace);
-                if (traceContext == null) {
-                    throw new IllegalStateException();
+                final ITmfLocation traceLocation;
+                final long traceRank;
+                final TmfTraceReadAhead readAhead = expContext.getReadAhead(trace);
+                if (readAhead != null) {
+                    traceLocation = readAhead.getLocation();
+                    traceRank = readAhead.getRank();
+                } else {
+                    final ITmfContext traceContext = expContext.getContext(trace);
+                    if (traceContext == null) {
+                        throw new IllegalStateException();
+                    }
+                    traceLocation = traceContext.getLocation();
+                    traceRank = traceContext.getRank();
                 }
 
                 // Update the experiment location
                 TmfLocationArray locationArray = new TmfLocationArray(
                         ((TmfExperimentLocation) expContext.getLocation()).getLocationInfo(),
-                        trace, traceContext.getLocation(), traceContext.getRank());
+                        trace, traceLocation, traceRank);
                 expContext.setLocation(new TmfExperimentLocation(locationArray));
             }
         }
@@ -433,6 +453,16 @@ public class TmfExperiment extends TmfTrace implements ITmfPersistentlyIndexable
         return event;
     }
 
+    /**
+     * The reading state of an experiment is in its context (the contexts of
+     * the traces and their next events), and the traces protect their own
+     * contexts, so the experiment does not need to be locked to read.
+     */
+    @Override
+    protected boolean supportsConcurrentReads() {
+        return true;
+    }
+
     @Override
     public ITmfTimestamp getInitialRangeOffset() {
 
@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.trace.indexer;
+
+import java.util.Collection;
+
+import org.eclipse.tracecompass.tmf.core.event.aspect.ITmfEventAspect;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+
+/**
+ * A trace implementing this interface gets an index of the values of some of
+ * its event aspects, built while the trace is indexed, so that the events
+ * with a given value can be read without reading the whole trace.
+ *
+ * @see TmfEventAspectIndex
+ * @see ITmfTrace#getEventRanks(ITmfEventAspect, Object)
+ * @since 2.0
+ */
+public interface ITmfEventAspectIndexable {
+
+    /**
+     * Get the event aspects to index. They are resolved for every event while
+     * the trace is indexed, so they must not depend on analyses of the trace
+     * and should be cheap to resolve.
+     *
+     * @return The event aspects to index, can be empty
+     */
+    Collection<ITmfEventAspect> getIndexedEventAspects();
+}
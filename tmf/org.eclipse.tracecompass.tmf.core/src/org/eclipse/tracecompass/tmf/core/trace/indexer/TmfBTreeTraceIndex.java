@@ -127,4 +127,10 @@ public class TmfBTreeTraceIndex implements ITmfCheckpointIndex {
     public long getNbEvents() {
         return fCheckpoints.getNbEvents();
     }
+
+    @Override
+    public void setIndexComplete() {
+        fCheckpoints.setIndexComplete();
+        fCheckpointRanks.setIndexComplete();
+    }
 }
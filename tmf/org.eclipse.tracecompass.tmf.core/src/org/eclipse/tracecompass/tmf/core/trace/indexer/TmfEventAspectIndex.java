@@ -0,0 +1,417 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.trace.indexer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.internal.tmf.core.Activator;
+import org.eclipse.tracecompass.internal.tmf.core.trace.indexer.Messages;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.aspect.ITmfEventAspect;
+
+/**
+ * Index of the values taken by some event aspects of a trace (typically the
+ * event type, the CPU or the thread), used to read only the events that have
+ * a given value.
+ *
+ * The trace is divided in blocks of consecutive events (the checkpoint
+ * interval of the trace indexer), and the index keeps, for each value of each
+ * aspect, the set of blocks that contain at least one event with this value.
+ * Reading the events with a rare value then only reads a few blocks instead of
+ * the whole trace.
+ *
+ * The index covers the first {@link #getNbEvents()} events of the trace. It is
+ * saved in the supplementary files of the trace when it is complete, and
+ * restored when the trace is opened again.
+ *
+ * @see ITmfEventAspectIndexable
+ * @since 2.0
+ */
+public class TmfEventAspectIndex {
+
+    /**
+     * Typical event aspect index file name
+     */
+    public static final String INDEX_FILE_NAME = "event_aspect_index.idx"; //$NON-NLS-1$
+
+    private static final int MAGIC = 0x544d4641; /* "TMFA" */
+    private static final int VERSION = 1;
+
+    /** The blocks of a value are written as a list of block numbers */
+    private static final byte SPARSE = 'S';
+    /** The blocks of a value are written as a bitmap */
+    private static final byte DENSE = 'D';
+
+    private final File fFile;
+    private final int fBlockSize;
+    private final List<ITmfEventAspect> fAspects;
+
+    /** Per aspect, the id of each value */
+    private final List<Map<String, Integer>> fValueIds = new ArrayList<>();
+    /** Per aspect, the values by id */
+    private final List<List<String>> fValues = new ArrayList<>();
+    /** Per aspect, the blocks of each value, by value id */
+    private final List<List<BitSet>> fBlocks = new ArrayList<>();
+
+    /** The number of events covered by the index */
+    private long fNbEvents = 0;
+
+    /**
+     * Create the index of the given event aspects of a trace, restoring it
+     * from the file if it exists and was built with the same aspects and
+     * block size.
+     *
+     * @param file
+     *            The file to use as the persistent storage
+     * @param blockSize
+     *            The number of events in a block
+     * @param aspects
+     *            The aspects to index. Their values must be resolvable while
+     *            the trace is being indexed.
+     */
+    public TmfEventAspectIndex(File file, int blockSize, Collection<ITmfEventAspect> aspects) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Invalid block size: " + blockSize); //$NON-NLS-1$
+        }
+        fFile = file;
+        fBlockSize = blockSize;
+        fAspects = new ArrayList<>(aspects);
+        clear();
+        if (fFile.isFile() && !restore()) {
+            clear();
+        }
+    }
+
+    private void clear() {
+        fValueIds.clear();
+        fValues.clear();
+        fBlocks.clear();
+        for (int i = 0; i < fAspects.size(); i++) {
+            fValueIds.add(new HashMap<>());
+            fValues.add(new ArrayList<>());
+            fBlocks.add(new ArrayList<>());
+        }
+        fNbEvents = 0;
+    }
+
+    // ------------------------------------------------------------------------
+    // Building the index
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get the id of an indexed aspect, to be used with {@link #add}.
+     *
+     * @param aspect
+     *            The aspect
+     * @return The id of this aspect, or -1 if it is not indexed
+     */
+    public int getAspectId(ITmfEventAspect aspect) {
+        return fAspects.indexOf(aspect);
+    }
+
+    /**
+     * Get the indexed aspects
+     *
+     * @return The indexed aspects, by aspect id
+     */
+    public List<ITmfEventAspect> getAspects() {
+        return new ArrayList<>(fAspects);
+    }
+
+    /**
+     * Get the id of a value of an aspect, to be used with {@link #add}. The
+     * values are compared by their string representation.
+     *
+     * @param aspectId
+     *            The aspect id
+     * @param value
+     *            The value of the aspect
+     * @return The id of this value
+     */
+    public synchronized int getValueId(int aspectId, Object value) {
+        String key = String.valueOf(value);
+        Integer id = fValueIds.get(aspectId).get(key);
+        if (id == null) {
+            id = fValues.get(aspectId).size();
+            fValueIds.get(aspectId).put(key, id);
+            fValues.get(aspectId).add(key);
+            fBlocks.get(aspectId).add(new BitSet());
+        }
+        return id;
+    }
+
+    /**
+     * Add an event of the trace to the index. The events must be added in
+     * increasing rank order. Events that are already covered by the index are
+     * ignored.
+     *
+     * @param event
+     *            The event
+     * @param rank
+     *            The rank of the event in the trace
+     */
+    public synchronized void addEvent(ITmfEvent event, long rank) {
+        if (rank < fNbEvents) {
+            return;
+        }
+        for (int aspectId = 0; aspectId < fAspects.size(); aspectId++) {
+            Object value = fAspects.get(aspectId).resolve(event);
+            if (value != null) {
+                add(aspectId, getValueId(aspectId, value), rank, rank);
+            }
+        }
+        fNbEvents = rank + 1;
+    }
+
+    /**
+     * Record that the events in a range of ranks may have a value. This can be
+     * used by indexers that know the values of the events without creating
+     * the events, and by indexers that only know the approximate rank of an
+     * event: the index remains correct as long as every event is in one of the
+     * ranges added for its values. The number of events covered by the index
+     * is set by {@link #setComplete}.
+     *
+     * @param aspectId
+     *            The aspect id, see {@link #getAspectId}
+     * @param valueId
+     *            The value id, see {@link #getValueId}
+     * @param startRank
+     *            The first rank of the range
+     * @param endRank
+     *            The last rank of the range, inclusive
+     */
+    public synchronized void add(int aspectId, int valueId, long startRank, long endRank) {
+        int startBlock = (int) (startRank / fBlockSize);
+        int endBlock = (int) (endRank / fBlockSize);
+        fBlocks.get(aspectId).get(valueId).set(startBlock, endBlock + 1);
+    }
+
+    /**
+     * Mark the index as covering the first events of the trace, and save it.
+     *
+     * @param nbEvents
+     *            The number of events covered by the index, normally the
+     *            number of events of the trace
+     */
+    public synchronized void setComplete(long nbEvents) {
+        fNbEvents = nbEvents;
+        try {
+            save();
+        } catch (IOException e) {
+            Activator.logError(MessageFormat.format(Messages.EventAspectIndex_IOErrorWriting, fFile), e);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Querying the index
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get the number of events in a block
+     *
+     * @return The block size
+     */
+    public int getBlockSize() {
+        return fBlockSize;
+    }
+
+    /**
+     * Get the number of events covered by the index. Only the blocks of these
+     * events are known, the following events must all be read.
+     *
+     * @return The number of events covered by the index
+     */
+    public synchronized long getNbEvents() {
+        return fNbEvents;
+    }
+
+    /**
+     * Get the blocks of events that may contain events for which an aspect
+     * has a given value. Block 'i' contains the events of ranks
+     * [i * blockSize, (i + 1) * blockSize[.
+     *
+     * @param aspect
+     *            The aspect
+     * @param value
+     *            The value of the aspect
+     * @return A copy of the set of blocks that contain this value (empty if
+     *         no indexed event has this value), or null if this aspect is not
+     *         indexed
+     */
+    public synchronized @Nullable BitSet getBlocks(ITmfEventAspect aspect, Object value) {
+        int aspectId = getAspectId(aspect);
+        if (aspectId < 0) {
+            return null;
+        }
+        Integer valueId = fValueIds.get(aspectId).get(String.valueOf(value));
+        if (valueId == null) {
+            return new BitSet();
+        }
+        return (BitSet) fBlocks.get(aspectId).get(valueId).clone();
+    }
+
+    /**
+     * Get the values of an aspect found in the indexed events
+     *
+     * @param aspect
+     *            The aspect
+     * @return The string representation of the values, empty if the aspect is
+     *         not indexed
+     */
+    public synchronized Collection<String> getValues(ITmfEventAspect aspect) {
+        int aspectId = getAspectId(aspect);
+        if (aspectId < 0) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(fValues.get(aspectId));
+    }
+
+    // ------------------------------------------------------------------------
+    // Persistence
+    // ------------------------------------------------------------------------
+
+    /**
+     * File format:
+     *
+     * <pre>
+     * int magic, int version, int blockSize, long nbEvents, int nbAspects
+     * for each aspect:
+     *     UTF name, int nbValues
+     *     for each value:
+     *         UTF value, byte encoding,
+     *         SPARSE: int nbBlocks, int[] blocks
+     *         DENSE: int nbWords, long[] words
+     * </pre>
+     */
+    private void save() throws IOException {
+        File parent = fFile.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create directory " + parent); //$NON-NLS-1$
+        }
+        File tmpFile = new File(fFile.getPath() + ".tmp"); //$NON-NLS-1$
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(fBlockSize);
+            out.writeLong(fNbEvents);
+            out.writeInt(fAspects.size());
+            for (int aspectId = 0; aspectId < fAspects.size(); aspectId++) {
+                out.writeUTF(fAspects.get(aspectId).getName());
+                List<String> values = fValues.get(aspectId);
+                out.writeInt(values.size());
+                for (int valueId = 0; valueId < values.size(); valueId++) {
+                    out.writeUTF(values.get(valueId));
+                    writeBlocks(out, fBlocks.get(aspectId).get(valueId));
+                }
+            }
+        }
+        Files.move(tmpFile.toPath(), fFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeBlocks(DataOutputStream out, BitSet blocks) throws IOException {
+        long[] words = blocks.toLongArray();
+        int cardinality = blocks.cardinality();
+        /* Rare values are much smaller as a list of blocks */
+        if ((long) cardinality * Integer.BYTES < (long) words.length * Long.BYTES) {
+            out.writeByte(SPARSE);
+            out.writeInt(cardinality);
+            for (int block = blocks.nextSetBit(0); block >= 0; block = blocks.nextSetBit(block + 1)) {
+                out.writeInt(block);
+            }
+        } else {
+            out.writeByte(DENSE);
+            out.writeInt(words.length);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+        }
+    }
+
+    /**
+     * Restore the index from the file.
+     *
+     * @return true if the index was restored, false if the file is invalid or
+     *         was built for other aspects
+     */
+    private boolean restore() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != fBlockSize) {
+                return false;
+            }
+            long nbEvents = in.readLong();
+            if (in.readInt() != fAspects.size()) {
+                return false;
+            }
+            for (int aspectId = 0; aspectId < fAspects.size(); aspectId++) {
+                if (!fAspects.get(aspectId).getName().equals(in.readUTF())) {
+                    return false;
+                }
+                int nbValues = in.readInt();
+                for (int i = 0; i < nbValues; i++) {
+                    int valueId = getValueId(aspectId, in.readUTF());
+                    fBlocks.get(aspectId).set(valueId, readBlocks(in));
+                }
+            }
+            fNbEvents = nbEvents;
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            /* Corrupted file, the index will be rebuilt */
+            return false;
+        }
+    }
+
+    private static BitSet readBlocks(DataInputStream in) throws IOException {
+        byte encoding = in.readByte();
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid length: " + length); //$NON-NLS-1$
+        }
+        if (encoding == SPARSE) {
+            BitSet blocks = new BitSet();
+            for (int i = 0; i < length; i++) {
+                blocks.set(in.readInt());
+            }
+            return blocks;
+        } else if (encoding == DENSE) {
+            long[] words = new long[length];
+            for (int i = 0; i < length; i++) {
+                words[i] = in.readLong();
+            }
+            return BitSet.valueOf(words);
+        }
+        throw new IOException("Invalid encoding: " + encoding); //$NON-NLS-1$
+    }
+
+    /**
+     * Delete the index file
+     */
+    public void delete() {
+        if (fFile.exists()) {
+            fFile.delete();
+        }
+    }
+}
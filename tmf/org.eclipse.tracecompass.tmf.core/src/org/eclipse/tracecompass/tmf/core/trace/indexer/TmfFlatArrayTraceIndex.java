@@ -102,4 +102,9 @@ public class TmfFlatArrayTraceIndex implements ITmfCheckpointIndex {
     public long getNbEvents() {
         return fCheckpoints.getNbEvents();
     }
+
+    @Override
+    public void setIndexComplete() {
+        fCheckpoints.setIndexComplete();
+    }
 }
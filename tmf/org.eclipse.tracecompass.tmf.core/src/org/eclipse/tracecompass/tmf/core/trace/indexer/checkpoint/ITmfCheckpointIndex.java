@@ -109,4 +109,13 @@ public interface ITmfCheckpointIndex {
      * @return the total number of events
      */
     long getNbEvents();
+
+    /**
+     * Notify the index that all the checkpoints of the trace were inserted.
+     * Implementors can use this to switch to a representation better suited
+     * for searching, until the next insertion.
+     *
+     * @since 2.0
+     */
+    void setIndexComplete();
 }
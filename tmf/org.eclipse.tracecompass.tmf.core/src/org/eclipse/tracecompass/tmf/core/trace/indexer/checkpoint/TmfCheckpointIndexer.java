@@ -13,16 +13,21 @@
 
 package org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint;
 
+import java.io.File;
+import java.util.Collection;
+
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.internal.tmf.core.Messages;
 import org.eclipse.tracecompass.internal.tmf.core.TmfCoreTracer;
 import org.eclipse.tracecompass.internal.tmf.core.trace.indexer.TmfMemoryIndex;
 import org.eclipse.tracecompass.tmf.core.component.TmfEventProvider;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.aspect.ITmfEventAspect;
 import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest;
 import org.eclipse.tracecompass.tmf.core.request.TmfEventRequest;
 import org.eclipse.tracecompass.tmf.core.signal.TmfTraceUpdatedSignal;
@@ -31,7 +36,10 @@ import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfEventAspectIndexable;
 import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfTraceIndexer;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.TmfEventAspectIndex;
 import org.eclipse.tracecompass.tmf.core.trace.location.ITmfLocation;
 
 /**
@@ -73,6 +81,13 @@ public class TmfCheckpointIndexer implements ITmfTraceIndexer {
      */
     protected final ITmfCheckpointIndex fTraceIndex;
 
+    /**
+     * The index of the event aspect values, built along with the trace index
+     * if the trace asks for one
+     */
+    private @Nullable TmfEventAspectIndex fEventAspectIndex = null;
+    private boolean fEventAspectIndexCreated = false;
+
     /**
      * The indexing request
      */
@@ -119,6 +134,37 @@ public class TmfCheckpointIndexer implements ITmfTraceIndexer {
         return new TmfMemoryIndex(trace);
     }
 
+    /**
+     * Creates the index of the event aspect values, if the trace implements
+     * {@link ITmfEventAspectIndexable}. Its blocks are the checkpoint
+     * intervals. It is called once, the first time the event aspect index is
+     * needed, so not from the constructor. A previously saved event aspect
+     * index is discarded if the trace index is created from scratch.
+     *
+     * @param trace
+     *            the trace to index
+     * @param interval
+     *            the checkpoints interval
+     * @return the event aspect index, or null if the trace does not index any
+     *         event aspect
+     * @since 2.0
+     */
+    protected @Nullable TmfEventAspectIndex createEventAspectIndex(final ITmfTrace trace, final int interval) {
+        if (!(trace instanceof ITmfEventAspectIndexable)) {
+            return null;
+        }
+        Collection<ITmfEventAspect> aspects = ((ITmfEventAspectIndexable) trace).getIndexedEventAspects();
+        if (aspects.isEmpty()) {
+            return null;
+        }
+        File file = new File(TmfTraceManager.getSupplementaryFileDir(trace) + TmfEventAspectIndex.INDEX_FILE_NAME);
+        if (fTraceIndex.isCreatedFromScratch()) {
+            /* The events will all be read again, don't keep a stale index */
+            file.delete();
+        }
+        return new TmfEventAspectIndex(file, interval, aspects);
+    }
+
     @Override
     public void dispose() {
         if ((fIndexingRequest != null) && !fIndexingRequest.isCompleted()) {
@@ -154,10 +200,15 @@ public class TmfCheckpointIndexer implements ITmfTraceIndexer {
             }
             fIsIndexing = true;
         }
+        final TmfEventAspectIndex eventAspectIndex = getEventAspectIndex();
 
         // Restore previously built index values
         if (!fTraceIndex.isCreatedFromScratch() && !fBuiltOnce && fTraceIndex.getNbEvents() > 0) {
             indexingOffset = fTraceIndex.getNbEvents();
+            if (eventAspectIndex != null) {
+                /* Read the events that the event aspect index does not cover yet */
+                indexingOffset = Math.min(indexingOffset, eventAspectIndex.getNbEvents());
+            }
             indexingTimeRange = new TmfTimeRange(fTraceIndex.getTimeRange().getStartTime(), TmfTimestamp.BIG_CRUNCH);
             TmfCoreTracer.traceIndexer("restoring index. nbEvents: " + fTraceIndex.getNbEvents() + " time range: " + fTraceIndex.getTimeRange()); //$NON-NLS-1$ //$NON-NLS-2$
             // Set some trace attributes that depends on indexing
@@ -201,6 +252,9 @@ public class TmfCheckpointIndexer implements ITmfTraceIndexer {
             @Override
             public void handleData(final ITmfEvent event) {
                 super.handleData(event);
+                if (eventAspectIndex != null) {
+                    eventAspectIndex.addEvent(event, getIndex() + getNbRead() - 1);
+                }
                 // Update the trace status at regular intervals
                 if ((getNbRead() % fCheckpointInterval) == 0) {
                     updateTraceStatus();
@@ -217,6 +271,10 @@ public class TmfCheckpointIndexer implements ITmfTraceIndexer {
                 job.cancel();
                 fTraceIndex.setTimeRange(fTrace.getTimeRange());
                 fTraceIndex.setNbEvents(fTrace.getNbEvents());
+                fTraceIndex.setIndexComplete();
+                if (eventAspectIndex != null && !isCancelled() && !isFailed()) {
+                    eventAspectIndex.setComplete(fTrace.getNbEvents());
+                }
                 super.handleCompleted();
                 fIsIndexing = false;
                 TmfCoreTracer.traceIndexer("Build index request completed. nbEvents: " + fTraceIndex.getNbEvents() + " time range: " + fTraceIndex.getTimeRange()); //$NON-NLS-1$ //$NON-NLS-2$
@@ -254,15 +312,18 @@ public class TmfCheckpointIndexer implements ITmfTraceIndexer {
     // ------------------------------------------------------------------------
 
     @Override
-    public synchronized void updateIndex(final ITmfContext context, final ITmfTimestamp timestamp) {
+    public void updateIndex(final ITmfContext context, final ITmfTimestamp timestamp) {
+        /* Only lock the indexer for the events that can be checkpoints */
         if ((context.getRank() % fCheckpointInterval) == 0) {
-            // Determine the table position
-            final long position = context.getRank() / fCheckpointInterval;
-            // Add new entry at proper location (if empty)
-            if (fTraceIndex.size() == position) {
-                TmfCheckpoint checkpoint = new TmfCheckpoint(timestamp, context.getLocation(), position);
-                TmfCoreTracer.traceIndexer("Inserting checkpoint: " + checkpoint); //$NON-NLS-1$
-                fTraceIndex.insert(checkpoint);
+            synchronized (this) {
+                // Determine the table position
+                final long position = context.getRank() / fCheckpointInterval;
+                // Add new entry at proper location (if empty)
+                if (fTraceIndex.size() == position) {
+                    TmfCheckpoint checkpoint = new TmfCheckpoint(timestamp, context.getLocation(), position);
+                    TmfCoreTracer.traceIndexer("Inserting checkpoint: " + checkpoint); //$NON-NLS-1$
+                    fTraceIndex.insert(checkpoint);
+                }
             }
         }
     }
@@ -346,4 +407,30 @@ public class TmfCheckpointIndexer implements ITmfTraceIndexer {
     protected ITmfCheckpointIndex getTraceIndex() {
         return fTraceIndex;
     }
+
+    /**
+     * Get the index of the event aspect values of the trace
+     *
+     * @return the event aspect index, or null if the trace does not index any
+     *         event aspect
+     * @since 2.0
+     */
+    public synchronized @Nullable TmfEventAspectIndex getEventAspectIndex() {
+        if (!fEventAspectIndexCreated) {
+            fEventAspectIndex = createEventAspectIndex(fTrace, fCheckpointInterval);
+            fEventAspectIndexCreated = true;
+        }
+        return fEventAspectIndex;
+    }
+
+    /**
+     * Get the interval between checkpoints, in number of events. Checkpoint
+     * 'i' of the index is at rank i * interval.
+     *
+     * @return the checkpoints interval
+     * @since 2.0
+     */
+    protected int getCheckpointInterval() {
+        return fCheckpointInterval;
+    }
 }
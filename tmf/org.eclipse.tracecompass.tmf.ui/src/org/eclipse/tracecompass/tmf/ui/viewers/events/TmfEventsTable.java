@@ -26,6 +26,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map.Entry;
@@ -124,6 +125,7 @@ import org.eclipse.swt.widgets.TableItem;
 import org.eclipse.swt.widgets.Text;
 import org.eclipse.tracecompass.common.core.NonNullUtils;
 import org.eclipse.tracecompass.internal.tmf.core.filter.TmfCollapseFilter;
+import org.eclipse.tracecompass.internal.tmf.core.trace.indexer.TmfEventRankIterator;
 import org.eclipse.tracecompass.internal.tmf.ui.Activator;
 import org.eclipse.tracecompass.internal.tmf.ui.Messages;
 import org.eclipse.tracecompass.internal.tmf.ui.commands.CopyToClipboardOperation;
@@ -160,6 +162,7 @@ import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
 import org.eclipse.tracecompass.tmf.core.trace.TmfTrace;
 import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfEventAspectIndexable;
 import org.eclipse.tracecompass.tmf.core.trace.location.ITmfLocation;
 import org.eclipse.tracecompass.tmf.ui.viewers.events.TmfEventsCache.CachedEvent;
 import org.eclipse.tracecompass.tmf.ui.viewers.events.columns.TmfEventTableColumn;
@@ -2298,6 +2301,15 @@ public class TmfEventsTable extends TmfComponent implements IGotoMarker, IColorS
                 }
             }
             final int startRank = (int) rank;
+            if (foundRank == -1 && direction == Direction.FORWARD && eventFilter == null
+                    && searchIndexedEvents(trace, startRank, monitor)) {
+                if (foundRank == -1) {
+                    synchronized (fSearchSyncObj) {
+                        fSearchThread = null;
+                    }
+                    return Status.OK_STATUS;
+                }
+            }
             boolean wrapped = false;
             while (!monitor.isCanceled() && (foundRank == -1)) {
                 int nbRequested = (direction == Direction.FORWARD ? Integer.MAX_VALUE : Math.min((int) rank + 1, trace.getCacheSize()));
@@ -2393,9 +2405,68 @@ public class TmfEventsTable extends TmfComponent implements IGotoMarker, IColorS
             return Status.OK_STATUS;
         }
 
+        /**
+         * Search forward with the index of the aspect values of the trace, if
+         * the search filter is a regular expression on an indexed aspect. Only
+         * the blocks of events that can contain a matching value are read.
+         *
+         * @return true if the index was used, foundRank is then set if a
+         *         matching event was found
+         */
+        private boolean searchIndexedEvents(final ITmfTrace trace, final long fromRank, final IProgressMonitor monitor) {
+            ITmfFilterTreeNode node = searchFilter;
+            if (node instanceof TmfFilterAndNode && node.getChildrenCount() == 1) {
+                node = node.getChild(0);
+            }
+            if (!(node instanceof TmfFilterMatchesNode) || !(trace instanceof ITmfEventAspectIndexable)) {
+                return false;
+            }
+            final TmfFilterMatchesNode matchesNode = (TmfFilterMatchesNode) node;
+            final ITmfEventAspect aspect = matchesNode.getEventAspect();
+            final String regex = matchesNode.getRegex();
+            if (matchesNode.isNot() || aspect == null || regex == null
+                    || !((ITmfEventAspectIndexable) trace).getIndexedEventAspects().contains(aspect)) {
+                return false;
+            }
+            final Pattern pattern;
+            try {
+                pattern = Pattern.compile(regex, Pattern.DOTALL);
+            } catch (final PatternSyntaxException e) {
+                return false;
+            }
+            /* Search from the start rank to the end, then wrap around */
+            for (final long searchStart : new long[] { fromRank, 0 }) {
+                final Iterator<Long> ranks = trace.getEventRanks(aspect, value -> pattern.matcher(value).find(), searchStart).iterator();
+                try {
+                    if (!monitor.isCanceled() && ranks.hasNext()) {
+                        final long matchRank = ranks.next();
+                        if (searchStart == 0 && matchRank >= fromRank) {
+                            return true;
+                        }
+                        final ITmfContext context = trace.seekEvent(matchRank);
+                        final ITmfEvent event = trace.getNext(context);
+                        context.dispose();
+                        foundRank = matchRank;
+                        foundTimestamp = (event == null ? null : event.getTimestamp());
+                        return true;
+                    }
+                } finally {
+                    if (ranks instanceof TmfEventRankIterator) {
+                        ((TmfEventRankIterator) ranks).close();
+                    }
+                }
+                if (fromRank == 0) {
+                    break;
+                }
+            }
+            return true;
+        }
+
         @Override
         protected void canceling() {
-            request.cancel();
+            if (request != null) {
+                request.cancel();
+            }
             synchronized (fSearchSyncObj) {
                 fSearchThread = null;
             }
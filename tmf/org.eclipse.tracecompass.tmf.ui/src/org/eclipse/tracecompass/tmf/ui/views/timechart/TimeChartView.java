@@ -488,7 +488,7 @@ public class TimeChartView extends TmfView implements ITimeGraphRangeListener, I
                         if (event == null) {
                             break;
                         }
-                        long eventTime = event.getTimestamp().normalize(0, ITmfTimestamp.NANOSECOND_SCALE).getValue();
+                        long eventTime = event.getTimestampNanos();
                         if (eventTime >= timeChartEvent.getTime() && eventTime <= timeChartEvent.getTime() + timeChartEvent.getDuration()) {
                             priority = Math.min(priority, ColorSettingsManager.getColorSettingPriority(event));
                         }